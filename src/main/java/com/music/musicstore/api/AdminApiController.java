@@ -7,6 +7,8 @@ import com.music.musicstore.dto.StaffRegistrationResponse;
 import com.music.musicstore.dto.AdminRegistrationRequest;
 import com.music.musicstore.dto.AdminRegistrationResponse;
 import com.music.musicstore.dto.ErrorResponse;
+import com.music.musicstore.exceptions.ServiceUnavailableException;
+import com.music.musicstore.exceptions.ValidationException;
 import com.music.musicstore.services.UnifiedUserService;
 import com.music.musicstore.services.MusicService;
 import com.music.musicstore.services.OrderService;
@@ -15,11 +17,32 @@ import com.music.musicstore.services.StaffService;
 import com.music.musicstore.services.AdminService;
 import com.music.musicstore.services.ReviewService;
 import com.music.musicstore.services.AuditLogService;
+import com.music.musicstore.services.WaveformService;
+import com.music.musicstore.services.LoudnessService;
+import com.music.musicstore.services.AcousticSimilarityService;
+import com.music.musicstore.services.CoPurchaseService;
+import com.music.musicstore.services.HotTrackCache;
+import com.music.musicstore.services.DownloadBandwidthScheduler;
+import com.music.musicstore.services.EntitlementService;
+import com.music.musicstore.services.ChartService;
+import com.music.musicstore.services.HeavyHitterService;
+import com.music.musicstore.services.MusicActivityLogService;
+import com.music.musicstore.services.HomeFeedService;
+import com.music.musicstore.services.TrendingService;
+import com.music.musicstore.services.AudioSegmentService;
+import com.music.musicstore.services.UserPrincipalService;
+import com.music.musicstore.services.TokenRevocationService;
+import com.music.musicstore.services.LoginProtectionService;
+import com.music.musicstore.services.RateLimitService;
+import com.music.musicstore.services.UserCountService;
+import com.music.musicstore.services.UserGrowthService;
+import com.music.musicstore.services.UserSearchService;
 import com.music.musicstore.models.users.Staff;
 import com.music.musicstore.models.users.Admin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -32,6 +55,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -67,6 +93,66 @@ public class AdminApiController {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private WaveformService waveformService;
+
+    @Autowired
+    private LoudnessService loudnessService;
+
+    @Autowired
+    private AcousticSimilarityService acousticSimilarityService;
+
+    @Autowired
+    private CoPurchaseService coPurchaseService;
+
+    @Autowired
+    private HotTrackCache hotTrackCache;
+
+    @Autowired
+    private DownloadBandwidthScheduler bandwidthScheduler;
+
+    @Autowired
+    private EntitlementService entitlementService;
+
+    @Autowired
+    private AudioSegmentService audioSegmentService;
+
+    @Autowired
+    private HomeFeedService homeFeedService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private HeavyHitterService heavyHitterService;
+
+    @Autowired
+    private ChartService chartService;
+
+    @Autowired
+    private MusicActivityLogService musicActivityLogService;
+
+    @Autowired
+    private UserPrincipalService userPrincipalService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private LoginProtectionService loginProtectionService;
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private UserCountService userCountService;
+
+    @Autowired
+    private UserGrowthService userGrowthService;
+
     @Autowired
     private ConfigurableApplicationContext applicationContext;
 
@@ -138,6 +224,8 @@ public class AdminApiController {
 
             logger.info("Admin {} successfully retrieved users list", currentUser.getUsername());
             return ResponseEntity.ok(unifiedUserService.getAllUsers(page, size, role));
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Admin {} failed to retrieve users list - Error: {}", currentUser.getUsername(), e.getMessage());
             return ResponseEntity.badRequest()
@@ -145,6 +233,71 @@ public class AdminApiController {
         }
     }
 
+    @GetMapping("/users/scroll")
+    public ResponseEntity<?> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String role,
+            @AuthenticationPrincipal UserDetails currentUser,
+            HttpServletRequest httpRequest) {
+        logger.info("Admin {} requesting users after cursor - size: {}, role: {}",
+                    currentUser.getUsername(), size, role);
+        try {
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "VIEW_USERS",
+                "USER",
+                null,
+                String.format("Viewed users list - cursor: %s, size: %d, role filter: %s", cursor, size, role),
+                httpRequest
+            );
+
+            return ResponseEntity.ok(unifiedUserService.getUsersAfter(cursor, size, role));
+        } catch (ValidationException e) {
+            logger.error("Admin {} sent an invalid users list request - Error: {}", currentUser.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/users/search")
+    public ResponseEntity<?> searchUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String role,
+            @AuthenticationPrincipal UserDetails currentUser,
+            HttpServletRequest httpRequest) {
+        logger.info("Admin {} searching users - term: {}, size: {}, role: {}",
+                    currentUser.getUsername(), q, size, role);
+        try {
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "SEARCH_USERS",
+                "USER",
+                null,
+                String.format("Searched users - term: %s, cursor: %s, size: %d, role filter: %s", q, cursor, size, role),
+                httpRequest
+            );
+
+            return ResponseEntity.ok(unifiedUserService.searchUsers(q, role, cursor, size));
+        } catch (ValidationException e) {
+            logger.error("Admin {} sent an invalid user search - Error: {}", currentUser.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/users/search/stats")
+    public ResponseEntity<?> getUserSearchStats() {
+        return ResponseEntity.ok(userSearchService.getStats());
+    }
+
+    @GetMapping("/users/counts/stats")
+    public ResponseEntity<?> getUserCountStats() {
+        return ResponseEntity.ok(userCountService.getStats());
+    }
+
     @GetMapping("/users/{userId}")
     public ResponseEntity<?> getUserById(@PathVariable Long userId,
                                        @AuthenticationPrincipal UserDetails currentUser,
@@ -444,6 +597,242 @@ public class AdminApiController {
         }
     }
 
+    // Audio processing jobs
+    @PostMapping("/music/waveforms/generate")
+    public ResponseEntity<?> generateWaveforms(@AuthenticationPrincipal UserDetails currentUser,
+                                             HttpServletRequest httpRequest) {
+        try {
+            Map<String, Object> status = waveformService.startCatalogGeneration();
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "GENERATE_WAVEFORMS",
+                "MUSIC",
+                null,
+                String.format("Started waveform generation for %s tracks", status.get("total")),
+                httpRequest
+            );
+
+            return ResponseEntity.accepted().body(status);
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "GENERATE_WAVEFORMS",
+                "MUSIC",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to start waveform generation: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/music/waveforms/status")
+    public ResponseEntity<?> getWaveformGenerationStatus() {
+        return ResponseEntity.ok(waveformService.getCatalogGenerationStatus());
+    }
+
+    @PostMapping("/music/loudness/analyze")
+    public ResponseEntity<?> analyzeLoudness(@RequestParam(defaultValue = "false") boolean reanalyze,
+                                             @AuthenticationPrincipal UserDetails currentUser,
+                                             HttpServletRequest httpRequest) {
+        try {
+            Map<String, Object> status = loudnessService.startCatalogAnalysis(reanalyze);
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "ANALYZE_LOUDNESS",
+                "MUSIC",
+                null,
+                String.format("Started loudness analysis for %s tracks", status.get("total")),
+                httpRequest
+            );
+
+            return ResponseEntity.accepted().body(status);
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "ANALYZE_LOUDNESS",
+                "MUSIC",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to start loudness analysis: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/music/loudness/status")
+    public ResponseEntity<?> getLoudnessAnalysisStatus() {
+        return ResponseEntity.ok(loudnessService.getCatalogAnalysisStatus());
+    }
+
+    @PostMapping("/music/features/extract")
+    public ResponseEntity<?> extractAcousticFeatures(@RequestParam(defaultValue = "false") boolean reextract,
+                                                     @AuthenticationPrincipal UserDetails currentUser,
+                                                     HttpServletRequest httpRequest) {
+        try {
+            Map<String, Object> status = acousticSimilarityService.startCatalogExtraction(reextract);
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "EXTRACT_ACOUSTIC_FEATURES",
+                "MUSIC",
+                null,
+                String.format("Started acoustic feature extraction for %s tracks", status.get("total")),
+                httpRequest
+            );
+
+            return ResponseEntity.accepted().body(status);
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "EXTRACT_ACOUSTIC_FEATURES",
+                "MUSIC",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to start acoustic feature extraction: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/music/features/status")
+    public ResponseEntity<?> getAcousticFeatureStatus() {
+        return ResponseEntity.ok(acousticSimilarityService.getCatalogExtractionStatus());
+    }
+
+    // Co-purchase recommendations
+    @GetMapping("/recommendations/stats")
+    public ResponseEntity<?> getRecommendationStats() {
+        return ResponseEntity.ok(coPurchaseService.getStats());
+    }
+
+    @PostMapping("/recommendations/rebuild")
+    public ResponseEntity<?> rebuildRecommendations(@AuthenticationPrincipal UserDetails currentUser,
+                                                    HttpServletRequest httpRequest) {
+        try {
+            coPurchaseService.rebuild();
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "REBUILD_RECOMMENDATIONS",
+                "MUSIC",
+                null,
+                "Rebuilt co-purchase recommendations",
+                httpRequest
+            );
+
+            return ResponseEntity.ok(coPurchaseService.getStats());
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "REBUILD_RECOMMENDATIONS",
+                "MUSIC",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to rebuild recommendations: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/feed/stats")
+    public ResponseEntity<?> getHomeFeedStats() {
+        return ResponseEntity.ok(homeFeedService.getStats());
+    }
+
+    @GetMapping("/trending/stats")
+    public ResponseEntity<?> getTrendingStats() {
+        return ResponseEntity.ok(trendingService.getStats());
+    }
+
+    @GetMapping("/security/principal-cache/stats")
+    public ResponseEntity<?> getPrincipalCacheStats() {
+        return ResponseEntity.ok(userPrincipalService.getStats());
+    }
+
+    @GetMapping("/security/revocations/stats")
+    public ResponseEntity<?> getTokenRevocationStats() {
+        return ResponseEntity.ok(tokenRevocationService.getStats());
+    }
+
+    @GetMapping("/security/login/stats")
+    public ResponseEntity<?> getLoginProtectionStats() {
+        return ResponseEntity.ok(loginProtectionService.getStats());
+    }
+
+    @GetMapping("/security/rate-limit/stats")
+    public ResponseEntity<?> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimitService.getStats());
+    }
+
+    // Activity log and charts
+    @GetMapping("/activity/stats")
+    public ResponseEntity<?> getActivityLogStats() {
+        return ResponseEntity.ok(musicActivityLogService.getStats());
+    }
+
+    @PostMapping("/charts/build")
+    public ResponseEntity<?> buildCharts(@AuthenticationPrincipal UserDetails currentUser,
+                                         HttpServletRequest httpRequest) {
+        try {
+            int built = chartService.buildClosedPeriods();
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "BUILD_CHARTS",
+                "MUSIC",
+                null,
+                "Built charts for " + built + " closed periods",
+                httpRequest
+            );
+
+            return ResponseEntity.ok(Map.of("periodsBuilt", built));
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "BUILD_CHARTS",
+                "MUSIC",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to build charts: " + e.getMessage()));
+        }
+    }
+
+    // Download delivery metrics
+    @GetMapping("/downloads/cache")
+    public ResponseEntity<?> getDownloadCacheStats() {
+        return ResponseEntity.ok(hotTrackCache.getStats());
+    }
+
+    @GetMapping("/downloads/streams")
+    public ResponseEntity<?> getDownloadStreamStats() {
+        return ResponseEntity.ok(bandwidthScheduler.getStats());
+    }
+
+    @GetMapping("/streaming/segments")
+    public ResponseEntity<?> getStreamingSegmentStats() {
+        return ResponseEntity.ok(audioSegmentService.getStats());
+    }
+
+    @GetMapping("/entitlements/cache")
+    public ResponseEntity<?> getEntitlementCacheStats() {
+        return ResponseEntity.ok(entitlementService.getStats());
+    }
+
     // NEW: Review Management
     @GetMapping("/reviews")
     public ResponseEntity<?> getAllReviews(
@@ -555,6 +944,8 @@ public class AdminApiController {
                                        HttpServletRequest httpRequest) {
         try {
             orderService.refundOrder(orderId);
+            // Other instances pick the refund up when their cached entry expires
+            entitlementService.invalidateOrder(orderId);
 
             auditLogService.logAdminAction(
                 currentUser.getUsername(),
@@ -647,7 +1038,8 @@ public class AdminApiController {
             // Sales analytics
             analytics.put("salesAnalytics", orderService.getSalesAnalytics(startDate, endDate));
             analytics.put("revenueByPeriod", orderService.getRevenueByPeriod(startDate, endDate));
-            analytics.put("topSellingMusic", musicService.getTopSellingMusic(10));
+            analytics.put("topSellingMusic", heavyHitterService.getTopTracks(HeavyHitterService.Metric.PURCHASES, 10));
+            analytics.put("mostDownloadedMusic", heavyHitterService.getTopTracks(HeavyHitterService.Metric.DOWNLOADS, 10));
 
             // Music analytics
             analytics.put("musicByGenre", musicService.getMusicCountByGenre());
@@ -671,6 +1063,107 @@ public class AdminApiController {
         }
     }
 
+    // Registrations and deactivations per day and role from the daily user rollup
+    @GetMapping("/analytics/user-growth")
+    public ResponseEntity<?> getUserGrowth(@RequestParam(required = false) LocalDate startDate,
+                                           @RequestParam(required = false) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(unifiedUserService.getUserGrowthAnalytics(startDate, endDate));
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/analytics/user-growth/stats")
+    public ResponseEntity<?> getUserGrowthStats() {
+        return ResponseEntity.ok(userGrowthService.getStats());
+    }
+
+    @PostMapping("/analytics/user-growth/rebuild")
+    public ResponseEntity<?> rebuildUserGrowth(@AuthenticationPrincipal UserDetails currentUser,
+                                               HttpServletRequest httpRequest) {
+        try {
+            int rows = userGrowthService.rebuildRegistrations();
+
+            auditLogService.logAdminAction(
+                currentUser.getUsername(),
+                "REBUILD_USER_GROWTH",
+                "ANALYTICS",
+                null,
+                String.format("Rebuilt daily user registrations - rows: %d", rows),
+                httpRequest
+            );
+
+            return ResponseEntity.ok(userGrowthService.getStats());
+        } catch (Exception e) {
+            auditLogService.logFailedAdminAction(
+                currentUser.getUsername(),
+                "REBUILD_USER_GROWTH",
+                "ANALYTICS",
+                null,
+                e.getMessage(),
+                httpRequest
+            );
+
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Failed to rebuild user growth: " + e.getMessage()));
+        }
+    }
+
+    // Streaming heavy hitters: approximate top tracks and per-track counts in bounded memory
+    @GetMapping("/analytics/heavy-hitters")
+    public ResponseEntity<?> getHeavyHitterStats() {
+        return ResponseEntity.ok(heavyHitterService.getStats());
+    }
+
+    @GetMapping("/analytics/heavy-hitters/{metric}")
+    public ResponseEntity<?> getHeavyHitters(@PathVariable String metric,
+                                             @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(heavyHitterService.getTopTracks(HeavyHitterService.Metric.fromLabel(metric), limit));
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/analytics/heavy-hitters/{metric}/tracks/{musicId}")
+    public ResponseEntity<?> getHeavyHitterEstimate(@PathVariable String metric, @PathVariable Long musicId) {
+        try {
+            return ResponseEntity.ok(heavyHitterService.getEstimate(HeavyHitterService.Metric.fromLabel(metric), musicId));
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // Raw snapshot for another node to pass to its combine endpoint
+    @GetMapping("/analytics/heavy-hitters/{metric}/snapshot")
+    public ResponseEntity<?> exportHeavyHitterSnapshot(@PathVariable String metric) {
+        try {
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(heavyHitterService.exportSnapshot(HeavyHitterService.Metric.fromLabel(metric)));
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // Cluster-wide top tracks from this node plus base64 snapshots exported by the others
+    @PostMapping("/analytics/heavy-hitters/{metric}/combine")
+    public ResponseEntity<?> combineHeavyHitters(@PathVariable String metric,
+                                                 @RequestBody Map<String, List<String>> payload,
+                                                 @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<String> encoded = payload.getOrDefault("snapshots", List.of());
+            List<byte[]> snapshots = new ArrayList<>(encoded.size());
+            for (String snapshot : encoded) {
+                snapshots.add(Base64.getDecoder().decode(snapshot));
+            }
+            return ResponseEntity.ok(heavyHitterService.combine(HeavyHitterService.Metric.fromLabel(metric), snapshots, limit));
+        } catch (ValidationException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/analytics/performance")
     public ResponseEntity<?> getPerformanceMetrics(@AuthenticationPrincipal UserDetails currentUser,
                                                   HttpServletRequest httpRequest) {
@@ -1314,6 +1807,8 @@ public class AdminApiController {
 
             logger.info("Admin {} successfully retrieved staff list", currentUser.getUsername());
             return ResponseEntity.ok(staffList);
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Admin {} failed to retrieve staff list - Error: {}", currentUser.getUsername(), e.getMessage());
             return ResponseEntity.badRequest()
@@ -1348,6 +1843,8 @@ public class AdminApiController {
 
             logger.info("Admin {} successfully retrieved admin list", currentUser.getUsername());
             return ResponseEntity.ok(adminList);
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Admin {} failed to retrieve admin list - Error: {}", currentUser.getUsername(), e.getMessage());
             return ResponseEntity.badRequest()
@@ -1403,6 +1900,7 @@ public class AdminApiController {
             staff.setLastName(request.getLastName());
 
             Staff updatedStaff = staffService.updateStaff(staff);
+            userPrincipalService.bumpStamp("ROLE_STAFF", staffId);
 
             // Create response
             StaffRegistrationResponse response = new StaffRegistrationResponse();
@@ -1451,6 +1949,7 @@ public class AdminApiController {
             Staff staff = staffService.findById(staffId);
             staff.setEnabled(request.isEnabled());
             staffService.updateStaff(staff);
+            userPrincipalService.bumpStamp("ROLE_STAFF", staffId);
 
             auditLogService.logAdminAction(
                 currentUser.getUsername(),
@@ -4,6 +4,7 @@ import com.music.musicstore.dto.AlbumDto;
 import com.music.musicstore.models.music.Album;
 import com.music.musicstore.repositories.ArtistRepository;
 import com.music.musicstore.services.AlbumService;
+import com.music.musicstore.services.CoverThumbnailService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
@@ -24,11 +25,14 @@ public class AlbumApiController {
 
     private final AlbumService albumService;
     private final ArtistRepository artistRepository;
+    private final CoverThumbnailService coverThumbnailService;
 
     @Autowired
-    public AlbumApiController(AlbumService albumService, ArtistRepository artistRepository) {
+    public AlbumApiController(AlbumService albumService, ArtistRepository artistRepository,
+                              CoverThumbnailService coverThumbnailService) {
         this.albumService = albumService;
         this.artistRepository = artistRepository;
+        this.coverThumbnailService = coverThumbnailService;
     }
 
     // GET /api/albums - Get all albums with pagination and filtering
@@ -204,7 +208,7 @@ public class AlbumApiController {
 
     // Convert Album entity to DTO
     private AlbumDto convertToDto(Album album) {
-        return new AlbumDto(
+        AlbumDto dto = new AlbumDto(
                 album.getId(),
                 album.getTitle(),
                 album.getDescription(),
@@ -217,6 +221,8 @@ public class AlbumApiController {
                 album.getUpdatedAt(),
                 0  // Track count removed as tracks relationship was removed
         );
+        dto.setThumbnailUrls(coverThumbnailService.getThumbnailUrls(album.getCoverHash()));
+        return dto;
     }
 
     // Request DTOs for API
@@ -2,6 +2,7 @@ package com.music.musicstore.api;
 
 import com.music.musicstore.dto.MusicDto;
 import com.music.musicstore.models.music.Music;
+import com.music.musicstore.services.CoverThumbnailService;
 import com.music.musicstore.services.MusicService;
 import com.music.musicstore.services.ReviewService;
 import com.music.musicstore.exceptions.ValidationException;
@@ -37,6 +38,9 @@ public class ArtistApiController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private CoverThumbnailService coverThumbnailService;
+
     @PostMapping("/music/upload")
     public ResponseEntity<?> uploadMusic(
             @RequestParam String title,
@@ -340,6 +344,9 @@ public class ArtistApiController {
         dto.setDescription(music.getDescription());
         dto.setPrice(music.getPrice());
         dto.setImageUrl(music.getImageUrl());
+        dto.setThumbnailUrls(coverThumbnailService.getThumbnailUrls(music.getCoverHash()));
+        dto.setReplayGainDb(music.getReplayGainDb());
+        dto.setPeakAmplitude(music.getPeakAmplitude());
         dto.setAudioFilePath(music.getAudioFilePath());
         dto.setCategory(music.getCategory());
         dto.setArtist(music.getArtistUsername() != null ? music.getArtistUsername() : "Unknown Artist");
@@ -1,12 +1,17 @@
 package com.music.musicstore.api;
 
+import com.music.musicstore.configs.ClientAddressResolver;
 import com.music.musicstore.configs.JwtUtil;
 import com.music.musicstore.dto.LoginRequest;
 import com.music.musicstore.dto.RegisterRequest;
 import com.music.musicstore.dto.UnifiedRegisterRequest;
 import com.music.musicstore.dto.AuthResponse;
 import com.music.musicstore.dto.UserDto;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.services.LoginProtectionService;
+import com.music.musicstore.services.TokenRevocationService;
 import com.music.musicstore.services.UnifiedUserService;
+import com.music.musicstore.services.UserPrincipalService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
@@ -18,8 +23,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "http://localhost:5173")
@@ -29,36 +38,58 @@ public class AuthApiController {
     private final UserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
     private final UnifiedUserService unifiedUserService;
+    private final UserPrincipalService userPrincipalService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginProtectionService loginProtectionService;
+    private final ClientAddressResolver clientAddressResolver;
 
     @Autowired
     public AuthApiController(AuthenticationManager authenticationManager,
                            @Qualifier("combinedUserDetailsService") UserDetailsService userDetailsService,
                            JwtUtil jwtUtil,
-                           UnifiedUserService unifiedUserService) {
+                           UnifiedUserService unifiedUserService,
+                           UserPrincipalService userPrincipalService,
+                           TokenRevocationService tokenRevocationService,
+                           LoginProtectionService loginProtectionService,
+                           ClientAddressResolver clientAddressResolver) {
         this.authenticationManager = authenticationManager;
         this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
         this.unifiedUserService = unifiedUserService;
+        this.userPrincipalService = userPrincipalService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginProtectionService = loginProtectionService;
+        this.clientAddressResolver = clientAddressResolver;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request,
+                                                      HttpServletRequest httpRequest) {
         System.out.println("Login request received: " + request.getUsername());
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
+        // Throttled and over-capacity logins fail here, before any password hashing. X-Forwarded-For
+        // is only honoured from trusted proxies, so clients cannot rotate their address through it.
+        loginProtectionService.checkAllowed(clientAddressResolver.resolve(httpRequest), request.getUsername());
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-            String token = jwtUtil.generateToken(userDetails);
+        // The password check runs on the bounded hashing pool; the Tomcat worker is released meanwhile
+        return loginProtectionService.submit(() -> {
+            try {
+                Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+                );
 
-            UserDto userDto = unifiedUserService.getUserInfo(userDetails);
+                UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
+                String token = userPrincipalService.issueToken(userDetails);
 
-            return ResponseEntity.ok(new AuthResponse(token, userDto));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                .body(new ErrorResponse("Invalid username or password"));
-        }
+                UserDto userDto = unifiedUserService.getUserInfo(userDetails);
+
+                loginProtectionService.recordSuccess(request.getUsername());
+                return ResponseEntity.ok(new AuthResponse(token, userDto));
+            } catch (Exception e) {
+                loginProtectionService.recordFailure(request.getUsername());
+                return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Invalid username or password"));
+            }
+        });
     }
 
     @PostMapping("/register")
@@ -90,7 +121,7 @@ public class AuthApiController {
             );
 
             UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-            String token = jwtUtil.generateToken(userDetails);
+            String token = userPrincipalService.issueToken(userDetails);
 
             return ResponseEntity.ok(new AuthResponse(token, userDto));
         } catch (Exception e) {
@@ -124,12 +155,10 @@ public class AuthApiController {
             }
 
             String token = authHeader.substring(7);
-            String username = jwtUtil.extractUsername(token);
-            String role = jwtUtil.extractRole(token);
-
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Same checks as the authentication filter, including the security stamp
+            UserDetails userDetails = userPrincipalService.resolve(jwtUtil.verify(token));
 
-            if (jwtUtil.validateToken(token, userDetails)) {
+            if (userDetails != null) {
                 UserDto userDto = unifiedUserService.getUserInfo(userDetails);
                 return ResponseEntity.ok(userDto);
             } else {
@@ -142,6 +171,33 @@ public class AuthApiController {
         }
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Invalid token format"));
+        }
+
+        JwtUtil.VerifiedToken token;
+        try {
+            token = jwtUtil.verify(authHeader.substring(7));
+        } catch (Exception e) {
+            return ResponseEntity.status(401)
+                .body(new ErrorResponse("Invalid or expired token"));
+        }
+
+        try {
+            tokenRevocationService.revoke(token);
+            return ResponseEntity.ok(Map.of("message", "Logged out successfully"));
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500)
+                .body(new ErrorResponse("Logout failed"));
+        }
+    }
+
     private boolean isValidRole(String role) {
         return role != null && (
             role.equalsIgnoreCase("CUSTOMER") ||
@@ -2,20 +2,32 @@ package com.music.musicstore.api;
 
 import com.music.musicstore.dto.CreateReviewRequest;
 import com.music.musicstore.dto.ErrorResponse;
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.exceptions.UnauthorizedException;
+import com.music.musicstore.exceptions.ValidationException;
 import com.music.musicstore.models.music.Music;
 import com.music.musicstore.models.users.Customer;
+import com.music.musicstore.models.users.UserPrincipal;
 import com.music.musicstore.models.support.Ticket;
+import com.music.musicstore.services.AudioFileResolver;
+import com.music.musicstore.services.AudioSegmentService;
 import com.music.musicstore.services.CartService;
+import com.music.musicstore.services.CustomerService;
+import com.music.musicstore.services.EntitlementService;
+import com.music.musicstore.services.HomeFeedService;
 import com.music.musicstore.services.OrderService;
 import com.music.musicstore.services.MusicService;
 import com.music.musicstore.services.ReviewService;
+import com.music.musicstore.services.SignedDownloadService;
 import com.music.musicstore.services.TicketService;
-import com.music.musicstore.repositories.CustomerRepository;
+import com.music.musicstore.services.TrackDownloadService;
+import com.music.musicstore.services.ZipBundleService;
 import com.music.musicstore.dto.TicketMessageDto;
 import com.music.musicstore.dto.TicketMessageMapper;
 import com.music.musicstore.dto.TicketDto;
 import com.music.musicstore.dto.TicketMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,21 +35,24 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
-import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.URLConnection;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
@@ -52,6 +67,9 @@ public class CustomerApiController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private CustomerService customerService;
+
     @Autowired
     private OrderService orderService;
 
@@ -64,29 +82,83 @@ public class CustomerApiController {
     @Autowired
     private TicketService ticketService;
 
-    @Autowired
-    private CustomerRepository customerRepository;
-
     @Autowired
     private TicketMessageMapper ticketMessageMapper;
 
     @Autowired
     private TicketMapper ticketMapper;
 
+    @Autowired
+    private AudioFileResolver audioFileResolver;
+
+    @Autowired
+    private TrackDownloadService trackDownloadService;
+
+    @Autowired
+    private SignedDownloadService signedDownloadService;
+
+    @Autowired
+    private EntitlementService entitlementService;
+
+    @Autowired
+    private ZipBundleService zipBundleService;
+
+    @Autowired
+    private AudioSegmentService audioSegmentService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private HomeFeedService homeFeedService;
+
     @GetMapping("/purchased")
-    public ResponseEntity<Set<Music>> getPurchasedMusic(@AuthenticationPrincipal Customer customer) {
-        // Fetch customer with purchased music eagerly loaded to avoid LazyInitializationException
-        Customer customerWithPurchasedMusic = customerRepository.findByIdWithPurchasedMusic(customer.getId())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
-        return ResponseEntity.ok(customerWithPurchasedMusic.getPurchasedMusic());
+    public ResponseEntity<Set<Music>> getPurchasedMusic(@AuthenticationPrincipal UserPrincipal customer) {
+        // Owned ids come from the entitlement cache; only the tracks themselves are loaded
+        List<Long> ownedIds = entitlementService.getOwnedMusicIds(customer.getId());
+        return ResponseEntity.ok(new LinkedHashSet<>(musicService.getMusicByIds(ownedIds)));
     }
 
 
 
 
+    // Personalized home feed, best match first
+    @GetMapping("/feed")
+    public ResponseEntity<?> getHomeFeed(@RequestParam(defaultValue = "20") int limit,
+                                         @AuthenticationPrincipal UserPrincipal customer) {
+        if (limit < 1 || limit > 100) {
+            throw new ValidationException("limit must be between 1 and 100");
+        }
+        HomeFeedService.FeedPage page = homeFeedService.getFeed(customer.getId(), limit);
+        Map<Long, Music> byId = new HashMap<>();
+        for (Music music : musicService.getMusicByIds(page.musicIds())) {
+            byId.put(music.getId(), music);
+        }
+        List<Music> items = new ArrayList<>(page.musicIds().size());
+        for (Long musicId : page.musicIds()) {
+            Music music = byId.get(musicId);
+            if (music != null) {
+                items.add(music);
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("computedAt", page.computedAt());
+        response.put("partial", page.partial());
+        return ResponseEntity.ok(response);
+    }
+
+    // Which of the given tracks the customer owns, for "owned" badges in listings
+    @GetMapping("/owned")
+    public ResponseEntity<?> getOwnedMusicIds(@RequestParam List<Long> ids,
+                                              @AuthenticationPrincipal UserPrincipal customer) {
+        return ResponseEntity.ok(entitlementService.ownedAmong(customer.getId(), ids));
+    }
+
     // Cart Management
     @GetMapping("/cart")
-    public ResponseEntity<?> getCart(@AuthenticationPrincipal Customer customer) {
+    public ResponseEntity<?> getCart(@AuthenticationPrincipal UserPrincipal customer) {
         try {
             return ResponseEntity.ok(cartService.getCartByUsername(customer.getUsername()));
         } catch (Exception e) {
@@ -98,9 +170,9 @@ public class CustomerApiController {
     @PostMapping("/cart/add/{musicId}")
     public ResponseEntity<?> addToCart(
             @PathVariable Long musicId,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
-            cartService.addToCart(customer, musicId);
+            cartService.addToCart(customerService.findById(customer.getId()), musicId);
             return ResponseEntity.ok(new SuccessResponse("Music added to cart successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -111,7 +183,7 @@ public class CustomerApiController {
     @DeleteMapping("/cart/remove/{musicId}")
     public ResponseEntity<?> removeFromCart(
             @PathVariable Long musicId,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
             cartService.removeFromCart(customer.getUsername(), musicId);
             return ResponseEntity.ok().build();
@@ -122,9 +194,18 @@ public class CustomerApiController {
     }
 
     @PostMapping("/cart/checkout")
-    public ResponseEntity<?> checkout(@AuthenticationPrincipal Customer customer) {
+    public ResponseEntity<?> checkout(@AuthenticationPrincipal UserPrincipal customer) {
         try {
-            return ResponseEntity.ok(orderService.checkout(customer.getUsername()));
+            Set<Long> ownedBefore = new HashSet<>(entitlementService.getOwnedMusicIds(customer.getId()));
+            var result = orderService.checkout(customer.getUsername());
+            // The cart contents are now owned; reload the customer's entitlements on next check
+            entitlementService.invalidate(customer.getId());
+            List<Long> checkedOut = new ArrayList<>(entitlementService.getOwnedMusicIds(customer.getId()));
+            checkedOut.removeAll(ownedBefore);
+            if (!checkedOut.isEmpty()) {
+                eventPublisher.publishEvent(MusicActivityEvent.purchase(customer.getId(), checkedOut));
+            }
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new ErrorResponse("Failed to checkout: " + e.getMessage()));
@@ -135,9 +216,12 @@ public class CustomerApiController {
     @PostMapping("/purchase/{musicId}")
     public ResponseEntity<?> purchaseMusic(
             @PathVariable Long musicId,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
-            return ResponseEntity.ok(orderService.purchaseMusic(customer.getUsername(), musicId));
+            var result = orderService.purchaseMusic(customer.getUsername(), musicId);
+            entitlementService.grant(customer.getId(), musicId);
+            eventPublisher.publishEvent(MusicActivityEvent.purchase(customer.getId(), List.of(musicId)));
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new ErrorResponse("Failed to purchase music: " + e.getMessage()));
@@ -146,7 +230,7 @@ public class CustomerApiController {
 
     // Order Management
     @GetMapping("/orders")
-    public ResponseEntity<?> getOrderHistory(@AuthenticationPrincipal Customer customer,
+    public ResponseEntity<?> getOrderHistory(@AuthenticationPrincipal UserPrincipal customer,
                                              @RequestParam(defaultValue = "0") int page,
                                              @RequestParam(defaultValue = "10") int size) {
         try {
@@ -161,11 +245,11 @@ public class CustomerApiController {
     @PostMapping("/review")
     public ResponseEntity<?> submitReview(
             @Valid @RequestBody CreateReviewRequest request,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
             return ResponseEntity.ok(reviewService.createReview(
                 request.getMusicId(),
-                customer,
+                customerService.findById(customer.getId()),
                 request.getRating(),
                 request.getComment()
             ));
@@ -179,11 +263,12 @@ public class CustomerApiController {
     @PostMapping("/support/ticket")
     public ResponseEntity<?> createTicket(
             @RequestBody Map<String, String> payload,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
             String subject = payload.get("subject");
             String description = payload.get("description");
-            Ticket ticket = ticketService.createTicket(customer, subject, description);
+            Customer entity = customerService.findById(customer.getId());
+            Ticket ticket = ticketService.createTicket(entity, subject, description);
             TicketDto dto = ticketMapper.toDto(ticket);
             return ResponseEntity.status(HttpStatus.CREATED).body(dto);
         } catch (Exception e) {
@@ -193,7 +278,7 @@ public class CustomerApiController {
     }
 
     @GetMapping("/support/tickets")
-    public ResponseEntity<?> getTickets(@AuthenticationPrincipal Customer customer) {
+    public ResponseEntity<?> getTickets(@AuthenticationPrincipal UserPrincipal customer) {
         try {
             var tickets = ticketService.getTicketsByUsername(customer.getUsername());
             List<TicketDto> dtoList = ticketMapper.toDtoList(tickets);
@@ -208,10 +293,10 @@ public class CustomerApiController {
     public ResponseEntity<?> addMessageToTicket(
             @PathVariable Long ticketId,
             @RequestBody Map<String, String> payload,
-            @AuthenticationPrincipal Customer customer) {
+            @AuthenticationPrincipal UserPrincipal customer) {
         try {
             String content = payload.get("content");
-            var message = ticketService.addCustomerMessage(ticketId, content, customer);
+            var message = ticketService.addCustomerMessage(ticketId, content, customerService.findById(customer.getId()));
             TicketMessageDto dto = ticketMessageMapper.toDto(message);
             return ResponseEntity.status(HttpStatus.CREATED).body(dto);
         } catch (Exception e) {
@@ -222,7 +307,7 @@ public class CustomerApiController {
 
     @GetMapping("/support/ticket/{ticketId}/messages")
     public ResponseEntity<?> getTicketMessages(@PathVariable Long ticketId,
-                                               @AuthenticationPrincipal Customer customer) {
+                                               @AuthenticationPrincipal UserPrincipal customer) {
         try {
             // Verify customer owns this ticket
             var ticket = ticketService.getTicketById(ticketId);
@@ -242,161 +327,175 @@ public class CustomerApiController {
 
     // Profile Management
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(@AuthenticationPrincipal Customer customer) {
-        return ResponseEntity.ok(customer);
+    public ResponseEntity<?> getProfile(@AuthenticationPrincipal UserPrincipal customer) {
+        return ResponseEntity.ok(customerService.findById(customer.getId()));
     }
 
     // Download Management
     @GetMapping("/download/{musicId}")
-    public ResponseEntity<?> downloadMusic(@PathVariable Long musicId,
-                                           @AuthenticationPrincipal Customer customer,
-                                           HttpServletResponse servletResponse) {
-        try {
-            if (musicId == null) {
-                return ResponseEntity.badRequest().body(new ErrorResponse("musicId is required"));
-            }
-
-            // Verify customer purchased this music
-            boolean hasPurchased = customerRepository.hasPurchasedMusic(customer.getId(), musicId);
-            if (!hasPurchased) {
-                return ResponseEntity.status(403)
-                        .body(new ErrorResponse("Access denied: you must purchase this track to download it"));
-            }
-
-            // Load music metadata
-            var optMusic = musicService.getMusicById(musicId);
-            if (optMusic.isEmpty()) {
-                return ResponseEntity.badRequest().body(new ErrorResponse("Music not found"));
-            }
-            Music music = optMusic.get();
+    public ResponseEntity<StreamingResponseBody> downloadMusic(@PathVariable Long musicId,
+                                                               @AuthenticationPrincipal UserPrincipal customer) throws IOException {
+        if (musicId == null) {
+            throw new ValidationException("musicId is required");
+        }
 
-            String audioPathStr = music.getAudioFilePath();
-            String originalFileName = music.getOriginalFileName();
-            if (originalFileName == null || originalFileName.isBlank()) {
-                // fallback to a sanitized music name
-                originalFileName = music.getName().replaceAll("[^a-zA-Z0-9._-]", "_") + ".mp3";
-            }
+        // Verify customer purchased this music
+        boolean hasPurchased = entitlementService.owns(customer.getId(), musicId);
+        if (!hasPurchased) {
+            throw new UnauthorizedException("Access denied: you must purchase this track to download it");
+        }
 
-            Path filePath = null;
-            // Try a few likely locations
-            if (audioPathStr != null && !audioPathStr.isBlank()) {
-                Path p = Paths.get(audioPathStr);
-                if (Files.exists(p) && Files.isRegularFile(p)) {
-                    filePath = p;
-                }
-            }
+        TrackDownloadService.PreparedDownload download = trackDownloadService.prepare(musicId, customer.getId());
+        eventPublisher.publishEvent(MusicActivityEvent.download(customer.getId(), musicId));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.fileName() + "\"");
+        if (download.contentLength() != null) {
+            response.contentLength(download.contentLength());
+        }
+        return response.body(download.body());
+    }
 
-            // Normalize audio filename for relative lookups (handle leading slashes)
-            String audioFileName = null;
-            if (audioPathStr != null && !audioPathStr.isBlank()) {
-                try {
-                    Path ap = Paths.get(audioPathStr);
-                    // prefer the file name portion for resolving into resource folders
-                    audioFileName = ap.getFileName() != null ? ap.getFileName().toString() : audioPathStr;
-                } catch (Exception ex) {
-                    audioFileName = audioPathStr;
-                }
-            }
+    // Issues a short-lived signed URL so the download itself needs no token or purchase lookup
+    @PostMapping("/download/{musicId}/link")
+    public ResponseEntity<?> createDownloadLink(@PathVariable Long musicId,
+                                                @AuthenticationPrincipal UserPrincipal customer) {
+        boolean hasPurchased = entitlementService.owns(customer.getId(), musicId);
+        if (!hasPurchased) {
+            return ResponseEntity.status(403)
+                    .body(new ErrorResponse("Access denied: you must purchase this track to download it"));
+        }
+        return ResponseEntity.ok(signedDownloadService.sign(musicId, customer.getId()));
+    }
 
-            if (filePath == null) {
-                // check resource folder (source)
-                Path p2 = Paths.get("src/main/resources/static/uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p2) && Files.isRegularFile(p2)) {
-                    filePath = p2;
-                }
-            }
+    // Signed URLs for several tracks at once, e.g. a whole playlist
+    @PostMapping("/download/links")
+    public ResponseEntity<?> createDownloadLinks(@RequestBody Map<String, List<Long>> payload,
+                                                 @AuthenticationPrincipal UserPrincipal customer) {
+        List<Long> musicIds = payload.get("musicIds");
+        if (musicIds == null || musicIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("musicIds is required"));
+        }
 
-            if (filePath == null) {
-                // check built classes resources
-                Path p3 = Paths.get("target/classes/static/uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p3) && Files.isRegularFile(p3)) {
-                    filePath = p3;
-                }
+        Set<Long> purchased = entitlementService.ownedAmong(customer.getId(), musicIds);
+        List<SignedDownloadService.SignedLink> links = new ArrayList<>();
+        List<Long> denied = new ArrayList<>();
+        for (Long musicId : musicIds) {
+            if (purchased.contains(musicId)) {
+                links.add(signedDownloadService.sign(musicId, customer.getId()));
+            } else {
+                denied.add(musicId);
             }
+        }
 
-            if (filePath == null) {
-                // check uploads folder configured at runtime
-                Path p4 = Paths.get("./uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p4) && Files.isRegularFile(p4)) {
-                    filePath = p4;
-                }
-            }
+        Map<String, Object> response = new HashMap<>();
+        response.put("links", links);
+        response.put("denied", denied);
+        return ResponseEntity.ok(response);
+    }
 
-            if (filePath == null) {
-                logger.warn("Audio file not found for music id {} (audioFilePath='{}')", musicId, audioPathStr);
-                // Attempt to load from classpath (inside jar) at static/uploads/music/<filename>
-                if (audioFileName != null) {
-                    String classpathLocation = "/static/uploads/music/" + audioFileName;
-                    try (InputStream resourceStream = CustomerApiController.class.getResourceAsStream(classpathLocation)) {
-                        if (resourceStream != null) {
-                            // Stream classpath resource directly to servlet response
-                            servletResponse.setContentType("audio/mpeg");
-                            servletResponse.setHeader("Content-Disposition", "attachment; filename=\"" + (originalFileName != null ? originalFileName : audioFileName) + "\"");
-                            try (InputStream in = CustomerApiController.class.getResourceAsStream(classpathLocation); OutputStream out = servletResponse.getOutputStream()) {
-                                byte[] buffer = new byte[8192];
-                                int bytesRead;
-                                while ((bytesRead = in.read(buffer)) != -1) {
-                                    out.write(buffer, 0, bytesRead);
-                                }
-                                out.flush();
-                            }
-                            return ResponseEntity.ok().build();
-                        }
-                    }
-                }
-                return ResponseEntity.badRequest().body(new ErrorResponse("Audio file not found"));
-            }
+    // ZIP bundles; the layout is deterministic so interrupted downloads can resume with Range
+    @GetMapping("/bundle/album/{albumId}")
+    public ResponseEntity<StreamingResponseBody> downloadAlbumBundle(@PathVariable Long albumId,
+                                                                     @RequestHeader HttpHeaders requestHeaders,
+                                                                     @AuthenticationPrincipal UserPrincipal customer) throws IOException {
+        ZipBundleService.Bundle bundle = zipBundleService.buildAlbumBundle(customer.getId(), albumId);
+        return bundleResponse(bundle, requestHeaders, customer.getId());
+    }
 
-            // Ensure it's an mp3
-            String fileNameLower = filePath.getFileName().toString().toLowerCase();
-            String contentType = URLConnection.guessContentTypeFromName(fileNameLower);
-            if (contentType == null) {
-                contentType = Files.probeContentType(filePath);
-            }
-            if (contentType == null) {
-                // fallback
-                contentType = "application/octet-stream";
-            }
+    @GetMapping("/bundle/library")
+    public ResponseEntity<StreamingResponseBody> downloadLibraryBundle(@RequestHeader HttpHeaders requestHeaders,
+                                                                       @AuthenticationPrincipal UserPrincipal customer) throws IOException {
+        ZipBundleService.Bundle bundle = zipBundleService.buildLibraryBundle(customer.getId());
+        return bundleResponse(bundle, requestHeaders, customer.getId());
+    }
 
-            if (!fileNameLower.endsWith(".mp3") && !"audio/mpeg".equalsIgnoreCase(contentType)) {
-                logger.warn("Blocked download - file is not MP3: {} (detected contentType={})", filePath, contentType);
-                return ResponseEntity.badRequest().body(new ErrorResponse("Requested file is not an MP3"));
+    private ResponseEntity<StreamingResponseBody> bundleResponse(ZipBundleService.Bundle bundle,
+                                                                 HttpHeaders requestHeaders,
+                                                                 Long customerId) {
+        long length = bundle.totalLength();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + bundle.fileName() + "\"");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(bundle.etag());
+
+        // Only a single range is supported, and only while the archive still matches If-Range
+        List<HttpRange> ranges = requestHeaders.getRange();
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ranges.size() == 1 && (ifRange == null || ifRange.equals(bundle.etag()))) {
+            long start;
+            long end;
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
             }
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            headers.setContentLength(end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                    .body(zipBundleService.stream(bundle, customerId, start, end));
+        }
 
-            // Stream file directly to servlet response to avoid converter issues
-            servletResponse.setContentType("audio/mpeg");
-            servletResponse.setHeader("Content-Disposition", "attachment; filename=\"" + originalFileName + "\"");
-            servletResponse.setContentLengthLong(Files.size(filePath));
+        headers.setContentLength(length);
+        return ResponseEntity.ok().headers(headers)
+                .body(zipBundleService.stream(bundle, customerId, 0, length - 1));
+    }
 
-            try (InputStream in = Files.newInputStream(filePath); OutputStream out = servletResponse.getOutputStream()) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, bytesRead);
-                }
-                out.flush();
-            }
+    // HLS playback; segment URIs in the playlist resolve to the segment endpoint below
+    @GetMapping("/stream/{musicId}/playlist.m3u8")
+    public ResponseEntity<String> getStreamPlaylist(@PathVariable Long musicId,
+                                                    @AuthenticationPrincipal UserPrincipal customer) throws IOException {
+        if (!entitlementService.owns(customer.getId(), musicId)) {
+            throw new UnauthorizedException("Access denied: you must purchase this track to stream it");
+        }
+        String playlist = audioSegmentService.getPlaylist(musicId);
+        // Players fetch the playlist once per playback, so it doubles as the play count
+        eventPublisher.publishEvent(MusicActivityEvent.stream(customer.getId(), musicId));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(playlist);
+    }
 
-            // Response already committed with the streamed bytes
-            return ResponseEntity.ok().build();
+    // Signed playlist URL for native HLS players, which cannot send the bearer token
+    @PostMapping("/stream/{musicId}/link")
+    public ResponseEntity<?> createStreamLink(@PathVariable Long musicId,
+                                              @AuthenticationPrincipal UserPrincipal customer) {
+        if (!entitlementService.owns(customer.getId(), musicId)) {
+            return ResponseEntity.status(403)
+                    .body(new ErrorResponse("Access denied: you must purchase this track to stream it"));
+        }
+        return ResponseEntity.ok(signedDownloadService.signStream(musicId, customer.getId()));
+    }
 
-        } catch (Exception e) {
-            logger.error("Error while preparing download for musicId {}: {}", musicId, e.getMessage(), e);
-            return ResponseEntity.internalServerError()
-                    .body(new ErrorResponse("Failed to prepare download: " + e.getMessage()));
+    @GetMapping("/stream/{musicId}/segments/{version}/{segment}.mp3")
+    public ResponseEntity<byte[]> getStreamSegment(@PathVariable Long musicId,
+                                                   @PathVariable String version,
+                                                   @PathVariable int segment,
+                                                   @AuthenticationPrincipal UserPrincipal customer) throws IOException {
+        if (!entitlementService.owns(customer.getId(), musicId)) {
+            throw new UnauthorizedException("Access denied: you must purchase this track to stream it");
         }
+        // Versioned URLs never change content, but stay private to the entitled customer
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .body(audioSegmentService.getSegment(musicId, version, segment));
     }
 
     @RequestMapping(value = "/download/{musicId}", method = RequestMethod.HEAD)
     public ResponseEntity<?> downloadMusicHead(@PathVariable Long musicId,
-                                               @AuthenticationPrincipal Customer customer) {
+                                               @AuthenticationPrincipal UserPrincipal customer) {
         try {
             if (musicId == null) {
                 return ResponseEntity.badRequest().body(new ErrorResponse("musicId is required"));
             }
 
             // Verify customer purchased this music
-            boolean hasPurchased = customerRepository.hasPurchasedMusic(customer.getId(), musicId);
+            boolean hasPurchased = entitlementService.owns(customer.getId(), musicId);
             if (!hasPurchased) {
                 return ResponseEntity.status(403)
                         .body(new ErrorResponse("Access denied: you must purchase this track to download it"));
@@ -414,44 +513,8 @@ public class CustomerApiController {
                 originalFileName = music.getName().replaceAll("[^a-zA-Z0-9._-]", "_") + ".mp3";
             }
 
-            Path filePath = null;
-            if (audioPathStr != null && !audioPathStr.isBlank()) {
-                Path p = Paths.get(audioPathStr);
-                if (Files.exists(p) && Files.isRegularFile(p)) {
-                    filePath = p;
-                }
-            }
-
-            String audioFileName = null;
-            if (audioPathStr != null && !audioPathStr.isBlank()) {
-                try {
-                    Path ap = Paths.get(audioPathStr);
-                    audioFileName = ap.getFileName() != null ? ap.getFileName().toString() : audioPathStr;
-                } catch (Exception ex) {
-                    audioFileName = audioPathStr;
-                }
-            }
-
-            if (filePath == null) {
-                Path p2 = Paths.get("src/main/resources/static/uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p2) && Files.isRegularFile(p2)) {
-                    filePath = p2;
-                }
-            }
-
-            if (filePath == null) {
-                Path p3 = Paths.get("target/classes/static/uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p3) && Files.isRegularFile(p3)) {
-                    filePath = p3;
-                }
-            }
-
-            if (filePath == null) {
-                Path p4 = Paths.get("./uploads/music").resolve(audioFileName != null ? audioFileName : originalFileName);
-                if (Files.exists(p4) && Files.isRegularFile(p4)) {
-                    filePath = p4;
-                }
-            }
+            Path filePath = audioFileResolver.resolve(music).orElse(null);
+            String audioFileName = audioFileResolver.getAudioFileName(music);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
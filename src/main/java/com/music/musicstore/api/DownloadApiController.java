@@ -0,0 +1,133 @@
+package com.music.musicstore.api;
+
+import com.music.musicstore.dto.ErrorResponse;
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.exceptions.UnauthorizedException;
+import com.music.musicstore.services.AudioSegmentService;
+import com.music.musicstore.services.SignedDownloadService;
+import com.music.musicstore.services.TrackDownloadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves downloads and HLS streams through signed, expiring URLs issued by the customer API.
+ * The signature replaces the JWT and the purchase lookup, so no database access happens here
+ * beyond loading the track metadata.
+ */
+@RestController
+@RequestMapping("/api/downloads")
+@CrossOrigin(origins = "http://localhost:5173")
+public class DownloadApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadApiController.class);
+
+    private final SignedDownloadService signedDownloadService;
+    private final TrackDownloadService trackDownloadService;
+    private final AudioSegmentService audioSegmentService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public DownloadApiController(SignedDownloadService signedDownloadService,
+                                 TrackDownloadService trackDownloadService,
+                                 AudioSegmentService audioSegmentService,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.signedDownloadService = signedDownloadService;
+        this.trackDownloadService = trackDownloadService;
+        this.audioSegmentService = audioSegmentService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @GetMapping("/signed/{musicId}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable Long musicId,
+                                                          @RequestParam("c") Long customerId,
+                                                          @RequestParam("e") long expires,
+                                                          @RequestParam("s") String signature) throws IOException {
+        verify(musicId, customerId, expires, signature);
+        TrackDownloadService.PreparedDownload download = trackDownloadService.prepare(musicId, customerId);
+        eventPublisher.publishEvent(MusicActivityEvent.download(customerId, musicId));
+        return buildResponse(download, expires).body(download.body());
+    }
+
+    @RequestMapping(value = "/signed/{musicId}", method = RequestMethod.HEAD)
+    public ResponseEntity<?> downloadHead(@PathVariable Long musicId,
+                                          @RequestParam("c") Long customerId,
+                                          @RequestParam("e") long expires,
+                                          @RequestParam("s") String signature) {
+        try {
+            verify(musicId, customerId, expires, signature);
+            return buildResponse(trackDownloadService.prepare(musicId, customerId), expires).build();
+        } catch (UnauthorizedException e) {
+            return ResponseEntity.status(403).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error during HEAD for signed download {}: {}", musicId, e.getMessage(), e);
+            return ResponseEntity.status(404).body(new ErrorResponse("Audio file not found"));
+        }
+    }
+
+    // HLS for native players that cannot send a bearer token; segment URIs inherit the signature
+    @GetMapping("/signed/stream/{musicId}/playlist.m3u8")
+    public ResponseEntity<String> streamPlaylist(@PathVariable Long musicId,
+                                                 @RequestParam("c") Long customerId,
+                                                 @RequestParam("e") long expires,
+                                                 @RequestParam("s") String signature) throws IOException {
+        verifyStream(musicId, customerId, expires, signature);
+        String playlist = audioSegmentService.getPlaylist(musicId,
+                signedDownloadService.streamQuery(musicId, customerId, expires));
+        eventPublisher.publishEvent(MusicActivityEvent.stream(customerId, musicId));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(playlist);
+    }
+
+    @GetMapping("/signed/stream/{musicId}/segments/{version}/{segment}.mp3")
+    public ResponseEntity<byte[]> streamSegment(@PathVariable Long musicId,
+                                                @PathVariable String version,
+                                                @PathVariable int segment,
+                                                @RequestParam("c") Long customerId,
+                                                @RequestParam("e") long expires,
+                                                @RequestParam("s") String signature) throws IOException {
+        verifyStream(musicId, customerId, expires, signature);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .cacheControl(CacheControl.maxAge(Math.max(0, expires - System.currentTimeMillis() / 1000), TimeUnit.SECONDS)
+                        .cachePrivate())
+                .body(audioSegmentService.getSegment(musicId, version, segment));
+    }
+
+    private void verifyStream(Long musicId, Long customerId, long expires, String signature) {
+        if (!signedDownloadService.verifyStream(musicId, customerId, expires, signature)) {
+            throw new UnauthorizedException("Stream link is invalid or has expired");
+        }
+    }
+
+    private void verify(Long musicId, Long customerId, long expires, String signature) {
+        if (!signedDownloadService.verify(musicId, customerId, expires, signature)) {
+            throw new UnauthorizedException("Download link is invalid or has expired");
+        }
+    }
+
+    // Anyone holding the URL may fetch it until it expires, so shared caches can keep it that long
+    private ResponseEntity.BodyBuilder buildResponse(TrackDownloadService.PreparedDownload download, long expires) {
+        long maxAge = Math.max(0, expires - System.currentTimeMillis() / 1000);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.fileName() + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+        if (download.contentLength() != null) {
+            response.contentLength(download.contentLength());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,193 @@
+package com.music.musicstore.api;
+
+import com.music.musicstore.dto.ErrorResponse;
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.ChartSnapshot;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.services.AcousticSimilarityService;
+import com.music.musicstore.services.ChartService;
+import com.music.musicstore.services.CoPurchaseService;
+import com.music.musicstore.services.CoverThumbnailService;
+import com.music.musicstore.services.MusicService;
+import com.music.musicstore.services.TrendingService;
+import com.music.musicstore.services.WaveformService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/music")
+@CrossOrigin(origins = "http://localhost:5173")
+public class MusicApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MusicApiController.class);
+
+    private final WaveformService waveformService;
+    private final CoverThumbnailService coverThumbnailService;
+    private final AcousticSimilarityService acousticSimilarityService;
+    private final CoPurchaseService coPurchaseService;
+    private final MusicService musicService;
+    private final TrendingService trendingService;
+    private final ChartService chartService;
+
+    @Autowired
+    public MusicApiController(WaveformService waveformService,
+                              CoverThumbnailService coverThumbnailService,
+                              AcousticSimilarityService acousticSimilarityService,
+                              CoPurchaseService coPurchaseService,
+                              MusicService musicService,
+                              TrendingService trendingService,
+                              ChartService chartService) {
+        this.waveformService = waveformService;
+        this.coverThumbnailService = coverThumbnailService;
+        this.acousticSimilarityService = acousticSimilarityService;
+        this.coPurchaseService = coPurchaseService;
+        this.musicService = musicService;
+        this.trendingService = trendingService;
+        this.chartService = chartService;
+    }
+
+    // Compact min/max peak pairs for client-side waveform rendering
+    @GetMapping("/{musicId}/waveform")
+    public ResponseEntity<?> getWaveform(@PathVariable Long musicId, WebRequest webRequest) {
+        try {
+            WaveformService.WaveformData waveform = waveformService.getWaveform(musicId);
+            if (waveform == null) {
+                // Still being generated in the background
+                return ResponseEntity.accepted()
+                        .header("Retry-After", "2")
+                        .cacheControl(CacheControl.noStore())
+                        .build();
+            }
+            if (webRequest.checkNotModified(waveform.etag())) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .eTag(waveform.etag())
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                    .body(waveform.readBytes());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error loading waveform for music id {}: {}", musicId, e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new ErrorResponse("Failed to load waveform: " + e.getMessage()));
+        }
+    }
+
+    // Cover derivatives are addressed by content hash, so a given URL never changes
+    @GetMapping("/covers/{hash}/{size}")
+    public ResponseEntity<?> getCoverThumbnail(@PathVariable String hash, @PathVariable int size) {
+        try {
+            CoverThumbnailService.Thumbnail thumbnail = coverThumbnailService.getThumbnail(hash, size);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(thumbnail.contentType()))
+                    .eTag("\"" + hash + "-" + size + "\"")
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .body(thumbnail.bytes());
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error loading cover thumbnail {} ({}px): {}", hash, size, e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new ErrorResponse("Failed to load cover thumbnail: " + e.getMessage()));
+        }
+    }
+
+    // Tracks that sound alike, from the acoustic feature index; empty until the track is analyzed
+    @GetMapping("/{musicId}/similar")
+    public ResponseEntity<?> getSimilarMusic(@PathVariable Long musicId,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<Long> similarIds = acousticSimilarityService.findSimilar(musicId, limit);
+            return ResponseEntity.ok(loadInOrder(similarIds));
+        } catch (Exception e) {
+            logger.error("Error finding similar music for id {}: {}", musicId, e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new ErrorResponse("Failed to find similar music: " + e.getMessage()));
+        }
+    }
+
+    // "Customers who bought this also bought", ranked by co-purchase similarity
+    @GetMapping("/{musicId}/also-bought")
+    public ResponseEntity<?> getAlsoBought(@PathVariable Long musicId,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<Long> neighbourIds = coPurchaseService.alsoBought(musicId, limit);
+            return ResponseEntity.ok(loadInOrder(neighbourIds));
+        } catch (Exception e) {
+            logger.error("Error loading also-bought music for id {}: {}", musicId, e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new ErrorResponse("Failed to load recommendations: " + e.getMessage()));
+        }
+    }
+
+    // Served from the trending snapshot; rankings change at most every refresh interval
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit < 1 || limit > 100) {
+                throw new ValidationException("limit must be between 1 and 100");
+            }
+            TrendingService.Window trendingWindow = TrendingService.Window.fromLabel(window);
+            Map<String, Object> response = new HashMap<>();
+            response.put("window", trendingWindow.getLabel());
+            response.put("refreshedAt", trendingService.getRefreshedAt());
+            response.put("tracks", trendingService.getTrending(trendingWindow, limit));
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic())
+                    .body(response);
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // Published charts never change; "weekly"/"monthly" follow the latest closed period
+    @GetMapping("/charts/{genre}/{period}")
+    public ResponseEntity<?> getChart(@PathVariable String genre, @PathVariable String period) {
+        try {
+            ChartSnapshot chart = chartService.getChart(genre, period);
+            boolean latest = "weekly".equalsIgnoreCase(period) || "monthly".equalsIgnoreCase(period);
+            CacheControl cacheControl = latest
+                    ? CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic()
+                    : CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic().immutable();
+            return ResponseEntity.ok().cacheControl(cacheControl).body(chart);
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // Loads tracks in one query and restores the ranking order
+    private List<Music> loadInOrder(List<Long> ids) {
+        Map<Long, Music> byId = new HashMap<>();
+        for (Music music : musicService.getMusicByIds(ids)) {
+            byId.put(music.getId(), music);
+        }
+        List<Music> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Music music = byId.get(id);
+            if (music != null) {
+                ordered.add(music);
+            }
+        }
+        return ordered;
+    }
+}
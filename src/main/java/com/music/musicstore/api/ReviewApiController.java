@@ -3,7 +3,8 @@ package com.music.musicstore.api;
 import com.music.musicstore.dto.CreateReviewRequest;
 import com.music.musicstore.dto.ReviewDto;
 import com.music.musicstore.models.music.Review;
-import com.music.musicstore.models.users.Customer;
+import com.music.musicstore.models.users.UserPrincipal;
+import com.music.musicstore.services.CustomerService;
 import com.music.musicstore.services.ReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -22,22 +23,24 @@ import java.util.Optional;
 public class ReviewApiController {
 
     private final ReviewService reviewService;
+    private final CustomerService customerService;
 
     @Autowired
-    public ReviewApiController(ReviewService reviewService) {
+    public ReviewApiController(ReviewService reviewService, CustomerService customerService) {
         this.reviewService = reviewService;
+        this.customerService = customerService;
     }
 
     @PostMapping("/music/{musicId}")
     public ResponseEntity<ReviewDto> createReview(@PathVariable Long musicId,
                                                 @RequestBody CreateReviewRequest request,
-                                                @AuthenticationPrincipal Customer customer) {
+                                                @AuthenticationPrincipal UserPrincipal customer) {
         if (customer == null) {
             return ResponseEntity.status(401).build();
         }
 
         try {
-            Review review = reviewService.createReview(musicId, customer, request.getRating(), request.getComment());
+            Review review = reviewService.createReview(musicId, customerService.findById(customer.getId()), request.getRating(), request.getComment());
             return ResponseEntity.ok(convertToDto(review, customer));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -47,13 +50,13 @@ public class ReviewApiController {
     @PutMapping("/{reviewId}")
     public ResponseEntity<ReviewDto> updateReview(@PathVariable Long reviewId,
                                                 @RequestBody CreateReviewRequest request,
-                                                @AuthenticationPrincipal Customer customer) {
+                                                @AuthenticationPrincipal UserPrincipal customer) {
         if (customer == null) {
             return ResponseEntity.status(401).build();
         }
 
         try {
-            Review review = reviewService.updateReview(reviewId, customer, request.getRating(), request.getComment());
+            Review review = reviewService.updateReview(reviewId, customerService.findById(customer.getId()), request.getRating(), request.getComment());
             return ResponseEntity.ok(convertToDto(review, customer));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -62,13 +65,13 @@ public class ReviewApiController {
 
     @DeleteMapping("/{reviewId}")
     public ResponseEntity<Void> deleteReview(@PathVariable Long reviewId,
-                                            @AuthenticationPrincipal Customer customer) {
+                                            @AuthenticationPrincipal UserPrincipal customer) {
         if (customer == null) {
             return ResponseEntity.status(401).build();
         }
 
         try {
-            reviewService.deleteReview(reviewId, customer);
+            reviewService.deleteReview(reviewId, customerService.findById(customer.getId()));
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -79,7 +82,7 @@ public class ReviewApiController {
     public ResponseEntity<Page<ReviewDto>> getReviewsByMusic(@PathVariable Long musicId,
                                                            @RequestParam(defaultValue = "0") int page,
                                                            @RequestParam(defaultValue = "10") int size,
-                                                           @AuthenticationPrincipal Customer customer) {
+                                                           @AuthenticationPrincipal UserPrincipal customer) {
         try {
             Pageable pageable = PageRequest.of(page, size);
             Page<Review> reviews = reviewService.getReviewsByMusic(musicId, pageable);
@@ -92,13 +95,13 @@ public class ReviewApiController {
 
     @GetMapping("/music/{musicId}/my-review")
     public ResponseEntity<ReviewDto> getUserReview(@PathVariable Long musicId,
-                                                 @AuthenticationPrincipal Customer customer) {
+                                                 @AuthenticationPrincipal UserPrincipal customer) {
         if (customer == null) {
             return ResponseEntity.status(401).build();
         }
 
         try {
-            Optional<Review> review = reviewService.getUserReviewForMusic(musicId, customer);
+            Optional<Review> review = reviewService.getUserReviewForMusic(musicId, customerService.findById(customer.getId()));
             if (review.isPresent()) {
                 return ResponseEntity.ok(convertToDto(review.get(), customer));
             } else {
@@ -119,7 +122,7 @@ public class ReviewApiController {
         }
     }
 
-    private ReviewDto convertToDto(Review review, Customer currentUser) {
+    private ReviewDto convertToDto(Review review, UserPrincipal currentUser) {
         boolean isOwnReview = currentUser != null &&
                              review.getCustomer().getId().equals(currentUser.getId());
 
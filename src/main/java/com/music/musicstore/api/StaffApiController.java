@@ -4,6 +4,7 @@ import com.music.musicstore.models.support.TicketMessage;
 import com.music.musicstore.services.TicketService;
 import com.music.musicstore.services.StaffService;
 import com.music.musicstore.models.users.Staff;
+import com.music.musicstore.models.users.UserPrincipal;
 import com.music.musicstore.dto.ErrorResponse;
 import com.music.musicstore.dto.TicketReplyRequest;
 import com.music.musicstore.dto.TicketStatusUpdateRequest;
@@ -106,7 +107,7 @@ public class StaffApiController {
     public ResponseEntity<?> replyToTicket(
             @PathVariable Long ticketId,
             @RequestBody TicketReplyRequest request,
-            @AuthenticationPrincipal Staff staff) {
+            @AuthenticationPrincipal UserPrincipal staff) {
         try {
             logger.info("Staff {} is replying to ticket {}", staff.getUsername(), ticketId);
             // Get the existing staff entity from database using StaffService
@@ -0,0 +1,19 @@
+package com.music.musicstore.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class AudioProcessingConfig {
+
+    // Dedicated pool for catalog-wide audio jobs so they never compete with the common pool
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool audioProcessingPool(
+            @Value("${musicstore.audio.processing.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
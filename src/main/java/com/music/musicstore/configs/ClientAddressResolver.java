@@ -0,0 +1,145 @@
+package com.music.musicstore.configs;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the address of the client behind the request, for per-address throttling.
+ *
+ * X-Forwarded-For is only believed when the connection comes from one of the configured trusted
+ * proxies ({@code musicstore.security.trusted-proxies}, comma-separated addresses or CIDR ranges).
+ * The header is then read right to left, skipping further trusted proxies, and the first address
+ * that is not one of them is the client; entries to its left were written by the client and are
+ * ignored. With no trusted proxies configured the connection's remote address is used as is.
+ */
+@Component
+public class ClientAddressResolver {
+    private static final Logger logger = LoggerFactory.getLogger(ClientAddressResolver.class);
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    // Only literals are parsed, so a forged header can never trigger a DNS lookup
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final List<Range> trustedProxies;
+
+    public ClientAddressResolver(@Value("${musicstore.security.trusted-proxies:}") String trustedProxies) {
+        this.trustedProxies = parseRanges(trustedProxies);
+        logger.info("ClientAddressResolver initialized with {} trusted proxy ranges", this.trustedProxies.size());
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (trustedProxies.isEmpty() || !isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+        String client = remoteAddr;
+        var headers = request.getHeaders(FORWARDED_FOR);
+        List<String> hops = new ArrayList<>();
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                hops.add(hop.trim());
+            }
+        }
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            String hop = hops.get(i);
+            if (parseLiteral(hop) == null) {
+                // Garbage in the chain; the last hop we could verify is the best we know
+                break;
+            }
+            client = hop;
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(String address) {
+        InetAddress parsed = parseLiteral(address);
+        if (parsed == null) {
+            return false;
+        }
+        for (Range range : trustedProxies) {
+            if (range.contains(parsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Range> parseRanges(String spec) {
+        List<Range> ranges = new ArrayList<>();
+        if (spec == null) {
+            return ranges;
+        }
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int slash = trimmed.indexOf('/');
+            InetAddress network = parseLiteral(slash < 0 ? trimmed : trimmed.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("Trusted proxy is not an IP address or CIDR range: " + trimmed);
+            }
+            int maxBits = network.getAddress().length * 8;
+            int prefix = maxBits;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(trimmed.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    prefix = -1;
+                }
+                if (prefix < 0 || prefix > maxBits) {
+                    throw new IllegalArgumentException("Invalid prefix length in trusted proxy range: " + trimmed);
+                }
+            }
+            ranges.add(new Range(network.getAddress(), prefix));
+        }
+        return ranges;
+    }
+
+    private static InetAddress parseLiteral(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+        if (!IPV4_LITERAL.matcher(address).matches() && address.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private record Range(byte[] network, int prefix) {
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefix / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefix % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
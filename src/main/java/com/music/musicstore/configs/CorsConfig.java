@@ -16,10 +16,10 @@ public class CorsConfig {
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:5173", "http://localhost:3001"));
         configuration.setAllowedMethods(Arrays.asList("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS"));
         // allow common headers including Authorization so preflight succeeds
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept", "X-Requested-With", "Origin"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept", "X-Requested-With", "Origin", "Range", "If-Range"));
         configuration.setAllowCredentials(true);
         // expose headers needed by the client when downloading files
-        configuration.setExposedHeaders(Arrays.asList("Content-Disposition", "Content-Length", "Content-Type"));
+        configuration.setExposedHeaders(Arrays.asList("Content-Disposition", "Content-Length", "Content-Type", "Content-Range", "Accept-Ranges", "ETag"));
         configuration.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,24 @@
+package com.music.musicstore.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class DownloadStreamingConfig implements WebMvcConfigurer {
+
+    private final long asyncTimeoutMs;
+
+    public DownloadStreamingConfig(@Value("${musicstore.download.async-timeout-ms:3600000}") long asyncTimeoutMs) {
+        this.asyncTimeoutMs = asyncTimeoutMs;
+    }
+
+    // Streamed downloads run on virtual threads so slow, throttled clients never hold a Tomcat worker
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new VirtualThreadTaskExecutor("download-"));
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+}
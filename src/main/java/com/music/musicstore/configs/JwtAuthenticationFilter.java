@@ -1,6 +1,6 @@
 package com.music.musicstore.configs;
 
-import com.music.musicstore.services.CombinedUserDetailsService;
+import com.music.musicstore.services.UserPrincipalService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,7 +22,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private CombinedUserDetailsService userDetailsService;
+    private UserPrincipalService userPrincipalService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
@@ -30,22 +30,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        JwtUtil.VerifiedToken token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            // One signature and expiry check per token; repeats within the cache TTL skip parsing
             try {
-                username = jwtUtil.extractUsername(jwt);
+                token = jwtUtil.verify(authorizationHeader.substring(7));
             } catch (Exception e) {
-                logger.error("JWT token extraction failed", e);
+                logger.error("JWT token verification failed", e);
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (token != null && token.username() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Built from the token's id, role and stamp; a stale stamp leaves the request unauthenticated
+            UserDetails userDetails = userPrincipalService.resolve(token);
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
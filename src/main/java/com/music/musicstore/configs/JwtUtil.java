@@ -1,17 +1,31 @@
 package com.music.musicstore.configs;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Component
@@ -23,20 +37,89 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.verification-cache.ttl-ms:30000}")
+    private long verificationCacheTtlMs;
+
+    @Value("${jwt.verification-cache.max-entries:10000}")
+    private int verificationCacheMaxEntries;
+
+    // Built once; both are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+
+    // Verified tokens by SHA-256 of the whole token, so a cache hit implies the exact same signed bytes
+    private final Map<String, CachedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private volatile long lastEviction;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    /**
+     * Derives a key for another signing purpose from the JWT secret. Every instance sharing the
+     * secret derives the same key, and the JWT key itself is never reused for anything else.
+     */
+    public byte[] deriveKey(String purpose) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(("musicstore:" + purpose).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive a key for " + purpose, e);
+        }
+    }
+
+    /**
+     * Verifies signature and expiry once and returns the token's claims. Recently verified tokens
+     * are answered from a short-lived cache without parsing again.
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedToken verify(String token) {
+        String cacheKey = hash(token);
+        long now = System.currentTimeMillis();
+        CachedToken cached = verifiedTokens.get(cacheKey);
+        if (cached != null && cached.validUntil > now) {
+            return cached.token;
+        }
+
+        VerifiedToken verified = VerifiedToken.of(parser.parseClaimsJws(token).getBody());
+        long validUntil = now + verificationCacheTtlMs;
+        if (verified.expiresAt() != null) {
+            validUntil = Math.min(validUntil, verified.expiresAt().toEpochMilli());
+        }
+        // A full cache of live tokens is scanned at most once a second; meanwhile misses go uncached
+        if (verifiedTokens.size() >= verificationCacheMaxEntries && now - lastEviction > 1000) {
+            lastEviction = now;
+            evictExpired(now);
+        }
+        if (verifiedTokens.size() < verificationCacheMaxEntries) {
+            verifiedTokens.put(cacheKey, new CachedToken(verified, validUntil));
+        }
+        return verified;
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+        return verify(token).role();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        Instant expiresAt = verify(token).expiresAt();
+        return expiresAt != null ? Date.from(expiresAt) : null;
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -45,20 +128,24 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String generateToken(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", userDetails.getAuthorities().iterator().next().getAuthority());
+        return createToken(claims, userDetails.getUsername());
     }
 
-    public String generateToken(UserDetails userDetails) {
+    /**
+     * Issues a token that also names the user's id and security stamp, so requests can be
+     * authenticated without looking the user up by name.
+     */
+    public String generateToken(UserDetails userDetails, Long userId, long securityStamp) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", userDetails.getAuthorities().iterator().next().getAuthority());
+        claims.put("uid", userId);
+        claims.put("sv", securityStamp);
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -72,14 +159,55 @@ public class JwtUtil {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        // verify() rejects expired tokens, so only the subject is left to compare
+        try {
+            return verify(token).username().equals(userDetails.getUsername());
+        } catch (JwtException e) {
+            return false;
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<CachedToken> iterator = verifiedTokens.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().validUntil <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Claims of a token whose signature and expiry have been checked. tokenId, userId and
+     * securityStamp are null for tokens issued before those claims were added.
+     */
+    public record VerifiedToken(String tokenId, String username, String role, Long userId, Long securityStamp,
+                                Instant issuedAt, Instant expiresAt) {
+
+        static VerifiedToken of(Claims claims) {
+            return new VerifiedToken(claims.getId(), claims.getSubject(), claims.get("role", String.class),
+                    claims.get("uid", Long.class), claims.get("sv", Long.class),
+                    toInstant(claims.getIssuedAt()), toInstant(claims.getExpiration()));
+        }
+
+        private static Instant toInstant(Date date) {
+            return date != null ? date.toInstant() : null;
+        }
+    }
+
+    private record CachedToken(VerifiedToken token, long validUntil) {
     }
 }
@@ -0,0 +1,73 @@
+package com.music.musicstore.configs;
+
+import com.music.musicstore.services.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the per-client rate limits of {@link RateLimitService} to rate-limited endpoints. Runs
+ * after JWT authentication so signed-in users are limited per account rather than per address;
+ * anonymous clients are keyed by {@link ClientAddressResolver}, so clients behind a trusted proxy
+ * get their own buckets instead of sharing the proxy's.
+ * Every limited response carries the RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset
+ * headers; rejected ones are answered with 429 and Retry-After without reaching a controller.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitService.Group group = rateLimitService.classify(request.getMethod(), request.getRequestURI());
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitService.Decision decision = rateLimitService.tryAcquire(group, clientKey(request));
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.resetSeconds()));
+
+        if (!decision.allowed()) {
+            // Written here because the exception handler only covers controllers
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\","
+                    + "\"message\":\"Rate limit exceeded, please try again later\","
+                    + "\"errorCode\":\"TOO_MANY_REQUESTS\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !"anonymousUser".equals(authentication.getPrincipal())) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + clientAddressResolver.resolve(request);
+    }
+}
@@ -0,0 +1,32 @@
+package com.music.musicstore.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+// Background maintenance jobs (recommendation rebuilds and the like) run on the default scheduler
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // Several jobs run for seconds or minutes, so one thread would queue every other job behind them
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(
+            @Value("${musicstore.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+
+    // Token revocation sync must keep its interval whatever the maintenance jobs are doing
+    @Bean
+    public ThreadPoolTaskScheduler revocationScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("revocation-sync-");
+        return scheduler;
+    }
+}
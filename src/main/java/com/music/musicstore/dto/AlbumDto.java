@@ -2,6 +2,7 @@ package com.music.musicstore.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class AlbumDto {
     private Long id;
@@ -16,6 +17,9 @@ public class AlbumDto {
     private LocalDateTime updatedAt;
     private int trackCount;
 
+    // Cover thumbnail URLs keyed by pixel size
+    private Map<String, String> thumbnailUrls;
+
     // Default constructor
     public AlbumDto() {}
 
@@ -125,4 +129,12 @@ public class AlbumDto {
     public void setTrackCount(int trackCount) {
         this.trackCount = trackCount;
     }
+
+    public Map<String, String> getThumbnailUrls() {
+        return thumbnailUrls;
+    }
+
+    public void setThumbnailUrls(Map<String, String> thumbnailUrls) {
+        this.thumbnailUrls = thumbnailUrls;
+    }
 }
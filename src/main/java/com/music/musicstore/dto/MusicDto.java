@@ -2,6 +2,7 @@ package com.music.musicstore.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class MusicDto {
     private Long id;
@@ -31,6 +32,13 @@ public class MusicDto {
     private Boolean isFlagged;
     private LocalDateTime flaggedAt;
 
+    // Cover thumbnail URLs keyed by pixel size
+    private Map<String, String> thumbnailUrls;
+
+    // Playback normalization; null until the track has been analyzed
+    private Double replayGainDb;
+    private Double peakAmplitude;
+
     // Default constructor
     public MusicDto() {}
 
@@ -130,4 +138,13 @@ public class MusicDto {
 
     public LocalDateTime getFlaggedAt() { return flaggedAt; }
     public void setFlaggedAt(LocalDateTime flaggedAt) { this.flaggedAt = flaggedAt; }
+
+    public Map<String, String> getThumbnailUrls() { return thumbnailUrls; }
+    public void setThumbnailUrls(Map<String, String> thumbnailUrls) { this.thumbnailUrls = thumbnailUrls; }
+
+    public Double getReplayGainDb() { return replayGainDb; }
+    public void setReplayGainDb(Double replayGainDb) { this.replayGainDb = replayGainDb; }
+
+    public Double getPeakAmplitude() { return peakAmplitude; }
+    public void setPeakAmplitude(Double peakAmplitude) { this.peakAmplitude = peakAmplitude; }
 }
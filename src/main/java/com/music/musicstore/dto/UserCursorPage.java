@@ -0,0 +1,30 @@
+package com.music.musicstore.dto;
+
+import java.util.List;
+
+/**
+ * One page of the user listing or of user search results, read by cursor. nextCursor is null on
+ * the last page.
+ */
+public class UserCursorPage {
+    private List<UserDto> content;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public UserCursorPage() {}
+
+    public UserCursorPage(List<UserDto> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<UserDto> getContent() { return content; }
+    public void setContent(List<UserDto> content) { this.content = content; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
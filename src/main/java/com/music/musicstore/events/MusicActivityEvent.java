@@ -0,0 +1,35 @@
+package com.music.musicstore.events;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published whenever a customer acts on one or more tracks. Listeners run synchronously on the
+ * request thread, so they should only record the activity and defer heavy work.
+ */
+public record MusicActivityEvent(Type type, Long customerId, List<Long> musicIds, Instant occurredAt) {
+
+    public enum Type {
+        PURCHASE,
+        DOWNLOAD,
+        // A playback session was started (the HLS playlist was fetched)
+        STREAM,
+        REVIEW
+    }
+
+    public static MusicActivityEvent purchase(Long customerId, List<Long> musicIds) {
+        return new MusicActivityEvent(Type.PURCHASE, customerId, List.copyOf(musicIds), Instant.now());
+    }
+
+    public static MusicActivityEvent download(Long customerId, Long musicId) {
+        return new MusicActivityEvent(Type.DOWNLOAD, customerId, List.of(musicId), Instant.now());
+    }
+
+    public static MusicActivityEvent stream(Long customerId, Long musicId) {
+        return new MusicActivityEvent(Type.STREAM, customerId, List.of(musicId), Instant.now());
+    }
+
+    public static MusicActivityEvent review(Long customerId, Long musicId) {
+        return new MusicActivityEvent(Type.REVIEW, customerId, List.of(musicId), Instant.now());
+    }
+}
@@ -0,0 +1,34 @@
+package com.music.musicstore.events;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Published when an account is created, deleted, enabled or disabled, from inside the transaction
+ * that changes it. Listeners that keep totals should use a transactional listener so rolled-back
+ * changes are not counted. role is the directory role, e.g. ROLE_CUSTOMER; enabled is the account's
+ * state after the change, or before it for a deletion.
+ */
+public record UserAccountEvent(Type type, String role, Long userId, boolean enabled, LocalDateTime createdAt,
+                               Instant occurredAt) {
+
+    public enum Type {
+        CREATED,
+        DELETED,
+        ENABLED,
+        DISABLED
+    }
+
+    public static UserAccountEvent created(String role, Long userId, boolean enabled, LocalDateTime createdAt) {
+        return new UserAccountEvent(Type.CREATED, role, userId, enabled, createdAt, Instant.now());
+    }
+
+    public static UserAccountEvent deleted(String role, Long userId, boolean enabled, LocalDateTime createdAt) {
+        return new UserAccountEvent(Type.DELETED, role, userId, enabled, createdAt, Instant.now());
+    }
+
+    public static UserAccountEvent statusChanged(String role, Long userId, boolean enabled, LocalDateTime createdAt) {
+        return new UserAccountEvent(enabled ? Type.ENABLED : Type.DISABLED, role, userId, enabled, createdAt,
+                Instant.now());
+    }
+}
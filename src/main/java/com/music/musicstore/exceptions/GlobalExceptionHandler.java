@@ -3,6 +3,7 @@ package com.music.musicstore.exceptions;
 import org.apache.catalina.connector.ClientAbortException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -60,6 +61,23 @@ public class GlobalExceptionHandler {
         return createErrorResponse(ex.getMessage(), HttpStatus.CONFLICT, ex.getErrorCode());
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(
+            TooManyRequestsException ex, WebRequest request) {
+        // Expected under attack; no stack trace so a storm cannot flood the logs
+        logger.warn("Rate limit exceeded: {}", ex.getMessage());
+        return withRetryAfter(createErrorResponse(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS, ex.getErrorCode()),
+                ex.getRetryAfterSeconds());
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceUnavailable(
+            ServiceUnavailableException ex, WebRequest request) {
+        logger.warn("Service unavailable: {}", ex.getMessage());
+        return withRetryAfter(createErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE, ex.getErrorCode()),
+                ex.getRetryAfterSeconds());
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleUsernameNotFound(
             UsernameNotFoundException ex, WebRequest request) {
@@ -99,6 +117,13 @@ public class GlobalExceptionHandler {
         return createErrorResponse("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR, "INTERNAL_ERROR");
     }
 
+    private ResponseEntity<Map<String, Object>> withRetryAfter(
+            ResponseEntity<Map<String, Object>> response, long retryAfterSeconds) {
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfterSeconds)))
+                .body(response.getBody());
+    }
+
     private ResponseEntity<Map<String, Object>> createErrorResponse(
             String message, HttpStatus status, String errorCode) {
         Map<String, Object> errorResponse = new HashMap<>();
@@ -0,0 +1,17 @@
+package com.music.musicstore.exceptions;
+
+/**
+ * Exception thrown when a bounded resource is saturated and the request should be retried later
+ */
+public class ServiceUnavailableException extends MusicStoreException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message, "SERVICE_UNAVAILABLE");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
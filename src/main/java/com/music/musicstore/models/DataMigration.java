@@ -0,0 +1,59 @@
+package com.music.musicstore.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a resumable data migration. Batch jobs advance lastId in the same transaction as the
+ * rows they write, so a job stopped by a failure or a restart continues after the last committed
+ * batch. completedAt is set the first time a job reaches the end of its input.
+ */
+@Entity
+@Table(name = "data_migrations")
+public class DataMigration {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    // Highest source id processed so far
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public DataMigration() {
+    }
+
+    public DataMigration(String name) {
+        this.name = name;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public String getName() { return name; }
+
+    public long getLastId() { return lastId; }
+
+    public void setLastId(long lastId) {
+        this.lastId = lastId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+
+    public boolean isCompleted() { return completedAt != null; }
+
+    public void markCompleted() {
+        if (completedAt == null) {
+            completedAt = LocalDateTime.now();
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -1,5 +1,6 @@
 package com.music.musicstore.models.music;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,9 +9,10 @@ import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Entity
-@Table(name = "albums")
+@Table(name = "albums", indexes = @Index(name = "idx_albums_cover_hash", columnList = "cover_hash"))
 public class Album {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -46,6 +48,11 @@ public class Album {
     @Column(name = "cover_image_url")
     private String coverImageUrl;
 
+    // Content hash of the cover image addressing its thumbnails (see CoverThumbnailService)
+    @JsonIgnore
+    @Column(name = "cover_hash", length = 16)
+    private String coverHash;
+
     @Column(name = "release_date")
     private LocalDateTime releaseDate;
 
@@ -131,9 +138,21 @@ public class Album {
     }
 
     public void setCoverImageUrl(String coverImageUrl) {
+        // A new cover needs a new hash
+        if (!Objects.equals(this.coverImageUrl, coverImageUrl)) {
+            this.coverHash = null;
+        }
         this.coverImageUrl = coverImageUrl;
     }
 
+    public String getCoverHash() {
+        return coverHash;
+    }
+
+    public void setCoverHash(String coverHash) {
+        this.coverHash = coverHash;
+    }
+
     public LocalDateTime getReleaseDate() {
         return releaseDate;
     }
@@ -0,0 +1,80 @@
+package com.music.musicstore.models.music;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * One position in a {@link ChartSnapshot}. Track name and artist are copied in so historical
+ * charts read as they were published.
+ */
+@Embeddable
+public class ChartEntry {
+
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    @Column(name = "music_id", nullable = false)
+    private Long musicId;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "artist")
+    private String artist;
+
+    @Column(name = "purchases", nullable = false)
+    private long purchases;
+
+    @Column(name = "downloads", nullable = false)
+    private long downloads;
+
+    @Column(name = "points", nullable = false)
+    private long points;
+
+    // Null when the track was not on the previous period's chart
+    @Column(name = "last_position")
+    private Integer lastPosition;
+
+    @Column(name = "peak_position", nullable = false)
+    private int peakPosition;
+
+    @Column(name = "periods_on_chart", nullable = false)
+    private int periodsOnChart;
+
+    protected ChartEntry() {
+    }
+
+    public ChartEntry(int position, Long musicId, String name, String artist, long purchases, long downloads,
+                      long points, Integer lastPosition, int peakPosition, int periodsOnChart) {
+        this.position = position;
+        this.musicId = musicId;
+        this.name = name;
+        this.artist = artist;
+        this.purchases = purchases;
+        this.downloads = downloads;
+        this.points = points;
+        this.lastPosition = lastPosition;
+        this.peakPosition = peakPosition;
+        this.periodsOnChart = periodsOnChart;
+    }
+
+    public int getPosition() { return position; }
+
+    public Long getMusicId() { return musicId; }
+
+    public String getName() { return name; }
+
+    public String getArtist() { return artist; }
+
+    public long getPurchases() { return purchases; }
+
+    public long getDownloads() { return downloads; }
+
+    public long getPoints() { return points; }
+
+    public Integer getLastPosition() { return lastPosition; }
+
+    public int getPeakPosition() { return peakPosition; }
+
+    public int getPeriodsOnChart() { return periodsOnChart; }
+}
@@ -0,0 +1,142 @@
+package com.music.musicstore.models.music;
+
+import com.music.musicstore.exceptions.ValidationException;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ranked tracks of one genre for one closed week or month. Written once by the chart builder and
+ * never updated; the key combines genre and period so a chart is read with a primary-key lookup.
+ */
+@Entity
+@Immutable
+@Table(name = "chart_snapshots")
+public class ChartSnapshot {
+
+    public static final String ALL_GENRES = "all";
+
+    public enum Period {
+        WEEKLY,
+        MONTHLY;
+
+        public LocalDate startOf(LocalDate day) {
+            return this == WEEKLY
+                    ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : day.withDayOfMonth(1);
+        }
+
+        public LocalDate next(LocalDate start) {
+            return this == WEEKLY ? start.plusWeeks(1) : start.plusMonths(1);
+        }
+
+        public LocalDate previous(LocalDate start) {
+            return this == WEEKLY ? start.minusWeeks(1) : start.minusMonths(1);
+        }
+
+        // ISO week ("2025-W07") or month ("2025-02")
+        public String label(LocalDate start) {
+            return this == WEEKLY
+                    ? String.format("%d-W%02d", start.get(IsoFields.WEEK_BASED_YEAR), start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR))
+                    : String.format("%d-%02d", start.getYear(), start.getMonthValue());
+        }
+
+        public static Period ofLabel(String label) {
+            return label.toUpperCase(Locale.ROOT).contains("W") ? WEEKLY : MONTHLY;
+        }
+
+        /**
+         * Returns the first day of the period with the given label.
+         */
+        public static LocalDate parseStart(String label) {
+            String[] parts = label.toUpperCase(Locale.ROOT).split("-W?");
+            if (parts.length != 2) {
+                throw new ValidationException("Invalid chart period: " + label);
+            }
+            try {
+                int year = Integer.parseInt(parts[0]);
+                int number = Integer.parseInt(parts[1]);
+                if (ofLabel(label) == MONTHLY) {
+                    return LocalDate.of(year, number, 1);
+                }
+                // 4 January is always in week 1; with() rejects weeks the year does not have
+                return LocalDate.of(year, 1, 4)
+                        .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, number)
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            } catch (NumberFormatException | DateTimeException e) {
+                throw new ValidationException("Invalid chart period: " + label);
+            }
+        }
+    }
+
+    @Id
+    @Column(name = "chart_key", length = 160)
+    private String chartKey;
+
+    @Column(name = "genre", nullable = false, length = 100)
+    private String genre;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type", nullable = false, length = 16)
+    private Period periodType;
+
+    @Column(name = "period_label", nullable = false, length = 16)
+    private String periodLabel;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDate periodEnd;
+
+    @Column(name = "generated_at", nullable = false)
+    private LocalDateTime generatedAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "chart_entries", joinColumns = @JoinColumn(name = "chart_key"))
+    @OrderColumn(name = "entry_index")
+    private List<ChartEntry> entries = new ArrayList<>();
+
+    protected ChartSnapshot() {
+    }
+
+    public ChartSnapshot(String genre, Period periodType, LocalDate periodStart, List<ChartEntry> entries) {
+        this.chartKey = key(genre, periodType.label(periodStart));
+        this.genre = genre;
+        this.periodType = periodType;
+        this.periodLabel = periodType.label(periodStart);
+        this.periodStart = periodStart;
+        this.periodEnd = periodType.next(periodStart).minusDays(1);
+        this.generatedAt = LocalDateTime.now();
+        this.entries = new ArrayList<>(entries);
+    }
+
+    public static String key(String genre, String periodLabel) {
+        return genre + ":" + periodLabel.toUpperCase(Locale.ROOT);
+    }
+
+    public String getChartKey() { return chartKey; }
+
+    public String getGenre() { return genre; }
+
+    public Period getPeriodType() { return periodType; }
+
+    public String getPeriodLabel() { return periodLabel; }
+
+    public LocalDate getPeriodStart() { return periodStart; }
+
+    public LocalDate getPeriodEnd() { return periodEnd; }
+
+    public LocalDateTime getGeneratedAt() { return generatedAt; }
+
+    public List<ChartEntry> getEntries() { return entries; }
+}
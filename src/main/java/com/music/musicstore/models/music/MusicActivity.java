@@ -0,0 +1,54 @@
+package com.music.musicstore.models.music;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One customer action on one track, kept so period aggregates (charts, rollups) can be recomputed.
+ * Ids are stored as plain columns rather than relations to keep inserts cheap.
+ */
+@Entity
+@Table(name = "music_activity", indexes = {
+        @Index(name = "idx_music_activity_occurred_at", columnList = "occurred_at")
+})
+public class MusicActivity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "music_id", nullable = false)
+    private Long musicId;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private MusicActivityEvent.Type type;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    public MusicActivity() {
+    }
+
+    public MusicActivity(Long musicId, Long customerId, MusicActivityEvent.Type type, LocalDateTime occurredAt) {
+        this.musicId = musicId;
+        this.customerId = customerId;
+        this.type = type;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getMusicId() { return musicId; }
+
+    public Long getCustomerId() { return customerId; }
+
+    public MusicActivityEvent.Type getType() { return type; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+}
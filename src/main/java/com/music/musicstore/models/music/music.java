@@ -1,5 +1,6 @@
 package com.music.musicstore.models.music;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -10,7 +11,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "music")
+@Table(name = "music", indexes = @Index(name = "idx_music_cover_hash", columnList = "cover_hash"))
 public class Music {
 
     @Id
@@ -78,7 +79,140 @@ public class Music {
     @Column(name = "flagged_by_customer_id")
     private Long flaggedByCustomerId;
 
+    // Loudness analysis (ITU-R BS.1770); null until the track has been measured
+    @Column(name = "loudness_lufs")
+    private Double loudnessLufs;
+
+    @Column(name = "peak_amplitude")
+    private Double peakAmplitude;
+
+    @Column(name = "replay_gain_db")
+    private Double replayGainDb;
+
+    @Column(name = "loudness_analyzed_at")
+    private LocalDateTime loudnessAnalyzedAt;
+
+    // Consecutive failed analyses; the catalog job skips a track once this reaches its limit
+    @JsonIgnore
+    @Column(name = "loudness_failures")
+    private Integer loudnessFailures;
+
+    // Packed acoustic feature vector (see AcousticFeatureExtractor); internal to similarity search
+    @JsonIgnore
+    @Column(name = "acoustic_features", length = 512)
+    private byte[] acousticFeatures;
+
+    @JsonIgnore
+    @Column(name = "acoustic_features_at")
+    private LocalDateTime acousticFeaturesAt;
+
+    // Content hash of the cover image addressing its thumbnails (see CoverThumbnailService)
+    @JsonIgnore
+    @Column(name = "cover_hash", length = 16)
+    private String coverHash;
+
+    // CRC-32 of the audio file for ZIP bundles, valid while the file keeps this size and modification time
+    @JsonIgnore
+    @Column(name = "audio_crc32")
+    private Long audioCrc32;
+
+    @JsonIgnore
+    @Column(name = "audio_crc_size")
+    private Long audioCrcSize;
+
+    @JsonIgnore
+    @Column(name = "audio_crc_modified")
+    private Long audioCrcModified;
+
 
     // Default constructor required by JPA
     public Music() {
     }
+
+    public Double getLoudnessLufs() {
+        return loudnessLufs;
+    }
+
+    public void setLoudnessLufs(Double loudnessLufs) {
+        this.loudnessLufs = loudnessLufs;
+    }
+
+    public Double getPeakAmplitude() {
+        return peakAmplitude;
+    }
+
+    public void setPeakAmplitude(Double peakAmplitude) {
+        this.peakAmplitude = peakAmplitude;
+    }
+
+    public Double getReplayGainDb() {
+        return replayGainDb;
+    }
+
+    public void setReplayGainDb(Double replayGainDb) {
+        this.replayGainDb = replayGainDb;
+    }
+
+    public LocalDateTime getLoudnessAnalyzedAt() {
+        return loudnessAnalyzedAt;
+    }
+
+    public void setLoudnessAnalyzedAt(LocalDateTime loudnessAnalyzedAt) {
+        this.loudnessAnalyzedAt = loudnessAnalyzedAt;
+    }
+
+    public Integer getLoudnessFailures() {
+        return loudnessFailures;
+    }
+
+    public void setLoudnessFailures(Integer loudnessFailures) {
+        this.loudnessFailures = loudnessFailures;
+    }
+
+    public byte[] getAcousticFeatures() {
+        return acousticFeatures;
+    }
+
+    public void setAcousticFeatures(byte[] acousticFeatures) {
+        this.acousticFeatures = acousticFeatures;
+    }
+
+    public LocalDateTime getAcousticFeaturesAt() {
+        return acousticFeaturesAt;
+    }
+
+    public void setAcousticFeaturesAt(LocalDateTime acousticFeaturesAt) {
+        this.acousticFeaturesAt = acousticFeaturesAt;
+    }
+
+    public String getCoverHash() {
+        return coverHash;
+    }
+
+    public void setCoverHash(String coverHash) {
+        this.coverHash = coverHash;
+    }
+
+    public Long getAudioCrc32() {
+        return audioCrc32;
+    }
+
+    public void setAudioCrc32(Long audioCrc32) {
+        this.audioCrc32 = audioCrc32;
+    }
+
+    public Long getAudioCrcSize() {
+        return audioCrcSize;
+    }
+
+    public void setAudioCrcSize(Long audioCrcSize) {
+        this.audioCrcSize = audioCrcSize;
+    }
+
+    public Long getAudioCrcModified() {
+        return audioCrcModified;
+    }
+
+    public void setAudioCrcModified(Long audioCrcModified) {
+        this.audioCrcModified = audioCrcModified;
+    }
@@ -0,0 +1,48 @@
+package com.music.musicstore.models.users;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A token that was revoked before it expired, identified by its jti claim. Rows are only needed
+ * until the token would have expired anyway and are purged after that.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")
+})
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String tokenId, String username, Instant revokedAt, Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.username = username;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() { return tokenId; }
+
+    public String getUsername() { return username; }
+
+    public Instant getRevokedAt() { return revokedAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+}
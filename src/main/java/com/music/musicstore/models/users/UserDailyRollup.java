@@ -0,0 +1,54 @@
+package com.music.musicstore.models.users;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Registrations and deactivations of one role on one day. Growth analytics read a date range of
+ * these rows instead of counting account rows; the unique (day, role) index serves that range scan.
+ */
+@Entity
+@Table(name = "user_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_daily_rollups_day_role", columnNames = {"rollup_date", "role"}))
+public class UserDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate day;
+
+    // Directory role, e.g. ROLE_CUSTOMER
+    @Column(name = "role", nullable = false, length = 32)
+    private String role;
+
+    // Accounts created that day
+    @Column(name = "registrations", nullable = false)
+    private long registrations;
+
+    // Enabled accounts disabled or deleted that day
+    @Column(name = "deactivations", nullable = false)
+    private long deactivations;
+
+    public UserDailyRollup() {
+    }
+
+    public UserDailyRollup(LocalDate day, String role, long registrations, long deactivations) {
+        this.day = day;
+        this.role = role;
+        this.registrations = registrations;
+        this.deactivations = deactivations;
+    }
+
+    public Long getId() { return id; }
+
+    public LocalDate getDay() { return day; }
+
+    public String getRole() { return role; }
+
+    public long getRegistrations() { return registrations; }
+
+    public long getDeactivations() { return deactivations; }
+}
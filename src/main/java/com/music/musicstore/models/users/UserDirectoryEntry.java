@@ -0,0 +1,98 @@
+package com.music.musicstore.models.users;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One row per account across the admins, staff, artists and customers tables, so questions about a
+ * username or email are answered by a single indexed lookup instead of probing every table.
+ * Kept in step with the account tables by the user services, in the same transaction. Also the
+ * source of the paginated user listing, ordered by (created_at, id), and of user search, through
+ * the trigrams of each account's searchable fields.
+ */
+@Entity
+@Table(name = "user_directory",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_directory_account", columnNames = {"role", "user_id"}),
+        indexes = {
+                @Index(name = "idx_user_directory_username", columnList = "username"),
+                @Index(name = "idx_user_directory_email", columnList = "email"),
+                @Index(name = "idx_user_directory_created", columnList = "created_at, id"),
+                @Index(name = "idx_user_directory_role_created", columnList = "role, created_at, id")
+        })
+public class UserDirectoryEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Not unique: the account tables never enforced uniqueness across each other
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "role", nullable = false, length = 32)
+    private String role;
+
+    // Primary key in the role's own table
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled;
+
+    // The account's creation time, or when it was first indexed if the account has none
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Lowercased username, email and names, each preceded by a newline so a match cannot span two fields
+    @Column(name = "search_text", length = 1024)
+    private String searchText;
+
+    // Trigrams of searchText; (gram, entry_id) is the index searches start from
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "user_search_grams", joinColumns = @JoinColumn(name = "entry_id"),
+            indexes = @Index(name = "idx_user_search_grams_gram", columnList = "gram, entry_id"))
+    @Column(name = "gram", length = 3, nullable = false)
+    private Set<String> searchGrams = new HashSet<>();
+
+    public UserDirectoryEntry() {
+    }
+
+    public UserDirectoryEntry(String role, Long userId) {
+        this.role = role;
+        this.userId = userId;
+    }
+
+    public Long getId() { return id; }
+
+    public String getUsername() { return username; }
+
+    public void setUsername(String username) { this.username = username; }
+
+    public String getEmail() { return email; }
+
+    public void setEmail(String email) { this.email = email; }
+
+    public String getRole() { return role; }
+
+    public Long getUserId() { return userId; }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getSearchText() { return searchText; }
+
+    public void setSearchText(String searchText) { this.searchText = searchText; }
+
+    public Set<String> getSearchGrams() { return searchGrams; }
+}
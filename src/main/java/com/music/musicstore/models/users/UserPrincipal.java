@@ -0,0 +1,74 @@
+package com.music.musicstore.models.users;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable snapshot of an authenticated user, safe to cache and share between requests.
+ * It carries no password and no entity state; code that needs the user's entity loads it by id.
+ */
+public final class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String role;
+    private final boolean enabled;
+    private final long securityStamp;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String username, String role, boolean enabled, long securityStamp) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.enabled = enabled;
+        this.securityStamp = securityStamp;
+        this.authorities = role != null ? List.of(new SimpleGrantedAuthority(role)) : List.of();
+    }
+
+    public static UserPrincipal of(UserDetails user, Long id, long securityStamp) {
+        String role = user.getAuthorities().isEmpty()
+                ? null : user.getAuthorities().iterator().next().getAuthority();
+        return new UserPrincipal(id, user.getUsername(), role, user.isEnabled(), securityStamp);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public long getSecurityStamp() {
+        return securityStamp;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal{id=" + id + ", username='" + username + "', role='" + role + "'}";
+    }
+}
@@ -0,0 +1,49 @@
+package com.music.musicstore.models.users;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version of a user's security-relevant state (password, status, profile). Tokens carry the version
+ * they were issued under, so bumping it invalidates every outstanding token of that user.
+ * Users without a row are at version 0.
+ */
+@Entity
+@Table(name = "user_security_stamps")
+public class UserSecurityStamp {
+
+    // role + ":" + user id; ids are only unique within one role's table
+    @Id
+    @Column(name = "principal_key", length = 80)
+    private String principalKey;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public UserSecurityStamp() {
+    }
+
+    public UserSecurityStamp(String principalKey) {
+        this.principalKey = principalKey;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public static String key(String role, Long userId) {
+        return role + ":" + userId;
+    }
+
+    public long bump() {
+        updatedAt = LocalDateTime.now();
+        return ++version;
+    }
+
+    public String getPrincipalKey() { return principalKey; }
+
+    public long getVersion() { return version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
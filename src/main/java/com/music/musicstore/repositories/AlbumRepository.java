@@ -4,9 +4,11 @@ import com.music.musicstore.models.music.Album;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -39,4 +41,16 @@ public interface AlbumRepository extends JpaRepository<Album, Long> {
     // Find album by ID (tracks relationship removed)
     @Query("SELECT a FROM Album a WHERE a.id = :id")
     Album findByIdWithTracks(@Param("id") Long id);
+
+    // Cover hashes (see CoverThumbnailService)
+    @Query("SELECT a.id, a.coverImageUrl FROM Album a WHERE a.id > :afterId AND a.coverHash IS NULL AND a.coverImageUrl IS NOT NULL ORDER BY a.id")
+    List<Object[]> findUnhashedCovers(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT a.coverImageUrl FROM Album a WHERE a.coverHash = :hash")
+    List<String> findImageUrlsByCoverHash(@Param("hash") String hash, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Album a SET a.coverHash = :hash WHERE a.id = :id")
+    int updateCoverHash(@Param("id") Long id, @Param("hash") String hash);
 }
@@ -0,0 +1,9 @@
+package com.music.musicstore.repositories;
+
+import com.music.musicstore.models.music.ChartSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChartSnapshotRepository extends JpaRepository<ChartSnapshot, String> {
+}
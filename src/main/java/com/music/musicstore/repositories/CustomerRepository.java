@@ -1,12 +1,16 @@
 package com.music.musicstore.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import com.music.musicstore.models.users.Customer;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByUsername(String username);
@@ -25,6 +29,21 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT CASE WHEN COUNT(pm) > 0 THEN true ELSE false END FROM Customer c JOIN c.purchasedMusic pm WHERE c.id = :customerId AND pm.id = :musicId")
     boolean hasPurchasedMusic(@Param("customerId") Long customerId, @Param("musicId") Long musicId);
 
+    @Query("SELECT pm.id FROM Customer c JOIN c.purchasedMusic pm WHERE c.id = :customerId")
+    List<Long> findPurchasedMusicIds(@Param("customerId") Long customerId);
+
+    @Query("SELECT o.customer.id FROM Order o WHERE o.id = :orderId")
+    Optional<Long> findCustomerIdByOrderId(@Param("orderId") Long orderId);
+
     @Query("SELECT c FROM Customer c LEFT JOIN FETCH c.purchasedMusic WHERE c.id = :customerId")
     Optional<Customer> findByIdWithPurchasedMusic(@Param("customerId") Long customerId);
+
+    // (customerId, musicId) rows in customer order for the co-purchase rebuild; callers must hold a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT c.id, pm.id FROM Customer c JOIN c.purchasedMusic pm ORDER BY c.id")
+    Stream<Object[]> streamPurchasePairs();
+
+    // (musicId, purchases) for the most purchased tracks, aggregated by the database
+    @Query("SELECT pm.id, COUNT(c.id) FROM Customer c JOIN c.purchasedMusic pm GROUP BY pm.id ORDER BY COUNT(c.id) DESC, pm.id")
+    List<Object[]> findPurchaseCountsByMusic(Pageable pageable);
 }
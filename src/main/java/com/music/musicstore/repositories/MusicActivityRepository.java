@@ -0,0 +1,37 @@
+package com.music.musicstore.repositories;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.models.music.MusicActivity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+@Repository
+public interface MusicActivityRepository extends JpaRepository<MusicActivity, Long> {
+
+    // (musicId, type, genre) per activity in [from, to); callers must hold a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT a.musicId, a.type, m.genre FROM MusicActivity a, Music m " +
+           "WHERE m.id = a.musicId AND a.occurredAt >= :from AND a.occurredAt < :to AND a.type IN :types")
+    Stream<Object[]> streamWithGenre(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("types") Collection<MusicActivityEvent.Type> types);
+
+    // Null while the log is empty
+    @Query("SELECT MIN(a.occurredAt) FROM MusicActivity a")
+    LocalDateTime findEarliestOccurredAt();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MusicActivity a WHERE a.occurredAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
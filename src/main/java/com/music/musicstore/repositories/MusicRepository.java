@@ -4,10 +4,14 @@ import com.music.musicstore.models.music.Music;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,6 +45,9 @@ public interface MusicRepository extends JpaRepository<Music, Long> {
 
 
     Optional<Music> findByName(String name);
+
+    // Tracks are linked to albums by name only
+    List<Music> findByAlbumNameOrderByIdAsc(String albumName);
     Optional<Music> findByNameContainingIgnoreCase(String name);
 
     // Paginated version for better performance
@@ -76,4 +83,72 @@ public interface MusicRepository extends JpaRepository<Music, Long> {
             "FROM Music m WHERE m.artistUsername IS NOT NULL " +
             "GROUP BY m.artistUsername")
     List<Object[]> getArtistPerformanceStats();
-}
\ No newline at end of file
+
+    // Id-only projection for catalog-wide batch jobs
+    @Query("SELECT m.id FROM Music m ORDER BY m.id")
+    List<Long> findAllIds();
+
+    // Tracks the loudness job has not measured yet; lets an interrupted run resume. Tracks that
+    // already failed maxFailures times are left out until someone reanalyzes the whole catalog.
+    @Query("SELECT m.id FROM Music m WHERE m.loudnessAnalyzedAt IS NULL " +
+            "AND (m.loudnessFailures IS NULL OR m.loudnessFailures < :maxFailures) ORDER BY m.id")
+    List<Long> findIdsPendingLoudnessAnalysis(@Param("maxFailures") int maxFailures);
+
+    // Writes only the loudness columns so the batch job never overwrites concurrent edits
+    @Modifying
+    @Transactional
+    @Query("UPDATE Music m SET m.loudnessLufs = :loudnessLufs, m.peakAmplitude = :peakAmplitude, " +
+            "m.replayGainDb = :replayGainDb, m.loudnessAnalyzedAt = :analyzedAt, m.loudnessFailures = 0 WHERE m.id = :id")
+    int updateLoudness(@Param("id") Long id,
+                       @Param("loudnessLufs") Double loudnessLufs,
+                       @Param("peakAmplitude") Double peakAmplitude,
+                       @Param("replayGainDb") Double replayGainDb,
+                       @Param("analyzedAt") LocalDateTime analyzedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Music m SET m.loudnessFailures = COALESCE(m.loudnessFailures, 0) + 1 WHERE m.id = :id")
+    int recordLoudnessFailure(@Param("id") Long id);
+
+    @Query("SELECT m.id FROM Music m WHERE m.acousticFeaturesAt IS NULL ORDER BY m.id")
+    List<Long> findIdsPendingFeatureExtraction();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Music m SET m.acousticFeatures = :features, m.acousticFeaturesAt = :extractedAt WHERE m.id = :id")
+    int updateAcousticFeatures(@Param("id") Long id,
+                               @Param("features") byte[] features,
+                               @Param("extractedAt") LocalDateTime extractedAt);
+
+    // (id, packed vector) pairs ordered by id for building the similarity index
+    @Query("SELECT m.id, m.acousticFeatures FROM Music m WHERE m.acousticFeatures IS NOT NULL ORDER BY m.id")
+    List<Object[]> findAllAcousticFeatures();
+
+    // (id, artistUsername, genre, averageRating) rows ordered by id for the home feed's catalog summary
+    @Query("SELECT m.id, m.artistUsername, m.genre, m.averageRating FROM Music m ORDER BY m.id")
+    List<Object[]> findCatalogSummaries();
+
+    // Cover hashes (see CoverThumbnailService)
+    @Query("SELECT m.id, m.imageUrl FROM Music m WHERE m.id > :afterId AND m.coverHash IS NULL AND m.imageUrl IS NOT NULL ORDER BY m.id")
+    List<Object[]> findUnhashedCovers(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT m.imageUrl FROM Music m WHERE m.coverHash = :hash")
+    List<String> findImageUrlsByCoverHash(@Param("hash") String hash, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Music m SET m.coverHash = :hash WHERE m.id = :id")
+    int updateCoverHash(@Param("id") Long id, @Param("hash") String hash);
+
+    // Tracks whose audio CRC has not been computed for ZIP bundles yet
+    @Query("SELECT m.id FROM Music m WHERE m.audioCrc32 IS NULL AND m.audioFilePath IS NOT NULL ORDER BY m.id")
+    List<Long> findIdsPendingAudioCrc();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Music m SET m.audioCrc32 = :crc, m.audioCrcSize = :size, m.audioCrcModified = :modified WHERE m.id = :id")
+    int updateAudioCrc(@Param("id") Long id,
+                       @Param("crc") long crc,
+                       @Param("size") long size,
+                       @Param("modified") long modified);
+}
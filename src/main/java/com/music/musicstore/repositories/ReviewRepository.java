@@ -39,4 +39,8 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
 
     List<Review> findByMusic(Music music);
+
+    @Query("SELECT r.music.id FROM Review r WHERE r.customer.id = :customerId AND r.rating >= :minRating " +
+           "ORDER BY r.createdAt DESC")
+    List<Long> findMusicIdsRatedAtLeast(@Param("customerId") Long customerId, @Param("minRating") Integer minRating);
 }
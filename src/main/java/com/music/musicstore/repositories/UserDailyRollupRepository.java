@@ -0,0 +1,32 @@
+package com.music.musicstore.repositories;
+
+import com.music.musicstore.models.users.UserDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserDailyRollupRepository extends JpaRepository<UserDailyRollup, Long> {
+
+    List<UserDailyRollup> findByDayBetweenOrderByDayAsc(LocalDate from, LocalDate to);
+
+    // Adds to an existing row; returns 0 if the day has no row for the role yet
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDailyRollup u SET u.registrations = u.registrations + :registrations, "
+            + "u.deactivations = u.deactivations + :deactivations WHERE u.day = :day AND u.role = :role")
+    int addCounts(@Param("day") LocalDate day, @Param("role") String role,
+                  @Param("registrations") long registrations, @Param("deactivations") long deactivations);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDailyRollup u SET u.registrations = :registrations WHERE u.day = :day AND u.role = :role")
+    int setRegistrations(@Param("day") LocalDate day, @Param("role") String role,
+                         @Param("registrations") long registrations);
+}
@@ -0,0 +1,131 @@
+package com.music.musicstore.repositories;
+
+import com.music.musicstore.models.users.UserDirectoryEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserDirectoryRepository extends JpaRepository<UserDirectoryEntry, Long> {
+    List<UserDirectoryEntry> findAllByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    Optional<UserDirectoryEntry> findByRoleAndUserId(String role, Long userId);
+
+    List<UserDirectoryEntry> findByRoleAndUserIdIn(String role, Collection<Long> userIds);
+
+    // Backfill source rows in id order after a cursor: (id, username, email, enabled, createdAt, names...)
+
+    @Query("SELECT a.id, a.username, a.email, a.enabled, a.createdAt, a.firstName, a.lastName FROM Admin a "
+            + "WHERE a.id > :afterId ORDER BY a.id")
+    List<Object[]> findAdminRowsAfter(@Param("afterId") long afterId, Pageable limit);
+
+    @Query("SELECT s.id, s.username, s.email, s.enabled, s.createdAt, s.firstName, s.lastName FROM Staff s "
+            + "WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findStaffRowsAfter(@Param("afterId") long afterId, Pageable limit);
+
+    @Query("SELECT a.id, a.userName, a.email, a.enabled, a.createdAt, a.firstName, a.lastName, a.artistName FROM Artist a "
+            + "WHERE a.id > :afterId ORDER BY a.id")
+    List<Object[]> findArtistRowsAfter(@Param("afterId") long afterId, Pageable limit);
+
+    @Query("SELECT c.id, c.username, c.email, c.enabled, c.createdAt, c.firstName, c.lastName FROM Customer c "
+            + "WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findCustomerRowsAfter(@Param("afterId") long afterId, Pageable limit);
+
+    // Listing ordered by (createdAt, id); the *After queries continue from a cursor so any page costs the same
+
+    Slice<UserDirectoryEntry> findAllByOrderByCreatedAtAscIdAsc(Pageable pageable);
+
+    Slice<UserDirectoryEntry> findByRoleOrderByCreatedAtAscIdAsc(String role, Pageable pageable);
+
+    @Query("SELECT e FROM UserDirectoryEntry e WHERE e.createdAt > :createdAt "
+            + "OR (e.createdAt = :createdAt AND e.id > :id) ORDER BY e.createdAt, e.id")
+    List<UserDirectoryEntry> findAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                       Pageable limit);
+
+    @Query("SELECT e FROM UserDirectoryEntry e WHERE e.role = :role AND (e.createdAt > :createdAt "
+            + "OR (e.createdAt = :createdAt AND e.id > :id)) ORDER BY e.createdAt, e.id")
+    List<UserDirectoryEntry> findByRoleAfter(@Param("role") String role, @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id, Pageable limit);
+
+    // Creation times for rows indexed before the directory stored them
+
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry e SET e.createdAt = COALESCE((SELECT a.createdAt FROM Admin a WHERE a.id = e.userId), :fallback) "
+            + "WHERE e.role = 'ROLE_ADMIN' AND e.createdAt IS NULL")
+    int fillAdminCreatedAt(@Param("fallback") LocalDateTime fallback);
+
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry e SET e.createdAt = COALESCE((SELECT s.createdAt FROM Staff s WHERE s.id = e.userId), :fallback) "
+            + "WHERE e.role = 'ROLE_STAFF' AND e.createdAt IS NULL")
+    int fillStaffCreatedAt(@Param("fallback") LocalDateTime fallback);
+
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry e SET e.createdAt = COALESCE((SELECT a.createdAt FROM Artist a WHERE a.id = e.userId), :fallback) "
+            + "WHERE e.role = 'ROLE_ARTIST' AND e.createdAt IS NULL")
+    int fillArtistCreatedAt(@Param("fallback") LocalDateTime fallback);
+
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry e SET e.createdAt = COALESCE((SELECT c.createdAt FROM Customer c WHERE c.id = e.userId), :fallback) "
+            + "WHERE e.role = 'ROLE_CUSTOMER' AND e.createdAt IS NULL")
+    int fillCustomerCreatedAt(@Param("fallback") LocalDateTime fallback);
+
+    @Modifying
+    @Query("UPDATE UserDirectoryEntry e SET e.createdAt = :fallback WHERE e.createdAt IS NULL")
+    int fillMissingCreatedAt(@Param("fallback") LocalDateTime fallback);
+
+    // Search: joining the term's two rarest trigrams narrows the candidates, the LIKE checks the whole term.
+    // Results continue after a (createdAt, id) cursor like the listing, and are never counted
+
+    @Query("SELECT e FROM UserDirectoryEntry e JOIN e.searchGrams g1 JOIN e.searchGrams g2 "
+            + "WHERE g1 = :gram1 AND g2 = :gram2 AND e.searchText LIKE :pattern ESCAPE '!' "
+            + "AND (e.createdAt > :createdAt OR (e.createdAt = :createdAt AND e.id > :id)) ORDER BY e.createdAt, e.id")
+    List<UserDirectoryEntry> searchAfter(@Param("gram1") String gram1, @Param("gram2") String gram2,
+                                         @Param("pattern") String pattern, @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id, Pageable limit);
+
+    @Query("SELECT e FROM UserDirectoryEntry e JOIN e.searchGrams g1 JOIN e.searchGrams g2 "
+            + "WHERE e.role = :role AND g1 = :gram1 AND g2 = :gram2 AND e.searchText LIKE :pattern ESCAPE '!' "
+            + "AND (e.createdAt > :createdAt OR (e.createdAt = :createdAt AND e.id > :id)) ORDER BY e.createdAt, e.id")
+    List<UserDirectoryEntry> searchByRoleAfter(@Param("role") String role, @Param("gram1") String gram1,
+                                               @Param("gram2") String gram2, @Param("pattern") String pattern,
+                                               @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                               Pageable limit);
+
+    // Trigram frequencies are estimated from windows of entry ids rather than counted over every row
+
+    @Query("SELECT MIN(e.id), MAX(e.id) FROM UserDirectoryEntry e")
+    List<Object[]> findIdRange();
+
+    // (gram, number of entries in [fromId, toId) containing it)
+    @Query("SELECT g, COUNT(e) FROM UserDirectoryEntry e JOIN e.searchGrams g "
+            + "WHERE e.id >= :fromId AND e.id < :toId GROUP BY g")
+    List<Object[]> countSearchGramsBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Per-role totals for reconciling the in-memory user counters
+
+    // (role, accounts, enabled accounts)
+    @Query("SELECT e.role, COUNT(e), SUM(CASE WHEN e.enabled = true THEN 1 ELSE 0 END) FROM UserDirectoryEntry e GROUP BY e.role")
+    List<Object[]> countByRole();
+
+    // (role, accounts created at or after since)
+    @Query("SELECT e.role, COUNT(e) FROM UserDirectoryEntry e WHERE e.createdAt >= :since GROUP BY e.role")
+    List<Object[]> countCreatedSinceByRole(@Param("since") LocalDateTime since);
+
+    // (day, role, accounts created that day) for rebuilding the daily registration rollup
+    @Query("SELECT CAST(e.createdAt AS LocalDate), e.role, COUNT(e) FROM UserDirectoryEntry e "
+            + "WHERE e.createdAt > :unknown GROUP BY CAST(e.createdAt AS LocalDate), e.role")
+    List<Object[]> countRegistrationsByDayAndRole(@Param("unknown") LocalDateTime unknown);
+}
@@ -0,0 +1,323 @@
+package com.music.musicstore.services;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming extractor for a compact acoustic fingerprint of a track.
+ *
+ * Mono PCM is cut into Hann-windowed frames of {@value #FFT_SIZE} samples with 50% overlap and run
+ * through a radix-2 FFT. Per frame it derives spectral centroid, RMS energy, spectral flux and 12
+ * mel-cepstral coefficients; only running sums are kept, so memory does not grow with track length
+ * apart from the onset envelope used for tempo, which is capped. The resulting vector is:
+ * <pre>
+ *   [0]      tempo estimate (BPM)
+ *   [1, 2]   spectral centroid mean / std (kHz)
+ *   [3, 4]   frame energy mean / std (dB)
+ *   [5]      spectral flux mean
+ *   [6..17]  MFCC 1-12 means
+ *   [18..29] MFCC 1-12 standard deviations
+ * </pre>
+ * Dimensions have very different scales; consumers are expected to standardize them.
+ */
+public final class AcousticFeatureExtractor {
+
+    public static final int DIMENSIONS = 30;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int FFT_SIZE = 2048;
+    private static final int HOP_SIZE = FFT_SIZE / 2;
+    private static final int MEL_BANDS = 26;
+    private static final int MFCC_COUNT = 12;
+    private static final double MIN_BPM = 60;
+    private static final double MAX_BPM = 180;
+    // About 12 minutes of onset envelope at 44.1 kHz; longer tracks use their first part for tempo
+    private static final int MAX_ONSET_FRAMES = 32_768;
+
+    private final float sampleRate;
+    private final float[] window = new float[FFT_SIZE];
+    private final float[] frame = new float[FFT_SIZE];
+    private int filled;
+
+    private final double[] real = new double[FFT_SIZE];
+    private final double[] imag = new double[FFT_SIZE];
+    private final double[] cos = new double[FFT_SIZE / 2];
+    private final double[] sin = new double[FFT_SIZE / 2];
+    private final double[] magnitude = new double[FFT_SIZE / 2 + 1];
+    private final double[] previousLogMagnitude = new double[FFT_SIZE / 2 + 1];
+    private final double[][] melFilters;
+    private final double[] melEnergies = new double[MEL_BANDS];
+    private final double[][] dct;
+
+    private long frames;
+    private long voicedFrames;
+    private double centroidSum;
+    private double centroidSquares;
+    private double energySum;
+    private double energySquares;
+    private double fluxSum;
+    private final double[] mfccSums = new double[MFCC_COUNT];
+    private final double[] mfccSquares = new double[MFCC_COUNT];
+    private final float[] onsets = new float[MAX_ONSET_FRAMES];
+    private int onsetCount;
+
+    public AcousticFeatureExtractor(float sampleRate) {
+        this.sampleRate = sampleRate;
+        for (int i = 0; i < FFT_SIZE; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
+        }
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / FFT_SIZE);
+            sin[i] = Math.sin(-2 * Math.PI * i / FFT_SIZE);
+        }
+        this.melFilters = buildMelFilters(sampleRate);
+        this.dct = new double[MFCC_COUNT][MEL_BANDS];
+        for (int c = 0; c < MFCC_COUNT; c++) {
+            for (int b = 0; b < MEL_BANDS; b++) {
+                dct[c][b] = Math.cos(Math.PI * (c + 1) * (b + 0.5) / MEL_BANDS);
+            }
+        }
+    }
+
+    public void add(float[] mono, int count) {
+        int offset = 0;
+        while (offset < count) {
+            int take = Math.min(count - offset, FFT_SIZE - filled);
+            System.arraycopy(mono, offset, frame, filled, take);
+            filled += take;
+            offset += take;
+            if (filled == FFT_SIZE) {
+                analyzeFrame();
+                System.arraycopy(frame, HOP_SIZE, frame, 0, FFT_SIZE - HOP_SIZE);
+                filled = FFT_SIZE - HOP_SIZE;
+            }
+        }
+    }
+
+    /**
+     * Returns the feature vector, or null when the track was too short or silent to describe.
+     */
+    public float[] finish() {
+        if (voicedFrames < 2) {
+            return null;
+        }
+        float[] vector = new float[DIMENSIONS];
+        vector[0] = (float) estimateTempo();
+        vector[1] = (float) mean(centroidSum, voicedFrames);
+        vector[2] = (float) std(centroidSum, centroidSquares, voicedFrames);
+        vector[3] = (float) mean(energySum, frames);
+        vector[4] = (float) std(energySum, energySquares, frames);
+        vector[5] = (float) mean(fluxSum, frames);
+        for (int c = 0; c < MFCC_COUNT; c++) {
+            vector[6 + c] = (float) mean(mfccSums[c], voicedFrames);
+            vector[6 + MFCC_COUNT + c] = (float) std(mfccSums[c], mfccSquares[c], voicedFrames);
+        }
+        return vector;
+    }
+
+    /**
+     * Serializes a vector as a version byte followed by little-endian floats.
+     */
+    public static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + vector.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) FORMAT_VERSION);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a vector written by {@link #toBytes}, or returns null if it has an older layout.
+     */
+    public static float[] fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 1 + DIMENSIONS * 4 || bytes[0] != FORMAT_VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, DIMENSIONS * 4).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = buffer.getFloat();
+        }
+        return vector;
+    }
+
+    private void analyzeFrame() {
+        double squares = 0;
+        for (int i = 0; i < FFT_SIZE; i++) {
+            squares += frame[i] * frame[i];
+            real[i] = frame[i] * window[i];
+            imag[i] = 0;
+        }
+        fft(real, imag);
+
+        double magnitudeSum = 0;
+        double weightedSum = 0;
+        double flux = 0;
+        double binHz = sampleRate / FFT_SIZE;
+        for (int k = 0; k <= FFT_SIZE / 2; k++) {
+            double m = Math.hypot(real[k], imag[k]);
+            magnitude[k] = m;
+            magnitudeSum += m;
+            weightedSum += m * k * binHz;
+            double logMagnitude = Math.log1p(m);
+            flux += Math.max(0, logMagnitude - previousLogMagnitude[k]);
+            previousLogMagnitude[k] = logMagnitude;
+        }
+
+        double energyDb = 10 * Math.log10(squares / FFT_SIZE + 1e-10);
+        energySum += energyDb;
+        energySquares += energyDb * energyDb;
+        fluxSum += flux;
+        if (onsetCount < MAX_ONSET_FRAMES) {
+            onsets[onsetCount++] = (float) flux;
+        }
+        frames++;
+
+        // Spectral shape is meaningless for digital silence
+        if (magnitudeSum <= 1e-9) {
+            return;
+        }
+        voicedFrames++;
+        double centroidKhz = weightedSum / magnitudeSum / 1000.0;
+        centroidSum += centroidKhz;
+        centroidSquares += centroidKhz * centroidKhz;
+
+        for (int b = 0; b < MEL_BANDS; b++) {
+            double[] filter = melFilters[b];
+            double sum = 0;
+            for (int k = 0; k < filter.length; k++) {
+                if (filter[k] != 0) {
+                    sum += filter[k] * magnitude[k] * magnitude[k];
+                }
+            }
+            melEnergies[b] = Math.log(sum + 1e-10);
+        }
+        for (int c = 0; c < MFCC_COUNT; c++) {
+            double coefficient = 0;
+            for (int b = 0; b < MEL_BANDS; b++) {
+                coefficient += dct[c][b] * melEnergies[b];
+            }
+            mfccSums[c] += coefficient;
+            mfccSquares[c] += coefficient * coefficient;
+        }
+    }
+
+    // Autocorrelation of the onset envelope, weighted towards 120 BPM to avoid octave errors
+    private double estimateTempo() {
+        if (onsetCount < 8) {
+            return 0;
+        }
+        double framesPerSecond = sampleRate / HOP_SIZE;
+        double mean = 0;
+        for (int i = 0; i < onsetCount; i++) {
+            mean += onsets[i];
+        }
+        mean /= onsetCount;
+
+        int minLag = Math.max(1, (int) Math.floor(framesPerSecond * 60 / MAX_BPM));
+        int maxLag = Math.min(onsetCount - 1, (int) Math.ceil(framesPerSecond * 60 / MIN_BPM));
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int bestLag = 0;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double sum = 0;
+            for (int i = lag; i < onsetCount; i++) {
+                sum += (onsets[i] - mean) * (onsets[i - lag] - mean);
+            }
+            double bpm = 60 * framesPerSecond / lag;
+            double octaves = Math.log(bpm / 120) / Math.log(2);
+            double score = sum / (onsetCount - lag) * Math.exp(-0.5 * octaves * octaves);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLag = lag;
+            }
+        }
+        return bestLag == 0 || bestScore <= 0 ? 0 : 60 * framesPerSecond / bestLag;
+    }
+
+    private void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length >> 1;
+            int step = n / length;
+            for (int start = 0; start < n; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    private static double[][] buildMelFilters(float sampleRate) {
+        int bins = FFT_SIZE / 2 + 1;
+        double maxMel = toMel(Math.min(sampleRate / 2.0, 16000));
+        double minMel = toMel(20);
+        double[] edges = new double[MEL_BANDS + 2];
+        for (int i = 0; i < edges.length; i++) {
+            double hz = fromMel(minMel + (maxMel - minMel) * i / (MEL_BANDS + 1));
+            edges[i] = hz * FFT_SIZE / sampleRate;
+        }
+        double[][] filters = new double[MEL_BANDS][bins];
+        for (int b = 0; b < MEL_BANDS; b++) {
+            double left = edges[b];
+            double center = edges[b + 1];
+            double right = edges[b + 2];
+            for (int k = (int) Math.floor(left); k <= (int) Math.ceil(right) && k < bins; k++) {
+                double weight;
+                if (k <= left || k >= right) {
+                    weight = 0;
+                } else if (k <= center) {
+                    weight = (k - left) / (center - left);
+                } else {
+                    weight = (right - k) / (right - center);
+                }
+                filters[b][k] = weight;
+            }
+        }
+        return filters;
+    }
+
+    private static double toMel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+
+    private static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    private static double mean(double sum, long count) {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    private static double std(double sum, double squares, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, squares / count - mean * mean));
+    }
+}
@@ -0,0 +1,361 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.BusinessRuleException;
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Extracts acoustic feature vectors for the catalog and answers "sounds like this" queries.
+ *
+ * Vectors are stored on Music by a resumable batch job on the audio fork-join pool. Queries go
+ * to an in-memory inverted-file index: vectors are standardized per dimension and normalized, then
+ * grouped around roughly sqrt(n) k-means centroids; a query only scans the lists of its nearest
+ * centroids. The index is immutable and replaced as a whole after every extraction run.
+ */
+@Service
+public class AcousticSimilarityService {
+    private static final Logger logger = LoggerFactory.getLogger(AcousticSimilarityService.class);
+
+    private static final int READ_FRAMES = 8192;
+    private static final int KMEANS_ITERATIONS = 12;
+    // Lists scanned per query: at least MIN_PROBES, or this share of all lists for larger catalogs
+    private static final int MIN_PROBES = 8;
+    private static final double PROBE_FRACTION = 0.2;
+    private static final int MAX_RESULTS = 50;
+
+    private final MusicRepository musicRepository;
+    private final AudioFileResolver audioFileResolver;
+    private final ForkJoinPool audioProcessingPool;
+
+    private volatile MusicBatchTask currentJob;
+    private volatile IvfIndex index;
+
+    @Autowired
+    public AcousticSimilarityService(MusicRepository musicRepository,
+                                     AudioFileResolver audioFileResolver,
+                                     @Qualifier("audioProcessingPool") ForkJoinPool audioProcessingPool) {
+        this.musicRepository = musicRepository;
+        this.audioFileResolver = audioFileResolver;
+        this.audioProcessingPool = audioProcessingPool;
+        logger.info("AcousticSimilarityService initialized successfully");
+    }
+
+    /**
+     * Ids of the tracks that sound most like the given one, best match first. Empty when the track
+     * has not been analyzed yet.
+     */
+    public List<Long> findSimilar(Long musicId, int limit) {
+        IvfIndex current = index;
+        if (current == null) {
+            current = loadIndex();
+        }
+        return current.search(musicId, Math.max(1, Math.min(limit, MAX_RESULTS)));
+    }
+
+    public void extract(Long musicId) throws IOException {
+        Music music = musicRepository.findById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", musicId.toString()));
+        Path audioFile = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio file", musicId.toString()));
+
+        long start = System.nanoTime();
+        float[] vector;
+        try (PcmStreamReader reader = PcmStreamReader.open(audioFile)) {
+            AcousticFeatureExtractor extractor = new AcousticFeatureExtractor(reader.getSampleRate());
+            float[] mono = new float[READ_FRAMES];
+            float[] scratch = new float[READ_FRAMES * reader.getChannels()];
+            int frames;
+            while ((frames = reader.readMono(mono, scratch)) > 0) {
+                extractor.add(mono, frames);
+            }
+            vector = extractor.finish();
+        }
+
+        // Tracks too short or silent to describe are still marked so the job does not retry them
+        byte[] features = vector != null ? AcousticFeatureExtractor.toBytes(vector) : null;
+        musicRepository.updateAcousticFeatures(musicId, features, LocalDateTime.now());
+        logger.debug("Extracted acoustic features for music id {} in {} ms",
+                musicId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Starts feature extraction on the audio fork-join pool and rebuilds the index when it finishes.
+     * Only tracks without features are queued unless {@code reextract} is set.
+     */
+    public synchronized Map<String, Object> startCatalogExtraction(boolean reextract) {
+        if (currentJob != null && !currentJob.isDone()) {
+            throw new BusinessRuleException("Acoustic feature extraction is already running");
+        }
+        List<Long> musicIds = reextract
+                ? musicRepository.findAllIds()
+                : musicRepository.findIdsPendingFeatureExtraction();
+        MusicBatchTask job = new MusicBatchTask("acoustic-features", musicIds, this::extract);
+        currentJob = job;
+        audioProcessingPool.execute(() -> {
+            job.invoke();
+            rebuildIndex();
+        });
+        logger.info("Started acoustic feature extraction for {} tracks", musicIds.size());
+        return job.getProgress().toMap();
+    }
+
+    public Map<String, Object> getCatalogExtractionStatus() {
+        MusicBatchTask job = currentJob;
+        Map<String, Object> status;
+        if (job == null) {
+            status = new HashMap<>();
+            status.put("job", "acoustic-features");
+            status.put("complete", false);
+            status.put("started", false);
+        } else {
+            status = job.getProgress().toMap();
+        }
+        IvfIndex current = index;
+        if (current != null) {
+            status.put("indexedTracks", current.ids.length);
+            status.put("indexLists", current.centroidCount);
+            status.put("indexBuiltAt", current.builtAt.toString());
+        }
+        return status;
+    }
+
+    // First query after startup builds the index from the stored vectors
+    private synchronized IvfIndex loadIndex() {
+        return index != null ? index : rebuildIndex();
+    }
+
+    private synchronized IvfIndex rebuildIndex() {
+        long start = System.nanoTime();
+        List<Object[]> rows = musicRepository.findAllAcousticFeatures();
+        long[] ids = new long[rows.size()];
+        float[][] vectors = new float[rows.size()][];
+        int count = 0;
+        for (Object[] row : rows) {
+            float[] vector = AcousticFeatureExtractor.fromBytes((byte[]) row[1]);
+            if (vector != null) {
+                ids[count] = (Long) row[0];
+                vectors[count] = vector;
+                count++;
+            }
+        }
+        IvfIndex built = IvfIndex.build(Arrays.copyOf(ids, count), Arrays.copyOf(vectors, count));
+        index = built;
+        logger.info("Built acoustic similarity index over {} tracks with {} lists in {} ms",
+                count, built.centroidCount, (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+
+    /**
+     * Immutable inverted-file index over unit-length standardized vectors; similarity is cosine.
+     */
+    private static final class IvfIndex {
+        private final long[] ids;
+        private final float[] vectors;
+        private final float[] centroids;
+        private final int centroidCount;
+        private final int[][] lists;
+        private final Instant builtAt = Instant.now();
+
+        private IvfIndex(long[] ids, float[] vectors, float[] centroids, int centroidCount, int[][] lists) {
+            this.ids = ids;
+            this.vectors = vectors;
+            this.centroids = centroids;
+            this.centroidCount = centroidCount;
+            this.lists = lists;
+        }
+
+        static IvfIndex build(long[] ids, float[][] raw) {
+            int n = ids.length;
+            int d = AcousticFeatureExtractor.DIMENSIONS;
+
+            // Rows come back ordered by id, which search relies on for binary search
+            float[] vectors = new float[n * d];
+            for (int j = 0; j < d; j++) {
+                double sum = 0;
+                double squares = 0;
+                for (float[] vector : raw) {
+                    sum += vector[j];
+                    squares += vector[j] * vector[j];
+                }
+                double mean = n == 0 ? 0 : sum / n;
+                double std = n == 0 ? 1 : Math.sqrt(Math.max(1e-12, squares / n - mean * mean));
+                for (int i = 0; i < n; i++) {
+                    vectors[i * d + j] = (float) ((raw[i][j] - mean) / std);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                normalize(vectors, i * d, d);
+            }
+
+            int k = Math.max(1, Math.min(n, (int) Math.round(Math.sqrt(n))));
+            float[] centroids = new float[k * d];
+            int[] assignment = new int[n];
+            if (n > 0) {
+                kMeans(vectors, n, d, centroids, k, assignment);
+            }
+            int[] sizes = new int[k];
+            for (int i = 0; i < n; i++) {
+                sizes[assignment[i]]++;
+            }
+            int[][] lists = new int[k][];
+            for (int c = 0; c < k; c++) {
+                lists[c] = new int[sizes[c]];
+                sizes[c] = 0;
+            }
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                lists[c][sizes[c]++] = i;
+            }
+            return new IvfIndex(ids, vectors, centroids, k, lists);
+        }
+
+        List<Long> search(long musicId, int limit) {
+            int row = Arrays.binarySearch(ids, musicId);
+            if (row < 0) {
+                return List.of();
+            }
+            int d = AcousticFeatureExtractor.DIMENSIONS;
+            int offset = row * d;
+
+            int probes = Math.min(centroidCount, Math.max(MIN_PROBES, (int) Math.ceil(centroidCount * PROBE_FRACTION)));
+            int[] nearest = topIndices(centroids, centroidCount, vectors, offset, probes);
+
+            int[] bestRows = new int[limit];
+            float[] bestScores = new float[limit];
+            Arrays.fill(bestScores, Float.NEGATIVE_INFINITY);
+            int found = 0;
+            for (int list : nearest) {
+                for (int candidate : lists[list]) {
+                    if (candidate == row) {
+                        continue;
+                    }
+                    float score = dot(vectors, candidate * d, vectors, offset, d);
+                    if (found < limit || score > bestScores[found - 1]) {
+                        int position = found < limit ? found++ : found - 1;
+                        while (position > 0 && bestScores[position - 1] < score) {
+                            bestScores[position] = bestScores[position - 1];
+                            bestRows[position] = bestRows[position - 1];
+                            position--;
+                        }
+                        bestScores[position] = score;
+                        bestRows[position] = candidate;
+                    }
+                }
+            }
+            List<Long> result = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                result.add(ids[bestRows[i]]);
+            }
+            return result;
+        }
+
+        private static void kMeans(float[] vectors, int n, int d, float[] centroids, int k, int[] assignment) {
+            // Deterministic seeding keeps the index stable between rebuilds of the same catalog
+            Random random = new Random(42);
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            for (int i = 0; i < k; i++) {
+                int pick = i + random.nextInt(n - i);
+                int t = order[i];
+                order[i] = order[pick];
+                order[pick] = t;
+                System.arraycopy(vectors, order[i] * d, centroids, i * d, d);
+            }
+
+            int[] counts = new int[k];
+            for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+                boolean changed = false;
+                for (int i = 0; i < n; i++) {
+                    int best = topIndices(centroids, k, vectors, i * d, 1)[0];
+                    if (iteration == 0 || assignment[i] != best) {
+                        assignment[i] = best;
+                        changed = true;
+                    }
+                }
+                if (!changed) {
+                    break;
+                }
+                Arrays.fill(centroids, 0f);
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < n; i++) {
+                    int c = assignment[i];
+                    counts[c]++;
+                    for (int j = 0; j < d; j++) {
+                        centroids[c * d + j] += vectors[i * d + j];
+                    }
+                }
+                for (int c = 0; c < k; c++) {
+                    if (counts[c] == 0) {
+                        // Re-seed an empty list with a random track
+                        System.arraycopy(vectors, random.nextInt(n) * d, centroids, c * d, d);
+                    } else {
+                        normalize(centroids, c * d, d);
+                    }
+                }
+            }
+        }
+
+        // Indices of the `count` centroids with the highest dot product with the vector at `offset`
+        private static int[] topIndices(float[] centroids, int k, float[] vectors, int offset, int count) {
+            int d = AcousticFeatureExtractor.DIMENSIONS;
+            int[] best = new int[count];
+            float[] scores = new float[count];
+            Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+            for (int c = 0; c < k; c++) {
+                float score = dot(centroids, c * d, vectors, offset, d);
+                if (score > scores[count - 1]) {
+                    int position = count - 1;
+                    while (position > 0 && scores[position - 1] < score) {
+                        scores[position] = scores[position - 1];
+                        best[position] = best[position - 1];
+                        position--;
+                    }
+                    scores[position] = score;
+                    best[position] = c;
+                }
+            }
+            return best;
+        }
+
+        private static float dot(float[] a, int aOffset, float[] b, int bOffset, int d) {
+            float sum = 0;
+            for (int j = 0; j < d; j++) {
+                sum += a[aOffset + j] * b[bOffset + j];
+            }
+            return sum;
+        }
+
+        private static void normalize(float[] vectors, int offset, int d) {
+            double norm = 0;
+            for (int j = 0; j < d; j++) {
+                norm += vectors[offset + j] * vectors[offset + j];
+            }
+            if (norm > 0) {
+                float scale = (float) (1 / Math.sqrt(norm));
+                for (int j = 0; j < d; j++) {
+                    vectors[offset + j] *= scale;
+                }
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,11 +23,14 @@ public class AdminService {
 
     private final AdminRepository adminRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDirectoryService userDirectoryService;
 
     @Autowired
-    public AdminService(AdminRepository adminRepository, PasswordEncoder passwordEncoder) {
+    public AdminService(AdminRepository adminRepository, PasswordEncoder passwordEncoder,
+                        UserDirectoryService userDirectoryService) {
         this.adminRepository = adminRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDirectoryService = userDirectoryService;
         logger.info("AdminService initialized successfully");
     }
 
@@ -50,6 +54,7 @@ public class AdminService {
         return admin;
     }
 
+    @Transactional
     public Admin createAdmin(Admin admin) {
         logger.debug("Creating new admin: {}", admin != null ? admin.getUsername() : "null");
 
@@ -88,6 +93,7 @@ public class AdminService {
             // Encode password
             admin.setPassword(passwordEncoder.encode(admin.getPassword()));
             Admin savedAdmin = adminRepository.save(admin);
+            recordInDirectory(savedAdmin);
 
             logger.info("Successfully created admin: {} (ID: {})", savedAdmin.getUsername(), savedAdmin.getId());
             return savedAdmin;
@@ -156,6 +162,7 @@ public class AdminService {
         }
     }
 
+    @Transactional
     public Admin save(Admin admin) {
         logger.debug("Saving admin: {}", admin != null ? admin.getUsername() : "null");
 
@@ -166,6 +173,7 @@ public class AdminService {
 
         try {
             Admin savedAdmin = adminRepository.save(admin);
+            recordInDirectory(savedAdmin);
             logger.info("Successfully saved admin: {}", savedAdmin.getUsername());
             return savedAdmin;
         } catch (Exception e) {
@@ -174,6 +182,7 @@ public class AdminService {
         }
     }
 
+    @Transactional
     public void deleteAdmin(Long id) {
         logger.debug("Deleting admin with ID: {}", id);
 
@@ -191,6 +200,7 @@ public class AdminService {
             }
 
             adminRepository.deleteById(id);
+            userDirectoryService.remove(UserDirectoryService.ROLE_ADMIN, id);
             logger.info("Successfully deleted admin with ID: {}", id);
         } catch (Exception e) {
             logger.error("Error deleting admin with ID: {}", id, e);
@@ -233,6 +243,7 @@ public class AdminService {
         }
     }
 
+    @Transactional
     public void updateAdmin(Admin admin) {
         logger.debug("Updating admin: {}", admin != null ? admin.getUsername() : "null");
 
@@ -258,10 +269,16 @@ public class AdminService {
             }
 
             Admin updatedAdmin = adminRepository.save(admin);
+            recordInDirectory(updatedAdmin);
             logger.info("Successfully updated admin: {} (ID: {})", updatedAdmin.getUsername(), updatedAdmin.getId());
         } catch (Exception e) {
             logger.error("Error updating admin: {}", admin.getUsername(), e);
             throw e;
         }
     }
+
+    private void recordInDirectory(Admin admin) {
+        userDirectoryService.record(UserDirectoryService.ROLE_ADMIN, admin.getId(), admin.getUsername(), admin.getEmail(),
+                admin.isEnabled(), admin.getCreatedAt(), admin.getFirstName(), admin.getLastName());
+    }
 }
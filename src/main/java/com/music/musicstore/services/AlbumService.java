@@ -18,14 +18,17 @@ import java.util.Optional;
 public class AlbumService {
 
     private final AlbumRepository albumRepository;
+    private final CoverThumbnailService coverThumbnailService;
 
     @Autowired
-    public AlbumService(AlbumRepository albumRepository) {
+    public AlbumService(AlbumRepository albumRepository, CoverThumbnailService coverThumbnailService) {
         this.albumRepository = albumRepository;
+        this.coverThumbnailService = coverThumbnailService;
     }
 
     // Create new album
     public Album saveAlbum(Album album) {
+        hashCover(album);
         return albumRepository.save(album);
     }
 
@@ -106,6 +109,7 @@ public class AlbumService {
             if (albumDetails.getArtistUsername() != null) {
                 album.setArtistUsername(albumDetails.getArtistUsername());
             }
+            hashCover(album);
             return albumRepository.save(album);
         }
         return null;
@@ -129,4 +133,11 @@ public class AlbumService {
     public List<Album> getAlbumsByArtistAndGenre(String artistUsername, String genre) {
         return albumRepository.findByArtistUsernameAndGenre(artistUsername, genre);
     }
+
+    // Setting a different cover URL clears the hash
+    private void hashCover(Album album) {
+        if (album.getCoverHash() == null) {
+            album.setCoverHash(coverThumbnailService.hashCover(album.getCoverImageUrl()));
+        }
+    }
 }
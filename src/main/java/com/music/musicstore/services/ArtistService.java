@@ -10,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,11 +23,14 @@ public class ArtistService {
 
     private final ArtistRepository artistRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDirectoryService userDirectoryService;
 
     @Autowired
-    public ArtistService(ArtistRepository artistRepository, PasswordEncoder passwordEncoder) {
+    public ArtistService(ArtistRepository artistRepository, PasswordEncoder passwordEncoder,
+                         UserDirectoryService userDirectoryService) {
         this.artistRepository = artistRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDirectoryService = userDirectoryService;
         logger.info("ArtistService initialized successfully");
     }
 
@@ -50,6 +54,7 @@ public class ArtistService {
         return artist;
     }
 
+    @Transactional
     public void registerArtist(String name, String rawPassword) {
         logger.debug("Registering new artist: {}", name);
 
@@ -74,6 +79,7 @@ public class ArtistService {
             artist.setUserName(name);
             artist.setPassword(encodedPassword);
             Artist savedArtist = artistRepository.save(artist);
+            recordInDirectory(savedArtist);
 
             logger.info("Successfully registered artist: {} (ID: {})", name, savedArtist.getId());
         } catch (Exception e) {
@@ -82,6 +88,7 @@ public class ArtistService {
         }
     }
 
+    @Transactional
     public void deleteArtistByName(String name) {
         logger.debug("Deleting artist by name: {}", name);
 
@@ -98,6 +105,7 @@ public class ArtistService {
             }
 
             artistRepository.deleteByUserName(name);
+            userDirectoryService.remove(UserDirectoryService.ROLE_ARTIST, artist.get().getId());
             logger.info("Successfully deleted artist: {}", name);
         } catch (Exception e) {
             logger.error("Error deleting artist by name: {}", name, e);
@@ -105,6 +113,7 @@ public class ArtistService {
         }
     }
 
+    @Transactional
     public void updateArtist(Artist artist) {
         logger.debug("Updating artist: {}", artist != null ? artist.getUserName() : "null");
 
@@ -129,6 +138,7 @@ public class ArtistService {
                 artist.setPassword(passwordEncoder.encode(artist.getPassword()));
             }
             Artist updatedArtist = artistRepository.save(artist);
+            recordInDirectory(updatedArtist);
             logger.info("Successfully updated artist: {} (ID: {})", updatedArtist.getUserName(), updatedArtist.getId());
         } catch (Exception e) {
             logger.error("Error updating artist: {}", artist.getUserName(), e);
@@ -136,6 +146,7 @@ public class ArtistService {
         }
     }
 
+    @Transactional
     public void updateArtistUsername(Long id, String newName) {
         logger.debug("Updating artist username for ID: {} to: {}", id, newName);
 
@@ -165,7 +176,7 @@ public class ArtistService {
 
             String oldName = artist.getUserName();
             artist.setUserName(newName);
-            artistRepository.save(artist);
+            recordInDirectory(artistRepository.save(artist));
 
             logger.info("Successfully updated artist username from '{}' to '{}' (ID: {})", oldName, newName, id);
         } catch (Exception e) {
@@ -245,6 +256,7 @@ public class ArtistService {
         }
     }
 
+    @Transactional
     public Artist save(Artist artist) {
         logger.debug("Saving artist: {}", artist != null ? artist.getUserName() : "null");
 
@@ -255,6 +267,7 @@ public class ArtistService {
 
         try {
             Artist savedArtist = artistRepository.save(artist);
+            recordInDirectory(savedArtist);
             logger.info("Successfully saved artist: {}", savedArtist.getUserName());
             return savedArtist;
         } catch (Exception e) {
@@ -285,6 +298,7 @@ public class ArtistService {
         }
     }
 
+    @Transactional
     public Artist createArtist(Artist artist) {
         logger.debug("Creating new artist: {}", artist != null ? artist.getUserName() : "null");
 
@@ -313,6 +327,7 @@ public class ArtistService {
 
             artist.setPassword(passwordEncoder.encode(artist.getPassword()));
             Artist savedArtist = artistRepository.save(artist);
+            recordInDirectory(savedArtist);
 
             logger.info("Successfully created artist: {}", savedArtist.getUserName());
             return savedArtist;
@@ -321,7 +336,10 @@ public class ArtistService {
             throw e;
         }
     }
-}
-
-
 
+    private void recordInDirectory(Artist artist) {
+        userDirectoryService.record(UserDirectoryService.ROLE_ARTIST, artist.getId(), artist.getUserName(), artist.getEmail(),
+                artist.isEnabled(), artist.getCreatedAt(), artist.getFirstName(), artist.getLastName(),
+                artist.getArtistName());
+    }
+}
@@ -0,0 +1,71 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.models.music.Music;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Resolves the audio file backing a Music entity on the local filesystem.
+ * Uses the same lookup order as the customer download endpoint.
+ */
+@Component
+public class AudioFileResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioFileResolver.class);
+
+    private static final String[] SEARCH_DIRECTORIES = {
+            "src/main/resources/static/uploads/music",
+            "target/classes/static/uploads/music",
+            "./uploads/music"
+    };
+
+    public Optional<Path> resolve(Music music) {
+        if (music == null) {
+            return Optional.empty();
+        }
+
+        String audioPathStr = music.getAudioFilePath();
+        if (audioPathStr != null && !audioPathStr.isBlank()) {
+            Path direct = Paths.get(audioPathStr);
+            if (Files.isRegularFile(direct)) {
+                return Optional.of(direct);
+            }
+        }
+
+        String fileName = getAudioFileName(music);
+        if (fileName == null) {
+            return Optional.empty();
+        }
+
+        for (String directory : SEARCH_DIRECTORIES) {
+            Path candidate = Paths.get(directory).resolve(fileName);
+            if (Files.isRegularFile(candidate)) {
+                return Optional.of(candidate);
+            }
+        }
+
+        logger.debug("Audio file not found for music id {} (audioFilePath='{}')", music.getId(), audioPathStr);
+        return Optional.empty();
+    }
+
+    // File name portion of the stored audio path, falling back to the original upload name
+    public String getAudioFileName(Music music) {
+        String audioPathStr = music.getAudioFilePath();
+        if (audioPathStr != null && !audioPathStr.isBlank()) {
+            try {
+                Path fileName = Paths.get(audioPathStr).getFileName();
+                return fileName != null ? fileName.toString() : audioPathStr;
+            } catch (Exception e) {
+                return audioPathStr;
+            }
+        }
+        String originalFileName = music.getOriginalFileName();
+        return originalFileName != null && !originalFileName.isBlank() ? originalFileName : null;
+    }
+}
@@ -0,0 +1,400 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.Music;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves MP3 tracks as HLS playlists of fixed-duration segments.
+ *
+ * A track is indexed once by scanning its frame headers; each segment is then a run of whole MPEG
+ * frames that is cut from the source the first time it is requested and kept under
+ * ./uploads/segments. The segment directory is bounded by a byte budget and evicts the least
+ * recently served segments. Segment URLs carry a version derived from the source file's size and
+ * modification time, so a replaced file never serves stale segments and URLs can be cached forever.
+ *
+ * Segments already on disk are served by name without looking up the track. The frame index of
+ * a track is cached with its version and reused for segment misses of that version for
+ * {@code index-revalidate-ms} before the source is checked again, so a playback costs one lookup
+ * for the playlist rather than one per segment.
+ */
+@Service
+public class AudioSegmentService {
+    private static final Logger logger = LoggerFactory.getLogger(AudioSegmentService.class);
+
+    private static final int MAX_INDEXED_TRACKS = 1024;
+    // Segment positions beyond this are counted in the last histogram bucket
+    private static final int POSITION_BUCKETS = 32;
+    private static final Pattern VERSION_PATTERN = Pattern.compile("[0-9a-f]{1,32}");
+    private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("(\\d+)-([0-9a-f]{1,32})-(\\d+)\\.mp3");
+
+    private final MusicService musicService;
+    private final AudioFileResolver audioFileResolver;
+    private final double segmentSeconds;
+    private final long maxBytes;
+    private final long indexRevalidateMs;
+
+    private final Path segmentDirectory = Paths.get("./uploads/segments");
+
+    // Access-ordered indexes of recently streamed tracks
+    private final LinkedHashMap<Long, TrackIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    // Access-ordered segment files on disk with their sizes
+    private final LinkedHashMap<String, Long> cachedSegments = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private boolean diskScanned;
+    private final Map<String, Object> cutLocks = new ConcurrentHashMap<>();
+
+    private final LongAdder playlists = new LongAdder();
+    private final LongAdder segmentRequests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder bytesCut = new LongAdder();
+    private final LongAdder cutNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder indexBuilds = new LongAdder();
+    private final AtomicLongArray requestsByPosition = new AtomicLongArray(POSITION_BUCKETS);
+
+    public AudioSegmentService(MusicService musicService,
+                               AudioFileResolver audioFileResolver,
+                               @Value("${musicstore.streaming.segment-seconds:6}") double segmentSeconds,
+                               @Value("${musicstore.streaming.segment-cache.max-bytes:536870912}") long maxBytes,
+                               @Value("${musicstore.streaming.index-revalidate-ms:10000}") long indexRevalidateMs) {
+        this.musicService = musicService;
+        this.audioFileResolver = audioFileResolver;
+        this.segmentSeconds = segmentSeconds;
+        this.maxBytes = maxBytes;
+        this.indexRevalidateMs = indexRevalidateMs;
+        logger.info("AudioSegmentService initialized with {}s segments and budget {} bytes", segmentSeconds, maxBytes);
+    }
+
+    /**
+     * Builds the VOD playlist for a track. Segment URIs are relative to the playlist URL.
+     */
+    public String getPlaylist(Long musicId) throws IOException {
+        return getPlaylist(musicId, null);
+    }
+
+    /**
+     * Builds the VOD playlist for a track with the given query string, such as a URL signature,
+     * appended to every segment URI.
+     */
+    public String getPlaylist(Long musicId, String segmentQuery) throws IOException {
+        TrackIndex track = indexFor(musicId);
+        Mp3FrameIndex index = track.index;
+        playlists.increment();
+
+        StringBuilder playlist = new StringBuilder(64 + index.getSegmentCount() * 40);
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:3\n");
+        playlist.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        playlist.append("#EXT-X-TARGETDURATION:").append(Math.max(1, Math.round(index.getMaxSegmentDuration()))).append('\n');
+        playlist.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        for (int i = 0; i < index.getSegmentCount(); i++) {
+            playlist.append("#EXTINF:")
+                    .append(String.format(Locale.ROOT, "%.3f", index.getSegmentDuration(i)))
+                    .append(",\n");
+            playlist.append("segments/").append(track.version).append('/').append(i).append(".mp3");
+            if (segmentQuery != null) {
+                playlist.append('?').append(segmentQuery);
+            }
+            playlist.append('\n');
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        return playlist.toString();
+    }
+
+    /**
+     * Returns one segment, cutting it from the source file on first request.
+     */
+    public byte[] getSegment(Long musicId, String version, int segment) throws IOException {
+        if (musicId == null) {
+            throw new ValidationException("musicId is required");
+        }
+        if (version == null || !VERSION_PATTERN.matcher(version).matches()) {
+            throw new ValidationException("Invalid segment version");
+        }
+        if (segment < 0) {
+            throw new ResourceNotFoundException("Segment", musicId + "/" + version + "/" + segment);
+        }
+        segmentRequests.increment();
+        requestsByPosition.incrementAndGet(Math.min(segment, POSITION_BUCKETS - 1));
+
+        // Segment files are named by version, so one on disk is current for its URL
+        String fileName = musicId + "-" + version + "-" + segment + ".mp3";
+        byte[] bytes = readCached(fileName);
+        if (bytes != null) {
+            hits.increment();
+        } else {
+            TrackIndex track = indexForSegment(musicId, version);
+            if (!track.version.equals(version)) {
+                // The source changed since the playlist was issued; the player has to reload it
+                throw new ResourceNotFoundException("Segment", musicId + "/" + version + "/" + segment);
+            }
+            if (segment >= track.index.getSegmentCount()) {
+                throw new ResourceNotFoundException("Segment", musicId + "/" + version + "/" + segment);
+            }
+            Object lock = cutLocks.computeIfAbsent(fileName, key -> new Object());
+            synchronized (lock) {
+                try {
+                    bytes = readCached(fileName);
+                    if (bytes != null) {
+                        hits.increment();
+                    } else {
+                        misses.increment();
+                        bytes = cut(track, segment, fileName);
+                    }
+                } finally {
+                    cutLocks.remove(fileName);
+                }
+            }
+        }
+        bytesServed.add(bytes.length);
+        return bytes;
+    }
+
+    public Map<String, Object> getStats() {
+        long requests = segmentRequests.sum();
+        long[] positions = new long[POSITION_BUCKETS];
+        for (int i = 0; i < POSITION_BUCKETS; i++) {
+            positions[i] = requestsByPosition.get(i);
+        }
+        long cut = misses.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("segmentSeconds", segmentSeconds);
+        stats.put("playlists", playlists.sum());
+        stats.put("segmentRequests", requests);
+        stats.put("hits", hits.sum());
+        stats.put("misses", cut);
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hits.sum() / requests);
+        stats.put("bytesServed", bytesServed.sum());
+        stats.put("bytesCut", bytesCut.sum());
+        stats.put("averageCutMillis", cut == 0 ? 0.0 : cutNanos.sum() / 1_000_000.0 / cut);
+        stats.put("evictions", evictions.sum());
+        stats.put("indexBuilds", indexBuilds.sum());
+        stats.put("requestsBySegmentPosition", positions);
+        synchronized (cachedSegments) {
+            stats.put("cachedSegments", cachedSegments.size());
+            stats.put("cachedBytes", cachedBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        synchronized (indexes) {
+            stats.put("indexedTracks", indexes.size());
+        }
+        return stats;
+    }
+
+    // Reuses a recently checked index of the requested version without a lookup or stat
+    private TrackIndex indexForSegment(Long musicId, String version) throws IOException {
+        synchronized (indexes) {
+            TrackIndex cached = indexes.get(musicId);
+            if (cached != null && cached.version.equals(version)
+                    && System.currentTimeMillis() - cached.checkedAt < indexRevalidateMs) {
+                return cached;
+            }
+        }
+        return indexFor(musicId);
+    }
+
+    private TrackIndex indexFor(Long musicId) throws IOException {
+        if (musicId == null) {
+            throw new ValidationException("musicId is required");
+        }
+        Music music = musicService.getMusicById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", String.valueOf(musicId)));
+        Path file = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ValidationException("Audio file not found"));
+        if (!file.getFileName().toString().toLowerCase().endsWith(".mp3")) {
+            throw new ValidationException("Only MP3 tracks can be streamed");
+        }
+        String version = Long.toHexString(Files.getLastModifiedTime(file).toMillis())
+                + Long.toHexString(Files.size(file));
+
+        long now = System.currentTimeMillis();
+        synchronized (indexes) {
+            TrackIndex cached = indexes.get(musicId);
+            if (cached != null && cached.version.equals(version) && cached.file.equals(file)) {
+                TrackIndex checked = new TrackIndex(file, version, cached.index, now);
+                indexes.put(musicId, checked);
+                return checked;
+            }
+        }
+
+        // Scanning only touches frame headers, so it is cheap enough to repeat if two requests race
+        long start = System.nanoTime();
+        Mp3FrameIndex index = Mp3FrameIndex.scan(file, segmentSeconds);
+        indexBuilds.increment();
+        logger.debug("Indexed music {} into {} segments in {} ms",
+                musicId, index.getSegmentCount(), (System.nanoTime() - start) / 1_000_000);
+
+        TrackIndex track = new TrackIndex(file, version, index, now);
+        synchronized (indexes) {
+            indexes.put(musicId, track);
+            if (indexes.size() > MAX_INDEXED_TRACKS) {
+                Iterator<Long> eldest = indexes.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return track;
+    }
+
+    private byte[] readCached(String fileName) throws IOException {
+        synchronized (cachedSegments) {
+            adoptExistingSegments();
+            if (cachedSegments.get(fileName) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(segmentDirectory.resolve(fileName));
+        } catch (NoSuchFileException e) {
+            // Evicted or removed between the lookup and the read
+            forget(fileName);
+            return null;
+        }
+    }
+
+    private byte[] cut(TrackIndex track, int segment, String fileName) throws IOException {
+        long start = System.nanoTime();
+        long from = track.index.getSegmentStart(segment);
+        int length = (int) (track.index.getSegmentEnd(segment) - from);
+
+        byte[] bytes = new byte[length];
+        try (FileChannel channel = FileChannel.open(track.file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("Audio file shrank while cutting segment " + segment);
+                }
+            }
+        }
+
+        Files.createDirectories(segmentDirectory);
+        Path temp = Files.createTempFile(segmentDirectory, "segment-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, segmentDirectory.resolve(fileName),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        bytesCut.add(length);
+        cutNanos.add(System.nanoTime() - start);
+        remember(fileName, length);
+        return bytes;
+    }
+
+    private void remember(String fileName, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (cachedSegments) {
+            Long previous = cachedSegments.put(fileName, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> eldest = cachedSegments.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(fileName)) {
+                    continue;
+                }
+                cachedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String name : evicted) {
+            try {
+                Files.deleteIfExists(segmentDirectory.resolve(name));
+                evictions.increment();
+            } catch (IOException e) {
+                logger.warn("Failed to delete evicted segment {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private void forget(String fileName) {
+        synchronized (cachedSegments) {
+            Long size = cachedSegments.remove(fileName);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+    }
+
+    // Registers segments cut by a previous run, oldest first, so they count against the budget
+    private void adoptExistingSegments() {
+        if (diskScanned) {
+            return;
+        }
+        diskScanned = true;
+        if (!Files.isDirectory(segmentDirectory)) {
+            return;
+        }
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(segmentDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else {
+                    Matcher matcher = SEGMENT_FILE_PATTERN.matcher(name);
+                    if (matcher.matches()) {
+                        existing.add(file);
+                    }
+                }
+            }
+            existing.sort(Comparator.comparingLong(AudioSegmentService::lastModifiedMillis));
+            for (Path file : existing) {
+                long size = Files.size(file);
+                cachedSegments.put(file.getFileName().toString(), size);
+                cachedBytes += size;
+            }
+            logger.info("Adopted {} cached audio segments ({} bytes)", existing.size(), cachedBytes);
+        } catch (IOException e) {
+            logger.warn("Failed to scan segment directory {}: {}", segmentDirectory, e.getMessage());
+        }
+    }
+
+    private static long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // checkedAt is when the source was last confirmed to still have this version
+    private record TrackIndex(Path file, String version, Mp3FrameIndex index, long checkedAt) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.ChartEntry;
+import com.music.musicstore.models.music.ChartSnapshot;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.ChartSnapshotRepository;
+import com.music.musicstore.repositories.MusicActivityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Builds weekly and monthly charts per genre from the activity log.
+ *
+ * Once a period has closed, one streaming pass over its purchases and downloads accumulates points
+ * per track and genre (a purchase counts {@value #PURCHASE_POINTS}, a download
+ * {@value #DOWNLOAD_POINTS}). The top tracks of every genre, plus an overall chart, are written as
+ * immutable snapshots together with each track's previous position, peak and time on the chart.
+ * Serving a chart is a primary-key lookup of its snapshot.
+ *
+ * The "all" snapshot marks a period as built, so the job is idempotent and catches up on periods
+ * missed while the application was down, oldest first. Periods that ended before the first
+ * logged activity are skipped rather than frozen as empty charts.
+ */
+@Service
+public class ChartService {
+    private static final Logger logger = LoggerFactory.getLogger(ChartService.class);
+
+    private static final long PURCHASE_POINTS = 10;
+    private static final long DOWNLOAD_POINTS = 2;
+    private static final List<MusicActivityEvent.Type> CHARTED_TYPES =
+            List.of(MusicActivityEvent.Type.PURCHASE, MusicActivityEvent.Type.DOWNLOAD);
+
+    private final MusicActivityRepository musicActivityRepository;
+    private final ChartSnapshotRepository chartSnapshotRepository;
+    private final MusicService musicService;
+    private final int chartSize;
+    private final int backfillPeriods;
+
+    public ChartService(MusicActivityRepository musicActivityRepository,
+                        ChartSnapshotRepository chartSnapshotRepository,
+                        MusicService musicService,
+                        @Value("${musicstore.charts.size:100}") int chartSize,
+                        @Value("${musicstore.charts.backfill-periods:4}") int backfillPeriods) {
+        this.musicActivityRepository = musicActivityRepository;
+        this.chartSnapshotRepository = chartSnapshotRepository;
+        this.musicService = musicService;
+        this.chartSize = chartSize;
+        this.backfillPeriods = backfillPeriods;
+        logger.info("ChartService initialized successfully");
+    }
+
+    /**
+     * Builds every recently closed period that has no snapshot yet. Returns the number of periods built.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${musicstore.charts.build-interval-ms:3600000}",
+            initialDelayString = "${musicstore.charts.build-initial-delay-ms:60000}")
+    public synchronized int buildClosedPeriods() {
+        LocalDateTime earliest = musicActivityRepository.findEarliestOccurredAt();
+        if (earliest == null) {
+            return 0;
+        }
+        LocalDate firstActivity = earliest.toLocalDate();
+        int built = 0;
+        LocalDate today = LocalDate.now();
+        for (ChartSnapshot.Period period : ChartSnapshot.Period.values()) {
+            LocalDate lastClosed = period.previous(period.startOf(today));
+            LocalDate start = lastClosed;
+            for (int i = 1; i < backfillPeriods; i++) {
+                start = period.previous(start);
+            }
+            for (; !start.isAfter(lastClosed); start = period.next(start)) {
+                if (!period.next(start).isAfter(firstActivity)) {
+                    continue;
+                }
+                if (!chartSnapshotRepository.existsById(ChartSnapshot.key(ChartSnapshot.ALL_GENRES, period.label(start)))) {
+                    build(period, start);
+                    built++;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Returns the chart for a genre ("all" for the overall chart) and a period label such as
+     * 2025-W07 or 2025-02; "weekly" and "monthly" select the most recent closed period.
+     */
+    public ChartSnapshot getChart(String genre, String period) {
+        String normalizedGenre = normalizeGenre(genre);
+        if (normalizedGenre == null) {
+            throw new ValidationException("genre is required");
+        }
+        String label;
+        if ("weekly".equalsIgnoreCase(period) || "monthly".equalsIgnoreCase(period)) {
+            ChartSnapshot.Period type = ChartSnapshot.Period.valueOf(period.toUpperCase(Locale.ROOT));
+            label = type.label(type.previous(type.startOf(LocalDate.now())));
+        } else {
+            ChartSnapshot.Period type = ChartSnapshot.Period.ofLabel(period);
+            label = type.label(ChartSnapshot.Period.parseStart(period));
+        }
+        String key = ChartSnapshot.key(normalizedGenre, label);
+        return chartSnapshotRepository.findById(key)
+                .orElseThrow(() -> new ResourceNotFoundException("Chart", key));
+    }
+
+    private void build(ChartSnapshot.Period period, LocalDate start) {
+        long startNanos = System.nanoTime();
+        LocalDate end = period.next(start);
+
+        // genre -> musicId -> {purchases, downloads}
+        Map<String, Map<Long, long[]>> byGenre = new HashMap<>();
+        Map<Long, long[]> overall = new HashMap<>();
+        long rows = 0;
+        try (Stream<Object[]> activity = musicActivityRepository.streamWithGenre(
+                start.atStartOfDay(), end.atStartOfDay(), CHARTED_TYPES)) {
+            for (Object[] row : (Iterable<Object[]>) activity::iterator) {
+                Long musicId = (Long) row[0];
+                int slot = row[1] == MusicActivityEvent.Type.PURCHASE ? 0 : 1;
+                overall.computeIfAbsent(musicId, id -> new long[2])[slot]++;
+                String genre = normalizeGenre((String) row[2]);
+                if (genre != null && !genre.equals(ChartSnapshot.ALL_GENRES)) {
+                    byGenre.computeIfAbsent(genre, g -> new HashMap<>())
+                            .computeIfAbsent(musicId, id -> new long[2])[slot]++;
+                }
+                rows++;
+            }
+        }
+
+        Map<String, List<Map.Entry<Long, long[]>>> ranked = new HashMap<>();
+        ranked.put(ChartSnapshot.ALL_GENRES, rank(overall));
+        byGenre.forEach((genre, counts) -> ranked.put(genre, rank(counts)));
+
+        Set<Long> charted = new HashSet<>();
+        List<String> previousKeys = new ArrayList<>();
+        String previousLabel = period.label(period.previous(start));
+        for (Map.Entry<String, List<Map.Entry<Long, long[]>>> chart : ranked.entrySet()) {
+            chart.getValue().forEach(entry -> charted.add(entry.getKey()));
+            previousKeys.add(ChartSnapshot.key(chart.getKey(), previousLabel));
+        }
+        Map<Long, Music> music = new HashMap<>();
+        for (Music track : musicService.getMusicByIds(charted)) {
+            music.put(track.getId(), track);
+        }
+        Map<String, ChartSnapshot> previous = new HashMap<>();
+        for (ChartSnapshot snapshot : chartSnapshotRepository.findAllById(previousKeys)) {
+            previous.put(snapshot.getGenre(), snapshot);
+        }
+
+        List<ChartSnapshot> snapshots = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, List<Map.Entry<Long, long[]>>> chart : ranked.entrySet()) {
+            Map<Long, ChartEntry> lastEntries = new HashMap<>();
+            ChartSnapshot last = previous.get(chart.getKey());
+            if (last != null) {
+                for (ChartEntry entry : last.getEntries()) {
+                    lastEntries.put(entry.getMusicId(), entry);
+                }
+            }
+            List<ChartEntry> entries = new ArrayList<>(chart.getValue().size());
+            for (Map.Entry<Long, long[]> counts : chart.getValue()) {
+                Music track = music.get(counts.getKey());
+                if (track == null) {
+                    continue;
+                }
+                int position = entries.size() + 1;
+                ChartEntry lastEntry = lastEntries.get(counts.getKey());
+                entries.add(new ChartEntry(position, track.getId(), track.getName(), track.getArtistUsername(),
+                        counts.getValue()[0], counts.getValue()[1], points(counts.getValue()),
+                        lastEntry != null ? lastEntry.getPosition() : null,
+                        lastEntry != null ? Math.min(lastEntry.getPeakPosition(), position) : position,
+                        lastEntry != null ? lastEntry.getPeriodsOnChart() + 1 : 1));
+            }
+            snapshots.add(new ChartSnapshot(chart.getKey(), period, start, entries));
+        }
+        chartSnapshotRepository.saveAll(snapshots);
+
+        logger.info("Built {} {} charts for {} from {} activity rows in {} ms", snapshots.size(),
+                period.name().toLowerCase(Locale.ROOT), period.label(start), rows,
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    // Highest points first, then more purchases, then lower id
+    private List<Map.Entry<Long, long[]>> rank(Map<Long, long[]> counts) {
+        List<Map.Entry<Long, long[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> {
+            int byPoints = Long.compare(points(b.getValue()), points(a.getValue()));
+            if (byPoints != 0) {
+                return byPoints;
+            }
+            int byPurchases = Long.compare(b.getValue()[0], a.getValue()[0]);
+            return byPurchases != 0 ? byPurchases : Long.compare(a.getKey(), b.getKey());
+        });
+        return entries.subList(0, Math.min(chartSize, entries.size()));
+    }
+
+    private static long points(long[] counts) {
+        return counts[0] * PURCHASE_POINTS + counts[1] * DOWNLOAD_POINTS;
+    }
+
+    private static String normalizeGenre(String genre) {
+        if (genre == null || genre.isBlank()) {
+            return null;
+        }
+        String normalized = genre.trim().toLowerCase(Locale.ROOT);
+        return normalized.length() > 100 ? normalized.substring(0, 100) : normalized;
+    }
+}
@@ -0,0 +1,623 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.repositories.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * "Customers who bought this also bought" from the customer_purchased_music join table.
+ *
+ * A periodic rebuild streams the join table ordered by customer and counts, for every pair of
+ * tracks bought by the same customer, how often they co-occur. Counts live in open-addressing
+ * int-to-int maps keyed by a dense track index, so no ids are boxed. Each track keeps its top-K
+ * neighbours by cosine score (co-purchases / sqrt(buyers(a) * buyers(b))), and lookups are served
+ * from an immutable CSR snapshot by binary search.
+ *
+ * Purchase events only queue the bought ids; the publish job looks up each buyer's basket, folds
+ * the purchases into the counts and re-ranks the affected tracks. Only tracks whose co-counts
+ * changed are re-ranked, so scores of other neighbours drift slightly until the next full rebuild.
+ * Re-ranked rows are published as an overlay on the last compacted snapshot, which is rebuilt
+ * only when the overlay grows large or the counts are rebuilt.
+ */
+@Service
+public class CoPurchaseService {
+    private static final Logger logger = LoggerFactory.getLogger(CoPurchaseService.class);
+
+    private final CustomerRepository customerRepository;
+    private final EntitlementService entitlementService;
+    private final int topK;
+    private final int maxBasketSize;
+    private final int maxQueuedPurchases;
+
+    // Purchases waiting for the publish job; over the limit they are left to the next rebuild
+    private final Queue<QueuedPurchase> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    // Guards counts, dirty and deferred
+    private final ReentrantLock lock = new ReentrantLock();
+    private Counts counts = new Counts();
+    private final BitSet dirty = new BitSet();
+    // Non-null while a rebuild is running; purchases are replayed onto the new counts afterwards
+    private List<Purchase> deferred;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder incrementalPurchases = new LongAdder();
+    private final LongAdder droppedPurchases = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile long lastRebuildMillis;
+    private volatile Instant lastRebuildAt;
+    private volatile Instant lastPublishedAt;
+
+    public CoPurchaseService(CustomerRepository customerRepository,
+                             EntitlementService entitlementService,
+                             @Value("${musicstore.recommendations.top-k:20}") int topK,
+                             @Value("${musicstore.recommendations.max-basket-size:500}") int maxBasketSize,
+                             @Value("${musicstore.recommendations.max-queued-purchases:100000}") int maxQueuedPurchases) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("musicstore.recommendations.top-k must be at least 1");
+        }
+        this.customerRepository = customerRepository;
+        this.entitlementService = entitlementService;
+        this.topK = topK;
+        this.maxBasketSize = maxBasketSize;
+        this.maxQueuedPurchases = maxQueuedPurchases;
+        logger.info("CoPurchaseService initialized successfully");
+    }
+
+    /**
+     * Music ids most often bought together with the given track, best first.
+     */
+    public List<Long> alsoBought(Long musicId, int limit) {
+        lookups.increment();
+        if (musicId == null || musicId < 0 || musicId > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        return snapshot.neighbours(musicId.intValue(), Math.max(0, Math.min(limit, topK)));
+    }
+
+    @EventListener
+    public void onMusicActivity(MusicActivityEvent event) {
+        if (event.type() != MusicActivityEvent.Type.PURCHASE || event.customerId() == null
+                || event.musicIds().isEmpty()) {
+            return;
+        }
+        if (queuedCount.incrementAndGet() > maxQueuedPurchases) {
+            queuedCount.decrementAndGet();
+            droppedPurchases.increment();
+            return;
+        }
+        queued.add(new QueuedPurchase(event.customerId(), toIntIds(event.musicIds())));
+    }
+
+    /**
+     * Folds queued purchases into the counts, re-ranks the tracks they touched and publishes the
+     * changed rows.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.recommendations.publish-interval-ms:60000}",
+            initialDelayString = "${musicstore.recommendations.publish-interval-ms:60000}")
+    public void publishPending() {
+        QueuedPurchase next;
+        while ((next = queued.poll()) != null) {
+            queuedCount.decrementAndGet();
+            Purchase purchase = toPurchase(next);
+            lock.lock();
+            try {
+                if (deferred != null) {
+                    deferred.add(purchase);
+                }
+                apply(counts, purchase, dirty, maxBasketSize);
+            } finally {
+                lock.unlock();
+            }
+            incrementalPurchases.increment();
+        }
+
+        lock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            for (int item = dirty.nextSetBit(0); item >= 0; item = dirty.nextSetBit(item + 1)) {
+                counts.rank(item, topK);
+            }
+            snapshot = snapshot.withRows(counts, dirty);
+            dirty.clear();
+        } finally {
+            lock.unlock();
+        }
+        lastPublishedAt = Instant.now();
+    }
+
+    // Entitlements already include the new purchase; everything else is the customer's basket
+    private Purchase toPurchase(QueuedPurchase queuedPurchase) {
+        int[] bought = queuedPurchase.bought;
+        int room = Math.max(0, maxBasketSize - bought.length);
+        List<Long> owned = entitlementService.getOwnedMusicIds(queuedPurchase.customerId);
+        int[] previous = new int[Math.min(owned.size(), room)];
+        int count = 0;
+        for (Long musicId : owned) {
+            if (count == previous.length) {
+                // Same cap as the rebuild: a collector's basket only pairs its first items
+                break;
+            }
+            if (musicId <= Integer.MAX_VALUE && Arrays.binarySearch(bought, musicId.intValue()) < 0) {
+                previous[count++] = musicId.intValue();
+            }
+        }
+        return new Purchase(bought, Arrays.copyOf(previous, count));
+    }
+
+    /**
+     * Recounts co-purchases from scratch by streaming the purchase join table.
+     */
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${musicstore.recommendations.rebuild-interval-ms:86400000}",
+            initialDelayString = "${musicstore.recommendations.rebuild-initial-delay-ms:30000}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (deferred != null) {
+                logger.info("Co-purchase rebuild already running, skipping");
+                return;
+            }
+            deferred = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Counts fresh = new Counts();
+        long pairs = 0;
+        try (Stream<Object[]> rows = customerRepository.streamPurchasePairs()) {
+            BasketBuilder basket = new BasketBuilder(maxBasketSize);
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                long customerId = ((Number) row[0]).longValue();
+                long musicId = ((Number) row[1]).longValue();
+                if (musicId < 0 || musicId > Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (customerId != basket.customerId) {
+                    pairs += basket.flushInto(fresh);
+                    basket.customerId = customerId;
+                }
+                basket.add(fresh.index((int) musicId));
+            }
+            pairs += basket.flushInto(fresh);
+            for (int item = 0; item < fresh.size; item++) {
+                fresh.rank(item, topK);
+            }
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                deferred = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            // Purchases recorded while streaming may already be in the table; counting a few
+            // twice is harmless next to leaving them out until the next rebuild
+            BitSet replayed = new BitSet();
+            for (Purchase purchase : deferred) {
+                apply(fresh, purchase, replayed, maxBasketSize);
+            }
+            for (int item = replayed.nextSetBit(0); item >= 0; item = replayed.nextSetBit(item + 1)) {
+                fresh.rank(item, topK);
+            }
+            deferred = null;
+            counts = fresh;
+            dirty.clear();
+            snapshot = Snapshot.of(fresh);
+        } finally {
+            lock.unlock();
+        }
+
+        rebuilds.increment();
+        lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        lastRebuildAt = Instant.now();
+        lastPublishedAt = lastRebuildAt;
+        logger.info("Rebuilt co-purchase neighbours for {} tracks from {} pairs in {} ms",
+                fresh.size, pairs, lastRebuildMillis);
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        lock.lock();
+        try {
+            stats.put("trackedItems", counts.size);
+            stats.put("distinctPairs", counts.distinctPairs() / 2);
+            stats.put("pendingItems", dirty.cardinality());
+            stats.put("overlayItems", current.overlay.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("snapshotItems", current.itemIds.length);
+        stats.put("snapshotNeighbours", current.neighbours.length);
+        stats.put("topK", topK);
+        stats.put("lookups", lookups.sum());
+        stats.put("incrementalPurchases", incrementalPurchases.sum());
+        stats.put("queuedPurchases", queuedCount.get());
+        stats.put("droppedPurchases", droppedPurchases.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("lastRebuildAt", lastRebuildAt != null ? lastRebuildAt.toString() : null);
+        stats.put("lastPublishedAt", lastPublishedAt != null ? lastPublishedAt.toString() : null);
+        return stats;
+    }
+
+    private static void apply(Counts target, Purchase purchase, BitSet touched, int maxBasketSize) {
+        int[] bought = new int[purchase.bought.length];
+        for (int i = 0; i < bought.length; i++) {
+            bought[i] = target.index(purchase.bought[i]);
+            target.buyers[bought[i]]++;
+            touched.set(bought[i]);
+        }
+        int paired = Math.min(bought.length, maxBasketSize);
+        for (int i = 0; i < paired; i++) {
+            for (int j = i + 1; j < paired; j++) {
+                target.addPair(bought[i], bought[j]);
+            }
+            for (int previousId : purchase.previous) {
+                int previous = target.index(previousId);
+                target.addPair(bought[i], previous);
+                touched.set(previous);
+            }
+        }
+    }
+
+    // Sorted and distinct, so a track listed twice in one order counts as one buyer and one pair
+    private static int[] toIntIds(List<Long> musicIds) {
+        int[] ids = new int[musicIds.size()];
+        int count = 0;
+        for (Long musicId : musicIds) {
+            if (musicId != null && musicId >= 0 && musicId <= Integer.MAX_VALUE) {
+                ids[count++] = musicId.intValue();
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    private record QueuedPurchase(Long customerId, int[] bought) {
+    }
+
+    private record Purchase(int[] bought, int[] previous) {
+    }
+
+    // Collects one customer's dense item indexes while streaming the join table
+    private static final class BasketBuilder {
+        private final int maxSize;
+        private int[] items = new int[16];
+        private int size;
+        private long customerId = Long.MIN_VALUE;
+
+        BasketBuilder(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        long flushInto(Counts counts) {
+            long pairs = 0;
+            for (int i = 0; i < size; i++) {
+                counts.buyers[items[i]]++;
+            }
+            // Collectors who own most of the catalog add quadratic noise; only count their first items
+            int limit = Math.min(size, maxSize);
+            for (int i = 0; i < limit; i++) {
+                for (int j = i + 1; j < limit; j++) {
+                    counts.addPair(items[i], items[j]);
+                    pairs++;
+                }
+            }
+            size = 0;
+            return pairs;
+        }
+    }
+
+    /**
+     * Mutable co-occurrence counts over dense item indexes. Not thread-safe.
+     */
+    private static final class Counts {
+        private final IntIntMap indexOf = new IntIntMap();
+        private int[] musicIds = new int[64];
+        private int[] buyers = new int[64];
+        private IntIntMap[] pairs = new IntIntMap[64];
+        private int[][] topNeighbours = new int[64][];
+        private float[][] topScores = new float[64][];
+        private int size;
+
+        int index(int musicId) {
+            int existing = indexOf.get(musicId);
+            if (existing >= 0) {
+                return existing;
+            }
+            if (size == musicIds.length) {
+                int capacity = size * 2;
+                musicIds = Arrays.copyOf(musicIds, capacity);
+                buyers = Arrays.copyOf(buyers, capacity);
+                pairs = Arrays.copyOf(pairs, capacity);
+                topNeighbours = Arrays.copyOf(topNeighbours, capacity);
+                topScores = Arrays.copyOf(topScores, capacity);
+            }
+            musicIds[size] = musicId;
+            pairs[size] = new IntIntMap();
+            indexOf.put(musicId, size);
+            return size++;
+        }
+
+        void addPair(int a, int b) {
+            if (a == b) {
+                return;
+            }
+            pairs[a].increment(b);
+            pairs[b].increment(a);
+        }
+
+        // Keeps the K best neighbours of one item by cosine score, as music ids
+        void rank(int item, int k) {
+            IntIntMap neighbours = pairs[item];
+            int[] best = new int[Math.min(k, neighbours.size())];
+            float[] scores = new float[best.length];
+            int found = 0;
+            for (int slot = 0; slot < neighbours.capacity(); slot++) {
+                int other = neighbours.keyAt(slot);
+                if (other < 0) {
+                    continue;
+                }
+                // Buyer counts can lag behind pair counts for tracks first seen through live purchases
+                double norm = Math.sqrt((double) Math.max(1, buyers[item]) * Math.max(1, buyers[other]));
+                float score = (float) (neighbours.valueAt(slot) / norm);
+                if (found < best.length || score > scores[found - 1]) {
+                    int position = found < best.length ? found++ : found - 1;
+                    while (position > 0 && scores[position - 1] < score) {
+                        scores[position] = scores[position - 1];
+                        best[position] = best[position - 1];
+                        position--;
+                    }
+                    scores[position] = score;
+                    best[position] = other;
+                }
+            }
+            for (int i = 0; i < found; i++) {
+                best[i] = musicIds[best[i]];
+            }
+            topNeighbours[item] = best;
+            topScores[item] = scores;
+        }
+
+        long distinctPairs() {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                total += pairs[i].size();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Immutable neighbour lists in compressed sparse row form, ordered by music id, plus an
+     * overlay of rows re-ranked since the CSR arrays were built.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new int[0], new int[1], new int[0], new float[0], Map.of());
+        // Compact once the overlay holds this many rows or an eighth of the base rows
+        private static final int MIN_OVERLAY_COMPACTION = 4096;
+
+        private final int[] itemIds;
+        private final int[] offsets;
+        private final int[] neighbours;
+        private final float[] scores;
+        private final Map<Integer, int[]> overlay;
+
+        private Snapshot(int[] itemIds, int[] offsets, int[] neighbours, float[] scores, Map<Integer, int[]> overlay) {
+            this.itemIds = itemIds;
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+            this.scores = scores;
+            this.overlay = overlay;
+        }
+
+        // Copies only the changed rows; the CSR arrays are shared with this snapshot
+        Snapshot withRows(Counts counts, BitSet changed) {
+            if (overlay.size() + changed.cardinality()
+                    > Math.max(MIN_OVERLAY_COMPACTION, itemIds.length / 8)) {
+                return of(counts);
+            }
+            Map<Integer, int[]> rows = new HashMap<>(overlay);
+            for (int item = changed.nextSetBit(0); item >= 0; item = changed.nextSetBit(item + 1)) {
+                int[] top = counts.topNeighbours[item];
+                rows.put(counts.musicIds[item], top != null ? top.clone() : new int[0]);
+            }
+            return new Snapshot(itemIds, offsets, neighbours, scores, rows);
+        }
+
+        static Snapshot of(Counts counts) {
+            long[] order = new long[counts.size];
+            int total = 0;
+            int items = 0;
+            for (int i = 0; i < counts.size; i++) {
+                int[] top = counts.topNeighbours[i];
+                if (top != null && top.length > 0) {
+                    order[items++] = ((long) counts.musicIds[i] << 32) | i;
+                    total += top.length;
+                }
+            }
+            Arrays.sort(order, 0, items);
+
+            int[] itemIds = new int[items];
+            int[] offsets = new int[items + 1];
+            int[] neighbours = new int[total];
+            float[] scores = new float[total];
+            int next = 0;
+            for (int i = 0; i < items; i++) {
+                int dense = (int) order[i];
+                itemIds[i] = (int) (order[i] >>> 32);
+                offsets[i] = next;
+                int[] top = counts.topNeighbours[dense];
+                System.arraycopy(top, 0, neighbours, next, top.length);
+                System.arraycopy(counts.topScores[dense], 0, scores, next, top.length);
+                next += top.length;
+            }
+            offsets[items] = next;
+            return new Snapshot(itemIds, offsets, neighbours, scores, Map.of());
+        }
+
+        List<Long> neighbours(int musicId, int limit) {
+            int[] changed = overlay.get(musicId);
+            if (changed != null) {
+                List<Long> result = new ArrayList<>(Math.min(changed.length, limit));
+                for (int i = 0; i < changed.length && i < limit; i++) {
+                    result.add((long) changed[i]);
+                }
+                return result;
+            }
+            int row = Arrays.binarySearch(itemIds, musicId);
+            if (row < 0) {
+                return List.of();
+            }
+            int from = offsets[row];
+            int to = Math.min(offsets[row + 1], from + limit);
+            List<Long> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add((long) neighbours[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Open-addressing map from non-negative int keys to int values; -1 marks a free slot.
+     */
+    private static final class IntIntMap {
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        IntIntMap() {
+            keys = new int[8];
+            values = new int[8];
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] < 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(int key, int value) {
+            int slot = slotFor(key);
+            values[slot] = value;
+        }
+
+        void increment(int key) {
+            // slotFor may grow the arrays, so resolve the slot before touching values
+            int slot = slotFor(key);
+            values[slot]++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int keyAt(int slot) {
+            return keys[slot];
+        }
+
+        int valueAt(int slot) {
+            return values[slot];
+        }
+
+        // Slot holding the key, inserting it with value 0 if absent
+        private int slotFor(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                return slotFor(key);
+            }
+            keys[slot] = key;
+            values[slot] = 0;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] >= 0) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (keys[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,28 +1,48 @@
 package com.music.musicstore.services;
 
+import com.music.musicstore.models.users.UserDirectoryEntry;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 @Service
 public class CombinedUserDetailsService implements UserDetailsService {
     private final AdminService adminService;
     private final CustomerService customerService;
     private final ArtistService artistService;
     private final StaffService staffService;
+    private final UserDirectoryService userDirectoryService;
 
     public CombinedUserDetailsService(AdminService adminService, CustomerService customerService,
-                                      ArtistService artistService, StaffService staffService) {
+                                      ArtistService artistService, StaffService staffService,
+                                      UserDirectoryService userDirectoryService) {
         this.adminService = adminService;
         this.customerService = customerService;
         this.artistService = artistService;
         this.staffService = staffService;
+        this.userDirectoryService = userDirectoryService;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Try each service in order of privilege
+        // The directory knows which table holds the username, so only that one is queried
+        Optional<UserDirectoryEntry> entry = userDirectoryService.findByUsername(username);
+        if (entry.isPresent()) {
+            return switch (entry.get().getRole()) {
+                case UserDirectoryService.ROLE_ADMIN -> adminService.loadUserByUsername(username);
+                case UserDirectoryService.ROLE_STAFF -> staffService.loadUserByUsername(username);
+                case UserDirectoryService.ROLE_ARTIST -> artistService.loadUserByUsername(username);
+                default -> customerService.loadUserByUsername(username);
+            };
+        }
+        if (userDirectoryService.isBackfilled()) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+
+        // Directory not backfilled yet: try each service in order of privilege
         try {
             return adminService.loadUserByUsername(username);
         } catch (UsernameNotFoundException e1) {
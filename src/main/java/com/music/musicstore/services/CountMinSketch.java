@@ -0,0 +1,123 @@
+package com.music.musicstore.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-Min sketch answering "how often has this item occurred?" in fixed memory.
+ *
+ * Each of {@code depth} rows hashes the item to one of {@code width} counters; the estimate is the
+ * smallest of those counters. It never underestimates and, with probability 1 - 2^-depth,
+ * overestimates by at most 2 * total / width. Counters are atomic, so concurrent updates need no
+ * locking. Row hashes use fixed seeds, so sketches of the same shape built on different nodes can
+ * be merged by adding them cell by cell.
+ */
+public final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x94D049BB133111EBL
+    };
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray cells;
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length);
+        }
+        if (width < 1 || width > (1 << 26)) {
+            throw new IllegalArgumentException("width must be between 1 and " + (1 << 26));
+        }
+        this.depth = depth;
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.cells = new AtomicLongArray(depth * this.width);
+    }
+
+    public void add(long item, long count) {
+        if (count <= 0) {
+            return;
+        }
+        for (int row = 0; row < depth; row++) {
+            cells.addAndGet(row * width + index(item, row), count);
+        }
+        total.add(count);
+    }
+
+    public long estimate(long item) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells.get(row * width + index(item, row)));
+        }
+        return estimate;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Adds another sketch of the same shape into this one.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge sketches of different shapes");
+        }
+        for (int i = 0; i < cells.length(); i++) {
+            long value = other.cells.get(i);
+            if (value != 0) {
+                cells.addAndGet(i, value);
+            }
+        }
+        total.add(other.getTotal());
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        out.writeLong(getTotal());
+        for (int i = 0; i < cells.length(); i++) {
+            out.writeLong(cells.get(i));
+        }
+    }
+
+    public static CountMinSketch readFrom(DataInput in) throws IOException {
+        int depth = in.readInt();
+        int width = in.readInt();
+        if (depth < 1 || depth > SEEDS.length || width < 1 || width > (1 << 26) || Integer.bitCount(width) != 1) {
+            throw new IOException("Corrupt Count-Min sketch");
+        }
+        CountMinSketch sketch = new CountMinSketch(depth, width);
+        sketch.total.add(in.readLong());
+        for (int i = 0; i < sketch.cells.length(); i++) {
+            sketch.cells.set(i, in.readLong());
+        }
+        return sketch;
+    }
+
+    private int index(long item, int row) {
+        long h = item ^ SEEDS[row];
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
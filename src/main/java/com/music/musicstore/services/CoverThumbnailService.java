@@ -0,0 +1,341 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.repositories.AlbumRepository;
+import com.music.musicstore.repositories.MusicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Generates and caches downscaled cover art.
+ *
+ * Derivatives are addressed by a hash of the source image content, so their URLs change whenever
+ * the cover changes and can be cached by clients forever. Thumbnails are rendered on first request
+ * and kept under ./uploads/thumbnails; covers with transparency are written as PNG, the rest as JPEG.
+ *
+ * The hash is stored on the music or album row when it is saved, and a background pass fills it in
+ * for older rows, so building a DTO touches no files. A thumbnail that has not been rendered yet
+ * finds its source through the row carrying the hash, which works after a restart and on every
+ * instance; the source is hashed again before rendering so a replaced file is never served under
+ * the old hash.
+ */
+@Service
+public class CoverThumbnailService {
+    private static final Logger logger = LoggerFactory.getLogger(CoverThumbnailService.class);
+
+    public static final int[] SIZES = {64, 256, 512};
+
+    private static final String URL_PREFIX = "/api/music/covers/";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{16}");
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final int HASH_BATCH_SIZE = 200;
+
+    private static final String[] SEARCH_DIRECTORIES = {
+            "src/main/resources/static/uploads/covers",
+            "target/classes/static/uploads/covers",
+            "./uploads/covers"
+    };
+
+    private final MusicRepository musicRepository;
+    private final AlbumRepository albumRepository;
+    private final Path thumbnailDirectory = Paths.get("./uploads/thumbnails");
+    private final Map<String, Object> renderLocks = new ConcurrentHashMap<>();
+
+    public CoverThumbnailService(MusicRepository musicRepository, AlbumRepository albumRepository) {
+        this.musicRepository = musicRepository;
+        this.albumRepository = albumRepository;
+        logger.info("CoverThumbnailService initialized successfully");
+    }
+
+    /**
+     * Returns the derivative URLs keyed by pixel size for a stored cover hash, or an empty map when
+     * the cover has not been hashed.
+     */
+    public Map<String, String> getThumbnailUrls(String coverHash) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        if (coverHash == null) {
+            return urls;
+        }
+        for (int size : SIZES) {
+            urls.put(String.valueOf(size), URL_PREFIX + coverHash + "/" + size);
+        }
+        return urls;
+    }
+
+    /**
+     * Hashes the cover image behind an image URL, or returns null if it is remote or cannot be
+     * found. Call when storing a new cover URL.
+     */
+    public String hashCover(String imageUrl) {
+        Path source = resolveSource(imageUrl);
+        if (source == null) {
+            return null;
+        }
+        try {
+            return hashOf(source);
+        } catch (IOException e) {
+            logger.warn("Failed to hash cover image {}: {}", source, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the cover hash of music and albums saved without one, such as rows created before the
+     * hash existed. Walks the rows in id order in small batches; covers that cannot be found stay
+     * unhashed and are retried on the next pass.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${musicstore.covers.hash-interval-ms:600000}",
+            initialDelayString = "${musicstore.covers.hash-interval-ms:600000}")
+    public void hashMissingCovers() {
+        long startNanos = System.nanoTime();
+        int hashed = 0;
+        long lastId = 0;
+        List<Object[]> rows;
+        do {
+            rows = musicRepository.findUnhashedCovers(lastId, PageRequest.of(0, HASH_BATCH_SIZE));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                String hash = hashCover((String) row[1]);
+                if (hash != null) {
+                    musicRepository.updateCoverHash(lastId, hash);
+                    hashed++;
+                }
+            }
+        } while (rows.size() == HASH_BATCH_SIZE);
+
+        lastId = 0;
+        do {
+            rows = albumRepository.findUnhashedCovers(lastId, PageRequest.of(0, HASH_BATCH_SIZE));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                String hash = hashCover((String) row[1]);
+                if (hash != null) {
+                    albumRepository.updateCoverHash(lastId, hash);
+                    hashed++;
+                }
+            }
+        } while (rows.size() == HASH_BATCH_SIZE);
+
+        if (hashed > 0) {
+            logger.info("Hashed {} cover images in {} ms", hashed, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    public Thumbnail getThumbnail(String hash, int size) throws IOException {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            throw new ValidationException("Invalid cover hash");
+        }
+        if (!isSupportedSize(size)) {
+            throw new ValidationException("Unsupported thumbnail size: " + size);
+        }
+
+        Thumbnail existing = readDerivative(hash, size);
+        if (existing != null) {
+            return existing;
+        }
+
+        Path source = findSource(hash);
+        if (source == null) {
+            throw new ResourceNotFoundException("Cover", hash);
+        }
+
+        Object lock = renderLocks.computeIfAbsent(hash + "-" + size, key -> new Object());
+        synchronized (lock) {
+            try {
+                existing = readDerivative(hash, size);
+                if (existing != null) {
+                    return existing;
+                }
+                return render(source, hash, size);
+            } finally {
+                renderLocks.remove(hash + "-" + size);
+            }
+        }
+    }
+
+    private Thumbnail render(Path source, String hash, int size) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage original = ImageIO.read(source.toFile());
+        if (original == null) {
+            throw new ValidationException("Unsupported cover image format: " + source.getFileName());
+        }
+
+        boolean alpha = original.getColorModel().hasAlpha();
+        BufferedImage scaled = scale(original, size, alpha);
+        String format = alpha ? "png" : "jpg";
+
+        Files.createDirectories(thumbnailDirectory);
+        Path target = thumbnailDirectory.resolve(hash + "-" + size + "." + format);
+        Path temp = Files.createTempFile(thumbnailDirectory, hash + "-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            if (alpha) {
+                ImageIO.write(scaled, "png", out);
+            } else {
+                writeJpeg(scaled, out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.debug("Rendered {}px thumbnail for cover {} in {} ms",
+                size, source.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        return new Thumbnail(Files.readAllBytes(target), alpha ? "image/png" : "image/jpeg");
+    }
+
+    // Halves the image until it is within 2x of the target, then finishes with one bilinear pass
+    private static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        double ratio = Math.min(1.0, (double) size / longest);
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (width < targetWidth * 2 && height < targetHeight * 2) {
+                width = targetWidth;
+                height = targetHeight;
+            }
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Thumbnail readDerivative(String hash, int size) throws IOException {
+        Path jpeg = thumbnailDirectory.resolve(hash + "-" + size + ".jpg");
+        if (Files.isRegularFile(jpeg)) {
+            return new Thumbnail(Files.readAllBytes(jpeg), "image/jpeg");
+        }
+        Path png = thumbnailDirectory.resolve(hash + "-" + size + ".png");
+        if (Files.isRegularFile(png)) {
+            return new Thumbnail(Files.readAllBytes(png), "image/png");
+        }
+        return null;
+    }
+
+    // The source of a stored hash, provided the file still has that content
+    private Path findSource(String hash) throws IOException {
+        List<String> imageUrls = musicRepository.findImageUrlsByCoverHash(hash, PageRequest.of(0, 1));
+        if (imageUrls.isEmpty()) {
+            imageUrls = albumRepository.findImageUrlsByCoverHash(hash, PageRequest.of(0, 1));
+        }
+        if (imageUrls.isEmpty()) {
+            return null;
+        }
+        Path source = resolveSource(imageUrls.get(0));
+        return source != null && hash.equals(hashOf(source)) ? source : null;
+    }
+
+    private static String hashOf(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = Files.newInputStream(source)) {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    private Path resolveSource(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank() || imageUrl.startsWith("http")) {
+            return null;
+        }
+        try {
+            Path direct = Paths.get(imageUrl);
+            if (Files.isRegularFile(direct)) {
+                return direct.toAbsolutePath().normalize();
+            }
+            Path fileName = direct.getFileName();
+            if (fileName == null) {
+                return null;
+            }
+            for (String directory : SEARCH_DIRECTORIES) {
+                Path candidate = Paths.get(directory).resolve(fileName.toString());
+                if (Files.isRegularFile(candidate)) {
+                    return candidate.toAbsolutePath().normalize();
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Could not resolve cover image '{}': {}", imageUrl, e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean isSupportedSize(int size) {
+        for (int supported : SIZES) {
+            if (supported == size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public record Thumbnail(byte[] bytes, String contentType) {
+    }
+}
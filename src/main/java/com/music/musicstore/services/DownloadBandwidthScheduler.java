@@ -0,0 +1,256 @@
+package com.music.musicstore.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shapes download bandwidth with a token bucket per customer and one global bucket.
+ *
+ * Streams are written in small chunks and every chunk has to be granted by the customer's bucket
+ * and then by the global bucket. Both buckets use fair locks, so waiting streams are served in
+ * arrival order and each active download gets its turn chunk by chunk instead of one greedy client
+ * draining the whole budget. A rate of 0 disables the corresponding limit.
+ */
+@Service
+public class DownloadBandwidthScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadBandwidthScheduler.class);
+
+    private static final int THROUGHPUT_WINDOW_SECONDS = 5;
+
+    private final long perCustomerBytesPerSecond;
+    private final int chunkBytes;
+    private final TokenBucket globalBucket;
+
+    private final Map<Long, CustomerBandwidth> customers = new ConcurrentHashMap<>();
+    private final Map<Long, ThrottledOutputStream> activeStreams = new ConcurrentHashMap<>();
+    private final AtomicLong streamIds = new AtomicLong();
+
+    private final LongAdder totalBytes = new LongAdder();
+    private final LongAdder completedStreams = new LongAdder();
+    private final AtomicLongArray windowBytes = new AtomicLongArray(THROUGHPUT_WINDOW_SECONDS);
+    private final AtomicLongArray windowSeconds = new AtomicLongArray(THROUGHPUT_WINDOW_SECONDS);
+
+    public DownloadBandwidthScheduler(
+            @Value("${musicstore.download.bandwidth.per-customer-bytes-per-second:2097152}") long perCustomerBytesPerSecond,
+            @Value("${musicstore.download.bandwidth.global-bytes-per-second:104857600}") long globalBytesPerSecond,
+            @Value("${musicstore.download.bandwidth.chunk-bytes:16384}") int chunkBytes) {
+        this.perCustomerBytesPerSecond = perCustomerBytesPerSecond;
+        this.chunkBytes = chunkBytes;
+        this.globalBucket = new TokenBucket(globalBytesPerSecond, chunkBytes);
+        logger.info("DownloadBandwidthScheduler initialized with {} B/s per customer, {} B/s global",
+                perCustomerBytesPerSecond, globalBytesPerSecond);
+    }
+
+    /**
+     * Wraps a response stream so everything written to it is paced by the customer and global buckets.
+     * The returned stream must be closed to release its slot; closing it flushes but leaves the target open.
+     */
+    public OutputStream open(Long customerId, Long musicId, OutputStream target) {
+        CustomerBandwidth customer = customers.compute(customerId, (id, existing) -> {
+            CustomerBandwidth bandwidth = existing != null
+                    ? existing
+                    : new CustomerBandwidth(new TokenBucket(perCustomerBytesPerSecond, chunkBytes));
+            bandwidth.streams.incrementAndGet();
+            return bandwidth;
+        });
+        long streamId = streamIds.incrementAndGet();
+        ThrottledOutputStream stream = new ThrottledOutputStream(streamId, customerId, musicId, customer, target);
+        activeStreams.put(streamId, stream);
+        return stream;
+    }
+
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> streams = new ArrayList<>();
+        for (ThrottledOutputStream stream : activeStreams.values()) {
+            streams.add(stream.toMap());
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeStreams", streams.size());
+        stats.put("activeCustomers", customers.size());
+        stats.put("streams", streams);
+        stats.put("completedStreams", completedStreams.sum());
+        stats.put("totalBytes", totalBytes.sum());
+        stats.put("throughputBytesPerSecond", currentThroughput());
+        stats.put("perCustomerBytesPerSecond", perCustomerBytesPerSecond);
+        stats.put("globalBytesPerSecond", globalBucket.ratePerSecond);
+        stats.put("chunkBytes", chunkBytes);
+        return stats;
+    }
+
+    private void release(ThrottledOutputStream stream) {
+        activeStreams.remove(stream.streamId);
+        completedStreams.increment();
+        customers.computeIfPresent(stream.customerId,
+                (id, bandwidth) -> bandwidth.streams.decrementAndGet() == 0 ? null : bandwidth);
+    }
+
+    private void recordBytes(int bytes) {
+        totalBytes.add(bytes);
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % THROUGHPUT_WINDOW_SECONDS);
+        long slotSecond = windowSeconds.get(slot);
+        if (slotSecond != second && windowSeconds.compareAndSet(slot, slotSecond, second)) {
+            windowBytes.set(slot, 0);
+        }
+        windowBytes.addAndGet(slot, bytes);
+    }
+
+    // Average over the last complete seconds of the window
+    private long currentThroughput() {
+        long now = System.currentTimeMillis() / 1000;
+        long bytes = 0;
+        for (int slot = 0; slot < THROUGHPUT_WINDOW_SECONDS; slot++) {
+            long second = windowSeconds.get(slot);
+            if (second < now && second >= now - (THROUGHPUT_WINDOW_SECONDS - 1)) {
+                bytes += windowBytes.get(slot);
+            }
+        }
+        return bytes / (THROUGHPUT_WINDOW_SECONDS - 1);
+    }
+
+    private static final class CustomerBandwidth {
+        private final TokenBucket bucket;
+        private final AtomicInteger streams = new AtomicInteger();
+
+        CustomerBandwidth(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class TokenBucket {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final long ratePerSecond;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(long ratePerSecond, int chunkBytes) {
+            this.ratePerSecond = ratePerSecond;
+            // Allow a quarter second of burst, but always at least one full chunk
+            this.capacity = Math.max(ratePerSecond / 4.0, chunkBytes);
+            this.tokens = capacity;
+        }
+
+        void acquire(int permits) throws InterruptedIOException {
+            if (ratePerSecond <= 0) {
+                return;
+            }
+            try {
+                lock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for download bandwidth");
+            }
+            try {
+                // The waiter holds the fair lock while it sleeps, so later streams queue up behind it
+                refill();
+                while (tokens < permits) {
+                    long waitNanos = (long) Math.ceil((permits - tokens) * TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+                    LockSupport.parkNanos(this, waitNanos);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    refill();
+                }
+                tokens -= permits;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for download bandwidth");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double earned = (now - lastRefill) * (double) ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(capacity, tokens + earned);
+            lastRefill = now;
+        }
+    }
+
+    private final class ThrottledOutputStream extends FilterOutputStream {
+        private final long streamId;
+        private final Long customerId;
+        private final Long musicId;
+        private final CustomerBandwidth customer;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private boolean closed;
+
+        ThrottledOutputStream(long streamId, Long customerId, Long musicId,
+                              CustomerBandwidth customer, OutputStream target) {
+            super(target);
+            this.streamId = streamId;
+            this.customerId = customerId;
+            this.musicId = musicId;
+            this.customer = customer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, chunkBytes);
+                customer.bucket.acquire(chunk);
+                globalBucket.acquire(chunk);
+                out.write(b, off, chunk);
+                bytesSent.addAndGet(chunk);
+                recordBytes(chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.flush();
+            } finally {
+                release(this);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long sent = bytesSent.get();
+            long elapsedMs = Math.max(1, Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+            Map<String, Object> stream = new HashMap<>();
+            stream.put("streamId", streamId);
+            stream.put("customerId", customerId);
+            stream.put("musicId", musicId);
+            stream.put("bytesSent", sent);
+            stream.put("averageBytesPerSecond", sent * 1000 / elapsedMs);
+            stream.put("startedAt", startedAt.toString());
+            return stream;
+        }
+    }
+}
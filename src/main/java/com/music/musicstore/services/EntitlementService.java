@@ -0,0 +1,381 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.repositories.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "does this customer own that track?" from memory.
+ *
+ * Each customer's owned music ids are loaded lazily with one query and kept as either a sorted
+ * int array or a bitmap, whichever is smaller. Purchases update the cached set in place; checkouts
+ * and refunds drop it so the next check reloads from the database. The cache is bounded by an
+ * approximate byte budget and evicts the least recently used customers in batches.
+ *
+ * The cache is local to each instance and only sees the purchases and refunds this instance
+ * handles. Entries are therefore reloaded once they are older than {@code ttl-ms}, which bounds how
+ * long a refund made elsewhere keeps a track accessible here. {@link #owns} confirms a negative
+ * answer against the database, so a purchase made through another instance is honoured at once;
+ * {@link #ownedAmong} and {@link #getOwnedMusicIds} may lag other instances by up to the TTL.
+ */
+@Service
+public class EntitlementService {
+    private static final Logger logger = LoggerFactory.getLogger(EntitlementService.class);
+
+    // Rough per-customer overhead of the map node, holder and set objects
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+    private static final int EVICTION_SAMPLE_SIZE = 256;
+    private static final double EVICTION_FRACTION = 0.1;
+
+    private final CustomerRepository customerRepository;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder confirmedMisses = new LongAdder();
+
+    public EntitlementService(CustomerRepository customerRepository,
+                              @Value("${musicstore.entitlements.cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${musicstore.entitlements.cache.ttl-ms:60000}") long ttlMs) {
+        this.customerRepository = customerRepository;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        logger.info("EntitlementService initialized with budget {} bytes, ttl {} ms", maxBytes, ttlMs);
+    }
+
+    /**
+     * Whether the customer owns the track, for authorizing access to it. A miss is confirmed
+     * against the database, since the purchase may have been made through another instance.
+     */
+    public boolean owns(Long customerId, Long musicId) {
+        if (customerId == null || musicId == null) {
+            return false;
+        }
+        if (!fitsInt(musicId)) {
+            return customerRepository.hasPurchasedMusic(customerId, musicId);
+        }
+        if (get(customerId).contains(musicId.intValue())) {
+            return true;
+        }
+        if (!customerRepository.hasPurchasedMusic(customerId, musicId)) {
+            return false;
+        }
+        confirmedMisses.increment();
+        grant(customerId, musicId);
+        return true;
+    }
+
+    /**
+     * Returns the subset of the given ids the customer owns, in the order they were passed.
+     */
+    public Set<Long> ownedAmong(Long customerId, Collection<Long> musicIds) {
+        Set<Long> owned = new LinkedHashSet<>();
+        if (customerId == null || musicIds == null || musicIds.isEmpty()) {
+            return owned;
+        }
+        OwnedIds ids = get(customerId);
+        for (Long musicId : musicIds) {
+            if (musicId == null) {
+                continue;
+            }
+            if (fitsInt(musicId) ? ids.contains(musicId.intValue()) : customerRepository.hasPurchasedMusic(customerId, musicId)) {
+                owned.add(musicId);
+            }
+        }
+        return owned;
+    }
+
+    public List<Long> getOwnedMusicIds(Long customerId) {
+        int[] ids = get(customerId).toArray();
+        List<Long> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add((long) id);
+        }
+        return result;
+    }
+
+    /**
+     * Records a purchase for a customer whose set is cached; uncached customers pick it up on load.
+     */
+    public void grant(Long customerId, Long musicId) {
+        if (customerId == null || musicId == null || !fitsInt(musicId)) {
+            return;
+        }
+        entries.computeIfPresent(customerId, (id, entry) -> {
+            OwnedIds updated = entry.ids.with(musicId.intValue());
+            cachedBytes.addAndGet(updated.footprintBytes() - entry.ids.footprintBytes());
+            entry.ids = updated;
+            return entry;
+        });
+    }
+
+    public void revoke(Long customerId, Long musicId) {
+        if (customerId == null || musicId == null || !fitsInt(musicId)) {
+            return;
+        }
+        entries.computeIfPresent(customerId, (id, entry) -> {
+            OwnedIds updated = entry.ids.without(musicId.intValue());
+            cachedBytes.addAndGet(updated.footprintBytes() - entry.ids.footprintBytes());
+            entry.ids = updated;
+            return entry;
+        });
+    }
+
+    public void invalidate(Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        Entry removed = entries.remove(customerId);
+        if (removed != null) {
+            cachedBytes.addAndGet(-(removed.ids.footprintBytes() + ENTRY_OVERHEAD_BYTES));
+        }
+    }
+
+    /**
+     * Drops the cached set of the customer who placed the order, e.g. after it was refunded.
+     */
+    public void invalidateOrder(Long orderId) {
+        if (orderId == null) {
+            return;
+        }
+        customerRepository.findCustomerIdByOrderId(orderId).ifPresent(this::invalidate);
+    }
+
+    public void invalidateAll() {
+        // Entry by entry, so bytes added by concurrent loads and grants stay accounted for
+        for (Long customerId : entries.keySet()) {
+            invalidate(customerId);
+        }
+        logger.info("Cleared all cached entitlements");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedCustomers", entries.size());
+        stats.put("cachedBytes", cachedBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("confirmedMisses", confirmedMisses.sum());
+        stats.put("ttlMs", ttlNanos / 1_000_000L);
+        return stats;
+    }
+
+    private OwnedIds get(Long customerId) {
+        Entry entry = entries.get(customerId);
+        if (entry != null && System.nanoTime() - entry.loadedAt > ttlNanos) {
+            // May miss changes made through other instances; reload
+            if (entries.remove(customerId, entry)) {
+                cachedBytes.addAndGet(-(entry.ids.footprintBytes() + ENTRY_OVERHEAD_BYTES));
+                expirations.increment();
+            }
+            entry = null;
+        }
+        if (entry != null) {
+            hits.increment();
+        } else {
+            entry = entries.computeIfAbsent(customerId, this::load);
+            evictIfNeeded();
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.ids;
+    }
+
+    private Entry load(Long customerId) {
+        loads.increment();
+        List<Long> musicIds = customerRepository.findPurchasedMusicIds(customerId);
+        OwnedIds ids = OwnedIds.of(musicIds);
+        cachedBytes.addAndGet(ids.footprintBytes() + ENTRY_OVERHEAD_BYTES);
+        return new Entry(ids);
+    }
+
+    // Drops roughly the least recently used tenth of the cache once the budget is exceeded
+    private void evictIfNeeded() {
+        if (cachedBytes.get() <= maxBytes || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] sample = new long[EVICTION_SAMPLE_SIZE];
+            int sampled = 0;
+            int seen = 0;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (Entry entry : entries.values()) {
+                seen++;
+                if (sampled < sample.length) {
+                    sample[sampled++] = entry.lastAccess;
+                } else {
+                    int slot = random.nextInt(seen);
+                    if (slot < sample.length) {
+                        sample[slot] = entry.lastAccess;
+                    }
+                }
+            }
+            if (sampled == 0) {
+                return;
+            }
+            Arrays.sort(sample, 0, sampled);
+            long cutoff = sample[(int) (sampled * EVICTION_FRACTION)];
+
+            long target = (long) (maxBytes * (1 - EVICTION_FRACTION));
+            for (Map.Entry<Long, Entry> candidate : entries.entrySet()) {
+                if (cachedBytes.get() <= target) {
+                    break;
+                }
+                if (candidate.getValue().lastAccess <= cutoff
+                        && entries.remove(candidate.getKey(), candidate.getValue())) {
+                    cachedBytes.addAndGet(-(candidate.getValue().ids.footprintBytes() + ENTRY_OVERHEAD_BYTES));
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static boolean fitsInt(Long musicId) {
+        return musicId >= 0 && musicId <= Integer.MAX_VALUE;
+    }
+
+    private static final class Entry {
+        private final long loadedAt = System.nanoTime();
+        private volatile OwnedIds ids;
+        private volatile long lastAccess = loadedAt;
+
+        Entry(OwnedIds ids) {
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Immutable set of non-negative ints stored as a sorted array when sparse and as a bitmap
+     * (offset to the smallest id) when that takes fewer bytes.
+     */
+    private static final class OwnedIds {
+        private static final OwnedIds EMPTY = new OwnedIds(new int[0], null, 0, 0);
+
+        private final int[] sorted;
+        private final long[] words;
+        private final int base;
+        private final int cardinality;
+
+        private OwnedIds(int[] sorted, long[] words, int base, int cardinality) {
+            this.sorted = sorted;
+            this.words = words;
+            this.base = base;
+            this.cardinality = cardinality;
+        }
+
+        static OwnedIds of(Collection<Long> musicIds) {
+            int[] ids = new int[musicIds.size()];
+            int count = 0;
+            for (Long musicId : musicIds) {
+                if (musicId != null && fitsInt(musicId)) {
+                    ids[count++] = musicId.intValue();
+                }
+            }
+            Arrays.sort(ids, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || ids[unique - 1] != ids[i]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            return fromSorted(Arrays.copyOf(ids, unique));
+        }
+
+        private static OwnedIds fromSorted(int[] ids) {
+            if (ids.length == 0) {
+                return EMPTY;
+            }
+            int base = ids[0] & ~63;
+            long span = (long) ids[ids.length - 1] - base + 1;
+            long bitmapBytes = ((span + 63) / 64) * 8;
+            if (bitmapBytes >= (long) ids.length * 4) {
+                return new OwnedIds(ids, null, 0, ids.length);
+            }
+            long[] words = new long[(int) ((span + 63) / 64)];
+            for (int id : ids) {
+                int offset = id - base;
+                words[offset >>> 6] |= 1L << offset;
+            }
+            return new OwnedIds(null, words, base, ids.length);
+        }
+
+        boolean contains(int id) {
+            if (words != null) {
+                int offset = id - base;
+                return offset >= 0 && (offset >>> 6) < words.length && (words[offset >>> 6] & (1L << offset)) != 0;
+            }
+            return Arrays.binarySearch(sorted, id) >= 0;
+        }
+
+        OwnedIds with(int id) {
+            if (contains(id)) {
+                return this;
+            }
+            int[] current = toArray();
+            int[] ids = Arrays.copyOf(current, current.length + 1);
+            int insertAt = -(Arrays.binarySearch(current, id) + 1);
+            System.arraycopy(current, insertAt, ids, insertAt + 1, current.length - insertAt);
+            ids[insertAt] = id;
+            return fromSorted(ids);
+        }
+
+        OwnedIds without(int id) {
+            if (!contains(id)) {
+                return this;
+            }
+            int[] current = toArray();
+            int removeAt = Arrays.binarySearch(current, id);
+            int[] ids = new int[current.length - 1];
+            System.arraycopy(current, 0, ids, 0, removeAt);
+            System.arraycopy(current, removeAt + 1, ids, removeAt, current.length - removeAt - 1);
+            return fromSorted(ids);
+        }
+
+        int[] toArray() {
+            if (words == null) {
+                return sorted;
+            }
+            int[] ids = new int[cardinality];
+            int next = 0;
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    ids[next++] = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return ids;
+        }
+
+        long footprintBytes() {
+            return words != null ? words.length * 8L : sorted.length * 4L;
+        }
+    }
+}
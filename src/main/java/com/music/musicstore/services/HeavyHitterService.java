@@ -0,0 +1,291 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Most purchased and most downloaded tracks in bounded memory, however large the catalog.
+ *
+ * Each metric keeps a {@link SpaceSaving} summary for the top tracks and a {@link CountMinSketch}
+ * for the count of any single track; a track's estimate is the smaller of the two upper bounds.
+ * Both are fed by activity events on this node only.
+ *
+ * Sales also include a baseline of all-time purchase counts: shortly after startup the database
+ * aggregates the purchase table into its {@code capacity} best sellers, and live purchase counting
+ * restarts at that moment. The baseline is exact for those tracks and bounds every other track by
+ * the smallest of them. Downloads are not persisted and count from startup.
+ *
+ * Snapshots serialize only the live structures, so combining them with this node's counts adds
+ * the baseline once however many nodes contribute. A purchase made while a node loads its baseline,
+ * or before a later-started node loaded its own, may be counted twice.
+ */
+@Service
+public class HeavyHitterService {
+    private static final Logger logger = LoggerFactory.getLogger(HeavyHitterService.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SKETCH_DEPTH = 4;
+
+    public enum Metric {
+        PURCHASES("purchases", "sales"),
+        DOWNLOADS("downloads", "downloads");
+
+        private final String label;
+        private final String countKey;
+
+        Metric(String label, String countKey) {
+            this.label = label;
+            this.countKey = countKey;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Metric fromLabel(String label) {
+            for (Metric metric : values()) {
+                if (metric.label.equalsIgnoreCase(label)) {
+                    return metric;
+                }
+            }
+            throw new ValidationException("metric must be one of purchases or downloads");
+        }
+    }
+
+    private final CustomerRepository customerRepository;
+    private final MusicService musicService;
+    private final int capacity;
+    private final int sketchWidth;
+    private final Map<Metric, Tracker> trackers = new ConcurrentHashMap<>();
+    private final Instant startedAt = Instant.now();
+    // Exact all-time counts of the best sellers; empty until loaded and for downloads
+    private volatile Baseline purchaseBaseline;
+    private volatile Instant purchaseBaselineAt;
+
+    public HeavyHitterService(CustomerRepository customerRepository,
+                              MusicService musicService,
+                              @Value("${musicstore.heavy-hitters.capacity:1000}") int capacity,
+                              @Value("${musicstore.heavy-hitters.sketch-width:65536}") int sketchWidth) {
+        this.customerRepository = customerRepository;
+        this.musicService = musicService;
+        this.capacity = capacity;
+        this.sketchWidth = sketchWidth;
+        for (Metric metric : Metric.values()) {
+            trackers.put(metric, newTracker());
+        }
+        this.purchaseBaseline = Baseline.empty(capacity);
+        logger.info("HeavyHitterService initialized successfully");
+    }
+
+    @EventListener
+    public void onMusicActivity(MusicActivityEvent event) {
+        Metric metric = switch (event.type()) {
+            case PURCHASE -> Metric.PURCHASES;
+            case DOWNLOAD -> Metric.DOWNLOADS;
+            default -> null;
+        };
+        if (metric == null) {
+            return;
+        }
+        Tracker tracker = trackers.get(metric);
+        for (Long musicId : event.musicIds()) {
+            tracker.add(musicId, 1);
+        }
+    }
+
+    /**
+     * Loads the all-time best sellers from the purchase table once, shortly after startup.
+     * Live purchase counting restarts here, since everything bought so far is in the baseline.
+     */
+    @Transactional(readOnly = true)
+    @Scheduled(initialDelayString = "${musicstore.heavy-hitters.seed-delay-ms:20000}")
+    public void loadPurchaseBaseline() {
+        long start = System.nanoTime();
+        trackers.put(Metric.PURCHASES, newTracker());
+        List<Object[]> rows = customerRepository.findPurchaseCountsByMusic(PageRequest.of(0, capacity));
+        SpaceSaving summary = new SpaceSaving(capacity);
+        long floor = 0;
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            summary.offer(((Number) row[0]).longValue(), count);
+            floor = count;
+        }
+        // With fewer rows than counters every purchased track is in the baseline
+        purchaseBaseline = new Baseline(summary, rows.size() < capacity ? 0 : floor);
+        purchaseBaselineAt = Instant.now();
+        logger.info("Loaded purchase baseline for {} tracks in {} ms",
+                rows.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Top tracks for the metric with estimated counts, in the shape of the admin analytics panels.
+     */
+    public List<Map<String, Object>> getTopTracks(Metric metric, int limit) {
+        Tracker tracker = trackers.get(metric);
+        Baseline baseline = baselineOf(metric);
+        return describe(metric, baseline.summary.merge(tracker.summary).top(limit), tracker.sketch, baseline);
+    }
+
+    public Map<String, Object> getEstimate(Metric metric, Long musicId) {
+        Tracker tracker = trackers.get(metric);
+        Baseline baseline = baselineOf(metric);
+        SpaceSaving.Counter counter = baseline.summary.merge(tracker.summary).get(musicId);
+        Map<String, Object> estimate = new HashMap<>();
+        estimate.put("musicId", musicId);
+        estimate.put("metric", metric.label);
+        estimate.put(metric.countKey, estimate(counter, tracker.sketch, baseline, musicId));
+        estimate.put("tracked", counter != null);
+        return estimate;
+    }
+
+    /**
+     * Serializes the metric's live summary and sketch for combining on another node. The purchase
+     * baseline is left out; every node already has it.
+     */
+    public byte[] exportSnapshot(Metric metric) {
+        Tracker tracker = trackers.get(metric);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SNAPSHOT_VERSION);
+            out.writeUTF(metric.label);
+            tracker.summary.writeTo(out);
+            tracker.sketch.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write heavy-hitter snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Top tracks across this node and the given snapshots from other nodes, plus the baseline once.
+     */
+    public List<Map<String, Object>> combine(Metric metric, List<byte[]> snapshots, int limit) {
+        Tracker local = trackers.get(metric);
+        Baseline baseline = baselineOf(metric);
+        SpaceSaving summary = baseline.summary.merge(local.summary);
+        CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, sketchWidth);
+        sketch.merge(local.sketch);
+        for (byte[] snapshot : snapshots) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+                if (in.readUnsignedByte() != SNAPSHOT_VERSION || !metric.label.equals(in.readUTF())) {
+                    throw new ValidationException("Snapshot is not a " + metric.label + " snapshot of this version");
+                }
+                summary = summary.merge(SpaceSaving.readFrom(in));
+                sketch.merge(CountMinSketch.readFrom(in));
+            } catch (IOException e) {
+                throw new ValidationException("Corrupt heavy-hitter snapshot: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Incompatible heavy-hitter snapshot: " + e.getMessage());
+            }
+        }
+        return describe(metric, summary.top(limit), sketch, baseline);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Metric metric : Metric.values()) {
+            Tracker tracker = trackers.get(metric);
+            Map<String, Object> metricStats = new HashMap<>();
+            metricStats.put("total", tracker.sketch.getTotal());
+            metricStats.put("trackedTracks", tracker.summary.size());
+            // Any track above this count is guaranteed to be in the top list
+            metricStats.put("guaranteedAbove", tracker.summary.getTotal() / capacity);
+            stats.put(metric.label, metricStats);
+        }
+        stats.put("capacity", capacity);
+        stats.put("sketchWidth", sketchWidth);
+        stats.put("sketchDepth", SKETCH_DEPTH);
+        stats.put("purchaseBaselineTracks", purchaseBaseline.summary.size());
+        stats.put("purchaseBaselineAt", purchaseBaselineAt);
+        stats.put("countingSince", startedAt);
+        return stats;
+    }
+
+    private List<Map<String, Object>> describe(Metric metric, List<SpaceSaving.Counter> counters,
+                                               CountMinSketch sketch, Baseline baseline) {
+        List<Long> ids = new ArrayList<>(counters.size());
+        for (SpaceSaving.Counter counter : counters) {
+            ids.add(counter.item());
+        }
+        Map<Long, Music> byId = new HashMap<>();
+        for (Music music : musicService.getMusicByIds(ids)) {
+            byId.put(music.getId(), music);
+        }
+
+        List<Map<String, Object>> tracks = new ArrayList<>(counters.size());
+        for (SpaceSaving.Counter counter : counters) {
+            Music music = byId.get(counter.item());
+            if (music == null) {
+                continue;
+            }
+            long count = estimate(counter, sketch, baseline, counter.item());
+            Map<String, Object> musicData = new HashMap<>();
+            musicData.put("id", music.getId());
+            musicData.put("name", music.getName());
+            musicData.put("artist", music.getArtistUsername());
+            musicData.put("genre", music.getGenre());
+            musicData.put("price", music.getPrice());
+            musicData.put("averageRating", music.getAverageRating());
+            musicData.put("totalReviews", music.getTotalReviews());
+            musicData.put(metric.countKey, count);
+            // The estimate is an upper bound; the true count is at least this much
+            musicData.put(metric.countKey + "LowerBound", Math.max(0, counter.count() - counter.error()));
+            tracks.add(musicData);
+        }
+        return tracks;
+    }
+
+    // The sketch only sees live counts, so it bounds a track together with its baseline bound
+    private static long estimate(SpaceSaving.Counter counter, CountMinSketch sketch, Baseline baseline, long musicId) {
+        long sketched = sketch.estimate(musicId) + baseline.upperBound(musicId);
+        return counter != null ? Math.min(counter.count(), sketched) : sketched;
+    }
+
+    private Baseline baselineOf(Metric metric) {
+        return metric == Metric.PURCHASES ? purchaseBaseline : Baseline.empty(capacity);
+    }
+
+    private Tracker newTracker() {
+        return new Tracker(new SpaceSaving(capacity), new CountMinSketch(SKETCH_DEPTH, sketchWidth));
+    }
+
+    private record Baseline(SpaceSaving summary, long floor) {
+        static Baseline empty(int capacity) {
+            return new Baseline(new SpaceSaving(capacity), 0);
+        }
+
+        long upperBound(long musicId) {
+            SpaceSaving.Counter counter = summary.get(musicId);
+            return counter != null ? counter.count() : floor;
+        }
+    }
+
+    private record Tracker(SpaceSaving summary, CountMinSketch sketch) {
+        void add(long musicId, long count) {
+            summary.offer(musicId, count);
+            sketch.add(musicId, count);
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.repositories.MusicRepository;
+import com.music.musicstore.repositories.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds a personalized list of tracks for a customer's home page.
+ *
+ * Seeds are the customer's purchases and their 4-5 star reviews (weighted higher). Candidates come
+ * from co-purchase neighbours and acoustic neighbours of the seeds, other tracks by the artists the
+ * customer buys and rates, and top-rated tracks of their favourite genres; scores from all sources
+ * are summed and owned or already reviewed tracks are dropped using a per-customer bitset. Artist and
+ * genre lookups use an in-memory catalog summary, so building a feed costs one review query.
+ *
+ * Feeds of recently active customers are precomputed in the background. Everyone else gets one
+ * computed on demand within a time budget: sources are consulted in order of value and whatever
+ * has been gathered when the budget runs out is served.
+ */
+@Service
+public class HomeFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(HomeFeedService.class);
+
+    private static final int MAX_FEED_SIZE = 100;
+    private static final int MAX_SEEDS = 50;
+    private static final int NEIGHBOURS_PER_SEED = 20;
+    private static final int TOP_ARTISTS = 5;
+    private static final int TRACKS_PER_ARTIST = 20;
+    private static final int TOP_GENRES = 3;
+    private static final int TRACKS_PER_GENRE = 100;
+    private static final double LIKED_WEIGHT = 2.0;
+    private static final double OWNED_WEIGHT = 1.0;
+    private static final double CO_PURCHASE_WEIGHT = 3.0;
+    private static final double ACOUSTIC_WEIGHT = 2.0;
+    private static final double ARTIST_WEIGHT = 1.5;
+    private static final double GENRE_WEIGHT = 1.0;
+    private static final int LATENCY_BUCKETS = 101;
+
+    private final MusicRepository musicRepository;
+    private final ReviewRepository reviewRepository;
+    private final EntitlementService entitlementService;
+    private final CoPurchaseService coPurchaseService;
+    private final AcousticSimilarityService acousticSimilarityService;
+    private final long timeBudgetNanos;
+    private final Duration maxAge;
+    private final Duration activeWindow;
+    private final int maxPrecomputed;
+
+    private volatile Catalog catalog;
+    private final Map<Long, Feed> feeds = new ConcurrentHashMap<>();
+    private final Map<Long, Instant> lastSeen = new ConcurrentHashMap<>();
+
+    private final LongAdder precomputedServed = new LongAdder();
+    private final LongAdder onDemandServed = new LongAdder();
+    private final LongAdder partialFeeds = new LongAdder();
+    private final LongAdder precomputeRuns = new LongAdder();
+    // On-demand build time in 1 ms buckets; the last bucket collects everything slower
+    private final AtomicLongArray latencyMillis = new AtomicLongArray(LATENCY_BUCKETS);
+
+    public HomeFeedService(MusicRepository musicRepository,
+                           ReviewRepository reviewRepository,
+                           EntitlementService entitlementService,
+                           CoPurchaseService coPurchaseService,
+                           AcousticSimilarityService acousticSimilarityService,
+                           @Value("${musicstore.feed.time-budget-ms:30}") long timeBudgetMs,
+                           @Value("${musicstore.feed.max-age-minutes:15}") long maxAgeMinutes,
+                           @Value("${musicstore.feed.active-window-hours:24}") long activeWindowHours,
+                           @Value("${musicstore.feed.precompute-max-customers:5000}") int maxPrecomputed) {
+        this.musicRepository = musicRepository;
+        this.reviewRepository = reviewRepository;
+        this.entitlementService = entitlementService;
+        this.coPurchaseService = coPurchaseService;
+        this.acousticSimilarityService = acousticSimilarityService;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMs);
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.activeWindow = Duration.ofHours(activeWindowHours);
+        this.maxPrecomputed = maxPrecomputed;
+        logger.info("HomeFeedService initialized successfully");
+    }
+
+    /**
+     * Returns up to {@code limit} recommended music ids for the customer, best first.
+     */
+    public FeedPage getFeed(Long customerId, int limit) {
+        lastSeen.put(customerId, Instant.now());
+        Feed feed = feeds.get(customerId);
+        boolean precomputed = feed != null && feed.computedAt.isAfter(Instant.now().minus(maxAge));
+        if (precomputed) {
+            precomputedServed.increment();
+        } else {
+            catalog();
+            long start = System.nanoTime();
+            feed = build(customerId, start + timeBudgetNanos);
+            recordLatency(System.nanoTime() - start);
+            onDemandServed.increment();
+            feeds.put(customerId, feed);
+        }
+
+        // Anything bought since the feed was built is filtered out here
+        int size = Math.max(0, Math.min(limit, MAX_FEED_SIZE));
+        List<Long> musicIds = new ArrayList<>(size);
+        Set<Long> owned = entitlementService.ownedAmong(customerId, feed.musicIds);
+        for (Long musicId : feed.musicIds) {
+            if (musicIds.size() == size) {
+                break;
+            }
+            if (!owned.contains(musicId)) {
+                musicIds.add(musicId);
+            }
+        }
+        return new FeedPage(musicIds, feed.computedAt, precomputed, feed.partial);
+    }
+
+    /**
+     * Rebuilds feeds of recently active customers without a time budget.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.feed.precompute-interval-ms:300000}",
+            initialDelayString = "${musicstore.feed.precompute-interval-ms:300000}")
+    public void precomputeActiveFeeds() {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(activeWindow);
+        lastSeen.values().removeIf(seen -> seen.isBefore(cutoff));
+        feeds.keySet().retainAll(lastSeen.keySet());
+
+        List<Map.Entry<Long, Instant>> active = new ArrayList<>(lastSeen.entrySet());
+        active.sort(Map.Entry.<Long, Instant>comparingByValue().reversed());
+        int count = 0;
+        for (Map.Entry<Long, Instant> entry : active) {
+            if (count == maxPrecomputed) {
+                break;
+            }
+            try {
+                feeds.put(entry.getKey(), build(entry.getKey(), Long.MAX_VALUE));
+                count++;
+            } catch (Exception e) {
+                logger.warn("Failed to precompute feed for customer {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        precomputeRuns.increment();
+        logger.debug("Precomputed {} home feeds in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reloads the artist/genre summary used to expand seeds.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.feed.catalog-refresh-interval-ms:600000}",
+            initialDelayString = "${musicstore.feed.catalog-refresh-interval-ms:600000}")
+    public void refreshCatalog() {
+        catalog = Catalog.load(musicRepository.findCatalogSummaries());
+    }
+
+    public Map<String, Object> getStats() {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            histogram[i] = latencyMillis.get(i);
+            total += histogram[i];
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedFeeds", feeds.size());
+        stats.put("activeCustomers", lastSeen.size());
+        stats.put("precomputedServed", precomputedServed.sum());
+        stats.put("onDemandServed", onDemandServed.sum());
+        stats.put("partialFeeds", partialFeeds.sum());
+        stats.put("precomputeRuns", precomputeRuns.sum());
+        stats.put("onDemandP50Millis", percentile(histogram, total, 0.50));
+        stats.put("onDemandP99Millis", percentile(histogram, total, 0.99));
+        stats.put("timeBudgetMillis", TimeUnit.NANOSECONDS.toMillis(timeBudgetNanos));
+        Catalog current = catalog;
+        stats.put("catalogTracks", current != null ? current.ids.length : 0);
+        return stats;
+    }
+
+    // The first caller loads the catalog summary; it is not counted against the time budget
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            synchronized (this) {
+                if (catalog == null) {
+                    refreshCatalog();
+                }
+                current = catalog;
+            }
+        }
+        return current;
+    }
+
+    private Feed build(Long customerId, long deadline) {
+        Catalog current = catalog();
+
+        List<Long> owned = entitlementService.getOwnedMusicIds(customerId);
+        List<Long> liked = reviewRepository.findMusicIdsRatedAtLeast(customerId, 4);
+        // Tracks the customer owns or has already reviewed are never recommended
+        BitSet excluded = new BitSet();
+        for (Long musicId : owned) {
+            if (musicId >= 0 && musicId <= Integer.MAX_VALUE) {
+                excluded.set(musicId.intValue());
+            }
+        }
+        for (Long musicId : liked) {
+            if (musicId >= 0 && musicId <= Integer.MAX_VALUE) {
+                excluded.set(musicId.intValue());
+            }
+        }
+
+        // Most recent likes first, then purchases with the newest tracks first
+        Map<Long, Double> seeds = new LinkedHashMap<>();
+        for (Long musicId : liked) {
+            if (seeds.size() < MAX_SEEDS) {
+                seeds.put(musicId, LIKED_WEIGHT);
+            }
+        }
+        for (int i = owned.size() - 1; i >= 0 && seeds.size() < MAX_SEEDS; i--) {
+            seeds.putIfAbsent(owned.get(i), OWNED_WEIGHT);
+        }
+
+        Candidates candidates = new Candidates(excluded);
+        Map<Integer, Double> artistAffinity = new HashMap<>();
+        Map<Integer, Double> genreAffinity = new HashMap<>();
+        for (Map.Entry<Long, Double> seed : seeds.entrySet()) {
+            int row = current.rowOf(seed.getKey());
+            if (row >= 0) {
+                artistAffinity.merge(current.artistOf[row], seed.getValue(), Double::sum);
+                if (current.genreOf[row] >= 0) {
+                    genreAffinity.merge(current.genreOf[row], seed.getValue(), Double::sum);
+                }
+            }
+        }
+
+        boolean partial = false;
+        for (Map.Entry<Long, Double> seed : seeds.entrySet()) {
+            if (System.nanoTime() > deadline) {
+                partial = true;
+                break;
+            }
+            List<Long> neighbours = coPurchaseService.alsoBought(seed.getKey(), NEIGHBOURS_PER_SEED);
+            candidates.addRanked(neighbours, CO_PURCHASE_WEIGHT * seed.getValue());
+        }
+        if (!partial) {
+            for (Long musicId : liked) {
+                if (System.nanoTime() > deadline) {
+                    partial = true;
+                    break;
+                }
+                List<Long> neighbours = acousticSimilarityService.findSimilar(musicId, NEIGHBOURS_PER_SEED);
+                candidates.addRanked(neighbours, ACOUSTIC_WEIGHT * LIKED_WEIGHT);
+            }
+        }
+
+        // Metadata sources are in memory and always fit the budget
+        addAffinityTracks(candidates, artistAffinity, TOP_ARTISTS, TRACKS_PER_ARTIST, current.tracksByArtist,
+                ARTIST_WEIGHT, current);
+        addAffinityTracks(candidates, genreAffinity, TOP_GENRES, TRACKS_PER_GENRE, current.tracksByGenre,
+                GENRE_WEIGHT, current);
+        if (seeds.isEmpty()) {
+            // Cold start: best rated tracks across the catalog
+            int[] top = current.topRated;
+            for (int i = 0; i < top.length; i++) {
+                candidates.add(current.ids[top[i]], 1.0 - (double) i / top.length);
+            }
+        }
+
+        if (partial) {
+            partialFeeds.increment();
+        }
+        return new Feed(candidates.top(MAX_FEED_SIZE), Instant.now(), partial);
+    }
+
+    private static void addAffinityTracks(Candidates candidates, Map<Integer, Double> affinity, int groups,
+                                          int perGroup, int[][] tracksByGroup, double weight, Catalog catalog) {
+        if (affinity.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(affinity.entrySet());
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        double strongest = ranked.get(0).getValue();
+        for (int g = 0; g < Math.min(groups, ranked.size()); g++) {
+            double share = ranked.get(g).getValue() / strongest;
+            int[] rows = tracksByGroup[ranked.get(g).getKey()];
+            for (int i = 0; i < Math.min(perGroup, rows.length); i++) {
+                int row = rows[i];
+                candidates.add(catalog.ids[row], weight * share * (0.5 + catalog.rating[row] / 10.0));
+            }
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        int bucket = (int) Math.min(LATENCY_BUCKETS - 1, TimeUnit.NANOSECONDS.toMillis(nanos));
+        latencyMillis.incrementAndGet(bucket);
+    }
+
+    private static long percentile(long[] histogram, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return i;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    /**
+     * @param precomputed whether the feed came from the background precompute rather than this request
+     * @param partial     whether the time budget cut candidate generation short
+     */
+    public record FeedPage(List<Long> musicIds, Instant computedAt, boolean precomputed, boolean partial) {
+    }
+
+    private record Feed(List<Long> musicIds, Instant computedAt, boolean partial) {
+    }
+
+    // Accumulates scores per candidate, skipping excluded tracks
+    private static final class Candidates {
+        private final BitSet excluded;
+        private final Map<Long, Double> scores = new HashMap<>();
+
+        Candidates(BitSet excluded) {
+            this.excluded = excluded;
+        }
+
+        void add(long musicId, double score) {
+            if (musicId >= 0 && musicId <= Integer.MAX_VALUE && excluded.get((int) musicId)) {
+                return;
+            }
+            scores.merge(musicId, score, Double::sum);
+        }
+
+        // Earlier entries of a ranked list count more
+        void addRanked(List<Long> musicIds, double weight) {
+            for (int i = 0; i < musicIds.size(); i++) {
+                add(musicIds.get(i), weight * (1.0 - (double) i / (musicIds.size() + 1)));
+            }
+        }
+
+        List<Long> top(int limit) {
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<Long> result = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < Math.min(limit, ranked.size()); i++) {
+                result.add(ranked.get(i).getKey());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Immutable artist/genre summary of the catalog with tracks pre-sorted by rating.
+     */
+    private static final class Catalog {
+        private static final int TOP_RATED = 100;
+
+        private final long[] ids;
+        private final int[] artistOf;
+        private final int[] genreOf;
+        private final float[] rating;
+        private final int[][] tracksByArtist;
+        private final int[][] tracksByGenre;
+        private final int[] topRated;
+
+        private Catalog(long[] ids, int[] artistOf, int[] genreOf, float[] rating,
+                        int[][] tracksByArtist, int[][] tracksByGenre, int[] topRated) {
+            this.ids = ids;
+            this.artistOf = artistOf;
+            this.genreOf = genreOf;
+            this.rating = rating;
+            this.tracksByArtist = tracksByArtist;
+            this.tracksByGenre = tracksByGenre;
+            this.topRated = topRated;
+        }
+
+        // Rows are (id, artistUsername, genre, averageRating) ordered by id
+        static Catalog load(List<Object[]> rows) {
+            int n = rows.size();
+            long[] ids = new long[n];
+            int[] artistOf = new int[n];
+            int[] genreOf = new int[n];
+            float[] rating = new float[n];
+            Map<String, Integer> artists = new HashMap<>();
+            Map<String, Integer> genres = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Object[] row = rows.get(i);
+                ids[i] = (Long) row[0];
+                String artist = row[1] != null ? (String) row[1] : "";
+                artistOf[i] = artists.computeIfAbsent(artist, key -> artists.size());
+                String genre = row[2] != null ? ((String) row[2]).trim().toLowerCase() : null;
+                genreOf[i] = genre == null || genre.isEmpty() ? -1 : genres.computeIfAbsent(genre, key -> genres.size());
+                rating[i] = row[3] != null ? ((BigDecimal) row[3]).floatValue() : 0f;
+            }
+
+            Integer[] byRating = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                byRating[i] = i;
+            }
+            Arrays.sort(byRating, Comparator.<Integer>comparingDouble(i -> -rating[i]).thenComparingLong(i -> ids[i]));
+
+            int[][] tracksByArtist = group(byRating, artistOf, artists.size(), Integer.MAX_VALUE);
+            int[][] tracksByGenre = group(byRating, genreOf, genres.size(), TRACKS_PER_GENRE);
+            int[] topRated = new int[Math.min(TOP_RATED, n)];
+            for (int i = 0; i < topRated.length; i++) {
+                topRated[i] = byRating[i];
+            }
+            return new Catalog(ids, artistOf, genreOf, rating, tracksByArtist, tracksByGenre, topRated);
+        }
+
+        // Rows per group in rating order, keeping at most `limit` per group
+        private static int[][] group(Integer[] byRating, int[] groupOf, int groups, int limit) {
+            int[] sizes = new int[groups];
+            for (int row : byRating) {
+                int group = groupOf[row];
+                if (group >= 0 && sizes[group] < limit) {
+                    sizes[group]++;
+                }
+            }
+            int[][] result = new int[groups][];
+            for (int g = 0; g < groups; g++) {
+                result[g] = new int[sizes[g]];
+                sizes[g] = 0;
+            }
+            for (int row : byRating) {
+                int group = groupOf[row];
+                if (group >= 0 && sizes[group] < result[group].length) {
+                    result[group][sizes[group]++] = row;
+                }
+            }
+            return result;
+        }
+
+        int rowOf(long musicId) {
+            return Arrays.binarySearch(ids, musicId);
+        }
+    }
+}
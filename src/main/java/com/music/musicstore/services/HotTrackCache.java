@@ -0,0 +1,294 @@
+package com.music.musicstore.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps memory-mapped copies of the most downloaded audio files.
+ *
+ * Every download bumps a per-track counter. A track is admitted once it has been downloaded
+ * at least {@code min-downloads} times and is hotter than the coldest cached track; the cache
+ * holds at most {@code top-n} tracks and {@code max-bytes} of mapped data, evicting the least
+ * recently served entries when the byte budget is exceeded. Counters are halved periodically so
+ * new releases can displace old hits.
+ *
+ * Each file is mapped in its own arena and unmapped explicitly once it has been evicted and the
+ * last download reading it has finished, so the budget covers every live mapping rather than
+ * relying on the garbage collector to release them. Lookups and counters are lock-free; only
+ * admission and eviction are serialized.
+ */
+@Service
+public class HotTrackCache {
+    private static final Logger logger = LoggerFactory.getLogger(HotTrackCache.class);
+
+    private static final int DISK_BUFFER_SIZE = 64 * 1024;
+    private static final long DECAY_INTERVAL = 10_000;
+
+    private final long maxBytes;
+    private final int topN;
+    private final long minDownloads;
+
+    private final Map<Long, Long> downloadCounts = new ConcurrentHashMap<>();
+    private final AtomicLong downloadsSinceDecay = new AtomicLong();
+
+    private final Map<Long, CachedTrack> entries = new ConcurrentHashMap<>();
+    // Orders entries by when they were last served
+    private final AtomicLong accessClock = new AtomicLong();
+    // Bytes of all live mappings, including evicted ones still being read
+    private final AtomicLong mappedBytes = new AtomicLong();
+    private final Object admissionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesFromCache = new LongAdder();
+    private final LongAdder bytesFromDisk = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotTrackCache(@Value("${musicstore.download.cache.max-bytes:268435456}") long maxBytes,
+                         @Value("${musicstore.download.cache.top-n:32}") int topN,
+                         @Value("${musicstore.download.cache.min-downloads:2}") long minDownloads) {
+        this.maxBytes = maxBytes;
+        this.topN = topN;
+        this.minDownloads = minDownloads;
+        logger.info("HotTrackCache initialized with budget {} bytes, top {} tracks", maxBytes, topN);
+    }
+
+    /**
+     * Writes the audio file to the given stream, from the mapping when the track is hot.
+     */
+    public void transferTo(Long musicId, Path file, OutputStream out) throws IOException {
+        long downloads = recordDownload(musicId);
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        CachedTrack cached = lookup(musicId, file, size, modified);
+        if (cached == null && downloads >= minDownloads && size <= maxBytes && size <= Integer.MAX_VALUE) {
+            cached = admit(musicId, file, size, modified, downloads);
+        }
+
+        if (cached != null) {
+            try {
+                hits.increment();
+                writeBuffer(cached.segment.asByteBuffer(), out);
+                bytesFromCache.add(size);
+                return;
+            } finally {
+                cached.release();
+            }
+        }
+
+        misses.increment();
+        long written = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[DISK_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+                written += bytesRead;
+            }
+        } finally {
+            bytesFromDisk.add(written);
+        }
+    }
+
+    public void invalidate(Long musicId) {
+        CachedTrack removed = entries.remove(musicId);
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedTracks", entries.size());
+        stats.put("cachedBytes", entries.values().stream().mapToLong(CachedTrack::size).sum());
+        stats.put("mappedBytes", mappedBytes.get());
+        stats.put("cachedTrackIds", entries.keySet().stream().toList());
+        stats.put("maxBytes", maxBytes);
+        stats.put("topN", topN);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("bytesFromCache", bytesFromCache.sum());
+        stats.put("bytesFromDisk", bytesFromDisk.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("trackedTracks", downloadCounts.size());
+        return stats;
+    }
+
+    private long recordDownload(Long musicId) {
+        long count = downloadCounts.merge(musicId, 1L, Long::sum);
+        if (downloadsSinceDecay.incrementAndGet() % DECAY_INTERVAL == 0) {
+            decayCounts();
+        }
+        return count;
+    }
+
+    // Halve all counters so popularity reflects recent traffic; each update is atomic per track
+    private void decayCounts() {
+        for (Long musicId : downloadCounts.keySet()) {
+            downloadCounts.computeIfPresent(musicId, (id, count) -> count > 1 ? count / 2 : null);
+        }
+    }
+
+    private long downloadsOf(Long musicId) {
+        return downloadCounts.getOrDefault(musicId, 0L);
+    }
+
+    // Returns the entry retained for the caller, who must release it
+    private CachedTrack lookup(Long musicId, Path file, long size, long modified) {
+        CachedTrack cached = entries.get(musicId);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.size != size || cached.lastModified != modified || !cached.path.equals(file)) {
+            if (entries.remove(musicId, cached)) {
+                cached.release();
+            }
+            return null;
+        }
+        if (!cached.retain()) {
+            // Evicted and released between the get and the retain
+            return null;
+        }
+        cached.lastAccess = accessClock.incrementAndGet();
+        return cached;
+    }
+
+    private CachedTrack admit(Long musicId, Path file, long size, long modified, long downloads) {
+        synchronized (admissionLock) {
+            CachedTrack existing = entries.get(musicId);
+            if (existing != null) {
+                return existing.retain() ? existing : null;
+            }
+
+            if (entries.size() >= topN) {
+                Long coldest = null;
+                long coldestCount = Long.MAX_VALUE;
+                for (Long cachedId : entries.keySet()) {
+                    long count = downloadsOf(cachedId);
+                    if (count < coldestCount) {
+                        coldest = cachedId;
+                        coldestCount = count;
+                    }
+                }
+                if (coldest == null || coldestCount >= downloads) {
+                    return null;
+                }
+                evict(coldest);
+            }
+
+            while (mappedBytes.get() + size > maxBytes && !entries.isEmpty()) {
+                evict(leastRecentlyServed());
+            }
+            if (mappedBytes.get() + size > maxBytes) {
+                // Evicted mappings are still being read; admit on a later download
+                return null;
+            }
+
+            Arena arena = Arena.ofShared();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+                CachedTrack cached = new CachedTrack(file, arena, segment, size, modified);
+                cached.lastAccess = accessClock.incrementAndGet();
+                mappedBytes.addAndGet(size);
+                entries.put(musicId, cached);
+                cached.retain();
+                logger.info("Mapped hot track {} ({} bytes, {} downloads)", musicId, size, downloads);
+                return cached;
+            } catch (IOException e) {
+                arena.close();
+                logger.warn("Failed to map audio file {} for music id {}: {}", file, musicId, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private Long leastRecentlyServed() {
+        Long victim = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<Long, CachedTrack> entry : entries.entrySet()) {
+            if (entry.getValue().lastAccess < oldest) {
+                victim = entry.getKey();
+                oldest = entry.getValue().lastAccess;
+            }
+        }
+        return victim;
+    }
+
+    private void evict(Long musicId) {
+        CachedTrack removed = entries.remove(musicId);
+        if (removed != null) {
+            removed.release();
+            evictions.increment();
+        }
+    }
+
+    private static void writeBuffer(ByteBuffer buffer, OutputStream out) throws IOException {
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private final class CachedTrack {
+        private final Path path;
+        private final Arena arena;
+        private final MemorySegment segment;
+        private final long size;
+        private final long lastModified;
+        // One reference held by the cache plus one per download reading the mapping
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile long lastAccess;
+
+        private CachedTrack(Path path, Arena arena, MemorySegment segment, long size, long lastModified) {
+            this.path = path;
+            this.arena = arena;
+            this.segment = segment;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        long size() {
+            return size;
+        }
+
+        boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                arena.close();
+                mappedBytes.addAndGet(-size);
+            }
+        }
+    }
+}
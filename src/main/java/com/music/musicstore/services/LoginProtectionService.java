@@ -0,0 +1,172 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ServiceUnavailableException;
+import com.music.musicstore.exceptions.TooManyRequestsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps login storms from affecting the rest of the API.
+ *
+ * Password checks run on the bounded passwordHashingExecutor instead of Tomcat workers, and a
+ * full queue fails fast with 503 rather than queueing without limit. Before any hashing, each
+ * client address is limited to {@code max-attempts-per-ip} attempts and each username to
+ * {@code max-failures-per-username} failed attempts per sliding window; a successful login clears
+ * the username's failures. Counters are lock-free and idle ones are dropped periodically. The
+ * number of tracked keys is capped, so a flood of distinct addresses stops being tracked rather
+ * than exhausting memory; the executor bound still applies to it.
+ */
+@Service
+public class LoginProtectionService {
+    private static final Logger logger = LoggerFactory.getLogger(LoginProtectionService.class);
+
+    private static final int WINDOW_BUCKETS = 6;
+
+    private final ThreadPoolExecutor executor;
+    private final long windowMs;
+    private final int maxAttemptsPerIp;
+    private final int maxFailuresPerUsername;
+    private final int maxTrackedKeys;
+
+    private final Map<String, SlidingWindowCounter> attemptsByIp = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter> failuresByUsername = new ConcurrentHashMap<>();
+    private final LongAdder throttledByIp = new LongAdder();
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder hashingNanos = new LongAdder();
+    private final LongAccumulator maxHashingNanos = new LongAccumulator(Math::max, 0);
+
+    public LoginProtectionService(@Qualifier("passwordHashingExecutor") ThreadPoolExecutor executor,
+                                  @Value("${musicstore.auth.throttle.window-ms:60000}") long windowMs,
+                                  @Value("${musicstore.auth.throttle.max-attempts-per-ip:20}") int maxAttemptsPerIp,
+                                  @Value("${musicstore.auth.throttle.max-failures-per-username:5}") int maxFailuresPerUsername,
+                                  @Value("${musicstore.auth.throttle.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.executor = executor;
+        this.windowMs = windowMs;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxTrackedKeys = maxTrackedKeys;
+        logger.info("LoginProtectionService initialized successfully");
+    }
+
+    /**
+     * Counts a login attempt from the address and rejects it if the address or the username is over
+     * its limit.
+     *
+     * @throws TooManyRequestsException with the time after which a retry may succeed
+     */
+    public void checkAllowed(String clientIp, String username) {
+        long now = System.currentTimeMillis();
+        SlidingWindowCounter ipAttempts = counter(attemptsByIp, clientIp);
+        if (ipAttempts != null && ipAttempts.incrementAndGet(now) > maxAttemptsPerIp) {
+            throttledByIp.increment();
+            throw new TooManyRequestsException("Too many login attempts, please try again later",
+                    retryAfterSeconds(ipAttempts, now));
+        }
+        SlidingWindowCounter usernameFailures = failuresByUsername.get(normalize(username));
+        if (usernameFailures != null && usernameFailures.count(now) >= maxFailuresPerUsername) {
+            throttledByUsername.increment();
+            throw new TooManyRequestsException("Too many failed logins for this account, please try again later",
+                    retryAfterSeconds(usernameFailures, now));
+        }
+    }
+
+    public void recordFailure(String username) {
+        SlidingWindowCounter failures = counter(failuresByUsername, normalize(username));
+        if (failures != null) {
+            failures.incrementAndGet(System.currentTimeMillis());
+        }
+    }
+
+    public void recordSuccess(String username) {
+        failuresByUsername.remove(normalize(username));
+    }
+
+    /**
+     * Runs a login on the hashing executor.
+     *
+     * @throws ServiceUnavailableException if the executor's queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> login) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startNanos = System.nanoTime();
+                try {
+                    return login.get();
+                } finally {
+                    long elapsed = System.nanoTime() - startNanos;
+                    hashingNanos.add(elapsed);
+                    maxHashingNanos.accumulate(elapsed);
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Login is busy, please try again shortly", 1);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${musicstore.auth.throttle.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        attemptsByIp.values().removeIf(counter -> counter.count(now) == 0);
+        failuresByUsername.values().removeIf(counter -> counter.count(now) == 0);
+    }
+
+    public Map<String, Object> getStats() {
+        long completedLogins = completed.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hashingThreads", executor.getMaximumPoolSize());
+        stats.put("activeHashing", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completed", completedLogins);
+        stats.put("rejected", rejected.sum());
+        stats.put("averageHashingMs", completedLogins > 0 ? hashingNanos.sum() / completedLogins / 1_000_000.0 : 0.0);
+        stats.put("maxHashingMs", maxHashingNanos.get() / 1_000_000.0);
+        stats.put("throttledByIp", throttledByIp.sum());
+        stats.put("throttledByUsername", throttledByUsername.sum());
+        stats.put("trackedIps", attemptsByIp.size());
+        stats.put("trackedUsernames", failuresByUsername.size());
+        return stats;
+    }
+
+    private SlidingWindowCounter counter(Map<String, SlidingWindowCounter> counters, String key) {
+        if (key == null) {
+            return null;
+        }
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter == null && counters.size() < maxTrackedKeys) {
+            counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter(windowMs, WINDOW_BUCKETS));
+        }
+        return counter;
+    }
+
+    private static long retryAfterSeconds(SlidingWindowCounter counter, long now) {
+        return Math.max(1, (counter.millisUntilOldestExpires(now) + 999) / 1000);
+    }
+
+    private static String normalize(String username) {
+        if (username == null || username.isBlank()) {
+            return null;
+        }
+        String normalized = username.trim().toLowerCase(Locale.ROOT);
+        return normalized.length() > 100 ? normalized.substring(0, 100) : normalized;
+    }
+}
@@ -0,0 +1,190 @@
+package com.music.musicstore.services;
+
+/**
+ * Streaming integrated loudness meter after ITU-R BS.1770-4.
+ *
+ * Samples are K-weighted per channel and summed into 100 ms sub-blocks; every four consecutive
+ * sub-blocks form one 400 ms gating block (75% overlap). Instead of keeping every block, block
+ * energies are accumulated into a histogram of 0.1 LU bins, so memory stays constant however long
+ * the track is while the absolute (-70 LUFS) and relative (-10 LU) gates can still be applied at
+ * the end. Channels are weighted equally, which is exact for mono and stereo.
+ */
+public final class LoudnessMeter {
+
+    private static final double ABSOLUTE_GATE_LUFS = -70.0;
+    private static final double RELATIVE_GATE_LU = -10.0;
+    private static final double HISTOGRAM_MAX_LUFS = 10.0;
+    private static final double BIN_WIDTH_LU = 0.1;
+    private static final int BIN_COUNT = (int) Math.round((HISTOGRAM_MAX_LUFS - ABSOLUTE_GATE_LUFS) / BIN_WIDTH_LU);
+    private static final int SUB_BLOCKS_PER_BLOCK = 4;
+
+    private final int channels;
+    private final int hopFrames;
+    private final Biquad[] shelf;
+    private final Biquad[] highPass;
+
+    private final double[] subBlocks = new double[SUB_BLOCKS_PER_BLOCK];
+    private int subBlockCount;
+    private double currentEnergy;
+    private int currentFrames;
+
+    private final long[] binCounts = new long[BIN_COUNT];
+    private final double[] binEnergies = new double[BIN_COUNT];
+    private float peak;
+    private long frames;
+
+    public LoudnessMeter(float sampleRate, int channels) {
+        this.channels = channels;
+        this.hopFrames = Math.max(1, Math.round(sampleRate / 10));
+        this.shelf = new Biquad[channels];
+        this.highPass = new Biquad[channels];
+        for (int c = 0; c < channels; c++) {
+            shelf[c] = Biquad.highShelf(sampleRate);
+            highPass[c] = Biquad.highPass(sampleRate);
+        }
+    }
+
+    /**
+     * Adds {@code frameCount} frames of interleaved samples in [-1, 1].
+     */
+    public void add(float[] interleaved, int frameCount) {
+        int index = 0;
+        for (int f = 0; f < frameCount; f++) {
+            double sum = 0;
+            for (int c = 0; c < channels; c++) {
+                float sample = interleaved[index++];
+                float magnitude = Math.abs(sample);
+                if (magnitude > peak) {
+                    peak = magnitude;
+                }
+                double weighted = highPass[c].process(shelf[c].process(sample));
+                sum += weighted * weighted;
+            }
+            currentEnergy += sum;
+            if (++currentFrames == hopFrames) {
+                completeSubBlock();
+            }
+        }
+        frames += frameCount;
+    }
+
+    /**
+     * Gated integrated loudness in LUFS, or null when no block is above the absolute gate (silence).
+     */
+    public Double getIntegratedLoudness() {
+        long count = 0;
+        double energy = 0;
+        for (int bin = 0; bin < BIN_COUNT; bin++) {
+            count += binCounts[bin];
+            energy += binEnergies[bin];
+        }
+        if (count == 0) {
+            return null;
+        }
+        double relativeGate = toLoudness(energy / count) + RELATIVE_GATE_LU;
+
+        count = 0;
+        energy = 0;
+        for (int bin = Math.max(0, binOf(relativeGate)); bin < BIN_COUNT; bin++) {
+            count += binCounts[bin];
+            energy += binEnergies[bin];
+        }
+        return count == 0 ? null : toLoudness(energy / count);
+    }
+
+    /**
+     * Largest absolute sample value seen, in [0, 1].
+     */
+    public float getSamplePeak() {
+        return peak;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    private void completeSubBlock() {
+        System.arraycopy(subBlocks, 1, subBlocks, 0, SUB_BLOCKS_PER_BLOCK - 1);
+        subBlocks[SUB_BLOCKS_PER_BLOCK - 1] = currentEnergy;
+        currentEnergy = 0;
+        currentFrames = 0;
+        if (++subBlockCount < SUB_BLOCKS_PER_BLOCK) {
+            return;
+        }
+
+        double blockEnergy = 0;
+        for (double subBlock : subBlocks) {
+            blockEnergy += subBlock;
+        }
+        double meanSquare = blockEnergy / (SUB_BLOCKS_PER_BLOCK * (double) hopFrames);
+        double loudness = toLoudness(meanSquare);
+        if (loudness < ABSOLUTE_GATE_LUFS) {
+            return;
+        }
+        int bin = Math.min(BIN_COUNT - 1, binOf(loudness));
+        binCounts[bin]++;
+        binEnergies[bin] += meanSquare;
+    }
+
+    private static int binOf(double loudness) {
+        return (int) Math.floor((loudness - ABSOLUTE_GATE_LUFS) / BIN_WIDTH_LU);
+    }
+
+    private static double toLoudness(double meanSquare) {
+        return -0.691 + 10 * Math.log10(meanSquare);
+    }
+
+    // Second-order section in transposed direct form II
+    private static final class Biquad {
+        private final double b0;
+        private final double b1;
+        private final double b2;
+        private final double a1;
+        private final double a2;
+        private double z1;
+        private double z2;
+
+        private Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = b0;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.a1 = a1;
+            this.a2 = a2;
+        }
+
+        // Stage 1 of the K-weighting curve, derived for any sample rate from the 48 kHz reference
+        static Biquad highShelf(double sampleRate) {
+            double f0 = 1681.974450955533;
+            double gain = 3.999843853973347;
+            double q = 0.7071752369554196;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double vh = Math.pow(10.0, gain / 20.0);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1.0 + k / q + k * k;
+            return new Biquad(
+                    (vh + vb * k / q + k * k) / a0,
+                    2.0 * (k * k - vh) / a0,
+                    (vh - vb * k / q + k * k) / a0,
+                    2.0 * (k * k - 1.0) / a0,
+                    (1.0 - k / q + k * k) / a0);
+        }
+
+        // Stage 2 of the K-weighting curve (RLB high-pass)
+        static Biquad highPass(double sampleRate) {
+            double f0 = 38.13547087602444;
+            double q = 0.5003270373238773;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double a0 = 1.0 + k / q + k * k;
+            return new Biquad(1.0, -2.0, 1.0,
+                    2.0 * (k * k - 1.0) / a0,
+                    (1.0 - k / q + k * k) / a0);
+        }
+
+        double process(double x) {
+            double y = b0 * x + z1;
+            z1 = b1 * x - a1 * y + z2;
+            z2 = b2 * x - a2 * y;
+            return y;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.BusinessRuleException;
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures integrated loudness and sample peak per track and stores ReplayGain-style gain values
+ * on Music so players can normalize playback.
+ *
+ * The catalog job runs on the audio fork-join pool and only picks up tracks that have not been
+ * analyzed yet. Each result is written as soon as its track finishes, so a job that is interrupted
+ * (or a restart) simply resumes with the remaining tracks the next time it is started.
+ *
+ * Failures are counted per track, and a track that has failed {@code musicstore.loudness.max-failures}
+ * times is no longer picked up by the catalog job, so an unreadable file does not cost a decode
+ * attempt on every run. A full reanalysis still includes it, and a success resets the count.
+ */
+@Service
+public class LoudnessService {
+    private static final Logger logger = LoggerFactory.getLogger(LoudnessService.class);
+
+    private static final int READ_FRAMES = 8192;
+
+    private final MusicRepository musicRepository;
+    private final AudioFileResolver audioFileResolver;
+    private final ForkJoinPool audioProcessingPool;
+    private final double referenceLufs;
+    private final int maxFailures;
+
+    private volatile MusicBatchTask currentJob;
+
+    @Autowired
+    public LoudnessService(MusicRepository musicRepository,
+                           AudioFileResolver audioFileResolver,
+                           @Qualifier("audioProcessingPool") ForkJoinPool audioProcessingPool,
+                           @Value("${musicstore.loudness.reference-lufs:-18}") double referenceLufs,
+                           @Value("${musicstore.loudness.max-failures:3}") int maxFailures) {
+        this.musicRepository = musicRepository;
+        this.audioFileResolver = audioFileResolver;
+        this.audioProcessingPool = audioProcessingPool;
+        this.referenceLufs = referenceLufs;
+        this.maxFailures = maxFailures;
+        logger.info("LoudnessService initialized successfully");
+    }
+
+    /**
+     * Analyzes a single track and stores the result, replacing any previous measurement.
+     */
+    public void analyze(Long musicId) throws IOException {
+        Music music = musicRepository.findById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", musicId.toString()));
+        Path audioFile = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio file", musicId.toString()));
+
+        long start = System.nanoTime();
+        LoudnessMeter meter;
+        try (PcmStreamReader reader = PcmStreamReader.open(audioFile)) {
+            meter = new LoudnessMeter(reader.getSampleRate(), reader.getChannels());
+            float[] samples = new float[READ_FRAMES * reader.getChannels()];
+            int frames;
+            while ((frames = reader.read(samples)) > 0) {
+                meter.add(samples, frames);
+            }
+        }
+
+        Double loudness = meter.getIntegratedLoudness();
+        double peak = meter.getSamplePeak();
+        // Silent tracks get no gain rather than an absurd boost
+        double gain = loudness != null ? referenceLufs - loudness : 0.0;
+        musicRepository.updateLoudness(musicId, loudness, peak, gain, LocalDateTime.now());
+
+        logger.debug("Measured music id {}: {} LUFS, peak {}, gain {} dB ({} frames in {} ms)",
+                musicId, loudness, peak, gain, meter.getFrames(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Starts loudness analysis on the audio fork-join pool. Only tracks without a measurement are
+     * queued unless {@code reanalyze} is set.
+     */
+    public synchronized Map<String, Object> startCatalogAnalysis(boolean reanalyze) {
+        if (currentJob != null && !currentJob.isDone()) {
+            throw new BusinessRuleException("Loudness analysis is already running");
+        }
+        List<Long> musicIds = reanalyze
+                ? musicRepository.findAllIds()
+                : musicRepository.findIdsPendingLoudnessAnalysis(maxFailures);
+        MusicBatchTask job = new MusicBatchTask("loudness-analysis", musicIds, this::analyzeCountingFailures);
+        currentJob = job;
+        audioProcessingPool.execute(job);
+        logger.info("Started loudness analysis for {} tracks", musicIds.size());
+        return job.getProgress().toMap();
+    }
+
+    // The batch task logs and counts the failure; the stored count is what keeps later runs off the track
+    private void analyzeCountingFailures(Long musicId) throws IOException {
+        try {
+            analyze(musicId);
+        } catch (IOException | RuntimeException e) {
+            musicRepository.recordLoudnessFailure(musicId);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getCatalogAnalysisStatus() {
+        MusicBatchTask job = currentJob;
+        Map<String, Object> status;
+        if (job == null) {
+            status = new HashMap<>();
+            status.put("job", "loudness-analysis");
+            status.put("complete", false);
+            status.put("started", false);
+        } else {
+            status = job.getProgress().toMap();
+        }
+        status.put("referenceLufs", referenceLufs);
+        status.put("maxFailures", maxFailures);
+        return status;
+    }
+}
@@ -0,0 +1,271 @@
+package com.music.musicstore.services;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Splits an MP3 file into segments of roughly equal duration along MPEG audio frame boundaries.
+ *
+ * Only frame headers are parsed; a segment is the byte range of consecutive whole frames, so any
+ * segment can be decoded on its own. Leading ID3v2 tags and trailing non-audio data are skipped.
+ */
+public final class Mp3FrameIndex {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // How far to look for the next frame sync after garbage before giving up
+    private static final int MAX_RESYNC_BYTES = 64 * 1024;
+
+    private static final int[][] BITRATES_V1 = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},   // Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},      // Layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}        // Layer III
+    };
+    private static final int[][] BITRATES_V2 = {
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},      // Layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},           // Layer II
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}            // Layer III
+    };
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},   // MPEG 2.5
+            {0, 0, 0},              // reserved
+            {22050, 24000, 16000},  // MPEG 2
+            {44100, 48000, 32000}   // MPEG 1
+    };
+
+    private final long[] segmentOffsets;
+    private final double[] segmentDurations;
+    private final int sampleRate;
+    private final double totalDuration;
+
+    private Mp3FrameIndex(long[] segmentOffsets, double[] segmentDurations, int sampleRate, double totalDuration) {
+        this.segmentOffsets = segmentOffsets;
+        this.segmentDurations = segmentDurations;
+        this.sampleRate = sampleRate;
+        this.totalDuration = totalDuration;
+    }
+
+    public static Mp3FrameIndex scan(Path file, double segmentSeconds) throws IOException {
+        long[] offsets = new long[64];
+        double[] durations = new double[64];
+        int segments = 0;
+        int sampleRate = 0;
+        double total = 0;
+        double current = 0;
+
+        try (InputStream raw = Files.newInputStream(file);
+             PositionedInput in = new PositionedInput(new BufferedInputStream(raw, READ_BUFFER_SIZE))) {
+            skipId3v2(in);
+            long segmentStart = -1;
+            long lastFrameEnd = 0;
+            byte[] header = new byte[4];
+            while (true) {
+                long frameStart = findFrame(in, header);
+                if (frameStart < 0) {
+                    break;
+                }
+                int h = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+                int frameLength = frameLength(h);
+                int rate = sampleRate(h);
+                double frameDuration = (double) samplesPerFrame(h) / rate;
+                if (sampleRate == 0) {
+                    sampleRate = rate;
+                }
+
+                if (segmentStart < 0) {
+                    segmentStart = frameStart;
+                }
+                if (!in.skip(frameLength - 4)) {
+                    // Truncated final frame: keep what we have and stop
+                    break;
+                }
+                lastFrameEnd = in.position;
+                current += frameDuration;
+                total += frameDuration;
+
+                if (current >= segmentSeconds) {
+                    if (segments + 1 >= offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        durations = Arrays.copyOf(durations, durations.length * 2);
+                    }
+                    offsets[segments] = segmentStart;
+                    durations[segments] = current;
+                    segments++;
+                    segmentStart = -1;
+                    current = 0;
+                }
+            }
+            if (segmentStart >= 0 && current > 0) {
+                if (segments + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length + 1);
+                    durations = Arrays.copyOf(durations, durations.length + 1);
+                }
+                offsets[segments] = segmentStart;
+                durations[segments] = current;
+                segments++;
+            }
+            if (segments == 0) {
+                throw new IOException("No MPEG audio frames found in " + file.getFileName());
+            }
+            // Closing offset so every segment is [offsets[i], offsets[i + 1])
+            offsets[segments] = lastFrameEnd;
+        }
+
+        return new Mp3FrameIndex(Arrays.copyOf(offsets, segments + 1), Arrays.copyOf(durations, segments),
+                sampleRate, total);
+    }
+
+    public int getSegmentCount() {
+        return segmentDurations.length;
+    }
+
+    public long getSegmentStart(int segment) {
+        return segmentOffsets[segment];
+    }
+
+    public long getSegmentEnd(int segment) {
+        return segmentOffsets[segment + 1];
+    }
+
+    public double getSegmentDuration(int segment) {
+        return segmentDurations[segment];
+    }
+
+    public double getMaxSegmentDuration() {
+        double max = 0;
+        for (double duration : segmentDurations) {
+            max = Math.max(max, duration);
+        }
+        return max;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public double getTotalDuration() {
+        return totalDuration;
+    }
+
+    private static void skipId3v2(PositionedInput in) throws IOException {
+        byte[] tag = in.peek(10);
+        if (tag.length == 10 && tag[0] == 'I' && tag[1] == 'D' && tag[2] == '3') {
+            int size = ((tag[6] & 0x7F) << 21) | ((tag[7] & 0x7F) << 14) | ((tag[8] & 0x7F) << 7) | (tag[9] & 0x7F);
+            boolean footer = (tag[5] & 0x10) != 0;
+            in.skip(10 + size + (footer ? 10 : 0));
+        }
+    }
+
+    // Reads up to the next valid frame header into the buffer and returns its offset, or -1 at the end
+    private static long findFrame(PositionedInput in, byte[] header) throws IOException {
+        long searchStart = in.position;
+        while (in.position - searchStart <= MAX_RESYNC_BYTES) {
+            int b = in.read();
+            if (b < 0) {
+                return -1;
+            }
+            if (b != 0xFF) {
+                continue;
+            }
+            long start = in.position - 1;
+            byte[] rest = in.peek(3);
+            if (rest.length < 3) {
+                return -1;
+            }
+            int h = 0xFF000000 | ((rest[0] & 0xFF) << 16) | ((rest[1] & 0xFF) << 8) | (rest[2] & 0xFF);
+            if (isValidHeader(h)) {
+                in.skip(3);
+                header[0] = (byte) 0xFF;
+                header[1] = rest[0];
+                header[2] = rest[1];
+                header[3] = rest[2];
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isValidHeader(int h) {
+        int sync = (h >>> 21) & 0x7FF;
+        int version = (h >>> 19) & 0x3;
+        int layer = (h >>> 17) & 0x3;
+        int bitrateIndex = (h >>> 12) & 0xF;
+        int sampleRateIndex = (h >>> 10) & 0x3;
+        return sync == 0x7FF && version != 1 && layer != 0 && bitrateIndex != 0 && bitrateIndex != 15
+                && sampleRateIndex != 3;
+    }
+
+    private static int frameLength(int h) {
+        int version = (h >>> 19) & 0x3;
+        int layer = 4 - ((h >>> 17) & 0x3); // 1, 2 or 3
+        int bitrateIndex = (h >>> 12) & 0xF;
+        int padding = (h >>> 9) & 0x1;
+        int bitrate = (version == 3 ? BITRATES_V1 : BITRATES_V2)[layer - 1][bitrateIndex] * 1000;
+        int rate = sampleRate(h);
+        if (layer == 1) {
+            return (12 * bitrate / rate + padding) * 4;
+        }
+        int coefficient = (layer == 3 && version != 3) ? 72 : 144;
+        return coefficient * bitrate / rate + padding;
+    }
+
+    private static int sampleRate(int h) {
+        return SAMPLE_RATES[(h >>> 19) & 0x3][(h >>> 10) & 0x3];
+    }
+
+    private static int samplesPerFrame(int h) {
+        int version = (h >>> 19) & 0x3;
+        int layer = 4 - ((h >>> 17) & 0x3);
+        if (layer == 1) {
+            return 384;
+        }
+        if (layer == 3 && version != 3) {
+            return 576;
+        }
+        return 1152;
+    }
+
+    private static final class PositionedInput implements AutoCloseable {
+        private final BufferedInputStream in;
+        private long position;
+
+        PositionedInput(BufferedInputStream in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        byte[] peek(int length) throws IOException {
+            in.mark(length);
+            byte[] bytes = in.readNBytes(length);
+            in.reset();
+            return bytes;
+        }
+
+        // Returns false when the stream ends before the requested number of bytes
+        boolean skip(long length) throws IOException {
+            try {
+                in.skipNBytes(length);
+            } catch (EOFException e) {
+                return false;
+            }
+            position += length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
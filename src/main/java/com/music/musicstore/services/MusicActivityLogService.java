@@ -0,0 +1,134 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.models.music.MusicActivity;
+import com.music.musicstore.repositories.MusicActivityRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists activity events to the music_activity table for period aggregates such as charts.
+ *
+ * Listeners run on request threads, so events are only queued there; a scheduled flush writes
+ * them in JDBC batches. Rows go through {@link JdbcTemplate} because the table's identity ids keep
+ * Hibernate from batching inserts. The queue is bounded: if the database falls behind, new events are dropped and
+ * counted rather than exhausting memory. Rows older than the retention period are purged daily.
+ */
+@Service
+public class MusicActivityLogService {
+    private static final Logger logger = LoggerFactory.getLogger(MusicActivityLogService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_SQL =
+            "INSERT INTO music_activity (music_id, customer_id, type, occurred_at) VALUES (?, ?, ?, ?)";
+
+    private final MusicActivityRepository musicActivityRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int bufferCapacity;
+    private final int retentionDays;
+
+    private final Queue<MusicActivity> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MusicActivityLogService(MusicActivityRepository musicActivityRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${musicstore.activity.buffer-capacity:100000}") int bufferCapacity,
+                                   @Value("${musicstore.activity.retention-days:400}") int retentionDays) {
+        this.musicActivityRepository = musicActivityRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bufferCapacity = bufferCapacity;
+        this.retentionDays = retentionDays;
+        logger.info("MusicActivityLogService initialized successfully");
+    }
+
+    @EventListener
+    public void onMusicActivity(MusicActivityEvent event) {
+        LocalDateTime occurredAt = LocalDateTime.ofInstant(event.occurredAt(), ZoneId.systemDefault());
+        for (Long musicId : event.musicIds()) {
+            if (buffered.incrementAndGet() > bufferCapacity) {
+                buffered.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            buffer.add(new MusicActivity(musicId, event.customerId(), event.type(), occurredAt));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${musicstore.activity.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<MusicActivity> batch = new ArrayList<>(BATCH_SIZE);
+        MusicActivity activity;
+        while ((activity = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(activity);
+            if (batch.size() == BATCH_SIZE) {
+                write(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @Scheduled(cron = "${musicstore.activity.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int deleted = musicActivityRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        logger.info("Purged {} activity rows older than {} days", deleted, retentionDays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("buffered", buffered.get());
+        stats.put("bufferCapacity", bufferCapacity);
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("retentionDays", retentionDays);
+        return stats;
+    }
+
+    private void write(List<MusicActivity> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, activity) -> {
+                statement.setLong(1, activity.getMusicId());
+                if (activity.getCustomerId() != null) {
+                    statement.setLong(2, activity.getCustomerId());
+                } else {
+                    statement.setNull(2, Types.BIGINT);
+                }
+                statement.setString(3, activity.getType().name());
+                statement.setTimestamp(4, Timestamp.valueOf(activity.getOccurredAt()));
+            });
+            written.add(batch.size());
+        } catch (Exception e) {
+            dropped.add(batch.size());
+            logger.error("Failed to write {} activity rows: {}", batch.size(), e.getMessage());
+        }
+    }
+}
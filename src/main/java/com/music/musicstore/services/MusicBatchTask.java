@@ -0,0 +1,100 @@
+package com.music.musicstore.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fork-join task that applies a per-track job across a list of music ids.
+ * Failures are counted and logged per track so one bad file never aborts the batch.
+ */
+public class MusicBatchTask extends RecursiveAction {
+
+    private static final Logger logger = LoggerFactory.getLogger(MusicBatchTask.class);
+
+    // Tracks are seconds-long units of work, so small leaves keep all workers busy
+    private static final int LEAF_SIZE = 2;
+
+    @FunctionalInterface
+    public interface TrackJob {
+        void process(Long musicId) throws Exception;
+    }
+
+    private final List<Long> musicIds;
+    private final int from;
+    private final int to;
+    private final TrackJob job;
+    private final Progress progress;
+
+    public MusicBatchTask(String name, List<Long> musicIds, TrackJob job) {
+        this(musicIds, 0, musicIds.size(), job, new Progress(name, musicIds.size()));
+    }
+
+    private MusicBatchTask(List<Long> musicIds, int from, int to, TrackJob job, Progress progress) {
+        this.musicIds = musicIds;
+        this.from = from;
+        this.to = to;
+        this.job = job;
+        this.progress = progress;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                Long musicId = musicIds.get(i);
+                try {
+                    job.process(musicId);
+                    progress.succeeded.increment();
+                } catch (Exception e) {
+                    progress.failed.increment();
+                    logger.warn("{} failed for music id {}: {}", progress.name, musicId, e.getMessage());
+                }
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new MusicBatchTask(musicIds, from, mid, job, progress),
+                new MusicBatchTask(musicIds, mid, to, job, progress));
+    }
+
+    public static class Progress {
+        private final String name;
+        private final int total;
+        private final Instant startedAt = Instant.now();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Progress(String name, int total) {
+            this.name = name;
+            this.total = total;
+        }
+
+        public boolean isComplete() {
+            return succeeded.sum() + failed.sum() >= total;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> status = new HashMap<>();
+            status.put("job", name);
+            status.put("total", total);
+            status.put("succeeded", succeeded.sum());
+            status.put("failed", failed.sum());
+            status.put("complete", isComplete());
+            status.put("startedAt", startedAt.toString());
+            status.put("elapsedMs", Duration.between(startedAt, Instant.now()).toMillis());
+            return status;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
@@ -32,10 +33,12 @@ public class MusicService {
     private static final Logger logger = LoggerFactory.getLogger(MusicService.class);
 
     private final MusicRepository musicRepository;
+    private final CoverThumbnailService coverThumbnailService;
 
     @Autowired
-    public MusicService(MusicRepository musicRepository) {
+    public MusicService(MusicRepository musicRepository, CoverThumbnailService coverThumbnailService) {
         this.musicRepository = musicRepository;
+        this.coverThumbnailService = coverThumbnailService;
         logger.info("MusicService initialized successfully");
     }
 
@@ -53,6 +56,9 @@ public class MusicService {
         }
 
         try {
+            if (music.getCoverHash() == null) {
+                music.setCoverHash(coverThumbnailService.hashCover(music.getImageUrl()));
+            }
             Music savedMusic = musicRepository.save(music);
             logger.info("Successfully saved music: {} (ID: {})", savedMusic.getName(), savedMusic.getId());
             return savedMusic;
@@ -149,6 +155,21 @@ public class MusicService {
         }
     }
 
+    public List<Music> getMusicByIds(Collection<Long> ids) {
+        logger.debug("Finding music by {} IDs", ids == null ? 0 : ids.size());
+
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return musicRepository.findAllById(ids);
+        } catch (Exception e) {
+            logger.error("Error finding music by IDs", e);
+            throw new RuntimeException("Failed to find music by IDs", e);
+        }
+    }
+
     public List<Music> getMusicByGenre(String genre) {
         logger.debug("Finding music by genre: {}", genre);
 
@@ -792,38 +813,6 @@ public class MusicService {
         }
     }
 
-    public List<Map<String, Object>> getTopSellingMusic(int limit) {
-        logger.debug("Getting top selling music with limit: {}", limit);
-
-        if (limit <= 0) {
-            throw new ValidationException("Limit must be positive");
-        }
-
-        try {
-            // For now, return top-rated music as we don't have sales data
-            Pageable pageable = PageRequest.of(0, limit);
-            Page<Music> topMusic = musicRepository.findAllByOrderByAverageRatingDesc(pageable);
-
-            return topMusic.getContent().stream()
-                    .map(music -> {
-                        Map<String, Object> musicData = new HashMap<>();
-                        musicData.put("id", music.getId());
-                        musicData.put("name", music.getName());
-                        musicData.put("artist", music.getArtistUsername());
-                        musicData.put("genre", music.getGenre());
-                        musicData.put("price", music.getPrice());
-                        musicData.put("averageRating", music.getAverageRating());
-                        musicData.put("totalReviews", music.getTotalReviews());
-                        musicData.put("sales", 0); // Placeholder - would need actual sales data
-                        return musicData;
-                    })
-                    .toList();
-        } catch (Exception e) {
-            logger.error("Error getting top selling music with limit: {}", limit, e);
-            throw new RuntimeException("Failed to get top selling music", e);
-        }
-    }
-
     public Map<String, Long> getMusicCountByGenre() {
         logger.debug("Getting music count by genre");
 
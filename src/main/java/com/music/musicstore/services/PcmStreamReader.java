@@ -0,0 +1,123 @@
+package com.music.musicstore.services;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming decoder that turns an audio file into 16-bit PCM frames without
+ * loading the whole track into memory. MP3 input relies on the mp3spi
+ * provider registered with javax.sound.
+ */
+public class PcmStreamReader implements Closeable {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final AudioInputStream pcmStream;
+    private final int channels;
+    private final float sampleRate;
+    private final byte[] byteBuffer;
+
+    private PcmStreamReader(AudioInputStream pcmStream) {
+        this.pcmStream = pcmStream;
+        this.channels = pcmStream.getFormat().getChannels();
+        this.sampleRate = pcmStream.getFormat().getSampleRate();
+        int frameSize = channels * 2;
+        this.byteBuffer = new byte[(READ_BUFFER_BYTES / frameSize) * frameSize];
+    }
+
+    public static PcmStreamReader open(Path audioFile) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(audioFile));
+        try {
+            AudioInputStream source = AudioSystem.getAudioInputStream(in);
+            AudioFormat sourceFormat = source.getFormat();
+            AudioFormat pcmFormat = new AudioFormat(
+                    AudioFormat.Encoding.PCM_SIGNED,
+                    sourceFormat.getSampleRate(),
+                    16,
+                    sourceFormat.getChannels(),
+                    sourceFormat.getChannels() * 2,
+                    sourceFormat.getSampleRate(),
+                    false);
+            return new PcmStreamReader(AudioSystem.getAudioInputStream(pcmFormat, source));
+        } catch (UnsupportedAudioFileException e) {
+            in.close();
+            throw new IOException("Unsupported audio format: " + audioFile.getFileName(), e);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Reads up to {@code interleaved.length / channels} frames as interleaved samples in [-1, 1].
+     * Returns the number of frames read, or -1 at end of stream.
+     */
+    public int read(float[] interleaved) throws IOException {
+        return read(interleaved, interleaved.length / channels);
+    }
+
+    private int read(float[] interleaved, int maxFrames) throws IOException {
+        int maxBytes = Math.min(byteBuffer.length, maxFrames * channels * 2);
+        int filled = 0;
+        while (filled < maxBytes) {
+            int n = pcmStream.read(byteBuffer, filled, maxBytes - filled);
+            if (n < 0) {
+                break;
+            }
+            filled += n;
+        }
+        int frames = filled / (channels * 2);
+        if (frames == 0) {
+            return -1;
+        }
+        int samples = frames * channels;
+        for (int i = 0, b = 0; i < samples; i++, b += 2) {
+            short value = (short) ((byteBuffer[b] & 0xFF) | (byteBuffer[b + 1] << 8));
+            interleaved[i] = value / 32768f;
+        }
+        return frames;
+    }
+
+    /**
+     * Reads frames downmixed to mono. Returns the number of frames read, or -1 at end of stream.
+     */
+    public int readMono(float[] mono, float[] scratch) throws IOException {
+        if (scratch.length < mono.length * channels) {
+            throw new IllegalArgumentException("Scratch buffer must hold mono.length * channels samples");
+        }
+        int frames = read(scratch, mono.length);
+        if (frames <= 0) {
+            return frames;
+        }
+        for (int f = 0; f < frames; f++) {
+            float sum = 0f;
+            int base = f * channels;
+            for (int c = 0; c < channels; c++) {
+                sum += scratch[base + c];
+            }
+            mono[f] = sum / channels;
+        }
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pcmStream.close();
+    }
+}
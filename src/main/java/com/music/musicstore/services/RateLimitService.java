@@ -0,0 +1,162 @@
+package com.music.musicstore.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets for the API's endpoint groups.
+ *
+ * Each group (search, download, auth, admin) has its own capacity and refill rate and its own map
+ * of client buckets, keyed by user once authenticated and by address otherwise. A bucket is one
+ * atomic long updated by compare-and-set (see {@link TokenBucketLimiter}) and the maps are
+ * concurrent, so clients never contend on a shared lock. Buckets that have refilled completely
+ * carry no information and are dropped periodically. The number of clients tracked per group is
+ * capped; beyond it, untracked clients share one overflow bucket, so a flood of distinct addresses
+ * is limited as a whole instead of exhausting memory.
+ */
+@Service
+public class RateLimitService {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+    public enum Group { SEARCH, DOWNLOAD, AUTH, ADMIN }
+
+    private final boolean enabled;
+    private final int maxTrackedKeys;
+    private final Map<Group, GroupLimiter> limiters = new EnumMap<>(Group.class);
+
+    public RateLimitService(@Value("${musicstore.ratelimit.enabled:true}") boolean enabled,
+                            @Value("${musicstore.ratelimit.max-tracked-keys:100000}") int maxTrackedKeys,
+                            @Value("${musicstore.ratelimit.search.capacity:60}") int searchCapacity,
+                            @Value("${musicstore.ratelimit.search.refill-per-second:20}") double searchRefill,
+                            @Value("${musicstore.ratelimit.download.capacity:20}") int downloadCapacity,
+                            @Value("${musicstore.ratelimit.download.refill-per-second:2}") double downloadRefill,
+                            @Value("${musicstore.ratelimit.auth.capacity:20}") int authCapacity,
+                            @Value("${musicstore.ratelimit.auth.refill-per-second:1}") double authRefill,
+                            @Value("${musicstore.ratelimit.admin.capacity:200}") int adminCapacity,
+                            @Value("${musicstore.ratelimit.admin.refill-per-second:50}") double adminRefill) {
+        this.enabled = enabled;
+        this.maxTrackedKeys = maxTrackedKeys;
+        limiters.put(Group.SEARCH, new GroupLimiter(new TokenBucketLimiter(searchCapacity, searchRefill)));
+        limiters.put(Group.DOWNLOAD, new GroupLimiter(new TokenBucketLimiter(downloadCapacity, downloadRefill)));
+        limiters.put(Group.AUTH, new GroupLimiter(new TokenBucketLimiter(authCapacity, authRefill)));
+        limiters.put(Group.ADMIN, new GroupLimiter(new TokenBucketLimiter(adminCapacity, adminRefill)));
+        logger.info("RateLimitService initialized successfully");
+    }
+
+    /**
+     * The group a request belongs to, or null if it is not rate limited. Stream segments are left
+     * out on purpose: a player fetches them continuously and they are authorized per playlist.
+     * Only the album search and listing queries count as search; detail, cover and waveform
+     * lookups are cheap, cached and fetched many at a time by a single page.
+     */
+    public Group classify(String method, String path) {
+        if (!enabled || path == null) {
+            return null;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return Group.AUTH;
+        }
+        if (path.startsWith("/api/admin/") || path.startsWith("/admin/")) {
+            return Group.ADMIN;
+        }
+        if (path.startsWith("/api/downloads/") || path.startsWith("/api/customer/download")
+                || path.startsWith("/api/customer/bundle/")) {
+            return Group.DOWNLOAD;
+        }
+        if ("GET".equals(method) && isSearch(path)) {
+            return Group.SEARCH;
+        }
+        return null;
+    }
+
+    private static boolean isSearch(String path) {
+        return path.equals("/api/albums") || path.equals("/api/albums/")
+                || path.equals("/api/albums/search") || path.startsWith("/api/albums/by-artist/");
+    }
+
+    /**
+     * Takes a token from the client's bucket in the group.
+     */
+    public Decision tryAcquire(Group group, String clientKey) {
+        GroupLimiter limiter = limiters.get(group);
+        long now = System.nanoTime();
+        AtomicLong bucket = limiter.buckets.get(clientKey);
+        if (bucket == null) {
+            bucket = limiter.buckets.size() < maxTrackedKeys
+                    ? limiter.buckets.computeIfAbsent(clientKey, k -> TokenBucketLimiter.newState())
+                    : limiter.overflow;
+        }
+        long result = limiter.rule.tryAcquire(bucket, now);
+        if (result >= 0) {
+            limiter.allowed.increment();
+            return new Decision(true, limiter.rule.getCapacity(), result,
+                    nanosToSeconds(limiter.rule.nanosUntilFull(bucket, now)), 0);
+        }
+        limiter.rejected.increment();
+        return new Decision(false, limiter.rule.getCapacity(), 0,
+                nanosToSeconds(limiter.rule.nanosUntilFull(bucket, now)), Math.max(1, nanosToSeconds(-result)));
+    }
+
+    @Scheduled(fixedDelayString = "${musicstore.ratelimit.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (GroupLimiter limiter : limiters.values()) {
+            int before = limiter.buckets.size();
+            limiter.buckets.values().removeIf(bucket -> limiter.rule.nanosUntilFull(bucket, now) == 0);
+            evicted += before - limiter.buckets.size();
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxTrackedKeys", maxTrackedKeys);
+        for (Map.Entry<Group, GroupLimiter> entry : limiters.entrySet()) {
+            GroupLimiter limiter = entry.getValue();
+            Map<String, Object> group = new HashMap<>();
+            group.put("capacity", limiter.rule.getCapacity());
+            group.put("trackedClients", limiter.buckets.size());
+            group.put("allowed", limiter.allowed.sum());
+            group.put("rejected", limiter.rejected.sum());
+            stats.put(entry.getKey().name().toLowerCase(Locale.ROOT), group);
+        }
+        return stats;
+    }
+
+    private static long nanosToSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+
+    /**
+     * Outcome of a request against its bucket; times are in whole seconds, rounded up.
+     */
+    public record Decision(boolean allowed, int limit, long remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+
+    private static final class GroupLimiter {
+        private final TokenBucketLimiter rule;
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong overflow = TokenBucketLimiter.newState();
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private GroupLimiter(TokenBucketLimiter rule) {
+            this.rule = rule;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.music.musicstore.services;
 
+import com.music.musicstore.events.MusicActivityEvent;
 import com.music.musicstore.models.music.Review;
 import com.music.musicstore.models.music.Music;
 import com.music.musicstore.models.users.Customer;
@@ -10,6 +11,7 @@ import com.music.musicstore.exceptions.ValidationException;
 import com.music.musicstore.exceptions.BusinessRuleException;
 import com.music.musicstore.exceptions.UnauthorizedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -29,11 +31,14 @@ public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final MusicRepository musicRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ReviewService(ReviewRepository reviewRepository, MusicRepository musicRepository) {
+    public ReviewService(ReviewRepository reviewRepository, MusicRepository musicRepository,
+                         ApplicationEventPublisher eventPublisher) {
         this.reviewRepository = reviewRepository;
         this.musicRepository = musicRepository;
+        this.eventPublisher = eventPublisher;
         logger.info("ReviewService initialized successfully");
     }
 
@@ -74,6 +79,7 @@ public class ReviewService {
 
             // Update music rating statistics
             updateMusicRatingStats(music);
+            eventPublisher.publishEvent(MusicActivityEvent.review(customer.getId(), musicId));
 
             logger.info("Successfully created review for music ID: {} by customer: {} (Review ID: {})",
                        musicId, customer.getUsername(), savedReview.getId());
@@ -0,0 +1,127 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies expiring download URLs signed with HMAC-SHA256.
+ *
+ * The signature covers the music id, the customer id and the expiry, so a link can be checked
+ * without touching the database. Entitlement is verified once, when the link is issued.
+ *
+ * Streaming links authorize an HLS playlist and every segment it lists with one signature, for
+ * players that cannot send a bearer token. They are signed over a different payload than
+ * download links, so one cannot be used as the other.
+ *
+ * Every instance must sign with the same key for links to verify wherever they land. Without
+ * {@code musicstore.download.signing-secret} the key is derived from the JWT secret, which all
+ * instances already share.
+ */
+@Service
+public class SignedDownloadService {
+    private static final Logger logger = LoggerFactory.getLogger(SignedDownloadService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String URL_PREFIX = "/api/downloads/signed/";
+    private static final String STREAM_URL_PREFIX = "/api/downloads/signed/stream/";
+    private static final String STREAM_PURPOSE = "stream:";
+    private static final String KEY_PURPOSE = "download-signing";
+
+    private final Mac prototype;
+    private final long ttlSeconds;
+    private final long streamTtlSeconds;
+
+    public SignedDownloadService(@Value("${musicstore.download.signing-secret:}") String secret,
+                                 JwtUtil jwtUtil,
+                                 @Value("${musicstore.download.link-ttl-seconds:300}") long ttlSeconds,
+                                 @Value("${musicstore.streaming.link-ttl-seconds:14400}") long streamTtlSeconds) {
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            key = jwtUtil.deriveKey(KEY_PURPOSE);
+            logger.info("musicstore.download.signing-secret not set; signing download links with a key derived from jwt.secret");
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize download link signing", e);
+        }
+        this.ttlSeconds = ttlSeconds;
+        this.streamTtlSeconds = streamTtlSeconds;
+        logger.info("SignedDownloadService initialized successfully");
+    }
+
+    public SignedLink sign(Long musicId, Long customerId) {
+        long expires = Instant.now().getEpochSecond() + ttlSeconds;
+        String signature = signature("", musicId, customerId, expires);
+        String url = URL_PREFIX + musicId + "?c=" + customerId + "&e=" + expires + "&s=" + signature;
+        return new SignedLink(musicId, url, Instant.ofEpochSecond(expires));
+    }
+
+    /**
+     * Checks the signature and expiry of a link. Performs no I/O.
+     */
+    public boolean verify(Long musicId, Long customerId, long expires, String signature) {
+        return verify("", musicId, customerId, expires, signature);
+    }
+
+    /**
+     * Signs HLS playback of a track; the playlist URL's query string carries over to its segments.
+     */
+    public SignedLink signStream(Long musicId, Long customerId) {
+        long expires = Instant.now().getEpochSecond() + streamTtlSeconds;
+        String url = STREAM_URL_PREFIX + musicId + "/playlist.m3u8?" + streamQuery(musicId, customerId, expires);
+        return new SignedLink(musicId, url, Instant.ofEpochSecond(expires));
+    }
+
+    // Query string of a streaming link, appended to each segment URI of its playlist
+    public String streamQuery(Long musicId, Long customerId, long expires) {
+        return "c=" + customerId + "&e=" + expires + "&s=" + signature(STREAM_PURPOSE, musicId, customerId, expires);
+    }
+
+    public boolean verifyStream(Long musicId, Long customerId, long expires, String signature) {
+        return verify(STREAM_PURPOSE, musicId, customerId, expires, signature);
+    }
+
+    private boolean verify(String purpose, Long musicId, Long customerId, long expires, String signature) {
+        if (musicId == null || customerId == null || signature == null) {
+            return false;
+        }
+        if (expires < Instant.now().getEpochSecond()) {
+            return false;
+        }
+        byte[] expected = signature(purpose, musicId, customerId, expires).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Download links keep the original payload so links issued before streaming links stay valid
+    private String signature(String purpose, Long musicId, Long customerId, long expires) {
+        String payload = purpose + musicId + ":" + customerId + ":" + expires;
+        byte[] digest = newMac().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC provider does not support cloning", e);
+        }
+    }
+
+    public record SignedLink(Long musicId, String url, Instant expiresAt) {
+    }
+}
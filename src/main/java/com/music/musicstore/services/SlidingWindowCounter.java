@@ -0,0 +1,104 @@
+package com.music.musicstore.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free event counter over a sliding time window.
+ *
+ * The window is split into buckets, one array slot each. A slot packs the bucket number it
+ * belongs to (upper 40 bits) with that bucket's count (lower 24 bits), so a stale slot is
+ * recognised and restarted in the same compare-and-set that counts the event. The count covers
+ * the current bucket plus the previous {@code bucketCount - 1}, i.e. the window slides in steps
+ * of one bucket.
+ *
+ * Bucket numbers count from the counter's origin rather than the epoch, so they fit in 40 bits
+ * for decades even with one-millisecond buckets. Times before the origin count as the origin.
+ */
+public final class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long MAX_BUCKET = (1L << (Long.SIZE - COUNT_BITS)) - 1;
+
+    private final long originMillis;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final AtomicLongArray slots;
+
+    public SlidingWindowCounter(long windowMillis, int bucketCount) {
+        this(windowMillis, bucketCount, System.currentTimeMillis());
+    }
+
+    public SlidingWindowCounter(long windowMillis, int bucketCount, long originMillis) {
+        if (bucketCount < 1 || windowMillis < bucketCount) {
+            throw new IllegalArgumentException("window must cover at least one millisecond per bucket");
+        }
+        this.originMillis = originMillis;
+        this.bucketMillis = windowMillis / bucketCount;
+        this.bucketCount = bucketCount;
+        this.slots = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * Counts one event at {@code nowMillis} and returns the count in the window including it.
+     */
+    public long incrementAndGet(long nowMillis) {
+        long bucket = bucketOf(nowMillis);
+        int slot = (int) (bucket % bucketCount);
+        while (true) {
+            long current = slots.get(slot);
+            long next;
+            if (current >>> COUNT_BITS == bucket) {
+                // Saturate rather than overflow into the bucket number
+                next = (current & COUNT_MASK) == COUNT_MASK ? current : current + 1;
+            } else {
+                next = bucket << COUNT_BITS | 1;
+            }
+            if (next == current || slots.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+        return count(nowMillis);
+    }
+
+    public long count(long nowMillis) {
+        long bucket = bucketOf(nowMillis);
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long packed = slots.get(i);
+            long age = bucket - (packed >>> COUNT_BITS);
+            if (age >= 0 && age < bucketCount) {
+                total += packed & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Milliseconds until the oldest bucket still counted leaves the window, or 0 if none is.
+     */
+    public long millisUntilOldestExpires(long nowMillis) {
+        long bucket = bucketOf(nowMillis);
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < bucketCount; i++) {
+            long packed = slots.get(i);
+            long slotBucket = packed >>> COUNT_BITS;
+            long age = bucket - slotBucket;
+            if (age >= 0 && age < bucketCount && (packed & COUNT_MASK) > 0) {
+                oldest = Math.min(oldest, slotBucket);
+            }
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return 0;
+        }
+        return originMillis + (oldest + bucketCount) * bucketMillis - Math.max(nowMillis, originMillis);
+    }
+
+    private long bucketOf(long nowMillis) {
+        long bucket = Math.max(0, nowMillis - originMillis) / bucketMillis;
+        if (bucket > MAX_BUCKET) {
+            throw new IllegalStateException("counter has outlived its bucket range; create a new one");
+        }
+        return bucket;
+    }
+}
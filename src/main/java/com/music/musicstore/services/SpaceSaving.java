@@ -0,0 +1,240 @@
+package com.music.musicstore.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving summary of the most frequent items in a stream, using a fixed number of counters.
+ *
+ * When every counter is taken, a new item replaces the one with the smallest count and inherits
+ * that count as its error. Any item whose true count exceeds total / capacity is guaranteed to be
+ * tracked, and a tracked item's count overestimates its true count by at most its error. Counters
+ * live in a min-heap indexed by item, so an update costs O(log capacity).
+ *
+ * Summaries built with the same capacity can be merged, e.g. to combine several nodes, and the
+ * merged result keeps the same guarantee for the combined stream. Instances are thread-safe.
+ */
+public final class SpaceSaving {
+
+    private final int capacity;
+    private final long[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Long, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.items = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void offer(long item, long count) {
+        if (count <= 0) {
+            return;
+        }
+        total += count;
+        Integer position = positions.get(item);
+        if (position != null) {
+            counts[position] += count;
+            siftDown(position);
+        } else if (size < capacity) {
+            items[size] = item;
+            counts[size] = count;
+            errors[size] = 0;
+            positions.put(item, size);
+            siftUp(size++);
+        } else {
+            // Replace the smallest counter; the newcomer may have been seen up to that many times
+            long minimum = counts[0];
+            positions.remove(items[0]);
+            items[0] = item;
+            counts[0] = minimum + count;
+            errors[0] = minimum;
+            positions.put(item, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the tracked counter for the item, or null when it is not among the tracked items.
+     */
+    public synchronized Counter get(long item) {
+        Integer position = positions.get(item);
+        return position != null ? new Counter(item, counts[position], errors[position]) : null;
+    }
+
+    /**
+     * Largest counters first; ties go to the lower item.
+     */
+    public synchronized List<Counter> top(int limit) {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(items[i], counts[i], errors[i]));
+        }
+        counters.sort((a, b) -> a.count() != b.count()
+                ? Long.compare(b.count(), a.count())
+                : Long.compare(a.item(), b.item()));
+        return counters.subList(0, Math.min(Math.max(0, limit), counters.size()));
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new summary of both streams. An item missing from one side is charged that side's
+     * smallest count, which is the most it can have occurred there untracked.
+     */
+    public SpaceSaving merge(SpaceSaving other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge summaries with different capacities");
+        }
+        Map<Long, Counter> left = toMap();
+        Map<Long, Counter> right = other.toMap();
+        long leftFloor = floor();
+        long rightFloor = other.floor();
+
+        Set<Long> union = new HashSet<>(left.keySet());
+        union.addAll(right.keySet());
+        List<Counter> combined = new ArrayList<>(union.size());
+        for (Long item : union) {
+            Counter a = left.get(item);
+            Counter b = right.get(item);
+            long count = (a != null ? a.count() : leftFloor) + (b != null ? b.count() : rightFloor);
+            long error = (a != null ? a.error() : leftFloor) + (b != null ? b.error() : rightFloor);
+            combined.add(new Counter(item, count, error));
+        }
+        combined.sort((a, b) -> Long.compare(b.count(), a.count()));
+
+        SpaceSaving merged = new SpaceSaving(capacity);
+        for (int i = 0; i < Math.min(capacity, combined.size()); i++) {
+            Counter counter = combined.get(i);
+            merged.items[i] = counter.item();
+            merged.counts[i] = counter.count();
+            merged.errors[i] = counter.error();
+            merged.positions.put(counter.item(), i);
+        }
+        merged.size = Math.min(capacity, combined.size());
+        // Descending order is a valid heap only after rebuilding it
+        for (int i = merged.size / 2 - 1; i >= 0; i--) {
+            merged.siftDown(i);
+        }
+        merged.total = getTotal() + other.getTotal();
+        return merged;
+    }
+
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeLong(total);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(items[i]);
+            out.writeLong(counts[i]);
+            out.writeLong(errors[i]);
+        }
+    }
+
+    public static SpaceSaving readFrom(DataInput in) throws IOException {
+        int capacity = in.readInt();
+        long total = in.readLong();
+        int size = in.readInt();
+        if (capacity < 1 || size < 0 || size > capacity) {
+            throw new IOException("Corrupt Space-Saving summary");
+        }
+        SpaceSaving summary = new SpaceSaving(capacity);
+        for (int i = 0; i < size; i++) {
+            summary.items[i] = in.readLong();
+            summary.counts[i] = in.readLong();
+            summary.errors[i] = in.readLong();
+            summary.positions.put(summary.items[i], i);
+        }
+        summary.size = size;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            summary.siftDown(i);
+        }
+        summary.total = total;
+        return summary;
+    }
+
+    // Smallest count while full; before that every occurrence is tracked exactly
+    private synchronized long floor() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    private synchronized Map<Long, Counter> toMap() {
+        Map<Long, Counter> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(items[i], new Counter(items[i], counts[i], errors[i]));
+        }
+        return map;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[index] <= counts[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put(items[a], a);
+        positions.put(items[b], b);
+    }
+
+    /**
+     * @param count upper bound on the item's true count
+     * @param error how much {@code count} may overestimate it
+     */
+    public record Counter(long item, long count, long error) {
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,11 +23,14 @@ public class StaffService {
 
     private final StaffRepository staffRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDirectoryService userDirectoryService;
 
     @Autowired
-    public StaffService(StaffRepository staffRepository, PasswordEncoder passwordEncoder) {
+    public StaffService(StaffRepository staffRepository, PasswordEncoder passwordEncoder,
+                        UserDirectoryService userDirectoryService) {
         this.staffRepository = staffRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDirectoryService = userDirectoryService;
         logger.info("StaffService initialized successfully");
     }
 
@@ -51,6 +55,7 @@ public class StaffService {
         return staff;
     }
 
+    @Transactional
     public Staff save(Staff staff) {
         logger.debug("Saving staff: {}", staff != null ? staff.getUsername() : "null");
 
@@ -61,6 +66,7 @@ public class StaffService {
 
         try {
             Staff savedStaff = staffRepository.save(staff);
+            recordInDirectory(savedStaff);
             logger.info("Successfully saved staff: {}", savedStaff.getUsername());
             return savedStaff;
         } catch (Exception e) {
@@ -128,6 +134,7 @@ public class StaffService {
         }
     }
 
+    @Transactional
     public Staff createStaff(Staff staff) {
         logger.debug("Creating new staff: {}", staff != null ? staff.getUsername() : "null");
 
@@ -156,6 +163,7 @@ public class StaffService {
 
             staff.setPassword(passwordEncoder.encode(staff.getPassword()));
             Staff savedStaff = staffRepository.save(staff);
+            recordInDirectory(savedStaff);
 
             logger.info("Successfully created staff: {}", savedStaff.getUsername());
             return savedStaff;
@@ -178,6 +186,7 @@ public class StaffService {
         }
     }
 
+    @Transactional
     public void deleteStaff(Long id) {
         logger.debug("Deleting staff with ID: {}", id);
 
@@ -195,6 +204,7 @@ public class StaffService {
             }
 
             staffRepository.deleteById(id);
+            userDirectoryService.remove(UserDirectoryService.ROLE_STAFF, id);
             logger.info("Successfully deleted staff with ID: {}", id);
         } catch (Exception e) {
             logger.error("Error deleting staff with ID: {}", id, e);
@@ -202,6 +212,7 @@ public class StaffService {
         }
     }
 
+    @Transactional
     public void updateStaff(Staff staff) {
         logger.debug("Updating staff: {}", staff != null ? staff.getUsername() : "null");
 
@@ -227,6 +238,7 @@ public class StaffService {
             }
 
             Staff updatedStaff = staffRepository.save(staff);
+            recordInDirectory(updatedStaff);
             logger.info("Successfully updated staff: {} (ID: {})", updatedStaff.getUsername(), updatedStaff.getId());
         } catch (Exception e) {
             logger.error("Error updating staff: {}", staff.getUsername(), e);
@@ -255,4 +267,9 @@ public class StaffService {
             throw new RuntimeException("Failed to find staff by ID", e);
         }
     }
+
+    private void recordInDirectory(Staff staff) {
+        userDirectoryService.record(UserDirectoryService.ROLE_STAFF, staff.getId(), staff.getUsername(), staff.getEmail(),
+                staff.isEnabled(), staff.getCreatedAt(), staff.getFirstName(), staff.getLastName());
+    }
 }
@@ -0,0 +1,66 @@
+package com.music.musicstore.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rule (capacity, refill rate) applied to per-client state held in a single
+ * {@link AtomicLong}.
+ *
+ * The state is the bucket's theoretical arrival time in the generic cell rate algorithm: the
+ * instant at which the bucket would be full again. Taking a token pushes it one emission interval
+ * (1 / refill rate) further; a request is allowed while that instant stays within capacity
+ * intervals of now. This is exactly a token bucket, but one compare-and-set on one long replaces
+ * reading and writing a token count and a refill timestamp together, so no lock is needed.
+ */
+public final class TokenBucketLimiter {
+
+    private final int capacity;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond) {
+        if (capacity < 1 || !(refillPerSecond > 0)) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.toleranceNanos = capacity * intervalNanos;
+    }
+
+    /**
+     * New per-client state: a full bucket.
+     */
+    public static AtomicLong newState() {
+        return new AtomicLong(Long.MIN_VALUE);
+    }
+
+    /**
+     * Takes one token from the bucket. Returns the tokens left (0 or more) if allowed, otherwise
+     * minus the nanoseconds until a token becomes available.
+     */
+    public long tryAcquire(AtomicLong state, long nowNanos) {
+        while (true) {
+            long arrival = state.get();
+            long next = Math.max(arrival, nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > toleranceNanos) {
+                return -(ahead - toleranceNanos);
+            }
+            if (state.compareAndSet(arrival, next)) {
+                return (toleranceNanos - ahead) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Nanoseconds until the bucket is full again; 0 means the client is idle and its state can be
+     * discarded.
+     */
+    public long nanosUntilFull(AtomicLong state, long nowNanos) {
+        return Math.max(0, state.get() - nowNanos);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
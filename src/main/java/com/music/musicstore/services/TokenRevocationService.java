@@ -0,0 +1,214 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.users.RevokedToken;
+import com.music.musicstore.repositories.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Revocation list for tokens that must stop working before they expire, such as after a logout.
+ *
+ * Revoked token ids (the jti claim) are stored in the revoked_tokens table and mirrored into an
+ * in-memory Bloom filter. Every authenticated request asks the filter first; only the rare
+ * positive answer, a revoked token or a false positive, is confirmed against the table, so the
+ * common path costs a few hashed bit reads and no I/O.
+ *
+ * Revocations made on other instances reach this one through a periodic sync of recent rows, on
+ * its own scheduler thread so long-running jobs elsewhere cannot delay it. Rows expire with their
+ * token; an hourly rebuild purges them and builds a fresh filter from the rows that remain, since
+ * keys cannot be removed from a Bloom filter. Sync and rebuild never overlap, and after a rebuild
+ * the next sync starts from before the rows were read, so nothing revoked meanwhile is lost.
+ */
+@Service
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // Re-read a little before the last sync so rows committed late by other instances are not missed
+    private static final long SYNC_OVERLAP_MS = 5000;
+    private static final int MAX_CONFIRMED = 10000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final long tokenLifetimeMs;
+
+    private volatile BloomFilter filter;
+    // Held for a whole sync or rebuild, so a sync cannot move lastSync past a rebuild's read
+    private final Object refreshLock = new Object();
+    private volatile Instant lastSync = Instant.now();
+    // Revoked ids known to this instance, so repeated use of a revoked token skips the table
+    private final Map<String, Instant> confirmed = new ConcurrentHashMap<>();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder filterPositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${musicstore.security.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${musicstore.security.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${jwt.expiration:86400000}") long tokenLifetimeMs) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.tokenLifetimeMs = tokenLifetimeMs;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        logger.info("TokenRevocationService initialized successfully");
+    }
+
+    /**
+     * True if the token has been revoked. Tokens without a jti claim predate revocation and are
+     * never reported as revoked.
+     */
+    public boolean isRevoked(JwtUtil.VerifiedToken token) {
+        String tokenId = token.tokenId();
+        if (tokenId == null) {
+            return false;
+        }
+        checks.increment();
+        if (!filter.mightContain(tokenId)) {
+            return false;
+        }
+        filterPositives.increment();
+        if (confirmed.containsKey(tokenId)) {
+            return true;
+        }
+        if (revokedTokenRepository.existsById(tokenId)) {
+            remember(tokenId, expiryOf(token));
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revokes the token on every instance. Revoking an already revoked or expired token is a no-op.
+     *
+     * @throws ValidationException if the token has no jti claim and so cannot be revoked on its own
+     */
+    @Transactional
+    public void revoke(JwtUtil.VerifiedToken token) {
+        String tokenId = token.tokenId();
+        if (tokenId == null) {
+            throw new ValidationException("Token has no id and cannot be revoked; sign in again to get a new token");
+        }
+        Instant now = Instant.now();
+        Instant expiresAt = expiryOf(token);
+        if (!expiresAt.isAfter(now) || revokedTokenRepository.existsById(tokenId)) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(tokenId, token.username(), now, expiresAt));
+        synchronized (this) {
+            filter.put(tokenId);
+            remember(tokenId, expiresAt);
+        }
+        revocations.increment();
+        logger.info("Revoked token {} of user {}", tokenId, token.username());
+    }
+
+    /**
+     * Adds tokens revoked on other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.security.revocation.sync-interval-ms:10000}",
+            scheduler = "revocationScheduler")
+    public void sync() {
+        synchronized (refreshLock) {
+            Instant started = Instant.now();
+            List<String> revoked = revokedTokenRepository.findIdsRevokedSince(lastSync.minusMillis(SYNC_OVERLAP_MS));
+            synchronized (this) {
+                revoked.forEach(filter::put);
+            }
+            lastSync = started;
+        }
+    }
+
+    /**
+     * Purges rows of expired tokens and rebuilds the filter from the rest. Runs at startup and
+     * then periodically.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${musicstore.security.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${musicstore.security.revocation.rebuild-interval-ms:3600000}")
+    @Transactional
+    public void rebuild() {
+        long startNanos = System.nanoTime();
+        long loaded = 0;
+        int purged;
+        synchronized (refreshLock) {
+            Instant started = Instant.now();
+            purged = revokedTokenRepository.deleteExpired(started);
+
+            // Sized for at least twice the current list so the false-positive rate holds until the next rebuild
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2 * revokedTokenRepository.count()),
+                    falsePositiveRate);
+            try (Stream<String> ids = revokedTokenRepository.streamUnexpiredIds(started)) {
+                for (String id : (Iterable<String>) ids::iterator) {
+                    rebuilt.put(id);
+                    loaded++;
+                }
+            }
+
+            confirmed.values().removeIf(expiresAt -> !expiresAt.isAfter(started));
+            synchronized (this) {
+                // Local revocations made while the rows were being read
+                confirmed.keySet().forEach(rebuilt::put);
+                filter = rebuilt;
+            }
+            // Rows committed by other instances during the read are picked up from here
+            lastSync = started;
+        }
+        sync();
+        logger.info("Rebuilt token revocation filter with {} ids ({} expired purged) in {} ms", loaded, purged,
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    public Map<String, Object> getStats() {
+        BloomFilter current = filter;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("filterBits", current.getBitSize());
+        stats.put("filterHashes", current.getHashCount());
+        stats.put("filterInsertions", current.getInsertions());
+        stats.put("checks", checks.sum());
+        stats.put("filterPositives", filterPositives.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("revocations", revocations.sum());
+        stats.put("confirmedCached", confirmed.size());
+        stats.put("lastSync", lastSync.toString());
+        return stats;
+    }
+
+    private Instant expiryOf(JwtUtil.VerifiedToken token) {
+        return token.expiresAt() != null ? token.expiresAt() : Instant.now().plusMillis(tokenLifetimeMs);
+    }
+
+    private void remember(String tokenId, Instant expiresAt) {
+        if (confirmed.size() >= MAX_CONFIRMED) {
+            Instant now = Instant.now();
+            Iterator<Instant> iterator = confirmed.values().iterator();
+            while (iterator.hasNext()) {
+                if (!iterator.next().isAfter(now)) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (confirmed.size() < MAX_CONFIRMED) {
+            confirmed.put(tokenId, expiresAt);
+        }
+    }
+}
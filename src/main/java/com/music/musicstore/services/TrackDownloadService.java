@@ -0,0 +1,114 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.Music;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Locates the audio for a purchased track and prepares the response body that streams it.
+ * Callers are responsible for checking that the customer may download the track.
+ */
+@Service
+public class TrackDownloadService {
+    private static final Logger logger = LoggerFactory.getLogger(TrackDownloadService.class);
+
+    private final MusicService musicService;
+    private final AudioFileResolver audioFileResolver;
+    private final HotTrackCache hotTrackCache;
+    private final DownloadBandwidthScheduler bandwidthScheduler;
+
+    @Autowired
+    public TrackDownloadService(MusicService musicService,
+                                AudioFileResolver audioFileResolver,
+                                HotTrackCache hotTrackCache,
+                                DownloadBandwidthScheduler bandwidthScheduler) {
+        this.musicService = musicService;
+        this.audioFileResolver = audioFileResolver;
+        this.hotTrackCache = hotTrackCache;
+        this.bandwidthScheduler = bandwidthScheduler;
+        logger.info("TrackDownloadService initialized successfully");
+    }
+
+    /**
+     * Resolves the track's audio file. Nothing is read until the returned body is written.
+     */
+    public PreparedDownload prepare(Long musicId, Long customerId) throws IOException {
+        if (musicId == null) {
+            throw new ValidationException("musicId is required");
+        }
+
+        // Load music metadata
+        Music music = musicService.getMusicById(musicId)
+                .orElseThrow(() -> new ValidationException("Music not found"));
+
+        String audioPathStr = music.getAudioFilePath();
+        String originalFileName = music.getOriginalFileName();
+        if (originalFileName == null || originalFileName.isBlank()) {
+            // fallback to a sanitized music name
+            originalFileName = music.getName().replaceAll("[^a-zA-Z0-9._-]", "_") + ".mp3";
+        }
+
+        Path filePath = audioFileResolver.resolve(music).orElse(null);
+        String audioFileName = audioFileResolver.getAudioFileName(music);
+
+        if (filePath == null) {
+            logger.warn("Audio file not found for music id {} (audioFilePath='{}')", musicId, audioPathStr);
+            // Attempt to load from classpath (inside jar) at static/uploads/music/<filename>
+            if (audioFileName != null) {
+                String classpathLocation = "/static/uploads/music/" + audioFileName;
+                if (TrackDownloadService.class.getResource(classpathLocation) != null) {
+                    StreamingResponseBody body = outputStream -> {
+                        try (InputStream in = TrackDownloadService.class.getResourceAsStream(classpathLocation);
+                             OutputStream out = bandwidthScheduler.open(customerId, musicId, outputStream)) {
+                            in.transferTo(out);
+                        }
+                    };
+                    return new PreparedDownload(originalFileName, null, body);
+                }
+            }
+            throw new ValidationException("Audio file not found");
+        }
+
+        // Ensure it's an mp3
+        String fileNameLower = filePath.getFileName().toString().toLowerCase();
+        String contentType = URLConnection.guessContentTypeFromName(fileNameLower);
+        if (contentType == null) {
+            contentType = Files.probeContentType(filePath);
+        }
+        if (contentType == null) {
+            // fallback
+            contentType = "application/octet-stream";
+        }
+
+        if (!fileNameLower.endsWith(".mp3") && !"audio/mpeg".equalsIgnoreCase(contentType)) {
+            logger.warn("Blocked download - file is not MP3: {} (detected contentType={})", filePath, contentType);
+            throw new ValidationException("Requested file is not an MP3");
+        }
+
+        // Written on a virtual thread and paced by the bandwidth scheduler;
+        // hot tracks are served straight from a memory mapping, the rest from disk
+        StreamingResponseBody body = outputStream -> {
+            try (OutputStream out = bandwidthScheduler.open(customerId, musicId, outputStream)) {
+                hotTrackCache.transferTo(musicId, filePath, out);
+            }
+        };
+        return new PreparedDownload(originalFileName, Files.size(filePath), body);
+    }
+
+    /**
+     * @param contentLength size in bytes, or null when it is not known up front
+     */
+    public record PreparedDownload(String fileName, Long contentLength, StreamingResponseBody body) {
+    }
+}
@@ -0,0 +1,445 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.Music;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ranks tracks by recent purchase, download, stream and review activity.
+ *
+ * Activity events are counted into 5-minute slots: the open slot is a map of striped
+ * {@link LongAdder}s so request threads never block each other, and closed slots are frozen into
+ * sorted arrays and kept for seven days. A customer contributes to a track at most once per slot,
+ * with the weight of their strongest activity, so repeated streams or downloads cannot push a
+ * track up the chart. Within a window every slot is weighted by exponential
+ * decay with a half-life of a quarter of the window, so fresh activity outranks an older spike of
+ * the same size.
+ *
+ * Decayed scores of closed slots are maintained incrementally relative to a fixed landmark time:
+ * a closing slot adds its counts, a slot leaving a window subtracts them, and nothing has to be
+ * rescaled as time passes. A periodic refresh combines those leaders with the open slot, keeps the
+ * top K per window with a bounded heap and resolves the tracks once, so requests are served from
+ * an immutable snapshot without touching the database.
+ */
+@Service
+public class TrendingService {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    private static final long SLOT_MILLIS = Duration.ofMinutes(5).toMillis();
+    private static final int RETAINED_SLOTS = (int) (Duration.ofDays(7).toMillis() / SLOT_MILLIS);
+    // Landmark weights grow by 2^(slots / half-life); re-basing daily keeps them far from overflow
+    private static final int REBASE_SLOTS = (int) (Duration.ofDays(1).toMillis() / SLOT_MILLIS);
+
+    private static final Map<MusicActivityEvent.Type, Integer> EVENT_WEIGHTS = new EnumMap<>(Map.of(
+            MusicActivityEvent.Type.PURCHASE, 10,
+            MusicActivityEvent.Type.REVIEW, 4,
+            MusicActivityEvent.Type.DOWNLOAD, 2,
+            MusicActivityEvent.Type.STREAM, 1));
+
+    public enum Window {
+        HOUR("1h", Duration.ofHours(1)),
+        DAY("24h", Duration.ofDays(1)),
+        WEEK("7d", Duration.ofDays(7));
+
+        private final String label;
+        private final int slots;
+        private final double halfLifeSlots;
+
+        Window(String label, Duration length) {
+            this.label = label;
+            this.slots = (int) (length.toMillis() / SLOT_MILLIS);
+            this.halfLifeSlots = slots / 4.0;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return window;
+                }
+            }
+            throw new ValidationException("window must be one of 1h, 24h or 7d");
+        }
+    }
+
+    private static final Window[] WINDOWS = Window.values();
+    // Ties go to the lower id so rankings are stable between refreshes
+    private static final Comparator<Scored> HOTTEST_FIRST =
+            Comparator.comparingDouble(Scored::score).reversed().thenComparingLong(Scored::musicId);
+
+    private final MusicService musicService;
+    private final int topK;
+
+    private final AtomicReference<LiveSlot> live = new AtomicReference<>(new LiveSlot(currentEpoch()));
+    private final Queue<LiveSlot> pendingSlots = new ConcurrentLinkedQueue<>();
+    private final LongAdder recordedEvents = new LongAdder();
+
+    // Owned by the refresh thread
+    private final ArrayDeque<FrozenSlot> closedSlots = new ArrayDeque<>();
+    private final Map<Long, double[]> closedScores = new HashMap<>();
+    private final Map<Window, List<Long>> closedLeaders = new EnumMap<>(Window.class);
+    private long landmarkEpoch = currentEpoch();
+
+    private volatile Snapshot snapshot = new Snapshot(new EnumMap<>(Window.class), Instant.now());
+    private volatile long lastRefreshMillis;
+    private volatile int closedSlotCount;
+    private volatile int scoredTrackCount;
+
+    public TrendingService(MusicService musicService,
+                           @Value("${musicstore.trending.top-k:100}") int topK) {
+        this.musicService = musicService;
+        this.topK = topK;
+        for (Window window : WINDOWS) {
+            closedLeaders.put(window, List.of());
+        }
+        logger.info("TrendingService initialized successfully");
+    }
+
+    @EventListener
+    public void onMusicActivity(MusicActivityEvent event) {
+        Integer weight = EVENT_WEIGHTS.get(event.type());
+        if (weight == null || event.musicIds().isEmpty()) {
+            return;
+        }
+        LiveSlot slot = liveSlot(event.occurredAt().toEpochMilli() / SLOT_MILLIS);
+        for (Long musicId : event.musicIds()) {
+            int credit = slot.credit(event.customerId(), musicId, weight);
+            if (credit > 0) {
+                slot.add(musicId, credit);
+            }
+        }
+        recordedEvents.increment();
+    }
+
+    /**
+     * Returns up to {@code limit} trending tracks for the window, hottest first.
+     */
+    public List<TrendingTrack> getTrending(Window window, int limit) {
+        List<TrendingTrack> tracks = snapshot.tracks().getOrDefault(window, List.of());
+        return tracks.subList(0, Math.max(0, Math.min(limit, tracks.size())));
+    }
+
+    public Instant getRefreshedAt() {
+        return snapshot.refreshedAt();
+    }
+
+    /**
+     * Folds closed slots into the decayed scores and publishes a new snapshot.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.trending.refresh-interval-ms:30000}",
+            initialDelayString = "${musicstore.trending.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        long nowEpoch = currentEpoch();
+        LiveSlot current = liveSlot(nowEpoch);
+
+        // A writer holding a slot across its swap may add to it after freezing; that loses a count at most
+        boolean changed = false;
+        List<LiveSlot> drained = new ArrayList<>();
+        for (LiveSlot slot; (slot = pendingSlots.poll()) != null; ) {
+            drained.add(slot);
+        }
+        drained.sort((a, b) -> Long.compare(a.epoch, b.epoch));
+        for (LiveSlot slot : drained) {
+            FrozenSlot frozen = slot.freeze();
+            if (frozen.ids.length > 0) {
+                closedSlots.addLast(frozen);
+                apply(frozen, frozen.windowMask, 1);
+                changed = true;
+            }
+        }
+        changed |= expire(nowEpoch);
+        if (nowEpoch - landmarkEpoch >= REBASE_SLOTS) {
+            rebase(nowEpoch);
+            changed = true;
+        }
+        if (changed) {
+            for (Window window : WINDOWS) {
+                closedLeaders.put(window, leaders(window));
+            }
+        }
+
+        Map<Long, Long> liveCounts = current.snapshotCounts();
+        Map<Window, List<Scored>> ranked = new EnumMap<>(Window.class);
+        Set<Long> resolve = new HashSet<>();
+        for (Window window : WINDOWS) {
+            List<Scored> top = rank(window, nowEpoch, liveCounts);
+            ranked.put(window, top);
+            for (Scored scored : top) {
+                resolve.add(scored.musicId);
+            }
+        }
+
+        Map<Long, Music> byId = new HashMap<>();
+        for (Music music : musicService.getMusicByIds(resolve)) {
+            byId.put(music.getId(), music);
+        }
+        Map<Window, List<TrendingTrack>> tracks = new EnumMap<>(Window.class);
+        for (Window window : WINDOWS) {
+            List<TrendingTrack> list = new ArrayList<>();
+            for (Scored scored : ranked.get(window)) {
+                Music music = byId.get(scored.musicId);
+                // Tracks deleted since their activity simply drop out
+                if (music != null) {
+                    list.add(new TrendingTrack(music, scored.score));
+                }
+            }
+            tracks.put(window, List.copyOf(list));
+        }
+        snapshot = new Snapshot(tracks, Instant.now());
+        closedSlotCount = closedSlots.size();
+        scoredTrackCount = closedScores.size();
+        lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.debug("Refreshed trending tracks in {} ms ({} tracks scored)", lastRefreshMillis, closedScores.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("recordedEvents", recordedEvents.sum());
+        stats.put("liveSlotTracks", live.get().counts.size());
+        stats.put("closedSlots", closedSlotCount);
+        stats.put("scoredTracks", scoredTrackCount);
+        stats.put("topK", topK);
+        stats.put("refreshedAt", snapshot.refreshedAt());
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        return stats;
+    }
+
+    private LiveSlot liveSlot(long epoch) {
+        while (true) {
+            LiveSlot slot = live.get();
+            // Events stamped slightly in the past still count towards the open slot
+            if (slot.epoch >= epoch) {
+                return slot;
+            }
+            LiveSlot next = new LiveSlot(epoch);
+            if (live.compareAndSet(slot, next)) {
+                pendingSlots.add(slot);
+                return next;
+            }
+        }
+    }
+
+    // Adds (sign 1) or removes (sign -1) a slot's contribution to the given windows
+    private void apply(FrozenSlot slot, int windowMask, int sign) {
+        double[] weights = new double[WINDOWS.length];
+        for (Window window : WINDOWS) {
+            weights[window.ordinal()] = Math.pow(2, (slot.epoch - landmarkEpoch) / window.halfLifeSlots);
+        }
+        for (int i = 0; i < slot.ids.length; i++) {
+            double[] scores = closedScores.computeIfAbsent(slot.ids[i], id -> new double[WINDOWS.length]);
+            boolean empty = true;
+            for (Window window : WINDOWS) {
+                int w = window.ordinal();
+                if ((windowMask & (1 << w)) != 0) {
+                    double delta = slot.counts[i] * weights[w];
+                    scores[w] += sign * delta;
+                    // Rounding residue of a removed contribution is not activity
+                    if (sign < 0 && scores[w] < delta * 1e-9) {
+                        scores[w] = 0;
+                    }
+                }
+                empty &= scores[w] == 0;
+            }
+            if (empty) {
+                closedScores.remove(slot.ids[i]);
+            }
+        }
+    }
+
+    private boolean expire(long nowEpoch) {
+        boolean changed = false;
+        Iterator<FrozenSlot> iterator = closedSlots.iterator();
+        while (iterator.hasNext()) {
+            FrozenSlot slot = iterator.next();
+            int leaving = 0;
+            for (Window window : WINDOWS) {
+                int bit = 1 << window.ordinal();
+                if ((slot.windowMask & bit) != 0 && nowEpoch - slot.epoch >= window.slots) {
+                    leaving |= bit;
+                }
+            }
+            if (leaving != 0) {
+                apply(slot, leaving, -1);
+                slot.windowMask &= ~leaving;
+                changed = true;
+            }
+            if (slot.windowMask == 0 || nowEpoch - slot.epoch >= RETAINED_SLOTS) {
+                iterator.remove();
+            }
+        }
+        return changed;
+    }
+
+    // Moves the landmark to now and recomputes all scores, which also discards accumulated rounding
+    private void rebase(long nowEpoch) {
+        landmarkEpoch = nowEpoch;
+        closedScores.clear();
+        for (FrozenSlot slot : closedSlots) {
+            apply(slot, slot.windowMask, 1);
+        }
+    }
+
+    private List<Long> leaders(Window window) {
+        int w = window.ordinal();
+        PriorityQueue<Map.Entry<Long, double[]>> heap = new PriorityQueue<>(topK + 1,
+                (a, b) -> Double.compare(a.getValue()[w], b.getValue()[w]));
+        for (Map.Entry<Long, double[]> entry : closedScores.entrySet()) {
+            if (entry.getValue()[w] <= 0) {
+                continue;
+            }
+            if (heap.size() < topK) {
+                heap.add(entry);
+            } else if (entry.getValue()[w] > heap.peek().getValue()[w]) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Long> ids = new ArrayList<>(heap.size());
+        for (Map.Entry<Long, double[]> entry : heap) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+
+    // The overall top K can only contain closed leaders or tracks active in the open slot
+    private List<Scored> rank(Window window, long nowEpoch, Map<Long, Long> liveCounts) {
+        int w = window.ordinal();
+        double liveWeight = Math.pow(2, (nowEpoch - landmarkEpoch) / window.halfLifeSlots);
+        double toNow = Math.pow(2, (landmarkEpoch - nowEpoch) / window.halfLifeSlots);
+
+        Set<Long> candidates = new HashSet<>(closedLeaders.get(window));
+        candidates.addAll(liveCounts.keySet());
+        PriorityQueue<Scored> heap = new PriorityQueue<>(topK + 1, HOTTEST_FIRST.reversed());
+        for (Long musicId : candidates) {
+            double[] closed = closedScores.get(musicId);
+            double score = (closed != null ? closed[w] : 0) + liveCounts.getOrDefault(musicId, 0L) * liveWeight;
+            if (score <= 0) {
+                continue;
+            }
+            heap.add(new Scored(musicId, score * toNow));
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+        List<Scored> ranked = new ArrayList<>(heap);
+        ranked.sort(HOTTEST_FIRST);
+        return ranked;
+    }
+
+    private static long currentEpoch() {
+        return System.currentTimeMillis() / SLOT_MILLIS;
+    }
+
+    public record TrendingTrack(Music music, double score) {
+    }
+
+    private record Snapshot(Map<Window, List<TrendingTrack>> tracks, Instant refreshedAt) {
+    }
+
+    private record Scored(long musicId, double score) {
+    }
+
+    private record Contributor(Long customerId, Long musicId) {
+    }
+
+    private static final class LiveSlot {
+        private final long epoch;
+        private final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+        // Strongest weight each customer has already added to a track in this slot
+        private final ConcurrentHashMap<Contributor, Integer> credited = new ConcurrentHashMap<>();
+
+        LiveSlot(long epoch) {
+            this.epoch = epoch;
+        }
+
+        // Weight still to add for this customer and track; only an upgrade (stream to purchase) adds more
+        int credit(Long customerId, Long musicId, int weight) {
+            if (customerId == null) {
+                return weight;
+            }
+            int[] delta = new int[1];
+            credited.compute(new Contributor(customerId, musicId), (key, previous) -> {
+                int already = previous != null ? previous : 0;
+                delta[0] = Math.max(0, weight - already);
+                return Math.max(already, weight);
+            });
+            return delta[0];
+        }
+
+        void add(Long musicId, int weight) {
+            LongAdder counter = counts.get(musicId);
+            if (counter == null) {
+                counter = counts.computeIfAbsent(musicId, id -> new LongAdder());
+            }
+            counter.add(weight);
+        }
+
+        Map<Long, Long> snapshotCounts() {
+            Map<Long, Long> snapshot = new HashMap<>(counts.size() * 2);
+            counts.forEach((musicId, counter) -> snapshot.put(musicId, counter.sum()));
+            return snapshot;
+        }
+
+        FrozenSlot freeze() {
+            long[] ids = new long[counts.size()];
+            int n = 0;
+            for (Long musicId : counts.keySet()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n++] = musicId;
+            }
+            ids = Arrays.copyOf(ids, n);
+            Arrays.sort(ids);
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = counts.get(ids[i]).sum();
+            }
+            return new FrozenSlot(epoch, ids, values);
+        }
+    }
+
+    private static final class FrozenSlot {
+        private final long epoch;
+        private final long[] ids;
+        private final long[] counts;
+        // Bit per window the slot still contributes to
+        private int windowMask = (1 << WINDOWS.length) - 1;
+
+        FrozenSlot(long epoch, long[] ids, long[] counts) {
+            this.epoch = epoch;
+            this.ids = ids;
+            this.counts = counts;
+        }
+    }
+}
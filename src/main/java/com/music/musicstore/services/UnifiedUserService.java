@@ -1,28 +1,43 @@
 package com.music.musicstore.services;
 
+import com.music.musicstore.dto.UserCursorPage;
 import com.music.musicstore.dto.UserDto;
 import com.music.musicstore.models.users.*;
 import com.music.musicstore.exceptions.ValidationException;
 import com.music.musicstore.exceptions.BusinessRuleException;
+import com.music.musicstore.exceptions.ServiceUnavailableException;
+import com.music.musicstore.repositories.AdminRepository;
+import com.music.musicstore.repositories.ArtistRepository;
+import com.music.musicstore.repositories.CustomerRepository;
+import com.music.musicstore.repositories.StaffRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Optional;
 
 @Service
 public class UnifiedUserService {
     private static final Logger logger = LoggerFactory.getLogger(UnifiedUserService.class);
 
+    private static final int MAX_UNPAGED_SEARCH_RESULTS = 1000;
+
     @Autowired
     private CustomerService customerService;
 
@@ -38,10 +53,39 @@ public class UnifiedUserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserPrincipalService userPrincipalService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private UserCountService userCountService;
+
+    @Autowired
+    private UserGrowthService userGrowthService;
+
+    // Batch loads of the accounts on one page of the user listing
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
     public UnifiedUserService() {
         logger.info("UnifiedUserService initialized successfully");
     }
 
+    @Transactional
     public UserDto createUser(String username, String password, String email, String role,
                              String firstName, String lastName, String artistName, String photoUrl) {
         logger.debug("Creating user: {} with role: {}", username, role);
@@ -74,6 +118,7 @@ public class UnifiedUserService {
                     customer.setLastName(lastName);
                     customer.setRole("ROLE_CUSTOMER"); // Explicitly set the role
                     Customer savedCustomer = customerService.createCustomer(customer);
+                    recordCustomer(savedCustomer);
                     logger.info("Successfully created customer: {}", username);
                     return convertCustomerToDto(savedCustomer);
 
@@ -157,10 +202,17 @@ public class UnifiedUserService {
 
         try {
             Map<String, Long> counts = new HashMap<>();
-            counts.put("customers", customerService.count());
-            counts.put("artists", artistService.count());
-            counts.put("admins", adminService.count());
-            counts.put("staff", staffService.count());
+            if (userCountService.isReady()) {
+                counts.put("customers", userCountService.getTotal(UserDirectoryService.ROLE_CUSTOMER));
+                counts.put("artists", userCountService.getTotal(UserDirectoryService.ROLE_ARTIST));
+                counts.put("admins", userCountService.getTotal(UserDirectoryService.ROLE_ADMIN));
+                counts.put("staff", userCountService.getTotal(UserDirectoryService.ROLE_STAFF));
+            } else {
+                counts.put("customers", customerService.count());
+                counts.put("artists", artistService.count());
+                counts.put("admins", adminService.count());
+                counts.put("staff", staffService.count());
+            }
 
             long totalUsers = counts.values().stream().mapToLong(Long::longValue).sum();
             counts.put("total", totalUsers);
@@ -217,6 +269,9 @@ public class UnifiedUserService {
 
     // Additional methods for admin functionality
     public long getTotalUsersCount() {
+        if (userCountService.isReady()) {
+            return userCountService.getTotal();
+        }
         return customerService.count() + artistService.count() + staffService.count() + adminService.count();
     }
 
@@ -278,6 +333,7 @@ public class UnifiedUserService {
         }
     }
 
+    @Transactional
     public UserDto updateUser(Long id, Object updateRequest) {
         logger.debug("Updating user with ID: {}", id);
 
@@ -303,6 +359,8 @@ public class UnifiedUserService {
                     Customer customer = customerService.findById(id);
                     updateCustomerFromRequest(customer, updateRequest);
                     customerService.updateCustomer(customer);
+                    recordCustomer(customer);
+                    userPrincipalService.bumpStamp("ROLE_CUSTOMER", id);
                     logger.info("Successfully updated customer with ID: {}", id);
                     return convertCustomerToDto(customer);
 
@@ -310,6 +368,7 @@ public class UnifiedUserService {
                     Artist artist = artistService.findById(id);
                     updateArtistFromRequest(artist, updateRequest);
                     artistService.updateArtist(artist);
+                    userPrincipalService.bumpStamp("ROLE_ARTIST", id);
                     logger.info("Successfully updated artist with ID: {}", id);
                     return convertArtistToDto(artist);
 
@@ -317,6 +376,7 @@ public class UnifiedUserService {
                     Admin admin = adminService.findById(id);
                     updateAdminFromRequest(admin, updateRequest);
                     adminService.updateAdmin(admin);
+                    userPrincipalService.bumpStamp("ROLE_ADMIN", id);
                     logger.info("Successfully updated admin with ID: {}", id);
                     return convertAdminToDto(admin);
 
@@ -324,6 +384,7 @@ public class UnifiedUserService {
                     Staff staff = staffService.findById(id);
                     updateStaffFromRequest(staff, updateRequest);
                     staffService.updateStaff(staff);
+                    userPrincipalService.bumpStamp("ROLE_STAFF", id);
                     logger.info("Successfully updated staff with ID: {}", id);
                     return convertStaffToDto(staff);
 
@@ -337,6 +398,7 @@ public class UnifiedUserService {
         }
     }
 
+    @Transactional
     public void deleteUser(Long id) {
         logger.debug("Deleting user with ID: {}", id);
 
@@ -355,6 +417,8 @@ public class UnifiedUserService {
             switch (role.toUpperCase()) {
                 case "CUSTOMER":
                     customerService.deleteCustomer(id);
+                    userDirectoryService.remove(UserDirectoryService.ROLE_CUSTOMER, id);
+                    userPrincipalService.bumpStamp("ROLE_CUSTOMER", id);
                     logger.info("Successfully deleted customer with ID: {}", id);
                     break;
 
@@ -366,11 +430,13 @@ public class UnifiedUserService {
 
                 case "ADMIN":
                     adminService.deleteAdmin(id);
+                    userPrincipalService.bumpStamp("ROLE_ADMIN", id);
                     logger.info("Successfully deleted admin with ID: {}", id);
                     break;
 
                 case "STAFF":
                     staffService.deleteStaff(id);
+                    userPrincipalService.bumpStamp("ROLE_STAFF", id);
                     logger.info("Successfully deleted staff with ID: {}", id);
                     break;
 
@@ -384,6 +450,7 @@ public class UnifiedUserService {
         }
     }
 
+    @Transactional
     public void updateUserStatus(Long id, boolean active) {
         logger.debug("Updating user status for ID: {} to active: {}", id, active);
 
@@ -404,6 +471,8 @@ public class UnifiedUserService {
                     Customer customer = customerService.findById(id);
                     customer.setEnabled(active);
                     customerService.updateCustomer(customer);
+                    recordCustomer(customer);
+                    userPrincipalService.bumpStamp("ROLE_CUSTOMER", id);
                     logger.info("Successfully updated customer status for ID: {} to {}", id, active);
                     break;
 
@@ -411,6 +480,7 @@ public class UnifiedUserService {
                     Artist artist = artistService.findById(id);
                     artist.setEnabled(active);
                     artistService.updateArtist(artist);
+                    userPrincipalService.bumpStamp("ROLE_ARTIST", id);
                     logger.info("Successfully updated artist status for ID: {} to {}", id, active);
                     break;
 
@@ -418,6 +488,7 @@ public class UnifiedUserService {
                     Admin admin = adminService.findById(id);
                     admin.setEnabled(active);
                     adminService.updateAdmin(admin);
+                    userPrincipalService.bumpStamp("ROLE_ADMIN", id);
                     logger.info("Successfully updated admin status for ID: {} to {}", id, active);
                     break;
 
@@ -425,6 +496,7 @@ public class UnifiedUserService {
                     Staff staff = staffService.findById(id);
                     staff.setEnabled(active);
                     staffService.updateStaff(staff);
+                    userPrincipalService.bumpStamp("ROLE_STAFF", id);
                     logger.info("Successfully updated staff status for ID: {} to {}", id, active);
                     break;
 
@@ -442,10 +514,8 @@ public class UnifiedUserService {
     public long getTodayRegistrationsCount() {
         logger.debug("Getting today's registration count");
         try {
-            LocalDate today = LocalDate.now();
-            // This would need proper date filtering in the repositories
-            // For now, return a placeholder value
-            return 0; // Placeholder
+            // Counted as accounts are created and reconciled with the user directory
+            return userCountService.isReady() ? userCountService.getCreatedToday() : 0;
         } catch (Exception e) {
             logger.error("Error getting today's registration count", e);
             return 0;
@@ -454,12 +524,16 @@ public class UnifiedUserService {
 
     public Map<String, Object> getUserGrowthAnalytics(LocalDate startDate, LocalDate endDate) {
         logger.debug("Getting user growth analytics from {} to {}", startDate, endDate);
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end.minusDays(29);
         try {
-            Map<String, Object> analytics = new HashMap<>();
-            analytics.put("newUsers", 0); // Placeholder
-            analytics.put("growthRate", 0.0); // Placeholder
-            analytics.put("activeUsers", 0); // Placeholder
+            Map<String, Object> analytics = userGrowthService.getGrowth(start, end);
+            if (userCountService.isReady()) {
+                analytics.put("activeUsers", userCountService.getEnabled());
+            }
             return analytics;
+        } catch (ValidationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error getting user growth analytics", e);
             return new HashMap<>();
@@ -470,6 +544,13 @@ public class UnifiedUserService {
         logger.debug("Getting user count by role");
         try {
             Map<String, Long> counts = new HashMap<>();
+            if (userCountService.isReady()) {
+                counts.put("CUSTOMER", userCountService.getTotal(UserDirectoryService.ROLE_CUSTOMER));
+                counts.put("ARTIST", userCountService.getTotal(UserDirectoryService.ROLE_ARTIST));
+                counts.put("ADMIN", userCountService.getTotal(UserDirectoryService.ROLE_ADMIN));
+                counts.put("STAFF", userCountService.getTotal(UserDirectoryService.ROLE_STAFF));
+                return counts;
+            }
             counts.put("CUSTOMER", customerService.count());
             counts.put("ARTIST", artistService.count());
             counts.put("ADMIN", adminService.count());
@@ -493,6 +574,16 @@ public class UnifiedUserService {
         }
     }
 
+    /**
+     * Users by page number, in the same order as {@link #getUsersAfter(String, int, String)}. The
+     * total comes from the maintained counters of {@link UserCountService} rather than a COUNT, so
+     * it can briefly be off by the accounts changed since their last reconciliation; deep pages
+     * still scan every row before them.
+     *
+     * @deprecated use {@link #getUsersAfter(String, int, String)}, which costs the same at any depth
+     */
+    @Deprecated
+    @Transactional(readOnly = true)
     public Page<UserDto> getAllUsers(int page, int size, String role) {
         logger.debug("Getting paginated users: page={}, size={}, role={}", page, size, role);
 
@@ -506,49 +597,23 @@ public class UnifiedUserService {
             throw new ValidationException("Page size must be positive");
         }
 
-        try {
-            Pageable pageable = PageRequest.of(page, size);
-            final List<UserDto> allUsers = new java.util.ArrayList<>();
-
-            // Filter by role if specified
-            if (role != null && !role.trim().isEmpty()) {
-                switch (role.toUpperCase()) {
-                    case "CUSTOMER":
-                        customerService.getAllCustomers().forEach(customer ->
-                            allUsers.add(convertCustomerToDto(customer)));
-                        break;
-                    case "ARTIST":
-                        artistService.getAllArtists().forEach(artist ->
-                            allUsers.add(convertArtistToDto(artist)));
-                        break;
-                    case "ADMIN":
-                        adminService.getAllAdmins().forEach(admin ->
-                            allUsers.add(convertAdminToDto(admin)));
-                        break;
-                    case "STAFF":
-                        staffService.getAllStaff().forEach(staff ->
-                            allUsers.add(convertStaffToDto(staff)));
-                        break;
-                    default:
-                        logger.error("Invalid role filter: {}", role);
-                        throw new ValidationException("Invalid role: " + role);
-                }
-            } else {
-                // Get all users
-                List<UserDto> allUsersList = getAllUsers();
-                allUsers.addAll(allUsersList);
-            }
-
-            // Manual pagination
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), allUsers.size());
-            List<UserDto> pageContent = allUsers.subList(start, end);
+        String directoryRole = directoryRole(role);
+        if (!userDirectoryService.isBackfilled()) {
+            throw new ServiceUnavailableException("User listing is still being indexed, please try again shortly", 5);
+        }
 
-            Page<UserDto> result = new org.springframework.data.domain.PageImpl<>(
-                pageContent, pageable, allUsers.size());
+        try {
+            // Offset paging happens in the database over the directory; only the page's accounts are loaded
+            Slice<UserDirectoryEntry> entries = userDirectoryService.findPage(directoryRole, page, size);
+            // Never less than what this slice has seen, so the page links stay consistent with it
+            long seen = entries.getPageable().getOffset() + entries.getNumberOfElements() + (entries.hasNext() ? 1 : 0);
+            long counted = !userCountService.isReady() ? 0
+                : directoryRole == null ? userCountService.getTotal() : userCountService.getTotal(directoryRole);
+            Page<UserDto> result = new PageImpl<>(
+                toUserDtos(entries.getContent()), entries.getPageable(), Math.max(seen, counted));
 
             logger.info("Successfully retrieved {} users (page {} of total {})",
-                       pageContent.size(), page, result.getTotalPages());
+                       result.getNumberOfElements(), page, result.getTotalPages());
             return result;
         } catch (Exception e) {
             logger.error("Error getting paginated users", e);
@@ -556,6 +621,66 @@ public class UnifiedUserService {
         }
     }
 
+    /**
+     * Returns the users after the given cursor, or the first users if it is null, in the same order
+     * as {@link #getAllUsers(int, int, String)}. Pass the returned nextCursor to get the following
+     * page; unlike page numbers, a cursor costs the same however deep it is and does not skip or
+     * repeat users when accounts are added or removed meanwhile.
+     */
+    @Transactional(readOnly = true)
+    public UserCursorPage getUsersAfter(String cursor, int size, String role) {
+        logger.debug("Getting users after cursor: cursor={}, size={}, role={}", cursor, size, role);
+
+        if (size <= 0) {
+            logger.error("Page size must be positive: {}", size);
+            throw new ValidationException("Page size must be positive");
+        }
+
+        String directoryRole = directoryRole(role);
+        if (!userDirectoryService.isBackfilled()) {
+            throw new ServiceUnavailableException("User listing is still being indexed, please try again shortly", 5);
+        }
+
+        CursorPosition after = decodeCursor(cursor);
+        // One extra row tells whether there is a next page
+        List<UserDirectoryEntry> entries = userDirectoryService.findAfter(directoryRole, after.createdAt(), after.id(), size + 1);
+        UserCursorPage result = toCursorPage(entries, size);
+        logger.info("Successfully retrieved {} users after cursor", result.getContent().size());
+        return result;
+    }
+
+    // The (createdAt, id) position of the last entry a cursor was issued for; nulls for the start
+    private record CursorPosition(LocalDateTime createdAt, Long id) {
+    }
+
+    private CursorPosition decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new CursorPosition(null, null);
+        }
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new CursorPosition(LocalDateTime.parse(position[0]), Long.valueOf(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            logger.error("Invalid user listing cursor: {}", cursor);
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    // Drops the extra row read past the page and issues the cursor of the page's last entry
+    private UserCursorPage toCursorPage(List<UserDirectoryEntry> entries, int size) {
+        boolean hasNext = entries.size() > size;
+        if (hasNext) {
+            entries = entries.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            UserDirectoryEntry last = entries.get(entries.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new UserCursorPage(toUserDtos(entries), nextCursor, hasNext);
+    }
+
     // Helper methods for updating user entities from request objects
     private void updateCustomerFromRequest(Customer customer, Object updateRequest) {
         // This would need proper DTO mapping based on your update request structure
@@ -642,35 +767,48 @@ public class UnifiedUserService {
     }
 
     // Additional utility methods
+    /**
+     * Returns up to the first thousand users matching the term; see
+     * {@link #searchUsers(String, String, String, int)}.
+     */
+    @Transactional(readOnly = true)
     public List<UserDto> searchUsers(String searchTerm) {
         logger.debug("Searching users with term: {}", searchTerm);
+        return searchUsers(searchTerm, null, null, MAX_UNPAGED_SEARCH_RESULTS).getContent();
+    }
+
+    /**
+     * Finds users whose username, email, first or last name or artist name contains the term, or
+     * starts with it for terms shorter than three characters, optionally of one role. Served from
+     * the trigram index of {@link UserSearchService}, ordered like the user listing and read by
+     * cursor the same way as {@link #getUsersAfter(String, int, String)}; matches are not counted.
+     */
+    @Transactional(readOnly = true)
+    public UserCursorPage searchUsers(String searchTerm, String role, String cursor, int size) {
+        logger.debug("Searching users: term={}, role={}, cursor={}, size={}", searchTerm, role, cursor, size);
 
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             logger.error("Search term is null or empty");
             throw new ValidationException("Search term cannot be null or empty");
         }
 
-        try {
-            List<UserDto> results = new java.util.ArrayList<>();
-            String lowerSearchTerm = searchTerm.toLowerCase();
-
-            // Search in all user types
-            getAllUsers().stream()
-                .filter(user ->
-                    (user.getUsername() != null && user.getUsername().toLowerCase().contains(lowerSearchTerm)) ||
-                    (user.getEmail() != null && user.getEmail().toLowerCase().contains(lowerSearchTerm)) ||
-                    (user.getFirstName() != null && user.getFirstName().toLowerCase().contains(lowerSearchTerm)) ||
-                    (user.getLastName() != null && user.getLastName().toLowerCase().contains(lowerSearchTerm)) ||
-                    (user.getArtistName() != null && user.getArtistName().toLowerCase().contains(lowerSearchTerm))
-                )
-                .forEach(results::add);
-
-            logger.info("Found {} users matching search term: {}", results.size(), searchTerm);
-            return results;
-        } catch (Exception e) {
-            logger.error("Error searching users with term: {}", searchTerm, e);
-            throw new RuntimeException("Failed to search users", e);
+        if (size <= 0) {
+            logger.error("Page size must be positive: {}", size);
+            throw new ValidationException("Page size must be positive");
         }
+
+        String directoryRole = directoryRole(role);
+        if (!userDirectoryService.isBackfilled()) {
+            throw new ServiceUnavailableException("User search is still being indexed, please try again shortly", 5);
+        }
+
+        CursorPosition after = decodeCursor(cursor);
+        List<UserDirectoryEntry> entries = userSearchService.search(searchTerm, directoryRole,
+            after.createdAt(), after.id(), size + 1);
+        UserCursorPage result = toCursorPage(entries, size);
+
+        logger.info("Found {} users matching search term: {}", result.getContent().size(), searchTerm);
+        return result;
     }
 
     public boolean isUsernameAvailable(String username) {
@@ -681,7 +819,13 @@ public class UnifiedUserService {
         }
 
         try {
-            // Check in all user types
+            if (userDirectoryService.isBackfilled()) {
+                boolean available = !userDirectoryService.isUsernameTaken(username);
+                logger.info("Username '{}' is {}", username, available ? "available" : "taken");
+                return available;
+            }
+
+            // Directory not backfilled yet: check in all user types
             try {
                 customerService.findByUsername(username);
                 return false; // Username found, not available
@@ -820,9 +964,11 @@ public class UnifiedUserService {
                     throw new BusinessRuleException("Artist deletion not implemented");
                 case "ADMIN":
                     adminService.deleteAdmin(userId);
+                    userPrincipalService.bumpStamp("ROLE_ADMIN", userId);
                     break;
                 case "STAFF":
                     staffService.deleteStaff(userId);
+                    userPrincipalService.bumpStamp("ROLE_STAFF", userId);
                     break;
                 default:
                     logger.error("Invalid role for user deletion: {}", role);
@@ -846,7 +992,17 @@ public class UnifiedUserService {
         try {
             String username = userDetails.getUsername();
 
-            // Try to find user in all repositories
+            Optional<UserDirectoryEntry> entry = userDirectoryService.findByUsername(username);
+            if (entry.isPresent()) {
+                return switch (entry.get().getRole()) {
+                    case UserDirectoryService.ROLE_CUSTOMER -> convertCustomerToDto(customerService.findByUsername(username));
+                    case UserDirectoryService.ROLE_ARTIST -> convertArtistToDto(artistService.findByUsername(username));
+                    case UserDirectoryService.ROLE_STAFF -> convertStaffToDto(staffService.findByUsername(username));
+                    default -> convertAdminToDto(adminService.findByUsername(username));
+                };
+            }
+
+            // Not indexed yet: try to find user in all repositories
             try {
                 Customer customer = customerService.findByUsername(username);
                 logger.info("Found customer info for: {}", username);
@@ -886,4 +1042,62 @@ public class UnifiedUserService {
             throw e;
         }
     }
+
+    // Directory role for a listing filter; null lists every role
+    private static String directoryRole(String role) {
+        if (role == null || role.trim().isEmpty()) {
+            return null;
+        }
+        switch (role.toUpperCase()) {
+            case "CUSTOMER":
+            case "ARTIST":
+            case "ADMIN":
+            case "STAFF":
+                return "ROLE_" + role.toUpperCase();
+            default:
+                logger.error("Invalid role filter: {}", role);
+                throw new ValidationException("Invalid role: " + role);
+        }
+    }
+
+    /**
+     * Loads the accounts of directory entries with one query per role and returns them in entry
+     * order. Accounts deleted since the entries were read are left out.
+     */
+    private List<UserDto> toUserDtos(List<UserDirectoryEntry> entries) {
+        Map<String, List<Long>> idsByRole = new HashMap<>();
+        for (UserDirectoryEntry entry : entries) {
+            idsByRole.computeIfAbsent(entry.getRole(), r -> new ArrayList<>()).add(entry.getUserId());
+        }
+
+        Map<String, UserDto> byAccount = new HashMap<>();
+        idsByRole.forEach((role, ids) -> {
+            switch (role) {
+                case UserDirectoryService.ROLE_CUSTOMER -> customerRepository.findAllById(ids).forEach(customer ->
+                    byAccount.put(UserSecurityStamp.key(role, customer.getId()), convertCustomerToDto(customer)));
+                case UserDirectoryService.ROLE_ARTIST -> artistRepository.findAllById(ids).forEach(artist ->
+                    byAccount.put(UserSecurityStamp.key(role, artist.getId()), convertArtistToDto(artist)));
+                case UserDirectoryService.ROLE_ADMIN -> adminRepository.findAllById(ids).forEach(admin ->
+                    byAccount.put(UserSecurityStamp.key(role, admin.getId()), convertAdminToDto(admin)));
+                case UserDirectoryService.ROLE_STAFF -> staffRepository.findAllById(ids).forEach(staff ->
+                    byAccount.put(UserSecurityStamp.key(role, staff.getId()), convertStaffToDto(staff)));
+                default -> logger.warn("Skipping directory entries with unknown role: {}", role);
+            }
+        });
+
+        List<UserDto> users = new ArrayList<>(entries.size());
+        for (UserDirectoryEntry entry : entries) {
+            UserDto user = byAccount.get(UserSecurityStamp.key(entry.getRole(), entry.getUserId()));
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private void recordCustomer(Customer customer) {
+        userDirectoryService.record(UserDirectoryService.ROLE_CUSTOMER, customer.getId(), customer.getUsername(),
+                customer.getEmail(), customer.isEnabled(), customer.getCreatedAt(), customer.getFirstName(),
+                customer.getLastName());
+    }
 }
@@ -0,0 +1,205 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.UserAccountEvent;
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Account totals per role (all, enabled, created today) for the admin dashboards, served from
+ * memory.
+ *
+ * Counters follow {@link UserAccountEvent}s once their transaction commits. Writes that bypass the
+ * user services, other instances' writes and the event that races with a reconciliation make them
+ * drift, so they are periodically replaced by one grouped count over the user directory. Until the
+ * first reconciliation after startup they are not ready and callers should count from the
+ * database.
+ */
+@Service
+public class UserCountService {
+    private static final Logger logger = LoggerFactory.getLogger(UserCountService.class);
+
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final UserDirectoryService userDirectoryService;
+
+    private final Map<String, RoleCounters> counters = new ConcurrentHashMap<>();
+    private volatile LocalDate countingDay = LocalDate.now();
+    private volatile boolean ready;
+    private volatile Instant lastReconciled;
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong lastDrift = new AtomicLong();
+
+    public UserCountService(UserDirectoryRepository userDirectoryRepository,
+                            UserDirectoryService userDirectoryService) {
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.userDirectoryService = userDirectoryService;
+        for (String role : List.of(UserDirectoryService.ROLE_CUSTOMER, UserDirectoryService.ROLE_ARTIST,
+                UserDirectoryService.ROLE_ADMIN, UserDirectoryService.ROLE_STAFF)) {
+            counters.put(role, new RoleCounters());
+        }
+        logger.info("UserCountService initialized successfully");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccount(UserAccountEvent event) {
+        RoleCounters role = countersOf(event.role());
+        boolean createdToday = event.createdAt() != null && event.createdAt().toLocalDate().equals(currentDay());
+        switch (event.type()) {
+            case CREATED -> {
+                role.total.incrementAndGet();
+                if (event.enabled()) {
+                    role.enabled.incrementAndGet();
+                }
+                if (createdToday) {
+                    role.createdToday.incrementAndGet();
+                }
+            }
+            case DELETED -> {
+                role.total.decrementAndGet();
+                if (event.enabled()) {
+                    role.enabled.decrementAndGet();
+                }
+                if (createdToday) {
+                    role.createdToday.decrementAndGet();
+                }
+            }
+            case ENABLED -> role.enabled.incrementAndGet();
+            case DISABLED -> role.enabled.decrementAndGet();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Total accounts of a directory role, e.g. ROLE_CUSTOMER.
+     */
+    public long getTotal(String role) {
+        return countersOf(role).total.get();
+    }
+
+    public long getEnabled(String role) {
+        return countersOf(role).enabled.get();
+    }
+
+    public long getCreatedToday(String role) {
+        currentDay();
+        return countersOf(role).createdToday.get();
+    }
+
+    public long getTotal() {
+        return counters.values().stream().mapToLong(role -> role.total.get()).sum();
+    }
+
+    public long getEnabled() {
+        return counters.values().stream().mapToLong(role -> role.enabled.get()).sum();
+    }
+
+    public long getCreatedToday() {
+        currentDay();
+        return counters.values().stream().mapToLong(role -> role.createdToday.get()).sum();
+    }
+
+    /**
+     * Replaces the counters with counts from the user directory. Runs after the startup backfill and
+     * then periodically; skipped while the directory is still incomplete.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${musicstore.users.counts.reconcile-interval-ms:300000}",
+            initialDelayString = "${musicstore.users.counts.reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        if (!userDirectoryService.isBackfilled()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        LocalDate today = currentDay();
+        Map<String, long[]> actual = new HashMap<>();
+        for (Object[] row : userDirectoryRepository.countByRole()) {
+            long[] counts = actual.computeIfAbsent((String) row[0], role -> new long[3]);
+            counts[0] = ((Number) row[1]).longValue();
+            counts[1] = row[2] != null ? ((Number) row[2]).longValue() : 0;
+        }
+        for (Object[] row : userDirectoryRepository.countCreatedSinceByRole(today.atStartOfDay())) {
+            actual.computeIfAbsent((String) row[0], role -> new long[3])[2] = ((Number) row[1]).longValue();
+        }
+
+        long drift = 0;
+        for (String role : counters.keySet()) {
+            actual.putIfAbsent(role, new long[3]);
+        }
+        for (Map.Entry<String, long[]> entry : actual.entrySet()) {
+            RoleCounters role = countersOf(entry.getKey());
+            long[] counts = entry.getValue();
+            drift += Math.abs(role.total.getAndSet(counts[0]) - counts[0])
+                    + Math.abs(role.enabled.getAndSet(counts[1]) - counts[1])
+                    + Math.abs(role.createdToday.getAndSet(counts[2]) - counts[2]);
+        }
+
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (!ready) {
+            logger.info("Loaded user counters in {} ms", elapsedMs);
+        } else if (drift > 0) {
+            logger.info("Reconciled user counters in {} ms, corrected a drift of {}", elapsedMs, drift);
+        }
+        lastDrift.set(ready ? drift : 0);
+        ready = true;
+        lastReconciled = Instant.now();
+        reconciliations.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("reconciliations", reconciliations.get());
+        stats.put("lastReconciled", lastReconciled != null ? lastReconciled.toString() : null);
+        stats.put("lastDrift", lastDrift.get());
+        Map<String, Object> roles = new HashMap<>();
+        currentDay();
+        counters.forEach((role, counts) -> roles.put(role, Map.of(
+                "total", counts.total.get(),
+                "enabled", counts.enabled.get(),
+                "createdToday", counts.createdToday.get())));
+        stats.put("roles", roles);
+        return stats;
+    }
+
+    private RoleCounters countersOf(String role) {
+        return counters.computeIfAbsent(role, r -> new RoleCounters());
+    }
+
+    // Starts a new day's registration count at midnight; the next reconciliation settles any race
+    private LocalDate currentDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(countingDay)) {
+            synchronized (this) {
+                if (!today.equals(countingDay)) {
+                    counters.values().forEach(role -> role.createdToday.set(0));
+                    countingDay = today;
+                }
+            }
+        }
+        return today;
+    }
+
+    private static final class RoleCounters {
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong enabled = new AtomicLong();
+        private final AtomicLong createdToday = new AtomicLong();
+    }
+}
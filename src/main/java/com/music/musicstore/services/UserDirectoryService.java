@@ -0,0 +1,367 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.UserAccountEvent;
+import com.music.musicstore.models.DataMigration;
+import com.music.musicstore.models.users.UserDirectoryEntry;
+import com.music.musicstore.repositories.DataMigrationRepository;
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single index of every account's username, email, role and id across the four account tables.
+ *
+ * The admin, staff and artist services record their writes here and UnifiedUserService records
+ * customer writes, each inside the same transaction as the account change. Accounts written
+ * directly through repositories (the startup data initializers, rows that predate the directory)
+ * are picked up by a backfill once the application is ready. Until that has finished, callers
+ * should treat a miss as "unknown" rather than "does not exist".
+ *
+ * The backfill walks each account table in id order, one transaction per batch, and stores its
+ * position in {@link DataMigration} with the batch. A failure leaves the committed batches in
+ * place and the job resumes from there on its next run; once a table has been walked, later
+ * startups only read the accounts added since.
+ *
+ * The directory is also the single listing of all users. Pages are ordered by (created_at, id) and
+ * are read, at constant cost however deep, from the last entry of the previous page; reading by
+ * offset is kept for the old page-number endpoints but counts no total.
+ * Rows also carry the search fields {@link UserSearchService} matches against.
+ *
+ * Because every account write passes through here, this is also where {@link UserAccountEvent}s
+ * are published for creations, deletions and status changes.
+ */
+@Service
+public class UserDirectoryService {
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+    public static final String ROLE_STAFF = "ROLE_STAFF";
+    public static final String ROLE_ARTIST = "ROLE_ARTIST";
+    public static final String ROLE_CUSTOMER = "ROLE_CUSTOMER";
+    // Creation time given to accounts that never recorded one, so they list first and in id order
+    public static final LocalDateTime UNKNOWN_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int BACKFILL_BATCH_ATTEMPTS = 3;
+    private static final String BACKFILL_MIGRATION = "user-directory-backfill:";
+    private static final String CREATED_AT_MIGRATION = "user-directory-created-at";
+    // Same order CombinedUserDetailsService has always tried the tables in
+    private static final List<String> ROLE_PRECEDENCE = List.of(ROLE_ADMIN, ROLE_STAFF, ROLE_ARTIST, ROLE_CUSTOMER);
+
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final UserSearchService userSearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean backfilled;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    public UserDirectoryService(UserDirectoryRepository userDirectoryRepository,
+                                DataMigrationRepository dataMigrationRepository,
+                                UserSearchService userSearchService,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager) {
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.dataMigrationRepository = dataMigrationRepository;
+        this.userSearchService = userSearchService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        logger.info("UserDirectoryService initialized successfully");
+    }
+
+    /**
+     * Returns the account a username belongs to. Should two tables hold the same username, the
+     * more privileged role wins, matching the order logins have always been resolved in.
+     */
+    public Optional<UserDirectoryEntry> findByUsername(String username) {
+        if (username == null || username.isBlank()) {
+            return Optional.empty();
+        }
+        return userDirectoryRepository.findAllByUsername(username).stream()
+                .min(Comparator.comparingInt(entry -> precedence(entry.getRole())));
+    }
+
+    public boolean isUsernameTaken(String username) {
+        return userDirectoryRepository.existsByUsername(username);
+    }
+
+    public boolean isEmailTaken(String email) {
+        return userDirectoryRepository.existsByEmail(email);
+    }
+
+    /**
+     * Slice of entries by offset, optionally of one role. No total is counted; deep pages still
+     * scan every row before them, so prefer {@link #findAfter}.
+     */
+    public Slice<UserDirectoryEntry> findPage(String role, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return role == null
+                ? userDirectoryRepository.findAllByOrderByCreatedAtAscIdAsc(pageRequest)
+                : userDirectoryRepository.findByRoleOrderByCreatedAtAscIdAsc(role, pageRequest);
+    }
+
+    /**
+     * Up to limit entries, optionally of one role, that come after the given entry's (createdAt, id)
+     * position; from the start if it is null.
+     */
+    public List<UserDirectoryEntry> findAfter(String role, LocalDateTime createdAt, Long id, int limit) {
+        PageRequest first = PageRequest.of(0, limit);
+        if (createdAt == null || id == null) {
+            return findPage(role, 0, limit).getContent();
+        }
+        return role == null
+                ? userDirectoryRepository.findAfter(createdAt, id, first)
+                : userDirectoryRepository.findByRoleAfter(role, createdAt, id, first);
+    }
+
+    /**
+     * True once every account that existed at startup has been indexed; before that a miss is not
+     * authoritative.
+     */
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    /**
+     * Inserts or updates the directory row of an account, including its search fields: the username,
+     * email and the given names. Joins the caller's transaction.
+     */
+    @Transactional
+    public void record(String role, Long userId, String username, String email, boolean enabled,
+                       LocalDateTime createdAt, String... names) {
+        if (userId == null || username == null) {
+            return;
+        }
+        UserDirectoryEntry entry = userDirectoryRepository.findByRoleAndUserId(role, userId)
+                .orElseGet(() -> new UserDirectoryEntry(role, userId));
+        boolean isNew = entry.getId() == null;
+        boolean wasEnabled = entry.isEnabled();
+        entry.setUsername(username);
+        entry.setEmail(email);
+        entry.setEnabled(enabled);
+        if (entry.getCreatedAt() == null) {
+            entry.setCreatedAt(createdAt != null ? createdAt : LocalDateTime.now());
+        }
+        userSearchService.index(entry, searchFields(username, email, names));
+        userDirectoryRepository.save(entry);
+
+        if (isNew) {
+            eventPublisher.publishEvent(UserAccountEvent.created(role, userId, enabled, entry.getCreatedAt()));
+        } else if (wasEnabled != enabled) {
+            eventPublisher.publishEvent(UserAccountEvent.statusChanged(role, userId, enabled, entry.getCreatedAt()));
+        }
+    }
+
+    @Transactional
+    public void remove(String role, Long userId) {
+        if (userId != null) {
+            // Deleted through the entity so its search trigrams go with it
+            userDirectoryRepository.findByRoleAndUserId(role, userId).ifPresent(entry -> {
+                userSearchService.unindex(entry);
+                userDirectoryRepository.delete(entry);
+                eventPublisher.publishEvent(UserAccountEvent.deleted(role, userId, entry.isEnabled(),
+                        entry.getCreatedAt()));
+            });
+        }
+    }
+
+    /**
+     * Indexes every account that has no directory row yet, or whose row predates stored creation
+     * times or search fields. Runs after startup, after the data initializers, and is retried
+     * periodically until it has completed; each run continues where the last one committed.
+     * Ordered first among the startup listeners, since several of them read the directory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startNanos = System.nanoTime();
+
+            int dated = fillCreatedAt();
+
+            int inserted = 0;
+            boolean complete = true;
+            for (String role : ROLE_PRECEDENCE) {
+                try {
+                    inserted += backfillRole(role);
+                } catch (RuntimeException e) {
+                    // Committed batches stay; the next run resumes after them
+                    complete = false;
+                    logger.error("User directory backfill of {} stopped, will resume later: {}", role, e.getMessage());
+                }
+            }
+
+            if (complete) {
+                userSearchService.loadGramCounts();
+                backfilled = true;
+            }
+            logger.info("User directory backfill indexed {} accounts and dated {} in {} ms{}", inserted, dated,
+                    (System.nanoTime() - startNanos) / 1_000_000, complete ? "" : " (incomplete)");
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${musicstore.users.backfill-retry-ms:300000}",
+            initialDelayString = "${musicstore.users.backfill-retry-ms:300000}")
+    public void resumeBackfill() {
+        if (!backfilled) {
+            backfill();
+        }
+    }
+
+    // Dates rows indexed before creation times were stored. Every row written since carries one, so
+    // this runs once and is recorded as done in the same transaction as the updates
+    private int fillCreatedAt() {
+        return transactionTemplate.execute(status -> {
+            DataMigration progress = dataMigrationRepository.findById(CREATED_AT_MIGRATION)
+                    .orElseGet(() -> new DataMigration(CREATED_AT_MIGRATION));
+            if (progress.isCompleted()) {
+                return 0;
+            }
+            int dated = userDirectoryRepository.fillAdminCreatedAt(UNKNOWN_CREATED_AT)
+                    + userDirectoryRepository.fillStaffCreatedAt(UNKNOWN_CREATED_AT)
+                    + userDirectoryRepository.fillArtistCreatedAt(UNKNOWN_CREATED_AT)
+                    + userDirectoryRepository.fillCustomerCreatedAt(UNKNOWN_CREATED_AT)
+                    + userDirectoryRepository.fillMissingCreatedAt(UNKNOWN_CREATED_AT);
+            progress.markCompleted();
+            dataMigrationRepository.save(progress);
+            return dated;
+        });
+    }
+
+    private static int precedence(String role) {
+        int index = ROLE_PRECEDENCE.indexOf(role);
+        return index >= 0 ? index : ROLE_PRECEDENCE.size();
+    }
+
+    // Walks one account table from the stored cursor to its end; returns the number of new rows
+    private int backfillRole(String role) {
+        String migration = BACKFILL_MIGRATION + role;
+        long afterId = dataMigrationRepository.findById(migration).map(DataMigration::getLastId).orElse(0L);
+        int inserted = 0;
+        List<Object[]> rows;
+        do {
+            rows = accountRowsAfter(role, afterId);
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            inserted += saveBatch(role, rows, migration, afterId);
+        } while (rows.size() == BACKFILL_BATCH_SIZE);
+
+        long lastId = afterId;
+        transactionTemplate.executeWithoutResult(status -> {
+            DataMigration progress = dataMigrationRepository.findById(migration)
+                    .orElseGet(() -> new DataMigration(migration));
+            if (!progress.isCompleted()) {
+                progress.setLastId(Math.max(progress.getLastId(), lastId));
+                progress.markCompleted();
+                dataMigrationRepository.save(progress);
+            }
+        });
+        return inserted;
+    }
+
+    private List<Object[]> accountRowsAfter(String role, long afterId) {
+        PageRequest batch = PageRequest.of(0, BACKFILL_BATCH_SIZE);
+        return switch (role) {
+            case ROLE_ADMIN -> userDirectoryRepository.findAdminRowsAfter(afterId, batch);
+            case ROLE_STAFF -> userDirectoryRepository.findStaffRowsAfter(afterId, batch);
+            case ROLE_ARTIST -> userDirectoryRepository.findArtistRowsAfter(afterId, batch);
+            default -> userDirectoryRepository.findCustomerRowsAfter(afterId, batch);
+        };
+    }
+
+    private int saveBatch(String role, List<Object[]> rows, String migration, long lastId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> indexBatch(role, rows, migration, lastId));
+            } catch (DataIntegrityViolationException e) {
+                // An account recorded concurrently took the row first; the retry finds and skips it
+                if (attempt == BACKFILL_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // One transaction and persistence context per batch, so memory stays flat however many accounts there are
+    private int indexBatch(String role, List<Object[]> rows, String migration, long lastId) {
+        List<Long> userIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            userIds.add(((Number) row[0]).longValue());
+        }
+        Map<Long, UserDirectoryEntry> existing = new HashMap<>();
+        for (UserDirectoryEntry entry : userDirectoryRepository.findByRoleAndUserIdIn(role, userIds)) {
+            existing.put(entry.getUserId(), entry);
+        }
+
+        List<UserDirectoryEntry> batch = new ArrayList<>(rows.size());
+        int inserted = 0;
+        for (Object[] row : rows) {
+            Long userId = ((Number) row[0]).longValue();
+            String username = (String) row[1];
+            if (username == null) {
+                continue;
+            }
+            UserDirectoryEntry entry = existing.get(userId);
+            if (entry == null) {
+                entry = new UserDirectoryEntry(role, userId);
+                entry.setUsername(username);
+                entry.setEmail((String) row[2]);
+                entry.setEnabled(Boolean.TRUE.equals(row[3]));
+                entry.setCreatedAt(row[4] != null ? (LocalDateTime) row[4] : UNKNOWN_CREATED_AT);
+                inserted++;
+            } else if (entry.getSearchText() != null) {
+                continue;
+            }
+            String[] names = new String[row.length - 5];
+            for (int i = 5; i < row.length; i++) {
+                names[i - 5] = (String) row[i];
+            }
+            userSearchService.index(entry, searchFields(username, (String) row[2], names));
+            batch.add(entry);
+        }
+        userDirectoryRepository.saveAll(batch);
+
+        DataMigration progress = dataMigrationRepository.findById(migration).orElseGet(() -> new DataMigration(migration));
+        progress.setLastId(lastId);
+        dataMigrationRepository.save(progress);
+        return inserted;
+    }
+
+    private static String[] searchFields(String username, String email, String... names) {
+        String[] fields = new String[names.length + 2];
+        fields[0] = username;
+        fields[1] = email;
+        System.arraycopy(names, 0, fields, 2, names.length);
+        return fields;
+    }
+}
@@ -0,0 +1,326 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.UserAccountEvent;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.users.UserDailyRollup;
+import com.music.musicstore.repositories.UserDailyRollupRepository;
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registration and deactivation analytics from the user_daily_rollups table.
+ *
+ * {@link UserAccountEvent}s are counted in memory once their transaction commits and a scheduled
+ * flush adds them to the (day, role) rows, so a burst of sign-ups updates each row once per flush
+ * instead of once per account. A registration counts on the account's creation day; a
+ * deactivation, an enabled account being disabled or deleted, on the day it happened.
+ *
+ * Registrations before the rollup existed are rebuilt from the creation times in the user
+ * directory when the table is empty, or on request. Past deactivations left no record and cannot
+ * be rebuilt, so they are counted from the time the rollup was introduced.
+ *
+ * A date range is answered from one range scan that also covers the preceding period of the same
+ * length, which the growth rate is computed against.
+ */
+@Service
+public class UserGrowthService {
+    private static final Logger logger = LoggerFactory.getLogger(UserGrowthService.class);
+
+    private static final long MAX_RANGE_DAYS = 3660;
+
+    private final UserDailyRollupRepository rollupRepository;
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final UserDirectoryService userDirectoryService;
+
+    private final Map<RollupKey, PendingCounts> pending = new ConcurrentHashMap<>();
+    private final LongAdder registrationsCounted = new LongAdder();
+    private final LongAdder deactivationsCounted = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    public UserGrowthService(UserDailyRollupRepository rollupRepository,
+                             UserDirectoryRepository userDirectoryRepository,
+                             UserDirectoryService userDirectoryService) {
+        this.rollupRepository = rollupRepository;
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.userDirectoryService = userDirectoryService;
+        logger.info("UserGrowthService initialized successfully");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccount(UserAccountEvent event) {
+        LocalDate today = LocalDate.ofInstant(event.occurredAt(), ZoneId.systemDefault());
+        switch (event.type()) {
+            case CREATED -> {
+                LocalDate day = event.createdAt() != null ? event.createdAt().toLocalDate() : today;
+                count(day, event.role(), true);
+                registrationsCounted.increment();
+            }
+            case DISABLED -> countDeactivation(today, event.role());
+            case DELETED -> {
+                if (event.enabled()) {
+                    countDeactivation(today, event.role());
+                }
+            }
+            case ENABLED -> {
+                // Reactivations are not tracked
+            }
+        }
+    }
+
+    /**
+     * Adds the counts gathered since the last flush to the rollup rows. Counts that cannot be
+     * written are kept for the next flush. Entries are only ever created, counted into and removed
+     * inside the map's compute for their key, so an event counted while an idle entry is being
+     * dropped is never lost.
+     */
+    @Scheduled(fixedDelayString = "${musicstore.users.growth.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<RollupKey, PendingCounts> entry : pending.entrySet()) {
+            RollupKey key = entry.getKey();
+            PendingCounts counts = entry.getValue();
+            long registrations = counts.registrations.getAndSet(0);
+            long deactivations = counts.deactivations.getAndSet(0);
+            if (registrations == 0 && deactivations == 0) {
+                // Past days rarely receive more events; a late one recreates the entry
+                if (key.day().isBefore(today)) {
+                    pending.computeIfPresent(key, (k, current) -> current.isEmpty() ? null : current);
+                }
+                continue;
+            }
+            try {
+                write(key, registrations, deactivations);
+                rowsWritten.increment();
+            } catch (Exception e) {
+                counts.registrations.addAndGet(registrations);
+                counts.deactivations.addAndGet(deactivations);
+                flushFailures.increment();
+                logger.error("Failed to update user rollup of {} on {}: {}", key.role(), key.day(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Builds the registration rollup from the user directory if it is empty, such as on the first
+     * start with this table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (userDirectoryService.isBackfilled() && rollupRepository.count() == 0) {
+            rebuildRegistrations();
+        }
+    }
+
+    /**
+     * Recomputes every day's registrations from the creation times in the user directory, keeping
+     * the deactivation counts. Accounts deleted since they registered are no longer counted.
+     *
+     * Holds the flush lock throughout, so no flush adds registrations to a row between its rebuild
+     * and the end. Registrations still pending for a rebuilt (day, role) are discarded: their
+     * accounts were committed before the event was published and so are in the directory count.
+     *
+     * @return the number of (day, role) rows written
+     */
+    public synchronized int rebuildRegistrations() {
+        long startNanos = System.nanoTime();
+        // Writes pending deactivations, which the rebuild keeps
+        flush();
+        int rows = 0;
+        for (Object[] row : userDirectoryRepository.countRegistrationsByDayAndRole(UserDirectoryService.UNKNOWN_CREATED_AT)) {
+            LocalDate day = (LocalDate) row[0];
+            String role = (String) row[1];
+            long registrations = ((Number) row[2]).longValue();
+            pending.computeIfPresent(new RollupKey(day, role), (key, counts) -> {
+                counts.registrations.set(0);
+                return counts;
+            });
+            if (rollupRepository.setRegistrations(day, role, registrations) == 0) {
+                rollupRepository.save(new UserDailyRollup(day, role, registrations, 0));
+            }
+            rows++;
+        }
+        logger.info("Rebuilt {} daily user registration rows in {} ms", rows, (System.nanoTime() - startNanos) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Registrations, deactivations and growth from the first to the last day inclusive, in total,
+     * per day and per role, compared with the period of the same length just before.
+     *
+     * @throws ValidationException if the range is reversed or longer than ten years
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getGrowth(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ValidationException("Start date must not be after end date");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > MAX_RANGE_DAYS) {
+            throw new ValidationException("Date range cannot exceed " + MAX_RANGE_DAYS + " days");
+        }
+        LocalDate previousFrom = from.minusDays(days);
+
+        // Stored rows plus what has not been flushed yet
+        Map<RollupKey, long[]> counts = new HashMap<>();
+        for (UserDailyRollup rollup : rollupRepository.findByDayBetweenOrderByDayAsc(previousFrom, to)) {
+            long[] values = counts.computeIfAbsent(new RollupKey(rollup.getDay(), rollup.getRole()), k -> new long[2]);
+            values[0] += rollup.getRegistrations();
+            values[1] += rollup.getDeactivations();
+        }
+        pending.forEach((key, pendingCounts) -> {
+            if (!key.day().isBefore(previousFrom) && !key.day().isAfter(to)) {
+                long[] values = counts.computeIfAbsent(key, k -> new long[2]);
+                values[0] += pendingCounts.registrations.get();
+                values[1] += pendingCounts.deactivations.get();
+            }
+        });
+
+        long[] previous = new long[2];
+        long[][] daily = new long[(int) days][2];
+        Map<String, long[][]> dailyByRole = new TreeMap<>();
+        counts.forEach((key, values) -> {
+            if (key.day().isBefore(from)) {
+                previous[0] += values[0];
+                previous[1] += values[1];
+                return;
+            }
+            int index = (int) ChronoUnit.DAYS.between(from, key.day());
+            daily[index][0] += values[0];
+            daily[index][1] += values[1];
+            long[][] roleDaily = dailyByRole.computeIfAbsent(roleName(key.role()), r -> new long[(int) days][2]);
+            roleDaily[index][0] += values[0];
+            roleDaily[index][1] += values[1];
+        });
+
+        long registrations = 0;
+        long deactivations = 0;
+        List<Map<String, Object>> series = new ArrayList<>((int) days);
+        for (int i = 0; i < days; i++) {
+            registrations += daily[i][0];
+            deactivations += daily[i][1];
+            series.add(point(from.plusDays(i), daily[i]));
+        }
+
+        Map<String, Long> registrationsByRole = new TreeMap<>();
+        Map<String, List<Map<String, Object>>> seriesByRole = new TreeMap<>();
+        dailyByRole.forEach((role, roleDaily) -> {
+            long roleRegistrations = 0;
+            List<Map<String, Object>> roleSeries = new ArrayList<>((int) days);
+            for (int i = 0; i < days; i++) {
+                roleRegistrations += roleDaily[i][0];
+                roleSeries.add(point(from.plusDays(i), roleDaily[i]));
+            }
+            registrationsByRole.put(role, roleRegistrations);
+            seriesByRole.put(role, roleSeries);
+        });
+
+        Map<String, Object> growth = new LinkedHashMap<>();
+        growth.put("startDate", from.toString());
+        growth.put("endDate", to.toString());
+        growth.put("newUsers", registrations);
+        growth.put("deactivations", deactivations);
+        growth.put("netGrowth", registrations - deactivations);
+        growth.put("previousNewUsers", previous[0]);
+        growth.put("previousNetGrowth", previous[0] - previous[1]);
+        // Percentage change in registrations against the previous period
+        growth.put("growthRate", previous[0] > 0
+                ? (registrations - previous[0]) * 100.0 / previous[0]
+                : (registrations > 0 ? 100.0 : 0.0));
+        growth.put("newUsersByRole", registrationsByRole);
+        growth.put("series", series);
+        growth.put("seriesByRole", seriesByRole);
+        return growth;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("registrationsCounted", registrationsCounted.sum());
+        stats.put("deactivationsCounted", deactivationsCounted.sum());
+        stats.put("pendingKeys", pending.size());
+        stats.put("rowsWritten", rowsWritten.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        return stats;
+    }
+
+    private void countDeactivation(LocalDate day, String role) {
+        count(day, role, false);
+        deactivationsCounted.increment();
+    }
+
+    // Counted inside compute so flush cannot drop the entry between lookup and increment
+    private void count(LocalDate day, String role, boolean registration) {
+        pending.compute(new RollupKey(day, role), (key, counts) -> {
+            PendingCounts updated = counts != null ? counts : new PendingCounts();
+            (registration ? updated.registrations : updated.deactivations).incrementAndGet();
+            return updated;
+        });
+    }
+
+    private void write(RollupKey key, long registrations, long deactivations) {
+        if (rollupRepository.addCounts(key.day(), key.role(), registrations, deactivations) > 0) {
+            return;
+        }
+        try {
+            rollupRepository.save(new UserDailyRollup(key.day(), key.role(), registrations, deactivations));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the row first
+            if (rollupRepository.addCounts(key.day(), key.role(), registrations, deactivations) == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private static Map<String, Object> point(LocalDate day, long[] values) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("date", day.toString());
+        point.put("registrations", values[0]);
+        point.put("deactivations", values[1]);
+        point.put("net", values[0] - values[1]);
+        return point;
+    }
+
+    // ROLE_CUSTOMER -> CUSTOMER, as in the per-role user counts
+    private static String roleName(String role) {
+        return role.startsWith("ROLE_") ? role.substring(5) : role;
+    }
+
+    private record RollupKey(LocalDate day, String role) {
+    }
+
+    private static final class PendingCounts {
+        private final AtomicLong registrations = new AtomicLong();
+        private final AtomicLong deactivations = new AtomicLong();
+
+        private boolean isEmpty() {
+            return registrations.get() == 0 && deactivations.get() == 0;
+        }
+    }
+}
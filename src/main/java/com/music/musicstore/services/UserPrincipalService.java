@@ -0,0 +1,245 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import com.music.musicstore.models.users.Admin;
+import com.music.musicstore.models.users.Artist;
+import com.music.musicstore.models.users.Customer;
+import com.music.musicstore.models.users.Staff;
+import com.music.musicstore.models.users.UserPrincipal;
+import com.music.musicstore.models.users.UserSecurityStamp;
+import com.music.musicstore.repositories.UserSecurityStampRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the authenticated principal of a request from its token's claims.
+ *
+ * Tokens carry the user id, role and security-stamp version they were issued under, so the user is
+ * loaded by primary key from the one table its role lives in and cached for a short time as an
+ * immutable {@link UserPrincipal}. Entities never leave the loading call, so a cached principal
+ * holds no persistence state shared between requests.
+ * A cached principal is only reused while the token's stamp matches; changing, disabling or
+ * deleting a user bumps the stamp, which evicts it here immediately and rejects the user's older
+ * tokens. Other instances notice the new stamp once their cached entry expires, or as soon as a
+ * token carrying it arrives: a token newer than the cached entry reloads it rather than being
+ * rejected, and only tokens older than the stored stamp are refused.
+ *
+ * Tokens issued before these claims existed fall back to a username lookup across all roles.
+ */
+@Service
+public class UserPrincipalService {
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalService.class);
+
+    private final UserSecurityStampRepository stampRepository;
+    private final CombinedUserDetailsService userDetailsService;
+    private final CustomerService customerService;
+    private final ArtistService artistService;
+    private final AdminService adminService;
+    private final StaffService staffService;
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+    // Incremented on every bump so a load that raced with one does not cache what it read
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public UserPrincipalService(UserSecurityStampRepository stampRepository,
+                                CombinedUserDetailsService userDetailsService,
+                                CustomerService customerService,
+                                ArtistService artistService,
+                                AdminService adminService,
+                                StaffService staffService,
+                                JwtUtil jwtUtil,
+                                TokenRevocationService tokenRevocationService,
+                                @Value("${musicstore.security.principal-cache.ttl-ms:30000}") long ttlMs,
+                                @Value("${musicstore.security.principal-cache.max-entries:10000}") int maxEntries) {
+        this.stampRepository = stampRepository;
+        this.userDetailsService = userDetailsService;
+        this.customerService = customerService;
+        this.artistService = artistService;
+        this.adminService = adminService;
+        this.staffService = staffService;
+        this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        logger.info("UserPrincipalService initialized successfully");
+    }
+
+    /**
+     * Issues a token carrying the user's id, role and current security stamp.
+     */
+    public String issueToken(UserDetails user) {
+        Long userId = userIdOf(user);
+        if (userId == null) {
+            return jwtUtil.generateToken(user);
+        }
+        String role = user.getAuthorities().iterator().next().getAuthority();
+        return jwtUtil.generateToken(user, userId, currentStamp(role, userId));
+    }
+
+    /**
+     * Returns the principal for a verified token, or null if the token was revoked, or the user no
+     * longer exists, is disabled or has changed since the token was issued.
+     */
+    public UserPrincipal resolve(JwtUtil.VerifiedToken token) {
+        if (tokenRevocationService.isRevoked(token)) {
+            rejected.increment();
+            return null;
+        }
+        if (token.userId() == null || token.role() == null || token.securityStamp() == null) {
+            loads.increment();
+            try {
+                UserDetails user = userDetailsService.loadUserByUsername(token.username());
+                return user.isEnabled() ? UserPrincipal.of(user, userIdOf(user), 0) : null;
+            } catch (RuntimeException e) {
+                rejected.increment();
+                return null;
+            }
+        }
+
+        String key = UserSecurityStamp.key(token.role(), token.userId());
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = principals.get(key);
+        if (cached == null || cached.loadedAt + ttlMs <= now) {
+            cached = load(key, token.role(), token.userId(), now);
+        } else if (token.securityStamp() > cached.stamp) {
+            // The stamp was bumped on another instance, which issued this token afterwards
+            cached = load(key, token.role(), token.userId(), now);
+        } else {
+            hits.increment();
+        }
+
+        if (cached.user == null || cached.stamp != token.securityStamp()) {
+            rejected.increment();
+            return null;
+        }
+        return cached.user;
+    }
+
+    /**
+     * Invalidates every token issued to the user so far. Call after changing a user's password,
+     * status, profile or after deleting them.
+     */
+    @Transactional
+    public void bumpStamp(String role, Long userId) {
+        String key = UserSecurityStamp.key(role, userId);
+        UserSecurityStamp stamp = stampRepository.findById(key).orElseGet(() -> new UserSecurityStamp(key));
+        long version = stamp.bump();
+        stampRepository.save(stamp);
+        // Evict once the new version is visible, or a concurrent load could re-cache the old one
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+        logger.info("Bumped security stamp of {} to {}", key, version);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedPrincipals", principals.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    private CachedPrincipal load(String key, String role, Long userId, long now) {
+        loads.increment();
+        long invalidationsBefore = invalidations.get();
+        long stamp = currentStamp(role, userId);
+        UserPrincipal user;
+        try {
+            UserDetails entity = findUser(role, userId);
+            user = entity != null && entity.isEnabled() ? UserPrincipal.of(entity, userId, stamp) : null;
+        } catch (RuntimeException e) {
+            // Deleted users and unknown roles are simply unauthenticated
+            logger.debug("Could not load principal {}: {}", key, e.getMessage());
+            user = null;
+        }
+
+        CachedPrincipal loaded = new CachedPrincipal(user, stamp, now);
+        if (invalidations.get() == invalidationsBefore) {
+            if (principals.size() >= maxEntries) {
+                evictExpired(now);
+            }
+            if (principals.size() < maxEntries) {
+                principals.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private void evict(String key) {
+        invalidations.incrementAndGet();
+        principals.remove(key);
+    }
+
+    private UserDetails findUser(String role, Long userId) {
+        return switch (role) {
+            case "ROLE_CUSTOMER" -> customerService.findById(userId);
+            case "ROLE_ARTIST" -> artistService.findById(userId);
+            case "ROLE_ADMIN" -> adminService.findById(userId);
+            case "ROLE_STAFF" -> staffService.findById(userId);
+            default -> null;
+        };
+    }
+
+    private long currentStamp(String role, Long userId) {
+        return stampRepository.findById(UserSecurityStamp.key(role, userId))
+                .map(UserSecurityStamp::getVersion)
+                .orElse(0L);
+    }
+
+    private static Long userIdOf(UserDetails user) {
+        if (user instanceof Customer customer) {
+            return customer.getId();
+        } else if (user instanceof Artist artist) {
+            return artist.getId();
+        } else if (user instanceof Admin admin) {
+            return admin.getId();
+        } else if (user instanceof Staff staff) {
+            return staff.getId();
+        }
+        return null;
+    }
+
+    private void evictExpired(long now) {
+        Iterator<CachedPrincipal> iterator = principals.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().loadedAt + ttlMs <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // user is null when the token's user could not be loaded or is disabled
+    private record CachedPrincipal(UserPrincipal user, long stamp, long loadedAt) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.users.UserDirectoryEntry;
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Substring search over every account's username, email, first and last name and artist name.
+ *
+ * Each user directory row stores its lowercased fields together with the set of their trigrams, in
+ * the user_search_grams table indexed by gram. A term of three or more characters matches anywhere
+ * in a field: the rows holding the term's two rarest trigrams are found through that index and
+ * only those are checked against the whole term, so the cost follows the number of candidates,
+ * not the number of accounts. Shorter terms match the start of a field, through the trigram formed
+ * by padding each field's beginning.
+ *
+ * The index lives in the database, so it is shared by all instances, kept in step with account
+ * writes in their transaction and does not grow the heap with the number of accounts. Trigram
+ * frequencies are estimated after the startup backfill from a bounded sample of entries, spread
+ * over the id range and scaled to the whole directory, and then follow this instance's writes; they
+ * only decide which trigrams drive a query, so sampling error and drift from other instances'
+ * writes cost speed, never results.
+ *
+ * Results are read like the user listing: ordered by (created_at, id), a page at a time from the
+ * last entry of the previous page, and never counted.
+ */
+@Service
+public class UserSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchService.class);
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int MAX_TERM_LENGTH = 100;
+    private static final int MAX_SEARCH_TEXT_LENGTH = 1024;
+    // Precedes each field in the search text, so a LIKE on it can anchor a prefix to a field start
+    private static final char FIELD_SEPARATOR = '\n';
+    // Padding before each field whose trigrams answer one- and two-character prefixes
+    private static final String FIELD_START = "  ";
+    private static final char LIKE_ESCAPE = '!';
+    private static final int SAMPLE_WINDOWS = 8;
+
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final int gramSampleSize;
+
+    private final Map<String, LongAdder> gramCounts = new ConcurrentHashMap<>();
+    private volatile boolean countsLoaded;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    public UserSearchService(UserDirectoryRepository userDirectoryRepository,
+                             @Value("${musicstore.users.search.gram-sample-size:50000}") int gramSampleSize) {
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.gramSampleSize = Math.max(SAMPLE_WINDOWS, gramSampleSize);
+        logger.info("UserSearchService initialized successfully");
+    }
+
+    /**
+     * Sets a directory entry's search text and trigrams from its account's fields. The caller saves
+     * the entry; only trigrams that changed are written.
+     */
+    public void index(UserDirectoryEntry entry, String... fields) {
+        StringBuilder text = new StringBuilder();
+        Set<String> grams = new HashSet<>();
+        for (String field : fields) {
+            String normalized = normalize(field);
+            if (!normalized.isEmpty()) {
+                text.append(FIELD_SEPARATOR).append(normalized);
+                addGrams(FIELD_START + normalized, grams);
+            }
+        }
+        String searchText = text.length() > MAX_SEARCH_TEXT_LENGTH
+                ? text.substring(0, MAX_SEARCH_TEXT_LENGTH) : text.toString();
+        Set<String> current = entry.getSearchGrams();
+        if (searchText.equals(entry.getSearchText()) && current.equals(grams)) {
+            return;
+        }
+        entry.setSearchText(searchText);
+        if (countsLoaded) {
+            for (String gram : current) {
+                if (!grams.contains(gram)) {
+                    gramCount(gram).decrement();
+                }
+            }
+            for (String gram : grams) {
+                if (!current.contains(gram)) {
+                    gramCount(gram).increment();
+                }
+            }
+        }
+        current.retainAll(grams);
+        current.addAll(grams);
+    }
+
+    /**
+     * Accounts for an entry that is about to be deleted; its trigram rows go with it.
+     */
+    public void unindex(UserDirectoryEntry entry) {
+        if (countsLoaded) {
+            entry.getSearchGrams().forEach(gram -> gramCount(gram).decrement());
+        }
+    }
+
+    /**
+     * Finds up to limit accounts with a field containing the term, or starting with it if it is
+     * shorter than three characters, optionally of one role, that come after the given entry's
+     * (createdAt, id) position; from the start if it is null.
+     *
+     * @throws ValidationException if the term is blank
+     */
+    @Transactional(readOnly = true)
+    public List<UserDirectoryEntry> search(String term, String role, LocalDateTime afterCreatedAt, Long afterId,
+                                           int limit) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            throw new ValidationException("Search term cannot be null or empty");
+        }
+        if (normalized.length() > MAX_TERM_LENGTH) {
+            normalized = normalized.substring(0, MAX_TERM_LENGTH);
+        }
+
+        long startNanos = System.nanoTime();
+        String gram1;
+        String gram2;
+        String pattern;
+        if (normalized.length() < GRAM_LENGTH) {
+            String padded = FIELD_START + normalized;
+            gram1 = padded.substring(padded.length() - GRAM_LENGTH);
+            gram2 = gram1;
+            pattern = "%" + FIELD_SEPARATOR + escapeLike(normalized) + "%";
+        } else {
+            List<String> rarest = rarestGrams(normalized);
+            gram1 = rarest.get(0);
+            gram2 = rarest.get(rarest.size() - 1);
+            pattern = "%" + escapeLike(normalized) + "%";
+        }
+
+        // Every entry is dated at or after UNKNOWN_CREATED_AT and has a positive id, so this is the start
+        LocalDateTime createdAt = afterCreatedAt != null && afterId != null
+                ? afterCreatedAt : UserDirectoryService.UNKNOWN_CREATED_AT;
+        Long id = afterCreatedAt != null && afterId != null ? afterId : 0L;
+        PageRequest first = PageRequest.of(0, limit);
+        List<UserDirectoryEntry> results = role == null
+                ? userDirectoryRepository.searchAfter(gram1, gram2, pattern, createdAt, id, first)
+                : userDirectoryRepository.searchByRoleAfter(role, gram1, gram2, pattern, createdAt, id, first);
+        searches.increment();
+        searchNanos.add(System.nanoTime() - startNanos);
+        return results;
+    }
+
+    /**
+     * Estimates how many entries hold each trigram. Called by the directory backfill once every
+     * account is indexed. Small directories are counted exactly; larger ones are sampled in
+     * {@value #SAMPLE_WINDOWS} id windows spread over the id range, gram-sample-size ids in all, and
+     * the counts scaled up, so the cost stays the same however many accounts there are.
+     */
+    @Transactional(readOnly = true)
+    public void loadGramCounts() {
+        long startNanos = System.nanoTime();
+        Map<String, LongAdder> loaded = new HashMap<>();
+        List<Object[]> range = userDirectoryRepository.findIdRange();
+        Object[] bounds = range.isEmpty() ? null : range.get(0);
+        if (bounds != null && bounds[0] != null) {
+            long minId = ((Number) bounds[0]).longValue();
+            long span = ((Number) bounds[1]).longValue() - minId + 1;
+            if (span <= gramSampleSize) {
+                addGramCounts(loaded, minId, minId + span, 1.0);
+            } else {
+                long window = gramSampleSize / SAMPLE_WINDOWS;
+                long stride = span / SAMPLE_WINDOWS;
+                double scale = (double) span / (window * SAMPLE_WINDOWS);
+                for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+                    long from = minId + i * stride;
+                    addGramCounts(loaded, from, from + window, scale);
+                }
+            }
+        }
+        gramCounts.clear();
+        gramCounts.putAll(loaded);
+        countsLoaded = true;
+        logger.info("Loaded user search frequencies of {} trigrams in {} ms", loaded.size(),
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private void addGramCounts(Map<String, LongAdder> loaded, long fromId, long toId, double scale) {
+        for (Object[] row : userDirectoryRepository.countSearchGramsBetween(fromId, toId)) {
+            long estimate = Math.round(((Number) row[1]).longValue() * scale);
+            loaded.computeIfAbsent((String) row[0], gram -> new LongAdder()).add(estimate);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long searchCount = searches.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("searches", searchCount);
+        stats.put("averageSearchMs", searchCount > 0 ? searchNanos.sum() / searchCount / 1_000_000.0 : 0.0);
+        stats.put("distinctTrigrams", gramCounts.size());
+        stats.put("frequenciesLoaded", countsLoaded);
+        stats.put("gramSampleSize", gramSampleSize);
+        return stats;
+    }
+
+    // The term's rarest trigram first and its second rarest last; by position until frequencies are known
+    private List<String> rarestGrams(String term) {
+        Set<String> grams = new LinkedHashSet<>();
+        addGrams(term, grams);
+        List<String> ordered = new ArrayList<>(grams);
+        if (countsLoaded) {
+            ordered.sort(Comparator.comparingLong(gram -> {
+                LongAdder count = gramCounts.get(gram);
+                return count != null ? count.sum() : 0;
+            }));
+            return ordered.subList(0, Math.min(2, ordered.size()));
+        }
+        return List.of(ordered.get(0), ordered.get(ordered.size() - 1));
+    }
+
+    private LongAdder gramCount(String gram) {
+        return gramCounts.computeIfAbsent(gram, g -> new LongAdder());
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+    }
+
+    // Lowercase with runs of whitespace, including the field separator, collapsed to one space
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // '[' is a wildcard in SQL Server's LIKE
+    private static String escapeLike(String term) {
+        StringBuilder escaped = new StringBuilder(term.length() + 4);
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_' || c == '[') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
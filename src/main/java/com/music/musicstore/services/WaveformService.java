@@ -0,0 +1,336 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.BusinessRuleException;
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Precomputes min/max waveform peaks for tracks and stores them in a compact binary file.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   "WPK1"          magic
+ *   u8  version     (1)
+ *   u8  levelCount
+ *   u16 reserved
+ *   i32 sampleRate
+ *   i64 totalFrames
+ *   levelCount x { i32 framesPerPeak, i32 peakCount }
+ *   levelCount x { peakCount x (i8 min, i8 max) }
+ * </pre>
+ * Level 0 holds one peak pair per {@value #BASE_FRAMES_PER_PEAK} frames; every following level
+ * merges {@value #LEVEL_FACTOR} pairs of the previous one.
+ *
+ * Missing peak files are generated on the audio processing pool, never on the request thread, and
+ * concurrent requests for the same track share one decode. A request waits a short time for it and
+ * is otherwise told to retry, so uncached tracks cannot tie up more CPU than the pool has.
+ */
+@Service
+public class WaveformService {
+    private static final Logger logger = LoggerFactory.getLogger(WaveformService.class);
+
+    private static final byte[] MAGIC = {'W', 'P', 'K', '1'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int BASE_FRAMES_PER_PEAK = 256;
+    private static final int LEVEL_FACTOR = 4;
+    private static final int LEVEL_COUNT = 4;
+    private static final int READ_FRAMES = 8192;
+
+    private final MusicRepository musicRepository;
+    private final AudioFileResolver audioFileResolver;
+    private final ForkJoinPool audioProcessingPool;
+    private final long requestWaitMs;
+    private final Path peaksDirectory = Paths.get("./uploads/waveforms");
+    private final Map<Long, CompletableFuture<Void>> generating = new ConcurrentHashMap<>();
+
+    private volatile MusicBatchTask currentJob;
+
+    @Autowired
+    public WaveformService(MusicRepository musicRepository,
+                           AudioFileResolver audioFileResolver,
+                           @Qualifier("audioProcessingPool") ForkJoinPool audioProcessingPool,
+                           @Value("${musicstore.waveform.request-wait-ms:3000}") long requestWaitMs) {
+        this.musicRepository = musicRepository;
+        this.audioFileResolver = audioFileResolver;
+        this.audioProcessingPool = audioProcessingPool;
+        this.requestWaitMs = requestWaitMs;
+        logger.info("WaveformService initialized successfully");
+    }
+
+    /**
+     * Returns the peak file for a track, or null if it is still being generated because it was
+     * missing or older than the audio. The ETag comes from the file's size and modification time,
+     * so answering a conditional request does not read the file.
+     */
+    public WaveformData getWaveform(Long musicId) throws IOException {
+        Music music = musicRepository.findById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", musicId.toString()));
+        Path audioFile = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio file", musicId.toString()));
+
+        Path peaksFile = getPeaksFile(musicId);
+        if (isStale(peaksFile, audioFile)) {
+            try {
+                generateAsync(musicId, audioFile).get(requestWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        long size = Files.size(peaksFile);
+        long modified = Files.getLastModifiedTime(peaksFile).toMillis();
+        return new WaveformData(peaksFile, "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"");
+    }
+
+    public void generate(Long musicId) throws IOException {
+        Music music = musicRepository.findById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", musicId.toString()));
+        Path audioFile = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio file", musicId.toString()));
+        if (isStale(getPeaksFile(musicId), audioFile)) {
+            generateShared(musicId, audioFile);
+        }
+    }
+
+    /**
+     * Starts peak generation for the whole catalog on the audio fork-join pool.
+     */
+    public synchronized Map<String, Object> startCatalogGeneration() {
+        if (currentJob != null && !currentJob.isDone()) {
+            throw new BusinessRuleException("Waveform generation is already running");
+        }
+        List<Long> musicIds = musicRepository.findAllIds();
+        MusicBatchTask job = new MusicBatchTask("waveform-peaks", musicIds, this::generate);
+        currentJob = job;
+        audioProcessingPool.execute(job);
+        logger.info("Started waveform generation for {} tracks", musicIds.size());
+        return job.getProgress().toMap();
+    }
+
+    // One generation per track at a time; later callers get the running one
+    private CompletableFuture<Void> generateAsync(Long musicId, Path audioFile) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> running = generating.putIfAbsent(musicId, created);
+        if (running != null) {
+            return running;
+        }
+        audioProcessingPool.execute(() -> runGeneration(musicId, audioFile, created));
+        return created;
+    }
+
+    // Generates on the calling thread unless a generation of the track is already running
+    private void generateShared(Long musicId, Path audioFile) throws IOException {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> running = generating.putIfAbsent(musicId, created);
+        if (running == null) {
+            runGeneration(musicId, audioFile, created);
+            running = created;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating waveform for music id " + musicId, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private void runGeneration(Long musicId, Path audioFile, CompletableFuture<Void> result) {
+        try {
+            // Another generation may have finished between the caller's check and this one
+            if (isStale(getPeaksFile(musicId), audioFile)) {
+                generate(musicId, audioFile);
+            }
+            result.complete(null);
+        } catch (Exception e) {
+            logger.error("Failed to generate waveform for music id {}: {}", musicId, e.getMessage());
+            result.completeExceptionally(e);
+        } finally {
+            generating.remove(musicId, result);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return new IOException(cause);
+    }
+
+    public Map<String, Object> getCatalogGenerationStatus() {
+        MusicBatchTask job = currentJob;
+        if (job == null) {
+            Map<String, Object> status = new HashMap<>();
+            status.put("job", "waveform-peaks");
+            status.put("complete", false);
+            status.put("started", false);
+            return status;
+        }
+        return job.getProgress().toMap();
+    }
+
+    private void generate(Long musicId, Path audioFile) throws IOException {
+        long start = System.nanoTime();
+        PeakAccumulator base = new PeakAccumulator();
+        float sampleRate;
+        long totalFrames = 0;
+
+        try (PcmStreamReader reader = PcmStreamReader.open(audioFile)) {
+            sampleRate = reader.getSampleRate();
+            float[] mono = new float[READ_FRAMES];
+            float[] scratch = new float[READ_FRAMES * reader.getChannels()];
+            int frames;
+            while ((frames = reader.readMono(mono, scratch)) > 0) {
+                for (int i = 0; i < frames; i++) {
+                    base.add(mono[i]);
+                }
+                totalFrames += frames;
+            }
+        }
+        base.flush();
+
+        byte[][] levels = new byte[LEVEL_COUNT][];
+        levels[0] = base.toByteArray();
+        for (int level = 1; level < LEVEL_COUNT; level++) {
+            levels[level] = downsample(levels[level - 1]);
+        }
+
+        Files.createDirectories(peaksDirectory);
+        Path target = getPeaksFile(musicId);
+        Path temp = Files.createTempFile(peaksDirectory, musicId + "-", ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(LEVEL_COUNT);
+            out.writeShort(0);
+            out.writeInt(Math.round(sampleRate));
+            out.writeLong(totalFrames);
+            int framesPerPeak = BASE_FRAMES_PER_PEAK;
+            for (byte[] level : levels) {
+                out.writeInt(framesPerPeak);
+                out.writeInt(level.length / 2);
+                framesPerPeak *= LEVEL_FACTOR;
+            }
+            for (byte[] level : levels) {
+                out.write(level);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.debug("Generated waveform for music id {} ({} frames, {} base peaks) in {} ms",
+                musicId, totalFrames, levels[0].length / 2, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Merges LEVEL_FACTOR consecutive (min, max) pairs into one
+    private static byte[] downsample(byte[] pairs) {
+        int sourcePeaks = pairs.length / 2;
+        int targetPeaks = (sourcePeaks + LEVEL_FACTOR - 1) / LEVEL_FACTOR;
+        byte[] result = new byte[targetPeaks * 2];
+        for (int t = 0; t < targetPeaks; t++) {
+            byte min = Byte.MAX_VALUE;
+            byte max = Byte.MIN_VALUE;
+            int end = Math.min(sourcePeaks, (t + 1) * LEVEL_FACTOR);
+            for (int s = t * LEVEL_FACTOR; s < end; s++) {
+                min = (byte) Math.min(min, pairs[s * 2]);
+                max = (byte) Math.max(max, pairs[s * 2 + 1]);
+            }
+            result[t * 2] = min;
+            result[t * 2 + 1] = max;
+        }
+        return result;
+    }
+
+    private boolean isStale(Path peaksFile, Path audioFile) throws IOException {
+        return !Files.exists(peaksFile)
+                || Files.getLastModifiedTime(peaksFile).compareTo(Files.getLastModifiedTime(audioFile)) < 0;
+    }
+
+    private Path getPeaksFile(Long musicId) {
+        return peaksDirectory.resolve(musicId + ".peaks");
+    }
+
+    private static final class PeakAccumulator {
+        private final ByteArrayOutputStream pairs = new ByteArrayOutputStream();
+        private float min = Float.MAX_VALUE;
+        private float max = -Float.MAX_VALUE;
+        private int count;
+
+        void add(float sample) {
+            if (sample < min) {
+                min = sample;
+            }
+            if (sample > max) {
+                max = sample;
+            }
+            if (++count == BASE_FRAMES_PER_PEAK) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (count == 0) {
+                return;
+            }
+            pairs.write(quantize(min));
+            pairs.write(quantize(max));
+            min = Float.MAX_VALUE;
+            max = -Float.MAX_VALUE;
+            count = 0;
+        }
+
+        byte[] toByteArray() {
+            return pairs.toByteArray();
+        }
+
+        private static int quantize(float value) {
+            return Math.max(-127, Math.min(127, Math.round(value * 127f)));
+        }
+    }
+
+    public record WaveformData(Path file, String etag) {
+
+        public byte[] readBytes() throws IOException {
+            return Files.readAllBytes(file);
+        }
+    }
+}
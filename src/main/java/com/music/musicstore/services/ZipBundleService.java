@@ -0,0 +1,500 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.exceptions.ResourceNotFoundException;
+import com.music.musicstore.exceptions.ServiceUnavailableException;
+import com.music.musicstore.exceptions.UnauthorizedException;
+import com.music.musicstore.exceptions.ValidationException;
+import com.music.musicstore.models.music.Album;
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * Streams albums and whole libraries as uncompressed (STORED) ZIP archives.
+ *
+ * Audio is already compressed, so entries are stored as-is and the complete archive layout
+ * (header offsets, total length and central directory) follows from file names, sizes, timestamps
+ * and CRCs before a single byte is sent. That makes the output byte-for-byte reproducible, which
+ * is what allows clients to resume with a Range request. File data is copied through a fixed
+ * buffer, so nothing is buffered or written to disk.
+ *
+ * CRCs are stored on each track together with the file size and modification time they were
+ * computed for, and filled in by a background pass over the catalog on the audio processing pool.
+ * A bundle containing a track without a current CRC queues that track and asks the client to
+ * retry, so no request thread ever reads whole audio files before responding.
+ */
+@Service
+public class ZipBundleService {
+    private static final Logger logger = LoggerFactory.getLogger(ZipBundleService.class);
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final long ZIP64_THRESHOLD = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_THRESHOLD = 0xFFFF;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Conservative read rate used to estimate how long missing CRCs take
+    private static final long CRC_BYTES_PER_SECOND = 50L * 1024 * 1024;
+    // DOS timestamps carry no zone; a fixed one keeps archives identical on every instance
+    private static final ZoneId DOS_TIME_ZONE = ZoneOffset.UTC;
+
+    private final MusicRepository musicRepository;
+    private final AlbumService albumService;
+    private final AudioFileResolver audioFileResolver;
+    private final EntitlementService entitlementService;
+    private final DownloadBandwidthScheduler bandwidthScheduler;
+    private final ForkJoinPool audioProcessingPool;
+
+    // Tracks queued for a CRC, so repeated bundle requests do not queue them again
+    private final Set<Long> crcsQueued = ConcurrentHashMap.newKeySet();
+    private volatile MusicBatchTask currentCrcJob;
+
+    @Autowired
+    public ZipBundleService(MusicRepository musicRepository,
+                            AlbumService albumService,
+                            AudioFileResolver audioFileResolver,
+                            EntitlementService entitlementService,
+                            DownloadBandwidthScheduler bandwidthScheduler,
+                            @Qualifier("audioProcessingPool") ForkJoinPool audioProcessingPool) {
+        this.musicRepository = musicRepository;
+        this.albumService = albumService;
+        this.audioFileResolver = audioFileResolver;
+        this.entitlementService = entitlementService;
+        this.bandwidthScheduler = bandwidthScheduler;
+        this.audioProcessingPool = audioProcessingPool;
+        logger.info("ZipBundleService initialized successfully");
+    }
+
+    /**
+     * Bundles the tracks of an album the customer owns, numbered by their position in the album.
+     */
+    public Bundle buildAlbumBundle(Long customerId, Long albumId) throws IOException {
+        Album album = albumService.getAlbumById(albumId)
+                .orElseThrow(() -> new ResourceNotFoundException("Album", albumId.toString()));
+
+        List<Music> tracks = new ArrayList<>(musicRepository.findByAlbumNameOrderByIdAsc(album.getTitle()));
+        if (album.getArtistUsername() != null) {
+            tracks.removeIf(music -> !album.getArtistUsername().equals(music.getArtistUsername()));
+        }
+        Set<Long> owned = entitlementService.ownedAmong(customerId, tracks.stream().map(Music::getId).toList());
+        if (owned.isEmpty()) {
+            throw new UnauthorizedException("Access denied: you do not own any tracks from this album");
+        }
+
+        String folder = sanitize(album.getTitle());
+        List<PlannedEntry> planned = new ArrayList<>();
+        for (int i = 0; i < tracks.size(); i++) {
+            Music music = tracks.get(i);
+            if (owned.contains(music.getId())) {
+                planned.add(new PlannedEntry(music, folder + "/" + String.format("%02d - ", i + 1) + sanitize(music.getName())));
+            }
+        }
+        return build(folder + ".zip", planned);
+    }
+
+    /**
+     * Bundles every purchased track, grouped by artist and album.
+     */
+    public Bundle buildLibraryBundle(Long customerId) throws IOException {
+        List<Long> ownedIds = entitlementService.getOwnedMusicIds(customerId);
+        if (ownedIds.isEmpty()) {
+            throw new ValidationException("You have not purchased any music yet");
+        }
+
+        List<Music> tracks = new ArrayList<>(musicRepository.findAllById(ownedIds));
+        tracks.sort(Comparator.comparing(Music::getId));
+        List<PlannedEntry> planned = new ArrayList<>();
+        for (Music music : tracks) {
+            String artist = sanitize(music.getArtistUsername() != null ? music.getArtistUsername() : "Unknown Artist");
+            String album = sanitize(music.getAlbumName() != null && !music.getAlbumName().isBlank() ? music.getAlbumName() : "Singles");
+            planned.add(new PlannedEntry(music, artist + "/" + album + "/" + sanitize(music.getName())));
+        }
+        return build("music-library.zip", planned);
+    }
+
+    /**
+     * Streams the inclusive byte range [start, end] of the archive, paced by the bandwidth scheduler.
+     */
+    public StreamingResponseBody stream(Bundle bundle, Long customerId, long start, long end) {
+        return outputStream -> {
+            try (OutputStream out = bandwidthScheduler.open(customerId, null, outputStream)) {
+                write(bundle, new RangeWriter(out, start, end));
+            }
+        };
+    }
+
+    /**
+     * Computes and stores the CRCs of tracks that have none yet. Runs at startup and periodically;
+     * tracks whose file changed since are picked up by the next bundle that contains them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${musicstore.bundles.crc-interval-ms:600000}",
+            initialDelayString = "${musicstore.bundles.crc-interval-ms:600000}")
+    public synchronized void computeMissingCrcs() {
+        if (currentCrcJob != null && !currentCrcJob.isDone()) {
+            return;
+        }
+        List<Long> musicIds = musicRepository.findIdsPendingAudioCrc();
+        if (musicIds.isEmpty()) {
+            return;
+        }
+        MusicBatchTask job = new MusicBatchTask("audio-crc", musicIds, this::computeCrc);
+        currentCrcJob = job;
+        audioProcessingPool.execute(job);
+        logger.info("Started audio CRC computation for {} tracks", musicIds.size());
+    }
+
+    /**
+     * Computes and stores the CRC of a track's current audio file.
+     */
+    public void computeCrc(Long musicId) throws IOException {
+        Music music = musicRepository.findById(musicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Music", musicId.toString()));
+        Path file = audioFileResolver.resolve(music)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio file", musicId.toString()));
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        musicRepository.updateAudioCrc(musicId, crcOf(file), size, modified);
+    }
+
+    private Bundle build(String fileName, List<PlannedEntry> planned) throws IOException {
+        List<Entry> entries = new ArrayList<>(planned.size());
+        Set<String> usedNames = new HashSet<>();
+        List<Long> missingCrcs = new ArrayList<>();
+        long missingBytes = 0;
+        long offset = 0;
+        for (PlannedEntry plan : planned) {
+            Path file = audioFileResolver.resolve(plan.music).orElse(null);
+            if (file == null) {
+                logger.warn("Skipping music id {} in bundle {}: audio file not found", plan.music.getId(), fileName);
+                continue;
+            }
+
+            String extension = extensionOf(file);
+            String name = plan.baseName + extension;
+            if (!usedNames.add(name)) {
+                name = plan.baseName + " (" + plan.music.getId() + ")" + extension;
+                usedNames.add(name);
+            }
+
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Music music = plan.music;
+            if (music.getAudioCrc32() == null || music.getAudioCrcSize() == null || music.getAudioCrcSize() != size
+                    || music.getAudioCrcModified() == null || music.getAudioCrcModified() != modified) {
+                missingCrcs.add(music.getId());
+                missingBytes += size;
+                continue;
+            }
+            Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), file, size,
+                    toDosDateTime(modified), music.getAudioCrc32(), offset);
+            entries.add(entry);
+            offset += entry.localHeaderLength() + size;
+        }
+        if (!missingCrcs.isEmpty()) {
+            queueCrcs(missingCrcs);
+            throw new ServiceUnavailableException("This bundle is being prepared, please retry shortly",
+                    Math.max(2, missingBytes / CRC_BYTES_PER_SECOND + 1));
+        }
+        if (entries.isEmpty()) {
+            throw new ValidationException("No audio files are available for this bundle");
+        }
+
+        long centralDirectoryOffset = offset;
+        long centralDirectorySize = 0;
+        MessageDigest digest = newDigest();
+        for (Entry entry : entries) {
+            byte[] header = centralHeader(entry);
+            centralDirectorySize += header.length;
+            digest.update(header);
+        }
+        boolean zip64 = entries.size() >= ZIP64_ENTRY_THRESHOLD
+                || centralDirectoryOffset >= ZIP64_THRESHOLD
+                || centralDirectorySize >= ZIP64_THRESHOLD;
+        long totalLength = centralDirectoryOffset + centralDirectorySize + (zip64 ? 56 + 20 : 0) + 22;
+
+        // The central directory covers every name, size, timestamp, CRC and offset in the archive
+        String etag = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        return new Bundle(fileName, entries, centralDirectoryOffset, centralDirectorySize, zip64, totalLength, etag);
+    }
+
+    private void write(Bundle bundle, RangeWriter out) throws IOException {
+        for (Entry entry : bundle.entries) {
+            if (out.isDone()) {
+                return;
+            }
+            out.write(localHeader(entry));
+            out.writeFile(entry.file, entry.size);
+        }
+        for (Entry entry : bundle.entries) {
+            if (out.isDone()) {
+                return;
+            }
+            out.write(centralHeader(entry));
+        }
+        out.write(endOfCentralDirectory(bundle));
+    }
+
+    private static byte[] localHeader(Entry entry) {
+        boolean zip64 = entry.size >= ZIP64_THRESHOLD;
+        ByteBuffer buffer = littleEndian(entry.localHeaderLength());
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_STORED));
+        buffer.putShort((short) FLAG_UTF8);
+        buffer.putShort((short) 0); // STORED
+        buffer.putInt(entry.dosDateTime);
+        buffer.putInt((int) entry.crc);
+        buffer.putInt((int) (zip64 ? ZIP64_THRESHOLD : entry.size));
+        buffer.putInt((int) (zip64 ? ZIP64_THRESHOLD : entry.size));
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) (zip64 ? 20 : 0));
+        buffer.put(entry.name);
+        if (zip64) {
+            buffer.putShort((short) 0x0001);
+            buffer.putShort((short) 16);
+            buffer.putLong(entry.size);
+            buffer.putLong(entry.size);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] centralHeader(Entry entry) {
+        boolean zip64Size = entry.size >= ZIP64_THRESHOLD;
+        boolean zip64Offset = entry.localHeaderOffset >= ZIP64_THRESHOLD;
+        int extraLength = (zip64Size || zip64Offset) ? 4 + (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0) : 0;
+        int version = (zip64Size || zip64Offset) ? VERSION_ZIP64 : VERSION_STORED;
+
+        ByteBuffer buffer = littleEndian(46 + entry.name.length + extraLength);
+        buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION_ZIP64); // made by
+        buffer.putShort((short) version);
+        buffer.putShort((short) FLAG_UTF8);
+        buffer.putShort((short) 0); // STORED
+        buffer.putInt(entry.dosDateTime);
+        buffer.putInt((int) entry.crc);
+        buffer.putInt((int) (zip64Size ? ZIP64_THRESHOLD : entry.size));
+        buffer.putInt((int) (zip64Size ? ZIP64_THRESHOLD : entry.size));
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) extraLength);
+        buffer.putShort((short) 0); // comment
+        buffer.putShort((short) 0); // disk number
+        buffer.putShort((short) 0); // internal attributes
+        buffer.putInt(0);           // external attributes
+        buffer.putInt((int) (zip64Offset ? ZIP64_THRESHOLD : entry.localHeaderOffset));
+        buffer.put(entry.name);
+        if (extraLength > 0) {
+            buffer.putShort((short) 0x0001);
+            buffer.putShort((short) (extraLength - 4));
+            if (zip64Size) {
+                buffer.putLong(entry.size);
+                buffer.putLong(entry.size);
+            }
+            if (zip64Offset) {
+                buffer.putLong(entry.localHeaderOffset);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static byte[] endOfCentralDirectory(Bundle bundle) {
+        int count = bundle.entries.size();
+        long zip64EndOffset = bundle.centralDirectoryOffset + bundle.centralDirectorySize;
+        ByteBuffer buffer = littleEndian((bundle.zip64 ? 56 + 20 : 0) + 22);
+        if (bundle.zip64) {
+            buffer.putInt(ZIP64_END_SIGNATURE);
+            buffer.putLong(44); // size of the remaining record
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(count);
+            buffer.putLong(count);
+            buffer.putLong(bundle.centralDirectorySize);
+            buffer.putLong(bundle.centralDirectoryOffset);
+
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+        }
+        buffer.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) Math.min(count, ZIP64_ENTRY_THRESHOLD));
+        buffer.putShort((short) Math.min(count, ZIP64_ENTRY_THRESHOLD));
+        buffer.putInt((int) Math.min(bundle.centralDirectorySize, ZIP64_THRESHOLD));
+        buffer.putInt((int) Math.min(bundle.centralDirectoryOffset, ZIP64_THRESHOLD));
+        buffer.putShort((short) 0);
+        return buffer.array();
+    }
+
+    private void queueCrcs(List<Long> musicIds) {
+        for (Long musicId : musicIds) {
+            if (crcsQueued.add(musicId)) {
+                audioProcessingPool.execute(() -> {
+                    try {
+                        computeCrc(musicId);
+                    } catch (Exception e) {
+                        logger.warn("Failed to compute audio CRC for music id {}: {}", musicId, e.getMessage());
+                    } finally {
+                        crcsQueued.remove(musicId);
+                    }
+                });
+            }
+        }
+    }
+
+    private static long crcOf(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // MS-DOS date in the high 16 bits, time in the low 16 bits
+    private static int toDosDateTime(long epochMillis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), DOS_TIME_ZONE);
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25
+                | time.getMonthValue() << 21
+                | time.getDayOfMonth() << 16
+                | time.getHour() << 11
+                | time.getMinute() << 5
+                | time.getSecond() >> 1;
+    }
+
+    private static String sanitize(String name) {
+        String cleaned = name == null ? "" : name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        return cleaned.isEmpty() ? "untitled" : cleaned;
+    }
+
+    private static String extensionOf(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot).toLowerCase() : ".mp3";
+    }
+
+    private static ByteBuffer littleEndian(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Emits only the part of the logical archive stream that falls inside [start, end].
+     */
+    private static final class RangeWriter {
+        private final OutputStream out;
+        private final long start;
+        private final long end;
+        private long position;
+
+        RangeWriter(OutputStream out, long start, long end) {
+            this.out = out;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isDone() {
+            return position > end;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            long from = Math.max(start, position);
+            long to = Math.min(end + 1, position + bytes.length);
+            if (from < to) {
+                out.write(bytes, (int) (from - position), (int) (to - from));
+            }
+            position += bytes.length;
+        }
+
+        void writeFile(Path file, long size) throws IOException {
+            long from = Math.max(start, position);
+            long to = Math.min(end + 1, position + size);
+            if (from < to) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    channel.position(from - position);
+                    ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                    long remaining = to - from;
+                    while (remaining > 0) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                        int read = channel.read(buffer);
+                        if (read < 0) {
+                            throw new IOException("Audio file changed while streaming bundle: " + file);
+                        }
+                        out.write(buffer.array(), 0, read);
+                        remaining -= read;
+                    }
+                }
+            }
+            position += size;
+        }
+    }
+
+    private record PlannedEntry(Music music, String baseName) {
+    }
+
+    private record Entry(byte[] name, Path file, long size, int dosDateTime, long crc, long localHeaderOffset) {
+        int localHeaderLength() {
+            return 30 + name.length + (size >= ZIP64_THRESHOLD ? 20 : 0);
+        }
+    }
+
+    public record Bundle(String fileName, List<Entry> entries, long centralDirectoryOffset,
+                         long centralDirectorySize, boolean zip64, long totalLength, String etag) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.music.musicstore.configs;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClientAddressResolverTest {
+
+    @Test
+    void withoutTrustedProxiesTheRemoteAddressIsUsed() {
+        ClientAddressResolver resolver = new ClientAddressResolver("");
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "203.0.113.7")));
+    }
+
+    @Test
+    void forwardedAddressIsIgnoredFromUntrustedPeers() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8");
+        assertEquals("198.51.100.1", resolver.resolve(request("198.51.100.1", "203.0.113.7")));
+    }
+
+    @Test
+    void forwardedAddressIsUsedFromTrustedProxy() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8");
+        assertEquals("203.0.113.7", resolver.resolve(request("10.0.0.5", "203.0.113.7")));
+    }
+
+    @Test
+    void clientWrittenEntriesLeftOfTheFirstUntrustedHopAreIgnored() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8, 192.168.1.1");
+        HttpServletRequest request = request("10.0.0.5", "1.2.3.4, 203.0.113.7, 192.168.1.1");
+        assertEquals("203.0.113.7", resolver.resolve(request));
+    }
+
+    @Test
+    void chainOfOnlyTrustedProxiesResolvesToTheOutermost() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8");
+        assertEquals("10.1.1.1", resolver.resolve(request("10.0.0.5", "10.1.1.1")));
+    }
+
+    @Test
+    void malformedHopStopsTheWalk() {
+        ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8");
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "203.0.113.7, evil.example")));
+    }
+
+    @Test
+    void ipv6RangesAreMatched() {
+        ClientAddressResolver resolver = new ClientAddressResolver("fd00::/8");
+        assertEquals("2001:db8::1",
+                resolver.resolve(request("fd12::1", "2001:db8::1")));
+    }
+
+    @Test
+    void invalidRangesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientAddressResolver("proxy.internal"));
+        assertThrows(IllegalArgumentException.class, () -> new ClientAddressResolver("10.0.0.0/33"));
+    }
+
+    private static HttpServletRequest request(String remoteAddr, String forwardedFor) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRemoteAddr()).thenReturn(remoteAddr);
+        when(request.getHeaders("X-Forwarded-For"))
+                .thenReturn(Collections.enumeration(forwardedFor == null ? List.of() : List.of(forwardedFor)));
+        return request;
+    }
+}
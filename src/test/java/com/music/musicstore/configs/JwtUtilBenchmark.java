@@ -0,0 +1,100 @@
+package com.music.musicstore.configs;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens authenticated per second by the JWT filter, before and after verification was reworked.
+ *
+ * "before" replays what a request used to cost: the key and parser were rebuilt for every claim,
+ * and the filter parsed the token three times (username, then username and expiry again in
+ * validateToken). "uncached" is one parse with the shared parser; "cached" adds the verification
+ * cache, which is what repeat requests with the same token hit.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.music.musicstore.configs.JwtUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "AsCbibFzH8thaWH+aqQPwyvuGZuv/EkUfQZHLkl81KU";
+
+    private JwtUtil uncached;
+    private JwtUtil cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = jwtUtil(0);
+        cached = jwtUtil(30_000);
+        UserDetails user = new User("benchmark", "password", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        token = cached.generateToken(user, 42L, 1L);
+    }
+
+    @Benchmark
+    public void before(Blackhole blackhole) {
+        blackhole.consume(parseWithFreshParser(token).getSubject());
+        blackhole.consume(parseWithFreshParser(token).getSubject());
+        blackhole.consume(parseWithFreshParser(token).getExpiration().before(new Date()));
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken uncached() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken cached() {
+        return cached.verify(token);
+    }
+
+    private static Claims parseWithFreshParser(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static JwtUtil jwtUtil(long cacheTtlMs) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "verificationCacheTtlMs", cacheTtlMs);
+        ReflectionTestUtils.setField(jwtUtil, "verificationCacheMaxEntries", 10_000);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
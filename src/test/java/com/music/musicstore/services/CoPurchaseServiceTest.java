@@ -0,0 +1,60 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.MusicActivityEvent;
+import com.music.musicstore.repositories.CustomerRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoPurchaseServiceTest {
+
+    private final EntitlementService entitlementService = mock(EntitlementService.class);
+
+    @Test
+    void topKMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> service(0));
+        assertThrows(IllegalArgumentException.class, () -> service(-1));
+    }
+
+    @Test
+    void purchasesArePairedWithEachOtherAndTheBasket() {
+        CoPurchaseService service = service(20);
+        when(entitlementService.getOwnedMusicIds(1L)).thenReturn(List.of(10L, 11L, 12L));
+
+        service.onMusicActivity(MusicActivityEvent.purchase(1L, List.of(11L, 12L)));
+        service.publishPending();
+
+        assertEquals(List.of(10L, 12L), sorted(service.alsoBought(11L, 5)));
+        assertEquals(List.of(11L, 12L), sorted(service.alsoBought(10L, 5)));
+        assertEquals(1, service.alsoBought(11L, 1).size());
+    }
+
+    @Test
+    void trackListedTwiceInOneOrderCountsOnce() {
+        CoPurchaseService service = service(20);
+        when(entitlementService.getOwnedMusicIds(1L)).thenReturn(List.of(1L, 2L));
+        when(entitlementService.getOwnedMusicIds(2L)).thenReturn(List.of(2L, 3L));
+        when(entitlementService.getOwnedMusicIds(3L)).thenReturn(List.of(2L, 3L));
+
+        service.onMusicActivity(MusicActivityEvent.purchase(1L, List.of(1L, 1L, 1L, 2L)));
+        service.onMusicActivity(MusicActivityEvent.purchase(2L, List.of(3L)));
+        service.onMusicActivity(MusicActivityEvent.purchase(3L, List.of(3L)));
+        service.publishPending();
+
+        // Track 3 was bought alongside 2 twice, track 1 once; counting the duplicates would put 1 first
+        assertEquals(List.of(3L, 1L), service.alsoBought(2L, 5));
+    }
+
+    private CoPurchaseService service(int topK) {
+        return new CoPurchaseService(mock(CustomerRepository.class), entitlementService, topK, 500, 1000);
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
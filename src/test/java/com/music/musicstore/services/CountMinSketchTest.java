@@ -0,0 +1,74 @@
+package com.music.musicstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    @Test
+    void widthIsRoundedUpToAPowerOfTwo() {
+        assertEquals(1024, new CountMinSketch(4, 1000).getWidth());
+        assertEquals(1024, new CountMinSketch(4, 1024).getWidth());
+        assertEquals(1, new CountMinSketch(4, 1).getWidth());
+    }
+
+    @Test
+    void estimatesNeverUndercountAndRarelyExceedTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(4, 512);
+        Map<Long, Long> truth = new HashMap<>();
+        feed(sketch, truth, 1, 200_000);
+
+        long bound = 2 * sketch.getTotal() / sketch.getWidth();
+        int violations = 0;
+        for (Map.Entry<Long, Long> item : truth.entrySet()) {
+            long estimate = sketch.estimate(item.getKey());
+            assertTrue(estimate >= item.getValue(), "undercounted " + item.getKey());
+            if (estimate - item.getValue() > bound) {
+                violations++;
+            }
+        }
+        // Each item may exceed the bound with probability 2^-depth
+        assertTrue(violations <= truth.size() / 16, violations + " of " + truth.size() + " items over the bound");
+    }
+
+    @Test
+    void mergedSketchEqualsOneBuiltFromBothStreams() {
+        CountMinSketch left = new CountMinSketch(4, 256);
+        CountMinSketch right = new CountMinSketch(4, 256);
+        CountMinSketch both = new CountMinSketch(4, 256);
+        Map<Long, Long> truth = new HashMap<>();
+        feed(left, truth, 2, 30_000);
+        feed(right, truth, 3, 20_000);
+        feed(both, new HashMap<>(), 2, 30_000);
+        feed(both, new HashMap<>(), 3, 20_000);
+
+        left.merge(right);
+
+        assertEquals(50_000, left.getTotal());
+        for (Long item : truth.keySet()) {
+            assertEquals(both.estimate(item), left.estimate(item));
+        }
+    }
+
+    @Test
+    void mergingDifferentShapesIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(4, 256).merge(new CountMinSketch(3, 256)));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(4, 256).merge(new CountMinSketch(4, 512)));
+    }
+
+    private static void feed(CountMinSketch sketch, Map<Long, Long> truth, long seed, int length) {
+        Random random = new Random(seed);
+        for (int i = 0; i < length; i++) {
+            long item = (long) Math.floor(Math.pow(20_000, random.nextDouble()));
+            sketch.add(item, 1);
+            truth.merge(item, 1L, Long::sum);
+        }
+    }
+}
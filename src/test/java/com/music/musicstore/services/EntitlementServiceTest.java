@@ -0,0 +1,77 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.repositories.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EntitlementServiceTest {
+
+    private CustomerRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CustomerRepository.class);
+        when(repository.findPurchasedMusicIds(1L)).thenReturn(List.of(10L, 20L));
+    }
+
+    @Test
+    void cachedPurchaseIsAnsweredWithoutTheDatabase() {
+        EntitlementService service = new EntitlementService(repository, 1 << 20, 60_000);
+        assertTrue(service.owns(1L, 10L));
+        assertTrue(service.owns(1L, 20L));
+        verify(repository, times(1)).findPurchasedMusicIds(1L);
+        verify(repository, times(0)).hasPurchasedMusic(1L, 10L);
+    }
+
+    @Test
+    void missIsConfirmedAgainstTheDatabase() {
+        EntitlementService service = new EntitlementService(repository, 1 << 20, 60_000);
+        when(repository.hasPurchasedMusic(1L, 30L)).thenReturn(true);
+        assertTrue(service.owns(1L, 30L));
+        assertTrue(service.owns(1L, 30L));
+        verify(repository, times(1)).hasPurchasedMusic(1L, 30L);
+        assertFalse(service.owns(1L, 40L));
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        EntitlementService service = new EntitlementService(repository, 1 << 20, 0);
+        assertTrue(service.owns(1L, 10L));
+        when(repository.findPurchasedMusicIds(1L)).thenReturn(List.of(20L));
+        assertEquals(List.of(20L), service.getOwnedMusicIds(1L));
+        assertEquals(1L, service.getStats().get("expirations"));
+    }
+
+    @Test
+    void refundInvalidatesOnlyTheOrderOwner() {
+        EntitlementService service = new EntitlementService(repository, 1 << 20, 60_000);
+        when(repository.findPurchasedMusicIds(2L)).thenReturn(List.of(10L));
+        when(repository.findCustomerIdByOrderId(5L)).thenReturn(Optional.of(1L));
+        service.owns(1L, 10L);
+        service.owns(2L, 10L);
+
+        service.invalidateOrder(5L);
+
+        assertEquals(1, service.getStats().get("cachedCustomers"));
+    }
+
+    @Test
+    void invalidateAllReleasesEveryEntrysBytes() {
+        EntitlementService service = new EntitlementService(repository, 1 << 20, 60_000);
+        service.owns(1L, 10L);
+        service.invalidateAll();
+        assertEquals(0L, service.getStats().get("cachedBytes"));
+        assertEquals(0, service.getStats().get("cachedCustomers"));
+    }
+}
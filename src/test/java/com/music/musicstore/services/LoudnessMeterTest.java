@@ -0,0 +1,64 @@
+package com.music.musicstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoudnessMeterTest {
+
+    // BS.1770: a full-scale 997 Hz sine in one channel reads -3.01 LUFS
+    private static final double FULL_SCALE_SINE_LUFS = -3.01;
+    private static final double TOLERANCE_LU = 0.1;
+
+    @Test
+    void monoSineReadsItsLevelMinusThreeDecibels() {
+        for (float sampleRate : new float[]{44_100, 48_000}) {
+            LoudnessMeter meter = new LoudnessMeter(sampleRate, 1);
+            feedSine(meter, sampleRate, 1, 0.1, 5);
+
+            assertEquals(-20 + FULL_SCALE_SINE_LUFS, meter.getIntegratedLoudness(), TOLERANCE_LU, "at " + sampleRate + " Hz");
+            assertEquals(0.1, meter.getSamplePeak(), 1e-3);
+        }
+    }
+
+    @Test
+    void sameSineOnBothStereoChannelsIsThreeDecibelsLouder() {
+        LoudnessMeter meter = new LoudnessMeter(48_000, 2);
+        feedSine(meter, 48_000, 2, 0.1, 5);
+
+        assertEquals(-20 + FULL_SCALE_SINE_LUFS + 3.01, meter.getIntegratedLoudness(), TOLERANCE_LU);
+    }
+
+    @Test
+    void quietPassagesBelowTheRelativeGateDoNotLowerTheReading() {
+        LoudnessMeter meter = new LoudnessMeter(48_000, 1);
+        feedSine(meter, 48_000, 1, 0.1, 5);
+        // 30 dB down, well below the -10 LU relative gate
+        feedSine(meter, 48_000, 1, 0.1 / 31.6, 5);
+
+        // Ungated this would read about 3 LU lower; only the blocks straddling the change get through
+        assertEquals(-20 + FULL_SCALE_SINE_LUFS, meter.getIntegratedLoudness(), 0.3);
+    }
+
+    @Test
+    void silenceHasNoLoudness() {
+        LoudnessMeter meter = new LoudnessMeter(48_000, 2);
+        meter.add(new float[48_000 * 2], 48_000);
+
+        assertNull(meter.getIntegratedLoudness());
+        assertEquals(48_000, meter.getFrames());
+    }
+
+    private static void feedSine(LoudnessMeter meter, float sampleRate, int channels, double amplitude, int seconds) {
+        int frames = (int) sampleRate * seconds;
+        float[] interleaved = new float[frames * channels];
+        for (int f = 0; f < frames; f++) {
+            float sample = (float) (amplitude * Math.sin(2 * Math.PI * 997 * f / sampleRate));
+            for (int c = 0; c < channels; c++) {
+                interleaved[f * channels + c] = sample;
+            }
+        }
+        meter.add(interleaved, frames);
+    }
+}
@@ -0,0 +1,52 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoudnessServiceTest {
+
+    private final MusicRepository musicRepository = mock(MusicRepository.class);
+    private final AudioFileResolver audioFileResolver = mock(AudioFileResolver.class);
+    private final ForkJoinPool pool = new ForkJoinPool(1);
+    private final LoudnessService service = new LoudnessService(musicRepository, audioFileResolver, pool, -18, 3);
+
+    @Test
+    void catalogRunSkipsTracksThatFailedTooOften() {
+        when(musicRepository.findIdsPendingLoudnessAnalysis(3)).thenReturn(List.of());
+
+        service.startCatalogAnalysis(false);
+
+        verify(musicRepository).findIdsPendingLoudnessAnalysis(3);
+        verify(musicRepository, never()).findAllIds();
+    }
+
+    @Test
+    void failedAnalysisIsRecordedAgainstTheTrack() throws InterruptedException {
+        Music music = mock(Music.class);
+        when(musicRepository.findIdsPendingLoudnessAnalysis(3)).thenReturn(List.of(4L));
+        when(musicRepository.findById(4L)).thenReturn(Optional.of(music));
+        when(audioFileResolver.resolve(any())).thenReturn(Optional.empty());
+
+        service.startCatalogAnalysis(false);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        verify(musicRepository).recordLoudnessFailure(4L);
+        assertEquals(1L, service.getCatalogAnalysisStatus().get("failed"));
+        assertEquals(3, service.getCatalogAnalysisStatus().get("maxFailures"));
+    }
+}
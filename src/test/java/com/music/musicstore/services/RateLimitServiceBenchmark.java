@@ -0,0 +1,88 @@
+package com.music.musicstore.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rate limiting one request: classifying the path and taking a token from the client's
+ * bucket. "oneClient" is a single hot key, "manyClients" spreads requests over 10k tracked keys,
+ * and "manyClientsContended" runs the latter on four threads sharing the maps. Limits are set
+ * high enough that every request is allowed, so the figures are the fast path.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.music.musicstore.services.RateLimitServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private RateLimitService service;
+    private String[] clientKeys;
+
+    @Setup
+    public void setUp() {
+        service = new RateLimitService(true, 100_000,
+                1_000_000, 1e9, 1_000_000, 1e9, 1_000_000, 1e9, 1_000_000, 1e9);
+        clientKeys = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clientKeys[i] = "ip:10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        // Threads start at different clients, as concurrent requests mostly come from different ones
+        @Setup
+        public void setUp() {
+            next = ThreadLocalRandom.current().nextInt(CLIENTS);
+        }
+    }
+
+    @Benchmark
+    public RateLimitService.Decision oneClient() {
+        return limit(clientKeys[0]);
+    }
+
+    @Benchmark
+    public RateLimitService.Decision manyClients(Cursor cursor) {
+        return limit(clientKeys[cursor.next++ % CLIENTS]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitService.Decision manyClientsContended(Cursor cursor) {
+        return limit(clientKeys[cursor.next++ % CLIENTS]);
+    }
+
+    private RateLimitService.Decision limit(String clientKey) {
+        RateLimitService.Group group = service.classify("GET", "/api/albums/search");
+        return service.tryAcquire(group, clientKey);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RateLimitServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
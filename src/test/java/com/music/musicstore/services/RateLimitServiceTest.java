@@ -0,0 +1,64 @@
+package com.music.musicstore.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitServiceTest {
+
+    private RateLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RateLimitService(true, 2, 3, 0.001, 20, 2, 20, 1, 200, 50);
+    }
+
+    @Test
+    void albumSearchAndListingAreSearch() {
+        assertEquals(RateLimitService.Group.SEARCH, service.classify("GET", "/api/albums"));
+        assertEquals(RateLimitService.Group.SEARCH, service.classify("GET", "/api/albums/search"));
+        assertEquals(RateLimitService.Group.SEARCH, service.classify("GET", "/api/albums/by-artist/someone"));
+    }
+
+    @Test
+    void detailAndMediaLookupsAreNotLimited() {
+        assertNull(service.classify("GET", "/api/albums/12"));
+        assertNull(service.classify("GET", "/api/albums/12/with-tracks"));
+        assertNull(service.classify("GET", "/api/music/7/waveform"));
+        assertNull(service.classify("GET", "/api/music/covers/abc/64"));
+        assertNull(service.classify("GET", "/api/music/trending"));
+        assertNull(service.classify("POST", "/api/albums/search"));
+    }
+
+    @Test
+    void otherGroupsAreClassifiedByPrefix() {
+        assertEquals(RateLimitService.Group.AUTH, service.classify("POST", "/api/auth/login"));
+        assertEquals(RateLimitService.Group.ADMIN, service.classify("GET", "/api/admin/users"));
+        assertEquals(RateLimitService.Group.DOWNLOAD, service.classify("GET", "/api/downloads/signed/1"));
+    }
+
+    @Test
+    void clientIsRejectedOnceItsBucketIsEmpty() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.tryAcquire(RateLimitService.Group.SEARCH, "ip:1").allowed());
+        }
+        RateLimitService.Decision rejected = service.tryAcquire(RateLimitService.Group.SEARCH, "ip:1");
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.retryAfterSeconds() >= 1);
+        assertTrue(service.tryAcquire(RateLimitService.Group.SEARCH, "ip:2").allowed());
+    }
+
+    @Test
+    void clientsBeyondTheTrackedCapShareOneBucket() {
+        service.tryAcquire(RateLimitService.Group.SEARCH, "ip:1");
+        service.tryAcquire(RateLimitService.Group.SEARCH, "ip:2");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.tryAcquire(RateLimitService.Group.SEARCH, "ip:overflow-" + i).allowed());
+        }
+        assertFalse(service.tryAcquire(RateLimitService.Group.SEARCH, "ip:overflow-9").allowed());
+    }
+}
@@ -0,0 +1,97 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignedDownloadServiceTest {
+
+    private static final String JWT_SECRET = "test-secret-test-secret-test-secret-0123";
+
+    @Test
+    void signedLinkVerifies() {
+        SignedDownloadService service = service("", JWT_SECRET, 300);
+        Map<String, String> q = query(service.sign(5L, 9L).url());
+
+        assertTrue(service.verify(5L, 9L, Long.parseLong(q.get("e")), q.get("s")));
+    }
+
+    @Test
+    void expiredLinkIsRejected() {
+        SignedDownloadService service = service("", JWT_SECRET, -1);
+        Map<String, String> q = query(service.sign(5L, 9L).url());
+
+        assertFalse(service.verify(5L, 9L, Long.parseLong(q.get("e")), q.get("s")));
+    }
+
+    @Test
+    void tamperedLinkIsRejected() {
+        SignedDownloadService service = service("", JWT_SECRET, 300);
+        Map<String, String> q = query(service.sign(5L, 9L).url());
+        long expires = Long.parseLong(q.get("e"));
+        String signature = q.get("s");
+
+        assertFalse(service.verify(6L, 9L, expires, signature));
+        assertFalse(service.verify(5L, 10L, expires, signature));
+        assertFalse(service.verify(5L, 9L, expires + 60, signature));
+        assertFalse(service.verify(5L, 9L, expires, flipFirst(signature)));
+    }
+
+    @Test
+    void downloadAndStreamSignaturesAreNotInterchangeable() {
+        SignedDownloadService service = service("", JWT_SECRET, 300);
+        Map<String, String> download = query(service.sign(5L, 9L).url());
+        Map<String, String> stream = query(service.signStream(5L, 9L).url());
+
+        assertTrue(service.verifyStream(5L, 9L, Long.parseLong(stream.get("e")), stream.get("s")));
+        assertFalse(service.verifyStream(5L, 9L, Long.parseLong(download.get("e")), download.get("s")));
+        assertFalse(service.verify(5L, 9L, Long.parseLong(stream.get("e")), stream.get("s")));
+    }
+
+    @Test
+    void instancesSharingTheJwtSecretAcceptEachOthersLinks() {
+        SignedDownloadService issuer = service("", JWT_SECRET, 300);
+        SignedDownloadService peer = service("", JWT_SECRET, 300);
+        SignedDownloadService stranger = service("", JWT_SECRET + "x", 300);
+        Map<String, String> q = query(issuer.sign(5L, 9L).url());
+        long expires = Long.parseLong(q.get("e"));
+
+        assertTrue(peer.verify(5L, 9L, expires, q.get("s")));
+        assertFalse(stranger.verify(5L, 9L, expires, q.get("s")));
+    }
+
+    @Test
+    void derivedKeyIsNotTheJwtSecret() {
+        SignedDownloadService derived = service("", JWT_SECRET, 300);
+        SignedDownloadService raw = service(JWT_SECRET, JWT_SECRET, 300);
+        Map<String, String> q = query(derived.sign(5L, 9L).url());
+
+        assertFalse(raw.verify(5L, 9L, Long.parseLong(q.get("e")), q.get("s")));
+    }
+
+    private static SignedDownloadService service(String signingSecret, String jwtSecret, long ttlSeconds) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", jwtSecret);
+        return new SignedDownloadService(signingSecret, jwtUtil, ttlSeconds, 14_400);
+    }
+
+    private static Map<String, String> query(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static String flipFirst(String signature) {
+        char first = signature.charAt(0);
+        return (first == 'A' ? 'B' : 'A') + signature.substring(1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.music.musicstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SlidingWindowCounterTest {
+
+    private static final long ORIGIN = 1_700_000_000_000L;
+
+    @Test
+    void countsEventsWithinTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6, ORIGIN);
+        assertEquals(1, counter.incrementAndGet(ORIGIN));
+        assertEquals(2, counter.incrementAndGet(ORIGIN + 15_000));
+        assertEquals(3, counter.incrementAndGet(ORIGIN + 59_000));
+        assertEquals(3, counter.count(ORIGIN + 59_999));
+    }
+
+    @Test
+    void oldBucketsSlideOutOfTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6, ORIGIN);
+        counter.incrementAndGet(ORIGIN);
+        counter.incrementAndGet(ORIGIN + 30_000);
+        assertEquals(1, counter.count(ORIGIN + 60_000));
+        assertEquals(0, counter.count(ORIGIN + 90_000));
+    }
+
+    @Test
+    void reusedSlotRestartsItsCount() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(4, 4, ORIGIN);
+        counter.incrementAndGet(ORIGIN);
+        counter.incrementAndGet(ORIGIN);
+        assertEquals(1, counter.incrementAndGet(ORIGIN + 4));
+    }
+
+    @Test
+    void millisecondBucketsAtEpochScaleTimestampsStayCorrect() {
+        // Epoch-relative bucket numbers at this resolution would not fit in 40 bits
+        SlidingWindowCounter counter = new SlidingWindowCounter(10, 10, ORIGIN);
+        long now = ORIGIN + 365L * 24 * 3600 * 1000;
+        assertEquals(1, counter.incrementAndGet(now));
+        assertEquals(2, counter.incrementAndGet(now + 9));
+        assertEquals(1, counter.count(now + 10));
+        assertEquals(0, counter.count(now + 20));
+    }
+
+    @Test
+    void timesBeforeTheOriginCountAsTheOrigin() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6, ORIGIN);
+        assertEquals(1, counter.incrementAndGet(ORIGIN - 5_000));
+        assertEquals(1, counter.count(ORIGIN));
+    }
+
+    @Test
+    void reportsWhenTheOldestCountedBucketExpires() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6, ORIGIN);
+        assertEquals(0, counter.millisUntilOldestExpires(ORIGIN));
+        counter.incrementAndGet(ORIGIN + 5_000);
+        counter.incrementAndGet(ORIGIN + 25_000);
+        assertEquals(30_000, counter.millisUntilOldestExpires(ORIGIN + 30_000));
+    }
+
+    @Test
+    void rejectsWindowsShorterThanOneMillisecondPerBucket() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(5, 6, ORIGIN));
+    }
+
+    @Test
+    void refusesTimesPastItsBucketRange() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(1, 1, ORIGIN);
+        assertThrows(IllegalStateException.class, () -> counter.incrementAndGet(ORIGIN + (1L << 40)));
+    }
+}
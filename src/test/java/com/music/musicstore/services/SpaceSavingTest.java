@@ -0,0 +1,105 @@
+package com.music.musicstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    private static final int CAPACITY = 50;
+
+    @Test
+    void countsAreExactWhileBelowCapacity() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        summary.offer(1, 3);
+        summary.offer(2, 1);
+        summary.offer(1, 2);
+
+        assertEquals(new SpaceSaving.Counter(1, 5, 0), summary.get(1));
+        assertEquals(new SpaceSaving.Counter(2, 1, 0), summary.get(2));
+        assertEquals(6, summary.getTotal());
+    }
+
+    @Test
+    void trackedCountsStayWithinTheirErrorAndHeavyItemsAreKept() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<Long, Long> truth = new HashMap<>();
+        feed(skewedStream(1, 100_000), summary, truth);
+
+        assertBounds(summary, truth);
+    }
+
+    @Test
+    void mergedSummaryKeepsTheGuaranteeForTheCombinedStream() {
+        SpaceSaving left = new SpaceSaving(CAPACITY);
+        SpaceSaving right = new SpaceSaving(CAPACITY);
+        Map<Long, Long> truth = new HashMap<>();
+        feed(skewedStream(2, 60_000), left, truth);
+        feed(skewedStream(3, 40_000), right, truth);
+
+        SpaceSaving merged = left.merge(right);
+
+        assertEquals(100_000, merged.getTotal());
+        assertTrue(merged.size() <= CAPACITY);
+        assertBounds(merged, truth);
+    }
+
+    @Test
+    void mergingDifferentCapacitiesIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(10).merge(new SpaceSaving(20)));
+    }
+
+    @Test
+    void topIsClampedToTheTrackedItems() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        summary.offer(7, 1);
+        summary.offer(8, 3);
+        summary.offer(9, 3);
+
+        assertEquals(List.of(), summary.top(-1));
+        assertEquals(List.of(), summary.top(0));
+        assertEquals(List.of(8L), summary.top(1).stream().map(SpaceSaving.Counter::item).toList());
+        assertEquals(List.of(8L, 9L, 7L), summary.top(CAPACITY * 2).stream().map(SpaceSaving.Counter::item).toList());
+    }
+
+    private static void assertBounds(SpaceSaving summary, Map<Long, Long> truth) {
+        long total = summary.getTotal();
+        for (Map.Entry<Long, Long> item : truth.entrySet()) {
+            long actual = item.getValue();
+            SpaceSaving.Counter counter = summary.get(item.getKey());
+            if (actual > total / CAPACITY) {
+                assertNotNull(counter, "heavy item " + item.getKey() + " was dropped");
+            }
+            if (counter != null) {
+                assertTrue(counter.count() >= actual, "count below true count for " + item.getKey());
+                assertTrue(counter.count() - counter.error() <= actual, "error too small for " + item.getKey());
+                assertTrue(counter.error() <= total / CAPACITY, "error above total / capacity for " + item.getKey());
+            }
+        }
+    }
+
+    private static void feed(long[] stream, SpaceSaving summary, Map<Long, Long> truth) {
+        for (long item : stream) {
+            summary.offer(item, 1);
+            truth.merge(item, 1L, Long::sum);
+        }
+    }
+
+    // Roughly Zipf-distributed ids: a few hot tracks and a long tail
+    private static long[] skewedStream(long seed, int length) {
+        Random random = new Random(seed);
+        long[] stream = new long[length];
+        for (int i = 0; i < length; i++) {
+            stream[i] = (long) Math.floor(Math.pow(5_000, random.nextDouble()));
+        }
+        return stream;
+    }
+}
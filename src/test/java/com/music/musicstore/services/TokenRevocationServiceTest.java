@@ -0,0 +1,110 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import com.music.musicstore.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private RevokedTokenRepository repository;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        when(repository.findIdsRevokedSince(any())).thenReturn(List.of());
+        when(repository.streamUnexpiredIds(any())).thenReturn(Stream.empty());
+        service = new TokenRevocationService(repository, 1000, 0.001, 86_400_000L);
+    }
+
+    @Test
+    void unrevokedTokenIsAnsweredByTheFilterAlone() {
+        assertFalse(service.isRevoked(token("never-revoked")));
+        verify(repository, never()).existsById(anyString());
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        JwtUtil.VerifiedToken token = token("logged-out");
+        service.revoke(token);
+        when(repository.existsById("logged-out")).thenReturn(true);
+
+        assertTrue(service.isRevoked(token));
+    }
+
+    @Test
+    void tokenWithoutIdIsNeverRevoked() {
+        assertFalse(service.isRevoked(token(null)));
+    }
+
+    @Test
+    void syncPicksUpRevocationsFromOtherInstances() {
+        when(repository.findIdsRevokedSince(any())).thenReturn(List.of("remote"));
+        when(repository.existsById("remote")).thenReturn(true);
+
+        service.sync();
+
+        assertTrue(service.isRevoked(token("remote")));
+    }
+
+    @Test
+    void rebuildLoadsUnexpiredRows() {
+        when(repository.streamUnexpiredIds(any())).thenReturn(Stream.of("stored"));
+        when(repository.existsById("stored")).thenReturn(true);
+
+        service.rebuild();
+
+        assertTrue(service.isRevoked(token("stored")));
+    }
+
+    @Test
+    void rebuildCatchesUpFromBeforeItsRead() {
+        // Revoked elsewhere while the rebuild was streaming, so only the follow-up sync sees it
+        when(repository.findIdsRevokedSince(any())).thenReturn(List.of("during-rebuild"));
+        when(repository.existsById("during-rebuild")).thenReturn(true);
+
+        Instant before = Instant.now();
+        service.rebuild();
+
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(repository).findIdsRevokedSince(since.capture());
+        assertFalse(since.getValue().isAfter(before));
+        assertTrue(service.isRevoked(token("during-rebuild")));
+    }
+
+    @Test
+    void falsePositivesAreConfirmedAgainstTheTable() {
+        // A one-word filter holding a few hundred ids has every bit set, so any id is a filter hit
+        TokenRevocationService saturated = new TokenRevocationService(repository, 1, 0.5, 86_400_000L);
+        when(repository.streamUnexpiredIds(any())).thenReturn(
+                Stream.iterate(0, i -> i + 1).limit(500).map(i -> "revoked-" + i));
+        saturated.rebuild();
+
+        assertFalse(saturated.isRevoked(token("innocent")));
+
+        verify(repository).existsById("innocent");
+        assertEquals(1L, saturated.getStats().get("filterPositives"));
+        assertEquals(1L, saturated.getStats().get("falsePositives"));
+    }
+
+    private static JwtUtil.VerifiedToken token(String tokenId) {
+        Instant now = Instant.now();
+        return new JwtUtil.VerifiedToken(tokenId, "user", "ROLE_CUSTOMER", 1L, 0L, now, now.plusSeconds(3600));
+    }
+}
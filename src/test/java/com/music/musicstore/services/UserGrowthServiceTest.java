@@ -0,0 +1,96 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.events.UserAccountEvent;
+import com.music.musicstore.repositories.UserDailyRollupRepository;
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserGrowthServiceTest {
+
+    private static final String ROLE = UserDirectoryService.ROLE_CUSTOMER;
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    private UserDailyRollupRepository rollupRepository;
+    private UserDirectoryRepository directoryRepository;
+    private UserGrowthService service;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository = mock(UserDailyRollupRepository.class);
+        directoryRepository = mock(UserDirectoryRepository.class);
+        when(rollupRepository.addCounts(any(), any(), anyLong(), anyLong())).thenReturn(1);
+        when(rollupRepository.setRegistrations(any(), any(), anyLong())).thenReturn(1);
+        service = new UserGrowthService(rollupRepository, directoryRepository, mock(UserDirectoryService.class));
+    }
+
+    @Test
+    void flushWritesPendingCounts() {
+        service.onUserAccount(created(DAY));
+        service.onUserAccount(created(DAY));
+        service.flush();
+        verify(rollupRepository).addCounts(DAY, ROLE, 2, 0);
+    }
+
+    @Test
+    void idlePastDayIsDroppedAndRecreatedByALateEvent() {
+        service.onUserAccount(created(DAY));
+        service.flush();
+        service.flush();
+        service.onUserAccount(created(DAY));
+        service.flush();
+        verify(rollupRepository, times(2)).addCounts(DAY, ROLE, 1, 0);
+    }
+
+    @Test
+    void rebuildDiscardsRegistrationsPendingForRebuiltDays() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{DAY, ROLE, 5L});
+        when(directoryRepository.countRegistrationsByDayAndRole(any())).thenAnswer(invocation -> {
+            // An account committed just before the count arrives during the rebuild
+            service.onUserAccount(created(DAY));
+            return rows;
+        });
+
+        service.rebuildRegistrations();
+        service.flush();
+
+        verify(rollupRepository).setRegistrations(DAY, ROLE, 5);
+        verify(rollupRepository, never()).addCounts(eq(DAY), eq(ROLE), eq(1L), anyLong());
+    }
+
+    @Test
+    void rebuildKeepsPendingRegistrationsForOtherDays() {
+        LocalDate other = DAY.plusDays(1);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{DAY, ROLE, 5L});
+        when(directoryRepository.countRegistrationsByDayAndRole(any())).thenAnswer(invocation -> {
+            service.onUserAccount(created(other));
+            return rows;
+        });
+
+        service.rebuildRegistrations();
+        service.flush();
+
+        verify(rollupRepository).addCounts(other, ROLE, 1, 0);
+    }
+
+    private static UserAccountEvent created(LocalDate day) {
+        return UserAccountEvent.created(ROLE, 1L, true, LocalDateTime.of(day, LocalTime.NOON));
+    }
+}
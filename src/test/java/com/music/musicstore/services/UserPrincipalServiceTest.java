@@ -0,0 +1,97 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.configs.JwtUtil;
+import com.music.musicstore.models.users.Customer;
+import com.music.musicstore.models.users.UserPrincipal;
+import com.music.musicstore.models.users.UserSecurityStamp;
+import com.music.musicstore.repositories.UserSecurityStampRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPrincipalServiceTest {
+
+    private static final String ROLE = "ROLE_CUSTOMER";
+    private static final String KEY = UserSecurityStamp.key(ROLE, 7L);
+
+    private UserSecurityStampRepository stampRepository;
+    private CustomerService customerService;
+    private UserPrincipalService service;
+
+    @BeforeEach
+    void setUp() {
+        stampRepository = mock(UserSecurityStampRepository.class);
+        customerService = mock(CustomerService.class);
+        TokenRevocationService revocations = mock(TokenRevocationService.class);
+        when(revocations.isRevoked(any())).thenReturn(false);
+
+        Customer customer = mock(Customer.class);
+        when(customer.getUsername()).thenReturn("alice");
+        when(customer.isEnabled()).thenReturn(true);
+        doReturn(List.of(new SimpleGrantedAuthority(ROLE))).when(customer).getAuthorities();
+        when(customerService.findById(7L)).thenReturn(customer);
+        storedStamp(1);
+
+        service = new UserPrincipalService(stampRepository, mock(CombinedUserDetailsService.class), customerService,
+                mock(ArtistService.class), mock(AdminService.class), mock(StaffService.class), mock(JwtUtil.class),
+                revocations, 60_000, 100);
+    }
+
+    @Test
+    void cachedPrincipalServesTokensWithTheCurrentStamp() {
+        assertNotNull(service.resolve(token(1)));
+        assertNotNull(service.resolve(token(1)));
+        verify(customerService, times(1)).findById(7L);
+    }
+
+    @Test
+    void tokenNewerThanTheCachedStampReloadsInsteadOfBeingRejected() {
+        assertNotNull(service.resolve(token(1)));
+        // Bumped and reissued by another instance
+        storedStamp(2);
+
+        UserPrincipal principal = service.resolve(token(2));
+
+        assertNotNull(principal);
+        assertEquals(2, principal.getSecurityStamp());
+        verify(customerService, times(2)).findById(7L);
+    }
+
+    @Test
+    void tokenOlderThanTheStoredStampIsRejected() {
+        storedStamp(2);
+        assertNull(service.resolve(token(1)));
+    }
+
+    @Test
+    void tokenNewerThanTheStoredStampIsRejected() {
+        assertNull(service.resolve(token(5)));
+    }
+
+    private void storedStamp(int version) {
+        UserSecurityStamp stamp = new UserSecurityStamp(KEY);
+        for (int i = 0; i < version; i++) {
+            stamp.bump();
+        }
+        when(stampRepository.findById(KEY)).thenReturn(Optional.of(stamp));
+    }
+
+    private static JwtUtil.VerifiedToken token(long stamp) {
+        Instant now = Instant.now();
+        return new JwtUtil.VerifiedToken("id-" + stamp, "alice", ROLE, 7L, stamp, now, now.plusSeconds(3600));
+    }
+}
@@ -0,0 +1,77 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.repositories.UserDirectoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSearchServiceTest {
+
+    private UserDirectoryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserDirectoryRepository.class);
+    }
+
+    @Test
+    void smallDirectoryIsCountedExactlyInOneQuery() {
+        when(repository.findIdRange()).thenReturn(rows(new Object[]{1L, 100L}));
+        when(repository.countSearchGramsBetween(1L, 101L)).thenReturn(rows(new Object[]{"abc", 7L}));
+
+        UserSearchService service = new UserSearchService(repository, 1000);
+        service.loadGramCounts();
+
+        verify(repository, times(1)).countSearchGramsBetween(anyLong(), anyLong());
+        assertEquals(1, service.getStats().get("distinctTrigrams"));
+        assertEquals(true, service.getStats().get("frequenciesLoaded"));
+    }
+
+    @Test
+    void largeDirectoryIsSampledInBoundedWindows() {
+        when(repository.findIdRange()).thenReturn(rows(new Object[]{1L, 1_000_000L}));
+        List<long[]> windows = new ArrayList<>();
+        when(repository.countSearchGramsBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+            windows.add(new long[]{invocation.getArgument(0), invocation.getArgument(1)});
+            return rows(new Object[]{"abc", 1L});
+        });
+
+        UserSearchService service = new UserSearchService(repository, 800);
+        service.loadGramCounts();
+
+        assertEquals(8, windows.size());
+        long sampled = 0;
+        for (long[] window : windows) {
+            sampled += window[1] - window[0];
+            assertTrue(window[0] >= 1 && window[1] <= 1_000_001L);
+        }
+        assertEquals(800, sampled);
+    }
+
+    @Test
+    void emptyDirectoryLoadsNoFrequencies() {
+        when(repository.findIdRange()).thenReturn(rows(new Object[]{null, null}));
+
+        UserSearchService service = new UserSearchService(repository, 1000);
+        service.loadGramCounts();
+
+        verify(repository, times(0)).countSearchGramsBetween(anyLong(), anyLong());
+        Map<String, Object> stats = service.getStats();
+        assertEquals(0, stats.get("distinctTrigrams"));
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,131 @@
+package com.music.musicstore.services;
+
+import com.music.musicstore.models.music.Music;
+import com.music.musicstore.repositories.MusicRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ZipBundleServiceTest {
+
+    private static final Long CUSTOMER_ID = 9L;
+    private static final Instant MODIFIED = Instant.parse("2024-03-05T10:20:30Z");
+
+    @TempDir
+    Path dir;
+
+    private final MusicRepository musicRepository = mock(MusicRepository.class);
+    private final AudioFileResolver audioFileResolver = mock(AudioFileResolver.class);
+    private final EntitlementService entitlementService = mock(EntitlementService.class);
+    private final List<byte[]> contents = new ArrayList<>();
+    private ZipBundleService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Music> tracks = List.of(
+                track(1L, "First", 70_000),
+                track(2L, "Second", 1),
+                track(3L, "Third", 0));
+        when(entitlementService.getOwnedMusicIds(CUSTOMER_ID)).thenReturn(List.of(1L, 2L, 3L));
+        when(musicRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(tracks);
+
+        DownloadBandwidthScheduler unthrottled = new DownloadBandwidthScheduler(Long.MAX_VALUE / 4, Long.MAX_VALUE / 4, 16_384);
+        service = new ZipBundleService(musicRepository, mock(AlbumService.class), audioFileResolver,
+                entitlementService, unthrottled, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void bundleReadsBackWithMatchingNamesSizesAndCrcs() throws IOException {
+        ZipBundleService.Bundle bundle = service.buildLibraryBundle(CUSTOMER_ID);
+        byte[] archive = read(bundle, 0, bundle.totalLength() - 1);
+
+        assertEquals(bundle.totalLength(), archive.length);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (int i = 0; i < contents.size(); i++) {
+                ZipEntry entry = zip.getNextEntry();
+                byte[] data = zip.readAllBytes();
+                CRC32 crc = new CRC32();
+                crc.update(data);
+
+                assertEquals("a/Singles/n" + (i + 1) + ".mp3", entry.getName());
+                assertEquals(contents.get(i).length, entry.getSize());
+                assertEquals(crc.getValue(), entry.getCrc());
+                assertArrayEquals(contents.get(i), data);
+                assertEquals(LocalDateTime.of(2024, 3, 5, 10, 20, 30), entry.getTimeLocal());
+            }
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void rangedSlicesMatchTheFullStream() throws IOException {
+        ZipBundleService.Bundle bundle = service.buildLibraryBundle(CUSTOMER_ID);
+        long last = bundle.totalLength() - 1;
+        byte[] full = read(bundle, 0, last);
+
+        long[][] ranges = {
+                {0, 0}, {0, 29}, {10, 70_100}, {30, 65_565}, {69_990, 70_200},
+                {bundle.centralDirectoryOffset() - 5, bundle.centralDirectoryOffset() + 5},
+                {bundle.centralDirectoryOffset(), last}, {last - 21, last}, {last, last}};
+        for (long[] range : ranges) {
+            byte[] slice = read(bundle, range[0], range[1]);
+            assertArrayEquals(Arrays.copyOfRange(full, (int) range[0], (int) range[1] + 1), slice,
+                    "range " + range[0] + "-" + range[1]);
+        }
+    }
+
+    @Test
+    void identicalBundlesShareTheEtag() throws IOException {
+        assertEquals(service.buildLibraryBundle(CUSTOMER_ID).etag(), service.buildLibraryBundle(CUSTOMER_ID).etag());
+    }
+
+    private byte[] read(ZipBundleService.Bundle bundle, long start, long end) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream(bundle, CUSTOMER_ID, start, end).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private Music track(Long id, String name, int size) throws IOException {
+        byte[] data = new byte[size];
+        new Random(id).nextBytes(data);
+        contents.add(data);
+        Path file = Files.write(dir.resolve(name + ".mp3"), data);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        Music music = mock(Music.class);
+        when(music.getId()).thenReturn(id);
+        when(music.getName()).thenReturn("n" + id);
+        when(music.getArtistUsername()).thenReturn("a");
+        when(music.getAudioCrc32()).thenReturn(crc.getValue());
+        when(music.getAudioCrcSize()).thenReturn((long) size);
+        when(music.getAudioCrcModified()).thenReturn(MODIFIED.toEpochMilli());
+        when(audioFileResolver.resolve(music)).thenReturn(Optional.of(file));
+        return music;
+    }
+}